@@ -0,0 +1,92 @@
+#!/usr/bin/env python3
+"""Compare two JMH JSON result files (-rf json) and flag regressions.
+
+    python3 scripts/compare.py baseline.json current.json [--threshold 5] [--alloc-threshold 5]
+
+A benchmark counts as changed only when the difference exceeds both the threshold (percent)
+and the two runs' combined error margins. Allocation (gc.alloc.rate.norm, from -prof gc) is
+compared per operation, so it does not depend on how fast the machine was. Exits with 1
+if anything regressed, so it can gate a CI job.
+"""
+
+import argparse
+import json
+import sys
+
+ALLOC = "gc.alloc.rate.norm"
+
+
+def load(path):
+    with open(path) as f:
+        results = json.load(f)
+    out = {}
+    for r in results:
+        params = ",".join(f"{k}={v}" for k, v in sorted((r.get("params") or {}).items()))
+        name = r["benchmark"].rsplit(".", 2)
+        key = ".".join(name[-2:]) + (f"[{params}]" if params else "")
+        out[key] = r
+    return out
+
+
+def error(metric):
+    # "NaN" (a string) when the run had a single measurement iteration
+    try:
+        e = float(metric.get("scoreError") or 0)
+    except ValueError:
+        return 0.0
+    return 0.0 if e != e else e
+
+
+def pct(old, new):
+    return (new - old) / old * 100.0 if old else 0.0
+
+
+def main():
+    ap = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    ap.add_argument("baseline")
+    ap.add_argument("current")
+    ap.add_argument("--threshold", type=float, default=5.0, help="time change (%%) worth reporting")
+    ap.add_argument("--alloc-threshold", type=float, default=5.0, help="allocation change (%%) worth reporting")
+    args = ap.parse_args()
+
+    base, cur = load(args.baseline), load(args.current)
+    regressions = 0
+
+    print(f"{'benchmark':72} {'baseline':>12} {'current':>12} {'unit':>8} {'delta':>8}  {'B/op':>10} {'delta':>8}  verdict")
+    for key in sorted(set(base) | set(cur)):
+        if key not in base or key not in cur:
+            print(f"{key:72} {'only in ' + ('current' if key in cur else 'baseline'):>44}")
+            continue
+
+        b, c = base[key], cur[key]
+        bm, cm = b["primaryMetric"], c["primaryMetric"]
+        delta = pct(bm["score"], cm["score"])
+        noise = abs(cm["score"] - bm["score"]) <= error(bm) + error(cm)
+        # thrpt: higher is better; avgt/sample/ss: lower is better
+        worse = delta < 0 if b["mode"] == "thrpt" else delta > 0
+
+        verdict = "~"
+        if abs(delta) >= args.threshold and not noise:
+            verdict = "SLOWER" if worse else "faster"
+
+        ba = (b.get("secondaryMetrics") or {}).get(ALLOC, {}).get("score")
+        ca = (c.get("secondaryMetrics") or {}).get(ALLOC, {}).get("score")
+        alloc_cols = f"{'-':>10} {'':>8}"
+        if ba is not None and ca is not None:
+            adelta = pct(ba, ca)
+            alloc_cols = f"{ca:>10.0f} {adelta:>+7.1f}%"
+            if abs(adelta) >= args.alloc_threshold and abs(ca - ba) >= 16:   # ignore a single object header
+                verdict += " ALLOC+" if adelta > 0 else " alloc-"
+
+        if "SLOWER" in verdict or "ALLOC+" in verdict:
+            regressions += 1
+        print(f"{key:72} {bm['score']:>12.3f} {cm['score']:>12.3f} {cm['scoreUnit']:>8} {delta:>+7.1f}%  {alloc_cols}  {verdict}")
+
+    if regressions:
+        print(f"\n{regressions} regression(s)")
+        return 1
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,37 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@code --name value} / {@code --flag} command-line options for the tools in this module. */
+final class Args {
+
+    private Args() {
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            String name = args[i].substring(2);
+            boolean flag = i + 1 >= args.length || args[i + 1].startsWith("--");
+            opts.put(name, flag ? "true" : args[++i]);
+        }
+        return opts;
+    }
+
+    static int intOf(Map<String, String> opts, String name, int def) {
+        String v = opts.get(name);
+        return v == null ? def : Integer.parseInt(v);
+    }
+
+    static double doubleOf(Map<String, String> opts, String name, double def) {
+        String v = opts.get(name);
+        return v == null ? def : Double.parseDouble(v);
+    }
+
+    static long longOf(Map<String, String> opts, String name, long def) {
+        String v = opts.get(name);
+        return v == null ? def : Long.parseLong(v);
+    }
+}
@@ -0,0 +1,67 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.capture.CapturedRequest;
+import com.nutrisense.nutritionengine.capture.TrafficCapture;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/** Reads the gzipped NDJSON files written by the engine's {@link TrafficCapture}. */
+final class CaptureFile {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private CaptureFile() {
+    }
+
+    /** All records of the given files or directories, oldest first. */
+    static List<CapturedRequest> read(String paths) throws IOException {
+        List<CapturedRequest> records = new ArrayList<>();
+        for (String p : paths.split(",")) {
+            for (Path file : files(Path.of(p.trim()))) {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (!line.isBlank()) records.add(JSON.readValue(line, CapturedRequest.class));
+                    }
+                }
+            }
+        }
+        records.sort(Comparator.comparingLong(CapturedRequest::getTs));
+        return records;
+    }
+
+    /** Every ingredient and shopping item name in the records, for seeding the stub catalog. */
+    static Set<String> foodNames(List<CapturedRequest> records) {
+        Set<String> names = new TreeSet<>();
+        for (CapturedRequest r : records) {
+            JsonNode body = r.getBody();
+            if (body == null) continue;
+            for (JsonNode i : body.path("ingredients")) {
+                if (i.hasNonNull("name")) names.add(i.get("name").asText().trim().toLowerCase());
+            }
+            for (JsonNode item : body.path("neededItems")) {
+                names.add(item.asText().trim().toLowerCase());
+            }
+        }
+        names.remove("");
+        return names;
+    }
+
+    private static List<Path> files(Path path) throws IOException {
+        if (!Files.isDirectory(path)) return List.of(path);
+        try (Stream<Path> s = Files.list(path)) {
+            return s.filter(f -> f.getFileName().toString().endsWith(".ndjson.gz")).sorted().toList();
+        }
+    }
+}
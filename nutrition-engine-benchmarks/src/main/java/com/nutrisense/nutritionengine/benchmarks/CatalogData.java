@@ -0,0 +1,246 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.nutrisense.nutritionengine.model.Ingredient;
+import com.nutrisense.nutritionengine.supabase.*;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Seeded, reproducible catalog rows shaped like the Supabase tables: the same seed and
+ * sizes always give the same foods, stores, prices and suggestions, so runs are comparable.
+ *
+ * Stores are clustered around weighted metro areas (Gaussian scatter, wider for bigger
+ * metros) rather than spread uniformly. Prices are generated per store from their own
+ * seed, so {@link #forEachPrice} can stream millions of rows without holding them;
+ * {@link #prices()} materializes them for the small in-memory benchmarks.
+ */
+public final class CatalogData {
+
+    private static final String[][] BASES = {
+            {"chicken breast", "protein"}, {"salmon", "protein"}, {"egg", "protein"}, {"tofu", "protein"},
+            {"greek yogurt", "protein"}, {"lentils", "protein"}, {"turkey", "protein"}, {"tuna", "protein"},
+            {"broccoli", "vegetables"}, {"spinach", "vegetables"}, {"carrot", "vegetables"}, {"kale", "vegetables"},
+            {"bell pepper", "vegetables"}, {"zucchini", "vegetables"}, {"tomato", "vegetables"}, {"cauliflower", "vegetables"},
+            {"apple", "fruits"}, {"banana", "fruits"}, {"blueberries", "fruits"}, {"orange", "fruits"},
+            {"strawberries", "fruits"}, {"mango", "fruits"}, {"pear", "fruits"}, {"grapes", "fruits"},
+            {"oats", "carbs"}, {"brown rice", "carbs"}, {"quinoa", "carbs"}, {"whole wheat bread", "carbs"},
+            {"sweet potato", "carbs"}, {"pasta", "carbs"}, {"barley", "carbs"}, {"tortilla", "carbs"},
+            {"avocado", "fats"}, {"olive oil", "fats"}, {"almonds", "fats"}, {"walnuts", "fats"},
+            {"peanut butter", "fats"}, {"chia seeds", "fats"}, {"cheddar", "fats"}, {"cashews", "fats"},
+    };
+    private static final String[] VARIANTS = {"", "organic ", "frozen ", "fresh ", "canned ", "store brand ", "family size "};
+    private static final String[] UNITS = {"each", "lb", "kg", "oz", "g", "bag", "pack", "dozen", "loaf"};
+    private static final String[][] TAGS = {{"VEGAN", "VEGETARIAN"}, {"VEGETARIAN"}, {"KETO"}, {"PALEO"}, {}};
+    private static final Map<String, String> GAP_BY_GROUP = Map.of(
+            "protein", "LOW_PROTEIN",
+            "vegetables", "NO_VEGGIES",
+            "fruits", "NO_FRUITS",
+            "carbs", "LOW_COMPLEX_CARBS",
+            "fats", "LOW_HEALTHY_FATS");
+
+    /** name, lat, lng, weight (roughly metro population in 100k). */
+    private static final Object[][] METROS = {
+            {"Atlanta", 33.7490, -84.3880, 60}, {"Charlotte", 35.2271, -80.8431, 27}, {"Nashville", 36.1627, -86.7816, 20},
+            {"Jacksonville", 30.3322, -81.6557, 16}, {"Birmingham", 33.5186, -86.8104, 11}, {"Greenville", 34.8526, -82.3940, 9},
+            {"Chattanooga", 35.0456, -85.3097, 6}, {"Augusta", 33.4735, -82.0105, 6}, {"Savannah", 32.0809, -81.0912, 4},
+            {"Columbus", 32.4610, -84.9877, 3}, {"Macon", 32.8407, -83.6324, 2}, {"Athens", 33.9519, -83.3576, 2},
+    };
+
+    private final long seed;
+    private final double coverage;
+    private final List<FoodItemRow> foods = new ArrayList<>();
+    private final List<FoodIdRow> foodIds = new ArrayList<>();
+    private final List<StoreRow> stores = new ArrayList<>();
+    private final List<FoodSuggestionRow> suggestions = new ArrayList<>();
+    private final Random random;
+    private List<StorePriceRow> prices;
+
+    /**
+     * @param coverage share of the foods each store carries (0..1)
+     */
+    public CatalogData(long seed, int foodCount, int storeCount, double coverage) {
+        this(seed, foodCount, storeCount, coverage, List.of());
+    }
+
+    /**
+     * @param extraFoods names appended to the generated foods (with generated nutrients), e.g.
+     *                   the ingredients of a traffic capture, so replayed requests find them
+     */
+    public CatalogData(long seed, int foodCount, int storeCount, double coverage, Collection<String> extraFoods) {
+        this.seed = seed;
+        this.coverage = Math.min(1.0, Math.max(0.0, coverage));
+        this.random = new Random(seed);
+
+        List<String> extras = new ArrayList<>(new LinkedHashSet<>(extraFoods));
+        for (int i = 0; i < foodCount + extras.size(); i++) {
+            String[] base = BASES[i % BASES.length];
+            int round = i / BASES.length;
+            String name = i >= foodCount
+                    ? extras.get(i - foodCount)
+                    : VARIANTS[round % VARIANTS.length] + base[0] + (round >= VARIANTS.length ? " " + (round / VARIANTS.length) : "");
+
+            FoodItemRow row = new FoodItemRow();
+            row.setId(new UUID(0x0F00D, i));
+            row.setName(name);
+            row.setFoodGroup(base[1]);
+            row.setProteinPer100g(round1(random.nextDouble() * ("protein".equals(base[1]) ? 30 : 8)));
+            row.setCarbsPer100g(round1(random.nextDouble() * ("carbs".equals(base[1]) ? 75 : 20)));
+            row.setFatsPer100g(round1(random.nextDouble() * ("fats".equals(base[1]) ? 60 : 10)));
+            row.setFiberPer100g(round1(random.nextDouble() * 10));
+            row.setCaloriesPer100g(round1(40 + random.nextDouble() * 500));
+            row.setDietTags(List.of(TAGS[random.nextInt(TAGS.length)]));
+            foods.add(row);
+
+            FoodIdRow id = new FoodIdRow();
+            id.setId(new UUID(0x0F00D, i));
+            id.setName(name);
+            foodIds.add(id);
+        }
+
+        int totalWeight = 0;
+        for (Object[] m : METROS) totalWeight += (Integer) m[3];
+        for (int s = 0; s < storeCount; s++) {
+            Object[] metro = pickMetro(totalWeight);
+            // ~4 km per unit of sqrt(weight): Atlanta sprawls, Athens does not
+            double sigma = 0.036 * Math.sqrt((Integer) metro[3]);
+
+            StoreRow store = new StoreRow();
+            store.setId(new UUID(0x5709E, s));
+            store.setName(metro[0] + " Market " + s);
+            store.setChain("Chain " + (s % 7));
+            store.setAddress(s + " Main St, " + metro[0]);
+            store.setLat((Double) metro[1] + random.nextGaussian() * sigma);
+            store.setLng((Double) metro[2] + random.nextGaussian() * sigma);
+            stores.add(store);
+        }
+
+        // a handful of ranked suggestions per gap, like the curated food_suggestions table
+        Map<String, Integer> perGap = new HashMap<>();
+        for (int i = 0; i < foods.size(); i++) {
+            FoodItemRow food = foods.get(i);
+            String gap = GAP_BY_GROUP.get(food.getFoodGroup());
+            int rank = perGap.merge(gap, 1, Integer::sum);
+            if (rank > 25) continue;
+
+            FoodSuggestionRow.FoodJoin join = new FoodSuggestionRow.FoodJoin();
+            join.setName(food.getName());
+            FoodSuggestionRow row = new FoodSuggestionRow();
+            row.setId(gap.toLowerCase() + "-" + rank);
+            row.setFoodId(foodIds.get(i).getId());
+            row.setGap(gap);
+            row.setReason("Good source for " + gap.toLowerCase().replace('_', ' '));
+            row.setPriority(rank);
+            row.setDietTypes(rank % 3 == 0 ? List.of("VEGAN", "VEGETARIAN") : null);
+            row.setFoods(join);
+            suggestions.add(row);
+        }
+    }
+
+    public List<FoodItemRow> foods() {
+        return foods;
+    }
+
+    public List<FoodIdRow> foodIds() {
+        return foodIds;
+    }
+
+    public List<StoreRow> stores() {
+        return stores;
+    }
+
+    public List<FoodSuggestionRow> suggestions() {
+        return suggestions;
+    }
+
+    /** Expected number of store_prices rows. */
+    public long priceCount() {
+        return (long) stores.size() * pricesPerStore();
+    }
+
+    /** All store_prices rows, materialized on first call. */
+    public synchronized List<StorePriceRow> prices() {
+        if (prices == null) {
+            List<StorePriceRow> all = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8, priceCount()));
+            forEachPrice(all::add);
+            prices = all;
+        }
+        return prices;
+    }
+
+    /** Streams the store_prices rows, store by store, in the same order every time. */
+    public void forEachPrice(Consumer<StorePriceRow> sink) {
+        int k = pricesPerStore();
+        BitSet carried = new BitSet(foodIds.size());
+        for (int s = 0; s < stores.size(); s++) {
+            Random r = new Random(seed * 1_000_003L + s);
+            UUID storeId = stores.get(s).getId();
+            carried.clear();
+            for (int n = 0; n < k; ) {
+                int f = r.nextInt(foodIds.size());
+                if (carried.get(f)) continue;
+                carried.set(f);
+                n++;
+
+                StorePriceRow price = new StorePriceRow();
+                price.setStore_id(storeId);
+                price.setFood_id(foodIds.get(f).getId());
+                price.setPrice_usd(Math.round((0.5 + r.nextDouble() * 14) * 100) / 100.0);
+                price.setUnit(UNITS[r.nextInt(UNITS.length)]);
+                sink.accept(price);
+            }
+        }
+    }
+
+    /** {@code count} catalog foods (a few of them repeated, like a real fridge scan). */
+    public List<Ingredient> fridge(int count) {
+        List<Ingredient> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Ingredient ing = new Ingredient();
+            ing.setName(foods.get(random.nextInt(foods.size())).getName());
+            ing.setQuantity(100 + random.nextInt(400));
+            ing.setUnit("g");
+            ing.setConfidenceScore(0.9);
+            out.add(ing);
+        }
+        return out;
+    }
+
+    /** {@code count} lower-cased food names, about {@code missRate} of them not in the catalog. */
+    public List<String> itemNames(int count, double missRate) {
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(random.nextDouble() < missRate
+                    ? "unknown food " + i
+                    : foods.get(random.nextInt(foods.size())).getName().toLowerCase());
+        }
+        return out;
+    }
+
+    /** A shopper location in one of the metros, {lat, lng}. */
+    public double[] userLocation() {
+        int totalWeight = 0;
+        for (Object[] m : METROS) totalWeight += (Integer) m[3];
+        Object[] metro = pickMetro(totalWeight);
+        return new double[]{
+                (Double) metro[1] + random.nextGaussian() * 0.05,
+                (Double) metro[2] + random.nextGaussian() * 0.05};
+    }
+
+    private int pricesPerStore() {
+        return (int) Math.round(coverage * foodIds.size());
+    }
+
+    private Object[] pickMetro(int totalWeight) {
+        int w = random.nextInt(totalWeight);
+        for (Object[] m : METROS) {
+            w -= (Integer) m[3];
+            if (w < 0) return m;
+        }
+        return METROS[0];
+    }
+
+    private static double round1(double x) {
+        return Math.round(x * 10) / 10.0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Google Distance Matrix look-alike: {@code GET /maps/api/distancematrix/json} answers every
+ * origin × destination pair ({@code |}-separated) with the great-circle distance times a road
+ * factor and a 50 km/h duration, in Google's JSON shape. {@link Faults} are applied before each
+ * response, so outages and slow tails can be replayed without spending quota.
+ */
+public final class DistanceMatrixStub implements AutoCloseable {
+
+    public static final String PATH = "/maps/api/distancematrix/json";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    static {
+        // headers and body go out as separate writes; without this, delayed ACKs add ~40 ms per call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    private static final double ROAD_FACTOR = 1.3;
+    private static final double KMH = 50;
+
+    private final Faults faults;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** @param port 0 for an ephemeral port */
+    public DistanceMatrixStub(int port, Faults faults) throws IOException {
+        this.faults = faults;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** Value for {@code google.maps.baseUrl}. */
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int failWith = faults.apply();
+            if (failWith != 0) {
+                exchange.sendResponseHeaders(failWith, -1);
+                return;
+            }
+
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String[] origins = query.getOrDefault("origins", "").split("\\|");
+            String[] destinations = query.getOrDefault("destinations", "").split("\\|");
+
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+            try (JsonGenerator g = JSON.createGenerator(buf, JsonEncoding.UTF8)) {
+                g.writeStartObject();
+                if (!query.containsKey("key")) {
+                    g.writeStringField("status", "REQUEST_DENIED");
+                    g.writeEndObject();
+                } else {
+                    g.writeStringField("status", "OK");
+                    g.writeArrayFieldStart("rows");
+                    for (String o : origins) {
+                        g.writeStartObject();
+                        g.writeArrayFieldStart("elements");
+                        for (String d : destinations) writeElement(g, o, d);
+                        g.writeEndArray();
+                        g.writeEndObject();
+                    }
+                    g.writeEndArray();
+                    g.writeEndObject();
+                }
+            }
+
+            byte[] body = buf.toByteArray();
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeElement(JsonGenerator g, String origin, String destination) throws IOException {
+        double[] from = latLng(origin);
+        double[] to = latLng(destination);
+        g.writeStartObject();
+        if (from == null || to == null) {
+            g.writeStringField("status", "NOT_FOUND");
+        } else {
+            double km = haversineKm(from[0], from[1], to[0], to[1]) * ROAD_FACTOR;
+            long seconds = Math.round(km / KMH * 3600);
+            g.writeStringField("status", "OK");
+            g.writeObjectFieldStart("distance");
+            g.writeNumberField("value", Math.round(km * 1000));
+            g.writeStringField("text", String.format("%.1f km", km));
+            g.writeEndObject();
+            g.writeObjectFieldStart("duration");
+            g.writeNumberField("value", seconds);
+            g.writeStringField("text", (seconds / 60) + " mins");
+            g.writeEndObject();
+        }
+        g.writeEndObject();
+    }
+
+    private static double[] latLng(String s) {
+        int comma = s.indexOf(',');
+        if (comma < 0) return null;
+        try {
+            return new double[]{Double.parseDouble(s.substring(0, comma).trim()), Double.parseDouble(s.substring(comma + 1).trim())};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) return params;
+        for (String param : rawQuery.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq < 0) continue;
+            params.put(param.substring(0, eq), URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,92 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.nutrisense.nutritionengine.distance.DistanceBudget;
+import com.nutrisense.nutritionengine.distance.DistanceCache;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import com.nutrisense.nutritionengine.optimizer.ShoppingListOptimizer;
+import com.nutrisense.nutritionengine.resilience.Bulkheads;
+import com.nutrisense.nutritionengine.service.*;
+import com.nutrisense.nutritionengine.substitution.FoodSubstitutionService;
+import com.nutrisense.nutritionengine.supabase.SupabaseRestClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The engine's services wired by Spring as in the app (same constructors, same @Value
+ * defaults) but without the web layer, over a {@link StubSupabaseClient} or, with
+ * {@link #overHttp}, the real client against a PostgREST endpoint. Google is not
+ * configured, so store distances take the haversine fallback.
+ */
+public final class EngineFixture implements AutoCloseable {
+
+    private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    public EngineFixture(CatalogData data) {
+        this("http://stub", ctx -> ctx.registerBean(StubSupabaseClient.class,
+                () -> new StubSupabaseClient(WebClient.builder(), ctx.getBean(Bulkheads.class),
+                        ctx.getBean(EngineMetrics.class), data)));
+    }
+
+    /** Catalogs are fetched and decoded over HTTP, as in production, e.g. from a {@link PostgrestStub}. */
+    public static EngineFixture overHttp(String supabaseUrl) {
+        return new EngineFixture(supabaseUrl, ctx -> ctx.register(SupabaseRestClient.class));
+    }
+
+    private EngineFixture(String supabaseUrl, Consumer<AnnotationConfigApplicationContext> supabase) {
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "supabase.url", supabaseUrl,
+                "supabase.serviceRoleKey", "stub")));
+
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.registerBean(WebClient.Builder.class, WebClient::builder);
+        context.register(EngineMetrics.class, Bulkheads.class);
+        supabase.accept(context);
+        context.register(
+                FoodCatalogService.class,
+                StoreCatalogService.class,
+                NutritionService.class,
+                FoodSuggestionService.class,
+                FoodGroupService.class,
+                ShoppingListOptimizer.class,
+                RecommendationService.class,
+                FoodSubstitutionService.class,
+                DistanceBudget.class,
+                DistanceCache.class,
+                GoogleDistanceMatrixService.class,
+                RpcBasketPricing.class,
+                StoreTileCatalog.class,
+                StoreRecommendationService.class,
+                AnalyzeResponseCache.class,
+                NutritionAnalysisService.class);
+        context.refresh();
+    }
+
+    public <T> T get(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /** A typical profile: the balanced-diet defaults the app falls back to. */
+    public static UserProfile profile() {
+        UserProfile p = new UserProfile();
+        p.setAge(30);
+        p.setWeightKg(72);
+        p.setHeightCm(175);
+        p.setGender("female");
+        p.setHealthGoal("MAINTAIN");
+        p.setDietType("BALANCED");
+        p.setActivityLevel("MODERATE");
+        return p;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
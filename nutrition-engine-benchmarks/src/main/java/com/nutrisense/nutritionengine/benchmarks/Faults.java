@@ -0,0 +1,59 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and failure injection for the stubs: every response waits {@code latencyMs} plus up
+ * to {@code jitterMs}; a {@code slowRate} share waits {@code slowMs} on top (the tail), and an
+ * {@code errorRate} share fails with {@code errorStatus} after the wait.
+ */
+public final class Faults {
+
+    public static final Faults NONE = new Faults(0, 0, 0, 0, 0, 503);
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double slowRate;
+    private final long slowMs;
+    private final double errorRate;
+    private final int errorStatus;
+
+    public Faults(long latencyMs, long jitterMs, double slowRate, long slowMs, double errorRate, int errorStatus) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.slowRate = slowRate;
+        this.slowMs = slowMs;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    /** From {@code --<prefix>LatencyMs}, {@code JitterMs}, {@code SlowRate}, {@code SlowMs}, {@code ErrorRate}, {@code ErrorStatus}. */
+    static Faults from(Map<String, String> opts, String prefix) {
+        return new Faults(
+                Args.longOf(opts, prefix + "LatencyMs", 0),
+                Args.longOf(opts, prefix + "JitterMs", 0),
+                Args.doubleOf(opts, prefix + "SlowRate", 0),
+                Args.longOf(opts, prefix + "SlowMs", 2000),
+                Args.doubleOf(opts, prefix + "ErrorRate", 0),
+                Args.intOf(opts, prefix + "ErrorStatus", 503));
+    }
+
+    /**
+     * Sleeps the injected delay, then returns the status to fail with, or 0 to answer normally.
+     * Stub handlers run on virtual threads, so sleeping here costs no platform thread.
+     */
+    int apply() throws InterruptedException {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        long delay = latencyMs + (jitterMs > 0 ? r.nextLong(jitterMs + 1) : 0);
+        if (slowRate > 0 && r.nextDouble() < slowRate) delay += slowMs;
+        if (delay > 0) Thread.sleep(delay);
+        return errorRate > 0 && r.nextDouble() < errorRate ? errorStatus : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("latency=%d+%dms slow=%.1f%%/%dms errors=%.1f%%/%d",
+                latencyMs, jitterMs, slowRate * 100, slowMs, errorRate * 100, errorStatus);
+    }
+}
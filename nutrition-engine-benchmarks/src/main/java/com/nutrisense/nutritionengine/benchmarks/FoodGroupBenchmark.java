@@ -0,0 +1,52 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.nutrisense.nutritionengine.model.FoodGroup;
+import com.nutrisense.nutritionengine.model.Ingredient;
+import com.nutrisense.nutritionengine.service.FoodCatalogService;
+import com.nutrisense.nutritionengine.service.FoodCatalogSnapshot;
+import com.nutrisense.nutritionengine.service.FoodGroupService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** {@link FoodGroupService#countGroups(FoodCatalogSnapshot, List)} over a fridge scan. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FoodGroupBenchmark {
+
+    @Param({"500", "5000"})
+    public int foods;
+
+    @Param({"8", "40"})
+    public int fridgeSize;
+
+    private EngineFixture engine;
+    private FoodGroupService foodGroupService;
+    private FoodCatalogSnapshot catalog;
+    private List<Ingredient> fridge;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CatalogData data = new CatalogData(42, foods, 1, 0.6);
+        engine = new EngineFixture(data);
+        foodGroupService = engine.get(FoodGroupService.class);
+        catalog = engine.get(FoodCatalogService.class).snapshot();
+        fridge = data.fridge(fridgeSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public Map<FoodGroup, Integer> countGroups() {
+        return foodGroupService.countGroups(catalog, fridge);
+    }
+}
@@ -0,0 +1,69 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.nutrisense.nutritionengine.model.FoodGap;
+import com.nutrisense.nutritionengine.model.Ingredient;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import com.nutrisense.nutritionengine.service.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecommendationService#detectGaps} and {@link RecommendationService#generateRecommendations}
+ * against a pinned catalog snapshot. Each call gets a fresh {@link AnalysisContext}, as a
+ * single /analyze request does, so target calculation is part of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GapDetectionBenchmark {
+
+    @Param({"500", "5000"})
+    public int foods;
+
+    @Param({"8", "40"})
+    public int fridgeSize;
+
+    private EngineFixture engine;
+    private RecommendationService recommendationService;
+    private FoodCatalogSnapshot catalog;
+    private StoreCatalogSnapshot stores;
+    private UserProfile user;
+    private List<Ingredient> fridge;
+    private List<FoodGap> gaps;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CatalogData data = new CatalogData(42, foods, 20, 0.6);
+        engine = new EngineFixture(data);
+        recommendationService = engine.get(RecommendationService.class);
+        catalog = engine.get(FoodCatalogService.class).snapshot();
+        stores = engine.get(StoreCatalogService.class).snapshot();
+        user = EngineFixture.profile();
+        fridge = data.fridge(fridgeSize);
+        gaps = recommendationService.detectGaps(context(), user, fridge);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public List<FoodGap> detectGaps() {
+        return recommendationService.detectGaps(context(), user, fridge);
+    }
+
+    @Benchmark
+    public List<String> generateRecommendations() {
+        return recommendationService.generateRecommendations(context(), user, fridge, gaps);
+    }
+
+    private AnalysisContext context() {
+        return new AnalysisContext(catalog, () -> stores);
+    }
+}
@@ -0,0 +1,55 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Latencies and status counts of one endpoint; status -1 is a client-side error or timeout. */
+final class LatencyStats {
+
+    private final String name;
+    private final Map<Integer, Integer> statuses = new TreeMap<>();
+    private long[] nanos = new long[1024];
+    private int count;
+    private int ok;
+
+    LatencyStats(String name) {
+        this.name = name;
+    }
+
+    synchronized void record(long latencyNanos, int status) {
+        if (count == nanos.length) nanos = Arrays.copyOf(nanos, count * 2);
+        nanos[count++] = latencyNanos;
+        statuses.merge(status, 1, Integer::sum);
+        if (status >= 200 && status < 300) ok++;
+    }
+
+    static void printHeader() {
+        System.out.printf("%-28s %8s %8s %8s %9s %9s %9s %9s %9s   %s%n",
+                "endpoint", "count", "ok", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+    }
+
+    synchronized void print(double durationS) {
+        if (count == 0) {
+            System.out.printf("%-28s %8d%n", name, 0);
+            return;
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        System.out.printf("%-28s %8d %8d %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f   %s%n",
+                name, count, ok, ok / (double) durationS,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[count - 1] / 1e6, statuses);
+    }
+
+    synchronized double percentileMs(double p) {
+        if (count == 0) return Double.NaN;
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        return percentile(sorted, p);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+}
@@ -0,0 +1,112 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.model.NutritionRequest;
+import com.nutrisense.nutritionengine.store.StoreRequest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load against a running engine: requests to /api/nutrition/analyze and
+ * /api/stores/recommend are issued at a fixed rate whether or not earlier ones have
+ * returned, and latency is measured from when each request was due, not when it was sent,
+ * so a stalled server shows up in the percentiles instead of lowering the offered load.
+ * <pre>
+ * java -cp benchmarks.jar com.nutrisense.nutritionengine.benchmarks.LoadGenerator --url http://localhost:8080 \
+ *     --rps 100 --duration 60 --warmup 10 --storesShare 0.3
+ * </pre>
+ * Bodies use foods of the same seeded catalog as {@link StubServer}, so pass it the same
+ * {@code --seed --foods --stores --pricesPerStore}.
+ */
+public final class LoadGenerator {
+
+    private static final String ANALYZE = "/api/nutrition/analyze";
+    private static final String STORES = "/api/stores/recommend";
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = Args.parse(args);
+        String url = opts.getOrDefault("url", "http://localhost:8080");
+        double rps = Args.doubleOf(opts, "rps", 50);
+        int durationS = Args.intOf(opts, "duration", 30);
+        int warmupS = Args.intOf(opts, "warmup", 5);
+        double storesShare = Args.doubleOf(opts, "storesShare", 0.5);
+        Duration timeout = Duration.ofMillis(Args.longOf(opts, "timeoutMs", 10_000));
+
+        CatalogData data = StubServer.catalog(opts);
+        ObjectMapper json = new ObjectMapper();
+        List<String> analyzeBodies = new ArrayList<>();
+        List<String> storeBodies = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            NutritionRequest analyze = new NutritionRequest();
+            analyze.setUserProfile(EngineFixture.profile());
+            analyze.setIngredients(data.fridge(8));
+            analyzeBodies.add(json.writeValueAsString(analyze));
+
+            double[] at = data.userLocation();
+            StoreRequest stores = new StoreRequest();
+            stores.setLat(at[0]);
+            stores.setLng(at[1]);
+            stores.setNeededItems(data.itemNames(8, 0.1));
+            storeBodies.add(json.writeValueAsString(stores));
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+
+        LatencyStats analyzeStats = new LatencyStats(ANALYZE);
+        LatencyStats storeStats = new LatencyStats(STORES);
+        Random random = new Random(Args.longOf(opts, "seed", 42));
+        long periodNanos = (long) (1e9 / rps);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationS);
+
+        System.out.printf("%s: %.0f rps for %ds after %ds warm-up, %.0f%% stores%n", url, rps, durationS, warmupS, storesShare * 100);
+        for (long i = 0; ; i++) {
+            long due = start + i * periodNanos;
+            if (due >= end) break;
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            boolean stores = random.nextDouble() < storesShare;
+            String body = (stores ? storeBodies : analyzeBodies).get(random.nextInt(256));
+            LatencyStats stats = due >= measureFrom ? (stores ? storeStats : analyzeStats) : null;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + (stores ? STORES : ANALYZE)))
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (stats != null) stats.record(System.nanoTime() - due, error != null ? -1 : response.statusCode());
+            });
+        }
+
+        // let the last requests finish (or time out) before reporting
+        Thread.sleep(timeout.toMillis() + 500);
+        executor.shutdownNow();
+
+        LatencyStats.printHeader();
+        analyzeStats.print(durationS);
+        storeStats.print(durationS);
+    }
+}
@@ -0,0 +1,337 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.supabase.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Just enough of PostgREST to load the engine's catalogs from {@link CatalogData} over a real
+ * socket: {@code GET /rest/v1/<table>} for foods, stores, store_prices, food_suggestions,
+ * gap_rules (empty) and profiles (one synthetic profile for any user_id). Ordering and most
+ * filters are ignored; {@code select} is honored for foods, which two catalogs read with different
+ * columns, and {@code lat}/{@code lng} {@code gte.}/{@code lt.} boxes for stores and (through
+ * {@code stores.lat}/{@code stores.lng}) store_prices, which region tiles read. Bodies are streamed chunked, so millions of price rows are never held in memory.
+ * {@code POST /rest/v1/rpc/basket_prices} answers like the SQL function in
+ * nutrition-engine/sql/basket_prices.sql, by scanning the generated prices.
+ * {@link Faults} are applied before each response. Run standalone through {@link StubServer}.
+ */
+public final class PostgrestStub implements AutoCloseable {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final ObjectMapper MAPPER = new ObjectMapper(JSON);
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");   // see DistanceMatrixStub
+    }
+
+    private final CatalogData data;
+    private final Faults faults;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** @param port 0 for an ephemeral port */
+    public PostgrestStub(CatalogData data, int port) throws IOException {
+        this(data, port, Faults.NONE);
+    }
+
+    public PostgrestStub(CatalogData data, int port, Faults faults) throws IOException {
+        this.data = data;
+        this.faults = faults;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.createContext("/rest/v1/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** Value for {@code supabase.url}. */
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String table = exchange.getRequestURI().getPath().substring("/rest/v1/".length());
+            boolean rpc = table.equals("rpc/basket_prices");
+            if (!(rpc ? "POST" : "GET").equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            int failWith = faults.apply();
+            if (failWith != 0) {
+                exchange.sendResponseHeaders(failWith, -1);
+                return;
+            }
+            if (rpc) {
+                basketPrices(exchange);
+                return;
+            }
+            Set<String> select = select(exchange.getRequestURI().getRawQuery());
+            Box box = Box.parse(exchange.getRequestURI().getRawQuery(), table.equals("store_prices") ? "stores." : "");
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            switch (table) {
+                case "foods", "food_catalog", "food_suggestions", "stores", "store_prices", "gap_rules", "profiles" ->
+                        exchange.sendResponseHeaders(200, 0);
+                default -> {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+            }
+
+            try (OutputStream body = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+                 JsonGenerator g = JSON.createGenerator(body, JsonEncoding.UTF8)) {
+                g.writeStartArray();
+                switch (table) {
+                    case "foods", "food_catalog" -> writeFoods(g, select);
+                    case "food_suggestions" -> writeSuggestions(g);
+                    case "stores" -> writeStores(g, box);
+                    case "store_prices" -> writePrices(g, box);
+                    case "profiles" -> writeProfile(g);
+                    default -> { }   // gap_rules: built-in defaults
+                }
+                g.writeEndArray();
+            }
+        } catch (UncheckedIOException e) {
+            // client went away mid-stream
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeFoods(JsonGenerator g, Set<String> select) throws IOException {
+        boolean nutrients = select.isEmpty() || select.contains("protein_per_100g");
+        List<FoodItemRow> foods = data.foods();
+        List<FoodIdRow> ids = data.foodIds();
+        for (int i = 0; i < foods.size(); i++) {
+            FoodItemRow f = foods.get(i);
+            g.writeStartObject();
+            g.writeStringField("id", ids.get(i).getId().toString());
+            g.writeStringField("name", f.getName());
+            if (nutrients) {
+                g.writeNumberField("protein_per_100g", f.getProteinPer100g());
+                g.writeNumberField("carbs_per_100g", f.getCarbsPer100g());
+                g.writeNumberField("fats_per_100g", f.getFatsPer100g());
+                g.writeNumberField("fiber_per_100g", f.getFiberPer100g());
+                g.writeNumberField("calories_per_100g", f.getCaloriesPer100g());
+                g.writeStringField("food_group", f.getFoodGroup());
+                writeStrings(g, "diet_tags", f.getDietTags());
+            }
+            g.writeEndObject();
+        }
+    }
+
+    private void writeSuggestions(JsonGenerator g) throws IOException {
+        for (FoodSuggestionRow s : data.suggestions()) {
+            g.writeStartObject();
+            g.writeStringField("id", s.getId());
+            g.writeStringField("food_id", s.getFoodId().toString());
+            g.writeStringField("gap", s.getGap());
+            g.writeStringField("reason", s.getReason());
+            g.writeNumberField("priority", s.getPriority());
+            writeStrings(g, "diet_types", s.getDietTypes());
+            g.writeObjectFieldStart("foods");
+            g.writeStringField("name", s.getFoodName());
+            g.writeEndObject();
+            g.writeEndObject();
+        }
+    }
+
+    private void writeStores(JsonGenerator g, Box box) throws IOException {
+        for (StoreRow s : data.stores()) {
+            if (!box.contains(s)) continue;
+            g.writeStartObject();
+            g.writeStringField("id", s.getId().toString());
+            g.writeStringField("name", s.getName());
+            g.writeStringField("chain", s.getChain());
+            g.writeStringField("address", s.getAddress());
+            g.writeNumberField("lat", s.getLat());
+            g.writeNumberField("lng", s.getLng());
+            g.writeEndObject();
+        }
+    }
+
+    private void writePrices(JsonGenerator g, Box box) {
+        Map<UUID, StoreRow> inBox = null;
+        if (!box.isAll()) {
+            inBox = new HashMap<>();
+            for (StoreRow s : data.stores()) {
+                if (box.contains(s)) inBox.put(s.getId(), s);
+            }
+        }
+        Map<UUID, StoreRow> stores = inBox;
+        data.forEachPrice(p -> {
+            StoreRow store = stores == null ? null : stores.get(p.getStore_id());
+            if (stores != null && store == null) return;
+            try {
+                g.writeStartObject();
+                g.writeStringField("store_id", p.getStore_id().toString());
+                g.writeStringField("food_id", p.getFood_id().toString());
+                g.writeNumberField("price_usd", p.getPrice_usd());
+                g.writeStringField("unit", p.getUnit());
+                if (store != null) {
+                    // stores!inner(lat,lng)
+                    g.writeObjectFieldStart("stores");
+                    g.writeNumberField("lat", store.getLat());
+                    g.writeNumberField("lng", store.getLng());
+                    g.writeEndObject();
+                }
+                g.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /** basket_prices(store_ids, items): total and priced item count per store carrying any item. */
+    private void basketPrices(HttpExchange exchange) throws IOException {
+        JsonNode args = MAPPER.readTree(exchange.getRequestBody());
+        Set<UUID> storeIds = new HashSet<>();
+        args.path("store_ids").forEach(id -> storeIds.add(UUID.fromString(id.asText())));
+        Map<String, Integer> wanted = new HashMap<>();
+        args.path("items").forEach(item -> wanted.merge(item.asText(), 1, Integer::sum));
+
+        Map<UUID, String> wantedFood = new HashMap<>();
+        for (FoodIdRow f : data.foodIds()) {
+            String name = f.getName().trim().toLowerCase();
+            if (wanted.containsKey(name)) wantedFood.put(f.getId(), name);
+        }
+        // one price per store and item, the lowest, as the SQL function and the in-memory catalog
+        Map<UUID, Map<String, Double>> lowest = new LinkedHashMap<>();
+        data.forEachPrice(p -> {
+            String name = wantedFood.get(p.getFood_id());
+            if (name == null || p.getPrice_usd() == null || !storeIds.contains(p.getStore_id())) return;
+            lowest.computeIfAbsent(p.getStore_id(), k -> new HashMap<>()).merge(name, p.getPrice_usd(), Math::min);
+        });
+        Map<UUID, double[]> totals = new LinkedHashMap<>();   // store -> {total, priced}
+        lowest.forEach((store, prices) -> {
+            double[] t = totals.computeIfAbsent(store, k -> new double[2]);
+            prices.forEach((name, usd) -> {
+                int n = wanted.get(name);
+                t[0] += n * usd;
+                t[1] += n;
+            });
+        });
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024);
+             JsonGenerator g = JSON.createGenerator(body, JsonEncoding.UTF8)) {
+            g.writeStartArray();
+            for (Map.Entry<UUID, double[]> e : totals.entrySet()) {
+                g.writeStartObject();
+                g.writeStringField("store_id", e.getKey().toString());
+                g.writeNumberField("total_usd", e.getValue()[0]);
+                g.writeNumberField("priced_items", (int) e.getValue()[1]);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        }
+    }
+
+    private static void writeProfile(JsonGenerator g) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("user_id", "00000000-0000-0000-0000-000000000001");
+        g.writeNumberField("age", 30);
+        g.writeStringField("gender", "female");
+        g.writeNumberField("weight_kg", 72.0);
+        g.writeNumberField("height_cm", 175);
+        g.writeStringField("health_goal", "MAINTAIN");
+        g.writeStringField("diet_type", "BALANCED");
+        g.writeNullField("preferences");
+        g.writeEndObject();
+    }
+
+    private static void writeStrings(JsonGenerator g, String field, List<String> values) throws IOException {
+        if (values == null) {
+            g.writeNullField(field);
+            return;
+        }
+        g.writeArrayFieldStart(field);
+        for (String v : values) g.writeString(v);
+        g.writeEndArray();
+    }
+
+    /** Top-level column names of {@code select=} (embedded resources like {@code foods(name)} by name). */
+    private static Set<String> select(String rawQuery) {
+        if (rawQuery == null) return Set.of();
+        for (String param : rawQuery.split("&")) {
+            if (!param.startsWith("select=")) continue;
+            Set<String> columns = new HashSet<>();
+            for (String c : URLDecoder.decode(param.substring(7), StandardCharsets.UTF_8).split(",")) {
+                int paren = c.indexOf('(');
+                columns.add((paren < 0 ? c : c.substring(0, paren)).trim());
+            }
+            columns.remove("*");
+            return columns;
+        }
+        return Set.of();
+    }
+
+    /** {@code lat=gte.S&lat=lt.N&lng=gte.W&lng=lt.E}, each bound optional; unbounded when absent. */
+    private static final class Box {
+        double south = Double.NEGATIVE_INFINITY, north = Double.POSITIVE_INFINITY;
+        double west = Double.NEGATIVE_INFINITY, east = Double.POSITIVE_INFINITY;
+        boolean all = true;
+
+        static Box parse(String rawQuery, String prefix) {
+            Box b = new Box();
+            if (rawQuery == null) return b;
+            for (String param : rawQuery.split("&")) {
+                String p = URLDecoder.decode(param, StandardCharsets.UTF_8);
+                if (!p.startsWith(prefix)) continue;
+                p = p.substring(prefix.length());
+                int eq = p.indexOf('=');
+                int dot = p.indexOf('.', eq + 1);
+                if (eq < 0 || dot < 0) continue;
+                String column = p.substring(0, eq);
+                String op = p.substring(eq + 1, dot);
+                if (!column.equals("lat") && !column.equals("lng")) continue;
+                double v = Double.parseDouble(p.substring(dot + 1));
+                boolean lat = column.equals("lat");
+                if (op.equals("gte")) {
+                    if (lat) b.south = v; else b.west = v;
+                } else if (op.equals("lt")) {
+                    if (lat) b.north = v; else b.east = v;
+                } else {
+                    continue;
+                }
+                b.all = false;
+            }
+            return b;
+        }
+
+        boolean isAll() {
+            return all;
+        }
+
+        boolean contains(StoreRow s) {
+            if (all) return true;
+            return s.getLat() != null && s.getLng() != null
+                    && s.getLat() >= south && s.getLat() < north && s.getLng() >= west && s.getLng() < east;
+        }
+    }
+}
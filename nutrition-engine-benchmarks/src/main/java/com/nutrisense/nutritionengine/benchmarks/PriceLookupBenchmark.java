@@ -0,0 +1,66 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.nutrisense.nutritionengine.service.StoreCatalogService;
+import com.nutrisense.nutritionengine.service.StoreCatalogSnapshot;
+import com.nutrisense.nutritionengine.supabase.StoreRow;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/** Store catalog price lookups, 20% of them for foods the catalog does not know. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriceLookupBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "5000"})
+    public int foods;
+
+    @Param({"50"})
+    public int stores;
+
+    private EngineFixture engine;
+    private StoreCatalogSnapshot catalog;
+    private UUID[] storeIds;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CatalogData data = new CatalogData(42, foods, stores, 0.6);
+        engine = new EngineFixture(data);
+        catalog = engine.get(StoreCatalogService.class).snapshot();
+
+        List<StoreRow> rows = catalog.getStores();
+        names = data.itemNames(LOOKUPS, 0.2).toArray(new String[0]);
+        storeIds = new UUID[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) storeIds[i] = rows.get(i % rows.size()).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public double getPrice() {
+        double sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) sum += catalog.getPrice(storeIds[i], names[i]);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public double getBestPricePer100g() {
+        double sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) sum += catalog.getBestPricePer100g(names[i]);
+        return sum;
+    }
+}
@@ -0,0 +1,197 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nutrisense.nutritionengine.capture.CapturedRequest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a traffic capture against one build, or against two side by side: every request
+ * is sent at its captured offset (divided by {@code --speed}), open-loop, and with
+ * {@code --baseline} to both builds at once. Prints latency percentiles per build and
+ * endpoint (next to the latencies recorded at capture time) and, for two builds, how many
+ * responses differ with the first few differences.
+ * <pre>
+ * java -cp benchmarks.jar com.nutrisense.nutritionengine.benchmarks.ReplayTool --capture capture/ \
+ *     --url http://localhost:8081 --baseline http://localhost:8080 --speed 2
+ * </pre>
+ * Run both builds against a {@link StubServer} started with the same {@code --capture}, so
+ * every captured food is in the catalog. Purchase dates are moved forward by the capture's
+ * age, so freshness comes out as it did when captured.
+ */
+public final class ReplayTool {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private ReplayTool() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = Args.parse(args);
+        if (!opts.containsKey("capture") || !opts.containsKey("url")) {
+            System.err.println("usage: ReplayTool --capture <files|dir> --url <build> [--baseline <build>] [--speed 1] [--limit n]");
+            System.exit(2);
+        }
+        String target = opts.get("url");
+        String baseline = opts.get("baseline");
+        double speed = Args.doubleOf(opts, "speed", 1.0);
+        int maxDiffs = Args.intOf(opts, "diffs", 10);
+        Duration timeout = Duration.ofMillis(Args.longOf(opts, "timeoutMs", 10_000));
+
+        List<CapturedRequest> records = CaptureFile.read(opts.get("capture"));
+        int limit = Args.intOf(opts, "limit", records.size());
+        if (records.size() > limit) records = records.subList(0, limit);
+        if (records.isEmpty()) {
+            System.out.println("No captured requests.");
+            return;
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+
+        Map<String, LatencyStats> stats = new TreeMap<>();
+        for (CapturedRequest r : records) {
+            stats.computeIfAbsent("captured " + r.getPath(), LatencyStats::new).record((long) (r.getDurationMs() * 1e6), r.getStatus());
+        }
+        AtomicInteger same = new AtomicInteger();
+        AtomicInteger different = new AtomicInteger();
+        Queue<String> diffs = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+
+        long firstTs = records.get(0).getTs();
+        long dateShiftDays = ChronoUnit.DAYS.between(
+                Instant.ofEpochMilli(firstTs).atZone(ZoneOffset.UTC).toLocalDate(), LocalDate.now(ZoneOffset.UTC));
+        long start = System.nanoTime();
+        System.out.printf("Replaying %d requests (%.0f s captured) at %.1fx against %s%s%n", records.size(),
+                (records.get(records.size() - 1).getTs() - firstTs) / 1000.0, speed, target,
+                baseline == null ? "" : " and " + baseline);
+
+        for (CapturedRequest r : records) {
+            long due = start + (long) ((r.getTs() - firstTs) * 1e6 / speed);
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            String body = JSON.writeValueAsString(shiftDates(r.getBody(), dateShiftDays));
+            CompletableFuture<HttpResponse<String>> a = send(client, target, r.getPath(), body, timeout, due,
+                    stats.computeIfAbsent("target " + r.getPath(), LatencyStats::new));
+            if (baseline == null) {
+                inFlight.add(a);
+                continue;
+            }
+            CompletableFuture<HttpResponse<String>> b = send(client, baseline, r.getPath(), body, timeout, due,
+                    stats.computeIfAbsent("baseline " + r.getPath(), LatencyStats::new));
+            inFlight.add(a.thenCombine(b, (ra, rb) -> {
+                String diff = diff(ra, rb);
+                if (diff == null) {
+                    same.incrementAndGet();
+                } else {
+                    different.incrementAndGet();
+                    if (diffs.size() < maxDiffs) diffs.add(r.getPath() + " @" + (r.getTs() - firstTs) + "ms: " + diff);
+                }
+                return null;
+            }).exceptionally(e -> null));
+        }
+
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdownNow();
+
+        LatencyStats.printHeader();
+        stats.values().forEach(s -> s.print(seconds));
+
+        if (baseline != null) {
+            System.out.println();
+            for (String path : new TreeSet<>(records.stream().map(CapturedRequest::getPath).toList())) {
+                LatencyStats t = stats.get("target " + path);
+                LatencyStats b = stats.get("baseline " + path);
+                System.out.printf("%-28s p50 %+.1f%%  p99 %+.1f%%  (target vs baseline)%n", path,
+                        change(b.percentileMs(0.50), t.percentileMs(0.50)), change(b.percentileMs(0.99), t.percentileMs(0.99)));
+            }
+            System.out.printf("%nResponses: %d identical, %d different%n", same.get(), different.get());
+            diffs.forEach(d -> System.out.println("  " + d));
+        }
+    }
+
+    private static CompletableFuture<HttpResponse<String>> send(HttpClient client, String url, String path, String body,
+                                                                Duration timeout, long due, LatencyStats stats) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> stats.record(System.nanoTime() - due, error != null ? -1 : response.statusCode()));
+    }
+
+    /** Ingredients' purchase dates moved forward, so freshness is computed as it was at capture time. */
+    private static JsonNode shiftDates(JsonNode body, long days) {
+        if (days == 0 || !body.has("ingredients")) return body;
+        JsonNode copy = body.deepCopy();
+        for (JsonNode i : copy.get("ingredients")) {
+            JsonNode date = i.get("purchaseDate");
+            if (date != null && date.isTextual()) {
+                ((ObjectNode) i).put("purchaseDate", LocalDate.parse(date.asText()).plusDays(days).toString());
+            }
+        }
+        return copy;
+    }
+
+    /** First difference between two responses, or null if status and JSON body are equal. */
+    private static String diff(HttpResponse<String> a, HttpResponse<String> b) {
+        if (a.statusCode() != b.statusCode()) return "status " + a.statusCode() + " vs " + b.statusCode();
+        try {
+            return firstDiff(JSON.readTree(a.body()), JSON.readTree(b.body()), "");
+        } catch (Exception e) {
+            return Objects.equals(a.body(), b.body()) ? null : "body differs";
+        }
+    }
+
+    private static String firstDiff(JsonNode a, JsonNode b, String pointer) {
+        if (a == null || b == null || a.getNodeType() != b.getNodeType()) {
+            return pointer + ": " + a + " vs " + b;
+        }
+        if (a.isObject()) {
+            Set<String> fields = new TreeSet<>();
+            a.fieldNames().forEachRemaining(fields::add);
+            b.fieldNames().forEachRemaining(fields::add);
+            for (String f : fields) {
+                String d = firstDiff(a.get(f), b.get(f), pointer + "/" + f);
+                if (d != null) return d;
+            }
+            return null;
+        }
+        if (a.isArray()) {
+            for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+                String d = firstDiff(a.get(i), b.get(i), pointer + "/" + i);
+                if (d != null) return d;
+            }
+            return a.size() == b.size() ? null : pointer + ": " + a.size() + " vs " + b.size() + " elements";
+        }
+        return a.equals(b) ? null : pointer + ": " + a + " vs " + b;
+    }
+
+    private static double change(double before, double after) {
+        return before > 0 ? (after - before) / before * 100 : Double.NaN;
+    }
+}
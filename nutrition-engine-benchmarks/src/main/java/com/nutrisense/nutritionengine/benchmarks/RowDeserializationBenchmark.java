@@ -0,0 +1,77 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import com.nutrisense.nutritionengine.supabase.StorePriceRow;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding PostgREST payloads the way catalog reloads do ({@code bodyToFlux(...).collectList()}
+ * goes through {@link Jackson2JsonDecoder}), next to a plain ObjectMapper read of the same bytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowDeserializationBenchmark {
+
+    @Param({"1000", "20000"})
+    public int rows;
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private final Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(mapper);
+    private ObjectReader foodReader;
+    private ObjectReader priceReader;
+    private byte[] foodJson;
+    private byte[] priceJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // enough stores that the price table has about `rows` rows
+        CatalogData data = new CatalogData(42, rows, Math.max(1, rows / 600), 0.6);
+        foodJson = mapper.writeValueAsBytes(data.foods());
+        priceJson = mapper.writeValueAsBytes(data.prices().subList(0, Math.min(rows, data.prices().size())));
+        foodReader = mapper.readerForListOf(FoodItemRow.class);
+        priceReader = mapper.readerForListOf(StorePriceRow.class);
+    }
+
+    @Benchmark
+    public List<FoodItemRow> foodsObjectMapper() throws IOException {
+        return foodReader.readValue(foodJson);
+    }
+
+    @Benchmark
+    public List<FoodItemRow> foodsWebClientDecoder() {
+        return decode(foodJson, FoodItemRow.class);
+    }
+
+    @Benchmark
+    public List<StorePriceRow> pricesObjectMapper() throws IOException {
+        return priceReader.readValue(priceJson);
+    }
+
+    @Benchmark
+    public List<StorePriceRow> pricesWebClientDecoder() {
+        return decode(priceJson, StorePriceRow.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> decode(byte[] json, Class<T> type) {
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(json);
+        return (List<T>) decoder.decode(Flux.just(buffer), ResolvableType.forClass(type), null, null)
+                .collectList()
+                .block();
+    }
+}
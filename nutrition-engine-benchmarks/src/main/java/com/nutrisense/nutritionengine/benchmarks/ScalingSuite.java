@@ -0,0 +1,172 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.nutrisense.nutritionengine.model.Ingredient;
+import com.nutrisense.nutritionengine.model.ShoppingMode;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import com.nutrisense.nutritionengine.service.*;
+import com.nutrisense.nutritionengine.store.StoreRequest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Grows one catalog dimension at a time (foods, stores, prices per store) with the others
+ * fixed, and for each size loads the catalogs over HTTP from a {@link PostgrestStub} and
+ * reports load time, retained heap (measured after GC, next to the snapshots' own estimate)
+ * and p50/p99 latency of /analyze (suggestions and optimized) and /stores/recommend. Meant to
+ * show where cost stops being linear before production data gets there.
+ *
+ * {@code java -Xmx4g -cp benchmarks.jar com.nutrisense.nutritionengine.benchmarks.ScalingSuite [--quick] [--dimension foods|stores|prices] [--csv out.csv]}
+ */
+public final class ScalingSuite {
+
+    private static final String HEADER = "dimension,foods,stores,prices,food_load_ms,store_load_ms,heap_mb,estimate_mb,"
+            + "analyze_p50_ms,analyze_p99_ms,optimized_p50_ms,optimized_p99_ms,stores_p50_ms,stores_p99_ms";
+
+    private static final class Size {
+        final String dimension;
+        final int foods;
+        final int stores;
+        final int pricesPerStore;
+
+        Size(String dimension, int foods, int stores, int pricesPerStore) {
+            this.dimension = dimension;
+            this.foods = foods;
+            this.stores = stores;
+            this.pricesPerStore = pricesPerStore;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = Args.parse(args);
+        boolean quick = opts.containsKey("quick");
+        long seed = Args.longOf(opts, "seed", 42);
+        int requests = Args.intOf(opts, "requests", quick ? 50 : 300);
+        String only = opts.get("dimension");
+
+        List<Size> sizes = new ArrayList<>();
+        if (only == null || only.equals("foods")) {
+            for (int f : quick ? new int[]{1_000, 5_000} : new int[]{1_000, 5_000, 20_000, 50_000}) {
+                sizes.add(new Size("foods", f, 500, 300));
+            }
+        }
+        if (only == null || only.equals("stores")) {
+            for (int s : quick ? new int[]{100, 1_000} : new int[]{100, 1_000, 5_000, 10_000}) {
+                sizes.add(new Size("stores", 5_000, s, 300));
+            }
+        }
+        if (only == null || only.equals("prices")) {
+            for (int p : quick ? new int[]{50, 500} : new int[]{50, 300, 1_000, 3_000}) {
+                sizes.add(new Size("prices", 10_000, 1_000, p));
+            }
+        }
+
+        // JIT and connection pool warm-up, otherwise the first row's load times are mostly that
+        run(new Size("warmup", 1_000, 100, 100), seed, requests);
+
+        System.out.println(HEADER.replace(',', '\t'));
+        List<String> rows = new ArrayList<>();
+        for (Size size : sizes) {
+            String row = run(size, seed, requests);
+            rows.add(row);
+            System.out.println(row.replace(',', '\t'));
+        }
+
+        if (opts.containsKey("csv")) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(opts.get("csv"))))) {
+                out.println(HEADER);
+                rows.forEach(out::println);
+            }
+        }
+    }
+
+    private static String run(Size size, long seed, int requests) throws IOException {
+        CatalogData data = new CatalogData(seed, size.foods, size.stores, (double) size.pricesPerStore / size.foods);
+
+        try (PostgrestStub stub = new PostgrestStub(data, 0);
+             EngineFixture engine = EngineFixture.overHttp(stub.url())) {
+            FoodCatalogService foodCatalog = engine.get(FoodCatalogService.class);
+            StoreCatalogService storeCatalog = engine.get(StoreCatalogService.class);
+            NutritionAnalysisService analysis = engine.get(NutritionAnalysisService.class);
+            StoreRecommendationService stores = engine.get(StoreRecommendationService.class);
+
+            long heapBefore = usedHeapAfterGc();
+            long t0 = System.nanoTime();
+            FoodCatalogSnapshot food = foodCatalog.snapshot();
+            long t1 = System.nanoTime();
+            StoreCatalogSnapshot store = storeCatalog.snapshot();
+            long t2 = System.nanoTime();
+            long heap = usedHeapAfterGc() - heapBefore;
+            long estimate = food.approxHeapBytes() + store.approxHeapBytes();
+
+            UserProfile user = EngineFixture.profile();
+            List<List<Ingredient>> fridges = new ArrayList<>();
+            List<StoreRequest> storeRequests = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                fridges.add(data.fridge(8));
+                double[] at = data.userLocation();
+                StoreRequest req = new StoreRequest();
+                req.setLat(at[0]);
+                req.setLng(at[1]);
+                req.setNeededItems(data.itemNames(12, 0.1));
+                storeRequests.add(req);
+            }
+
+            int[] next = {0};
+            Supplier<Object> analyze = () -> analysis.compute(analysis.newContext(), user,
+                    fridges.get(next[0]++ % fridges.size()), ShoppingMode.SUGGESTIONS, null);
+            Supplier<Object> optimized = () -> analysis.compute(analysis.newContext(), user,
+                    fridges.get(next[0]++ % fridges.size()), ShoppingMode.OPTIMIZED, 25.0);
+            Supplier<Object> recommend = () -> stores.recommend(storeRequests.get(next[0]++ % storeRequests.size()));
+
+            double[] a = latencies(analyze, requests);
+            double[] o = latencies(optimized, requests);
+            double[] s = latencies(recommend, requests);
+
+            return String.join(",", size.dimension,
+                    String.valueOf(size.foods), String.valueOf(size.stores), String.valueOf(data.priceCount()),
+                    ms(t1 - t0), ms(t2 - t1), mb(heap), mb(estimate),
+                    fmt(a[0]), fmt(a[1]), fmt(o[0]), fmt(o[1]), fmt(s[0]), fmt(s[1]));
+        }
+    }
+
+    /** {p50, p99} in ms after a warm-up of the same length. */
+    private static double[] latencies(Supplier<Object> op, int n) {
+        for (int i = 0; i < n; i++) op.get();
+        long[] nanos = new long[n];
+        for (int i = 0; i < n; i++) {
+            long start = System.nanoTime();
+            op.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new double[]{nanos[(int) (n * 0.50)] / 1e6, nanos[Math.min(n - 1, (int) (n * 0.99))] / 1e6};
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String ms(long nanos) {
+        return String.valueOf(nanos / 1_000_000);
+    }
+
+    private static String mb(long bytes) {
+        return String.format("%.1f", bytes / (1024.0 * 1024));
+    }
+
+    private static String fmt(double ms) {
+        return String.format("%.3f", ms);
+    }
+}
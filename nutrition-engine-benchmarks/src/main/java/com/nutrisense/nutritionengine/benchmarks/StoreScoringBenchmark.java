@@ -0,0 +1,66 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.nutrisense.nutritionengine.service.StoreCatalogService;
+import com.nutrisense.nutritionengine.service.StoreRecommendationService;
+import com.nutrisense.nutritionengine.store.StoreRecommendationResponse;
+import com.nutrisense.nutritionengine.store.StoreRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StoreRecommendationService#recommend(StoreRequest)} end to end minus the network:
+ * Google is unconfigured, so distances are the haversine fallback and the time is basket
+ * pricing (optionally with nutrient-nearest substitutes) and scoring, optionally with the
+ * Pareto skyline over price, distance, travel time and coverage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoreScoringBenchmark {
+
+    @Param({"25", "250", "2500"})
+    public int stores;
+
+    @Param({"false", "true"})
+    public boolean substituteMissing;
+
+    @Param({"false", "true"})
+    public boolean pareto;
+
+    private EngineFixture engine;
+    private StoreRecommendationService storeService;
+    private StoreRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CatalogData data = new CatalogData(42, 2000, stores, 0.6);
+        engine = new EngineFixture(data);
+        storeService = engine.get(StoreRecommendationService.class);
+        engine.get(StoreCatalogService.class).snapshot();
+
+        request = new StoreRequest();
+        request.setLat(33.954764);
+        request.setLng(-83.375151);
+        request.setNeededItems(data.itemNames(12, 0.1));
+        request.setSubstituteMissing(substituteMissing);
+        request.setDietType("BALANCED");
+        request.setPareto(pareto);
+
+        // builds the substitution k-d tree outside the measurement
+        storeService.recommend(request);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public StoreRecommendationResponse recommend() {
+        return storeService.recommend(request);
+    }
+}
@@ -0,0 +1,55 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Starts a {@link PostgrestStub} and a {@link DistanceMatrixStub} for running the real app
+ * offline, each with its own fault injection:
+ * <pre>
+ * java -cp benchmarks.jar com.nutrisense.nutritionengine.benchmarks.StubServer --stores 200 \
+ *     --googleLatencyMs 40 --googleJitterMs 40 --googleSlowRate 0.01 --googleSlowMs 3000 --googleErrorRate 0.02
+ * </pre>
+ * Catalog options: {@code --seed --foods --stores --pricesPerStore}, plus {@code --capture files}
+ * to add every food named in a traffic capture; ports {@code --supabasePort} (18080) and
+ * {@code --googlePort} (18081); faults {@code --supabase*} / {@code --google*}, see {@link Faults}.
+ */
+public final class StubServer {
+
+    private StubServer() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = Args.parse(args);
+        CatalogData data = catalog(opts);
+        Faults supabaseFaults = Faults.from(opts, "supabase");
+        Faults googleFaults = Faults.from(opts, "google");
+
+        PostgrestStub supabase = new PostgrestStub(data, Args.intOf(opts, "supabasePort", 18080), supabaseFaults);
+        DistanceMatrixStub google = new DistanceMatrixStub(Args.intOf(opts, "googlePort", 18081), googleFaults);
+
+        System.out.printf("PostgREST stub on %s (%s): %d foods, %d stores, %d prices, %d suggestions%n",
+                supabase.url(), supabaseFaults, data.foods().size(), data.stores().size(), data.priceCount(),
+                data.suggestions().size());
+        System.out.printf("Distance Matrix stub on %s (%s)%n", google.url(), googleFaults);
+        System.out.println("Run the engine with:");
+        System.out.printf("  SUPABASE_URL=%s SUPABASE_SERVICE_ROLE_KEY=stub GOOGLE_MAPS_BASE_URL=%s GOOGLE_MAPS_API_KEY=stub%n",
+                supabase.url(), google.url());
+        Thread.currentThread().join();
+    }
+
+    /** The catalog options shared with {@link LoadGenerator}, which must use the same ones to hit known foods. */
+    static CatalogData catalog(Map<String, String> opts) throws IOException {
+        int foods = Args.intOf(opts, "foods", 5000);
+        Set<String> captured = opts.containsKey("capture")
+                ? CaptureFile.foodNames(CaptureFile.read(opts.get("capture")))
+                : Set.of();
+        return new CatalogData(
+                Args.longOf(opts, "seed", 42),
+                foods,
+                Args.intOf(opts, "stores", 200),
+                (double) Args.intOf(opts, "pricesPerStore", 300) / foods,
+                captured);
+    }
+}
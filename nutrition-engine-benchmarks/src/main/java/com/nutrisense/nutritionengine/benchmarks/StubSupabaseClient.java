@@ -0,0 +1,39 @@
+package com.nutrisense.nutritionengine.benchmarks;
+
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.resilience.Bulkheads;
+import com.nutrisense.nutritionengine.supabase.*;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Serves {@link CatalogData} rows in place of PostgREST, keyed by row type. */
+public class StubSupabaseClient extends SupabaseRestClient {
+
+    private final CatalogData data;
+
+    public StubSupabaseClient(WebClient.Builder builder, Bulkheads bulkheads, EngineMetrics metrics, CatalogData data) {
+        super(builder, bulkheads, metrics);
+        this.data = data;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Mono<List<T>> getListAsync(String pathAndQuery, Class<T> clazz) {
+        List<?> rows;
+        if (clazz == FoodItemRow.class) rows = data.foods();
+        else if (clazz == FoodIdRow.class) rows = data.foodIds();
+        else if (clazz == StoreRow.class) rows = data.stores();
+        else if (clazz == StorePriceRow.class) rows = data.prices();
+        else if (clazz == FoodSuggestionRow.class) rows = data.suggestions();
+        else rows = Collections.emptyList();   // gap_rules: built-in defaults
+        return Mono.just((List<T>) rows);
+    }
+
+    @Override
+    public Mono<ProfileRow> getProfileByUserIdAsync(String userId) {
+        return Mono.empty();
+    }
+}
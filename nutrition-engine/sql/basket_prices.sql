@@ -0,0 +1,35 @@
+-- Basket pricing inside the database, for nutrition.pricing.backend=rpc|auto (RpcBasketPricing).
+-- Called by PostgREST as POST /rest/v1/rpc/basket_prices {"store_ids": [...], "items": [...]}.
+--
+-- items are trimmed, lower-cased food names; a repeated item is priced once per occurrence.
+-- Each (store, item) gets exactly one price, like the in-memory catalog: when several foods
+-- share a normalized name or a store lists a food twice, the lowest price_usd wins.
+-- Returns one row per candidate store carrying at least one item; the engine adds the
+-- missing-item penalty for the rest, as it does when pricing from memory.
+
+create or replace function basket_prices(store_ids uuid[], items text[])
+returns table (store_id uuid, total_usd double precision, priced_items integer)
+language sql
+stable
+as $$
+    select b.store_id,
+           sum(b.price_usd)::double precision as total_usd,
+           count(*)::integer                 as priced_items
+    from (
+        select distinct on (sp.store_id, i.ord) sp.store_id, sp.price_usd
+        from unnest(items) with ordinality as i(name, ord)
+        join foods f         on lower(trim(f.name)) = i.name
+        join store_prices sp on sp.food_id = f.id
+        where sp.store_id = any(store_ids)
+          and sp.price_usd is not null
+        order by sp.store_id, i.ord, sp.price_usd
+    ) b
+    group by b.store_id;
+$$;
+
+-- the name join and the per-store probe both need an index on large tables
+create index if not exists foods_name_key_idx on foods (lower(trim(name)));
+create index if not exists store_prices_food_store_idx on store_prices (food_id, store_id);
+
+-- the engine calls it with the service-role key
+grant execute on function basket_prices(uuid[], text[]) to service_role;
@@ -0,0 +1,271 @@
+package com.nutrisense.nutritionengine.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.model.NutritionRequest;
+import com.nutrisense.nutritionengine.model.NutritionResponse;
+import com.nutrisense.nutritionengine.model.ShoppingMode;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import com.nutrisense.nutritionengine.service.AnalysisContext;
+import com.nutrisense.nutritionengine.service.NutritionAnalysisService;
+import com.nutrisense.nutritionengine.service.ProfileService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams NDJSON {@link NutritionRequest} lines in and NDJSON {@link BatchAnalyzeResult}
+ * lines out, each written as soon as it is done. Every line of a batch runs against one
+ * {@link AnalysisContext} (same catalog snapshot, shared target memo) and profiles loaded
+ * by userId are fetched once per batch. At most {@code concurrency} lines are in flight,
+ * which also bounds how far the reader runs ahead of the workers.
+ *
+ * Batch results skip the /analyze response cache: backfills touch each user once and
+ * would only evict the entries interactive clients are hitting.
+ */
+@Service
+public class BatchAnalysisService {
+
+    private final NutritionAnalysisService analysisService;
+    private final ProfileService profileService;
+    private final ObjectMapper objectMapper;
+    private final EngineMetrics metrics;
+    private final ExecutorService executor;
+    private final int concurrency;
+
+    public BatchAnalysisService(NutritionAnalysisService analysisService,
+                                ProfileService profileService,
+                                ObjectMapper objectMapper,
+                                EngineMetrics metrics,
+                                @Value("${nutrition.batch.concurrency:0}") int concurrency) {
+        this.analysisService = analysisService;
+        this.profileService = profileService;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.concurrency = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.concurrency, r -> {
+            Thread t = new Thread(r, "nutrition-batch-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void run(InputStream in, OutputStream out) throws IOException {
+        AnalysisContext ctx = analysisService.newContext();
+        Map<String, CompletableFuture<UserProfile>> profiles = new ConcurrentHashMap<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+
+        try {
+            String text;
+            int lineNo = 0;
+            while ((text = reader.readLine()) != null && writeFailure.get() == null) {
+                lineNo++;
+                if (text.isBlank()) continue;
+
+                int line = lineNo;
+                String json = text;
+                inFlight.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            write(writer, process(ctx, profiles, line, json));
+                        } catch (IOException e) {
+                            // client went away; stop reading, let in-flight lines drain
+                            writeFailure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    throw new IOException("Batch executor is shut down", e);
+                }
+            }
+            inFlight.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
+        }
+
+        if (writeFailure.get() != null) throw writeFailure.get();
+        synchronized (writer) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Reactive {@link #run}: same per-line semantics, with profile fetches and catalog loads
+     * non-blocking and the analyses on the parallel scheduler. Results are emitted in
+     * completion order, at most {@code concurrency} lines in flight.
+     */
+    public Flux<BatchAnalyzeResult> run(Flux<String> lines) {
+        Map<String, Mono<UserProfile>> profiles = new ConcurrentHashMap<>();
+
+        // store prices are pinned by the first OPTIMIZED line, a SUGGESTIONS-only batch never loads them
+        return analysisService.newContextAsync(false).flatMapMany(ctx -> lines
+                .index()
+                .filter(t -> !t.getT2().isBlank())
+                .flatMap(t -> processAsync(ctx, profiles, (int) (t.getT1() + 1), t.getT2()), concurrency));
+    }
+
+    private BatchAnalyzeResult process(AnalysisContext ctx,
+                                       Map<String, CompletableFuture<UserProfile>> profiles,
+                                       int line,
+                                       String json) {
+        NutritionRequest request = null;
+        try {
+            request = parse(json);
+            UserProfile user = request.getUserProfile();
+            if (user == null && hasText(request.getUserId())) {
+                user = profile(profiles, request.getUserId());
+            }
+            return analyze(ctx, line, request, user);
+        } catch (RuntimeException e) {
+            return failure(line, request == null ? null : request.getUserId(), e);
+        }
+    }
+
+    private Mono<BatchAnalyzeResult> processAsync(AnalysisContext ctx,
+                                                  Map<String, Mono<UserProfile>> profiles,
+                                                  int line,
+                                                  String json) {
+        NutritionRequest request;
+        try {
+            request = parse(json);
+        } catch (RuntimeException e) {
+            return Mono.just(failure(line, null, e));
+        }
+
+        String userId = request.getUserId();
+        Mono<UserProfile> user;
+        if (request.getUserProfile() != null) {
+            user = Mono.just(request.getUserProfile());
+        } else if (hasText(userId)) {
+            // "not found" stays cached for the batch, other failures are retried by later lines
+            Mono<UserProfile> cached = profiles.get(userId);
+            if (cached != null) {
+                metrics.cacheHit(EngineMetrics.CACHE_PROFILE);
+            } else {
+                metrics.cacheMiss(EngineMetrics.CACHE_PROFILE);
+                cached = profiles.computeIfAbsent(userId, id -> profileService.load(id)
+                        .doOnError(e -> {
+                            if (!(e instanceof IllegalArgumentException)) profiles.remove(id);
+                        })
+                        .cache());
+            }
+            user = cached;
+        } else {
+            user = Mono.empty();
+        }
+
+        Mono<AnalysisContext> pinned = request.getShoppingMode() == ShoppingMode.OPTIMIZED
+                ? analysisService.pinStoresAsync(ctx)
+                : Mono.just(ctx);
+        return pinned.then(user.map(Optional::of).defaultIfEmpty(Optional.empty()))
+                .publishOn(Schedulers.parallel())
+                .map(u -> analyze(ctx, line, request, u.orElse(null)))
+                .onErrorResume(e -> Mono.just(failure(line, userId, e)));
+    }
+
+    private NutritionRequest parse(String json) {
+        try {
+            return objectMapper.readValue(json, NutritionRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed request line: " + e.getOriginalMessage());
+        }
+    }
+
+    private BatchAnalyzeResult analyze(AnalysisContext ctx, int line, NutritionRequest request, UserProfile user) {
+        if (user == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing userProfile or userId");
+        }
+        if (request.getIngredients() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing ingredients");
+        }
+
+        NutritionResponse response = analysisService.compute(ctx, user, request.getIngredients(),
+                request.getShoppingMode(), request.getBudgetUsd());
+        return new BatchAnalyzeResult(line, request.getUserId(), HttpStatus.OK.value(), null, response);
+    }
+
+    /**
+     * One profile fetch per userId per batch, also when several lines for the same user run
+     * at once. "Not found" is remembered for the batch; other failures are not, so a later
+     * line for that user retries.
+     */
+    private UserProfile profile(Map<String, CompletableFuture<UserProfile>> profiles, String userId) {
+        CompletableFuture<UserProfile> mine = new CompletableFuture<>();
+        CompletableFuture<UserProfile> existing = profiles.putIfAbsent(userId, mine);
+
+        if (existing != null) {
+            metrics.cacheHit(EngineMetrics.CACHE_PROFILE);
+        } else {
+            metrics.cacheMiss(EngineMetrics.CACHE_PROFILE);
+            try {
+                mine.complete(profileService.loadOrThrow(userId));
+            } catch (IllegalArgumentException e) {
+                mine.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                profiles.remove(userId, mine);
+                mine.completeExceptionally(e);
+            }
+            existing = mine;
+        }
+
+        try {
+            return existing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private void write(Writer writer, BatchAnalyzeResult result) throws IOException {
+        String json = objectMapper.writeValueAsString(result);
+        synchronized (writer) {
+            writer.write(json);
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    /** Same status the line would have gotten from /analyze. */
+    private static BatchAnalyzeResult failure(int line, String userId, Throwable e) {
+        if (e instanceof ResponseStatusException rse) {
+            return new BatchAnalyzeResult(line, userId, rse.getStatusCode().value(), rse.getReason(), null);
+        }
+        HttpStatus status = (e instanceof IllegalArgumentException)
+                ? HttpStatus.NOT_FOUND
+                : HttpStatus.INTERNAL_SERVER_ERROR;
+        return new BatchAnalyzeResult(line, userId, status.value(), e.getMessage(), null);
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+}
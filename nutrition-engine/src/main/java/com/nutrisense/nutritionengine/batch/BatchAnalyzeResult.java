@@ -0,0 +1,21 @@
+package com.nutrisense.nutritionengine.batch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.nutrisense.nutritionengine.model.NutritionResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One NDJSON output line of /analyze/batch. Lines complete out of order, so {@code line}
+ * (1-based, in the request body) is what ties a result back to its input.
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchAnalyzeResult {
+    private int line;
+    private String userId;
+    private int status;                 // HTTP status the same request would get from /analyze
+    private String error;
+    private NutritionResponse response;
+}
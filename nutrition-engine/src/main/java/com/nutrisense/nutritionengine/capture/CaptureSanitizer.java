@@ -0,0 +1,60 @@
+package com.nutrisense.nutritionengine.capture;
+
+import com.nutrisense.nutritionengine.model.Ingredient;
+import com.nutrisense.nutritionengine.model.NutritionRequest;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import com.nutrisense.nutritionengine.store.StoreRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Strips what identifies a person from captured requests while keeping what drives the
+ * engine's cost: user ids become salted hashes (same user, same hash within a salt), profile
+ * numbers are bucketed, locations are rounded to ~1 km. Ingredient and item names, quantities
+ * and shopping options are kept as they are; they are the distribution being captured.
+ */
+final class CaptureSanitizer {
+
+    private final String salt;
+
+    CaptureSanitizer(String salt) {
+        this.salt = salt;
+    }
+
+    NutritionRequest sanitize(NutritionRequest r) {
+        r.setUserId(pseudonym(r.getUserId()));
+
+        UserProfile p = r.getUserProfile();
+        if (p != null) {
+            p.setAge(p.getAge() / 5 * 5);
+            p.setWeightKg(Math.round(p.getWeightKg() / 5) * 5);
+            p.setHeightCm(Math.round(p.getHeightCm() / 5) * 5);
+        }
+        if (r.getIngredients() != null) {
+            for (Ingredient i : r.getIngredients()) {
+                if (i.getName() != null) i.setName(i.getName().trim());
+            }
+        }
+        return r;
+    }
+
+    StoreRequest sanitize(StoreRequest r) {
+        r.setLat(Math.round(r.getLat() * 100) / 100.0);
+        r.setLng(Math.round(r.getLng() * 100) / 100.0);
+        return r;
+    }
+
+    private String pseudonym(String userId) {
+        if (userId == null || userId.isBlank()) return userId;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest((salt + userId).getBytes(StandardCharsets.UTF_8));
+            return "u-" + HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
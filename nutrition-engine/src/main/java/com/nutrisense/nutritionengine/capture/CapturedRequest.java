@@ -0,0 +1,18 @@
+package com.nutrisense.nutritionengine.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** One line of a capture file: a sanitized request body and how the server answered it. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CapturedRequest {
+    private long ts;            // epoch ms the request arrived
+    private String path;
+    private int status;
+    private double durationMs;
+    private JsonNode body;      // NutritionRequest or StoreRequest, sanitized
+}
@@ -0,0 +1,67 @@
+package com.nutrisense.nutritionengine.capture;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reactive twin of {@link ServletCaptureFilter}: copies the body buffers as the decoder
+ * consumes them, so the body is still read exactly once.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "nutrition.capture", name = "enabled", havingValue = "true")
+public class ReactiveCaptureFilter implements WebFilter {
+
+    private final TrafficCapture capture;
+
+    public ReactiveCaptureFilter(TrafficCapture capture) {
+        this.capture = capture;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().value();
+        if (!capture.shouldCapture(request.getMethod().name(), path)) return chain.filter(exchange);
+
+        long startedAtMs = System.currentTimeMillis();
+        long start = System.nanoTime();
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        ServerHttpRequest tapped = new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().doOnNext(buffer -> {
+                    if (copy.size() + buffer.readableByteCount() > TrafficCapture.MAX_BODY_BYTES) return;
+                    try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+                        while (it.hasNext()) {
+                            ByteBuffer b = it.next();
+                            byte[] bytes = new byte[b.remaining()];
+                            b.get(bytes);
+                            copy.write(bytes, 0, bytes.length);
+                        }
+                    }
+                });
+            }
+        };
+
+        return chain.filter(exchange.mutate().request(tapped).build())
+                .doFinally(signal -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    capture.capture(path, copy.toByteArray(), status == null ? 200 : status.value(),
+                            startedAtMs, (System.nanoTime() - start) / 1e6);
+                });
+    }
+}
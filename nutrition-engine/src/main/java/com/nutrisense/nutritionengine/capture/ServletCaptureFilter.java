@@ -0,0 +1,59 @@
+package com.nutrisense.nutritionengine.capture;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.IOException;
+
+/** Feeds {@link TrafficCapture} in servlet mode with the bytes the controller actually read. */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "nutrition.capture", name = "enabled", havingValue = "true")
+public class ServletCaptureFilter extends OncePerRequestFilter {
+
+    private final TrafficCapture capture;
+
+    public ServletCaptureFilter(TrafficCapture capture) {
+        this.capture = capture;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !capture.shouldCapture(request.getMethod(), request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        long startedAtMs = System.currentTimeMillis();
+        long start = System.nanoTime();
+        ContentCachingRequestWrapper cached = new ContentCachingRequestWrapper(request, TrafficCapture.MAX_BODY_BYTES);
+        try {
+            chain.doFilter(cached, response);
+        } finally {
+            Runnable record = () -> capture.capture(request.getRequestURI(), cached.getContentAsByteArray(),
+                    response.getStatus(), startedAtMs, (System.nanoTime() - start) / 1e6);
+            if (request.isAsyncStarted()) {
+                // answered from a worker pool: status and duration are known when it completes
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override public void onComplete(AsyncEvent event) { record.run(); }
+                    @Override public void onTimeout(AsyncEvent event) { }
+                    @Override public void onError(AsyncEvent event) { }
+                    @Override public void onStartAsync(AsyncEvent event) { }
+                });
+            } else {
+                record.run();
+            }
+        }
+    }
+}
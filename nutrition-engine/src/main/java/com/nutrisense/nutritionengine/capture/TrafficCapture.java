@@ -0,0 +1,225 @@
+package com.nutrisense.nutritionengine.capture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.model.NutritionRequest;
+import com.nutrisense.nutritionengine.store.StoreRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opt-in traffic capture ({@code nutrition.capture.enabled=true}): sampled /analyze and
+ * /stores/recommend bodies are sanitized ({@link CaptureSanitizer}) and appended with their
+ * arrival time, status and duration to gzipped NDJSON files under {@code nutrition.capture.dir},
+ * for replay against another build.
+ *
+ * Request threads only enqueue the raw bytes; parsing, sanitizing and compression happen on
+ * one background writer. When the queue is full the record is dropped, never the request
+ * slowed. Files rotate at {@code maxFileMb} (uncompressed) or {@code rotateMinutes}, and only
+ * the newest {@code maxFiles} are kept.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "nutrition.capture", name = "enabled", havingValue = "true")
+public class TrafficCapture {
+
+    public static final String ANALYZE = "/api/nutrition/analyze";
+    public static final String STORES = "/api/stores/recommend";
+
+    /** Larger bodies are not captured (a fridge scan is a few KB). */
+    public static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper;
+    private final CaptureSanitizer sanitizer;
+    private final Path dir;
+    private final long maxFileBytes;
+    private final long rotateMillis;
+    private final int maxFiles;
+    private final double sampleRate;
+    private final BlockingQueue<Pending> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+
+    private volatile boolean running = true;
+    private Writer out;            // writer thread only
+    private Path current;
+    private long currentBytes;
+    private long currentRecords;
+    private long openedAtMs;
+
+    public TrafficCapture(ObjectMapper objectMapper,
+                          @Value("${nutrition.capture.dir:capture}") String dir,
+                          @Value("${nutrition.capture.maxFileMb:64}") long maxFileMb,
+                          @Value("${nutrition.capture.rotateMinutes:60}") long rotateMinutes,
+                          @Value("${nutrition.capture.maxFiles:24}") int maxFiles,
+                          @Value("${nutrition.capture.sampleRate:1.0}") double sampleRate,
+                          @Value("${nutrition.capture.queueSize:4096}") int queueSize,
+                          @Value("${nutrition.capture.salt:}") String salt) throws IOException {
+        this.objectMapper = objectMapper;
+        // without a configured salt, hashes are only stable for this process
+        this.sanitizer = new CaptureSanitizer(salt.isBlank() ? randomSalt() : salt);
+        this.dir = Path.of(dir);
+        this.maxFileBytes = maxFileMb * 1024 * 1024;
+        this.rotateMillis = TimeUnit.MINUTES.toMillis(rotateMinutes);
+        this.maxFiles = Math.max(1, maxFiles);
+        this.sampleRate = sampleRate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        Files.createDirectories(this.dir);
+
+        this.writer = new Thread(this::drain, "nutrition-capture");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("capture.enabled dir={} sampleRate={} maxFileMb={} maxFiles={}", this.dir.toAbsolutePath(), sampleRate, maxFileMb, maxFiles);
+    }
+
+    /** Whether this request should be captured: a captured endpoint, and picked by the sample rate. */
+    public boolean shouldCapture(String method, String path) {
+        if (!"POST".equals(method) || !(ANALYZE.equals(path) || STORES.equals(path))) return false;
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /** Hands a finished request to the writer; never blocks. */
+    public void capture(String path, byte[] body, int status, long startedAtMs, double durationMs) {
+        if (body == null || body.length == 0 || body.length > MAX_BODY_BYTES) return;
+        if (!queue.offer(new Pending(startedAtMs, path, status, durationMs, body))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(5000);
+    }
+
+    private void drain() {
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending p;
+                try {
+                    p = queue.poll(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // shutting down: write what is already queued
+                    p = queue.poll();
+                    if (p == null) break;
+                }
+                try {
+                    if (p != null) write(p);
+                    if (out != null && (p == null || queue.isEmpty())) out.flush();
+                    if (out != null && System.currentTimeMillis() - openedAtMs >= rotateMillis) closeFile();
+                } catch (IOException e) {
+                    log.warn("capture.write failed file={} error={}", current, e.toString());
+                    closeQuietly();
+                }
+            }
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void write(Pending p) throws IOException {
+        Object body;
+        try {
+            body = ANALYZE.equals(p.path)
+                    ? sanitizer.sanitize(objectMapper.readValue(p.body, NutritionRequest.class))
+                    : sanitizer.sanitize(objectMapper.readValue(p.body, StoreRequest.class));
+        } catch (IOException e) {
+            return;   // malformed request: nothing worth replaying
+        }
+
+        CapturedRequest record = new CapturedRequest(p.startedAtMs, p.path, p.status, p.durationMs, objectMapper.valueToTree(body));
+        String line = objectMapper.writeValueAsString(record) + "\n";
+
+        if (out == null) open();
+        out.write(line);
+        currentBytes += line.length();
+        currentRecords++;
+        if (currentBytes >= maxFileBytes) closeFile();
+    }
+
+    private void open() throws IOException {
+        String name = "capture-" + FILE_TIME.format(Instant.now()) + ".ndjson.gz";
+        Path file = dir.resolve(name);
+        for (int n = 1; Files.exists(file); n++) file = dir.resolve(name.replace(".ndjson", "-" + n + ".ndjson"));
+
+        out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024), StandardCharsets.UTF_8));
+        current = file;
+        currentBytes = 0;
+        currentRecords = 0;
+        openedAtMs = System.currentTimeMillis();
+        prune();
+    }
+
+    private void closeFile() throws IOException {
+        if (out == null) return;
+        out.close();
+        log.info("capture.rotate file={} records={} bytes={} dropped={}", current.getFileName(), currentRecords, currentBytes, dropped.getAndSet(0));
+        out = null;
+    }
+
+    private void closeQuietly() {
+        try {
+            closeFile();
+        } catch (IOException e) {
+            out = null;
+        }
+    }
+
+    /** Keeps the newest {@code maxFiles}, counting the one just opened. */
+    private void prune() throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(f -> f.getFileName().toString().startsWith("capture-") && f.getFileName().toString().endsWith(".ndjson.gz"))
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private static String randomSalt() {
+        byte[] b = new byte[16];
+        new SecureRandom().nextBytes(b);
+        return HexFormat.of().formatHex(b);
+    }
+
+    private static final class Pending {
+        final long startedAtMs;
+        final String path;
+        final int status;
+        final double durationMs;
+        final byte[] body;
+
+        Pending(long startedAtMs, String path, int status, double durationMs, byte[] body) {
+            this.startedAtMs = startedAtMs;
+            this.path = path;
+            this.status = status;
+            this.durationMs = durationMs;
+            this.body = body;
+        }
+    }
+}
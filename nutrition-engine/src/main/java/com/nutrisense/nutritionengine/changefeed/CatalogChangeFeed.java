@@ -0,0 +1,169 @@
+package com.nutrisense.nutritionengine.changefeed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.service.CatalogChanges;
+import com.nutrisense.nutritionengine.service.FoodCatalogService;
+import com.nutrisense.nutritionengine.service.RowChange;
+import com.nutrisense.nutritionengine.service.StoreCatalogService;
+import com.nutrisense.nutritionengine.service.StoreTileCatalog;
+import com.nutrisense.nutritionengine.snapshot.UserSnapshotService;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import com.nutrisense.nutritionengine.supabase.FoodSuggestionRow;
+import com.nutrisense.nutritionengine.supabase.ProfileRow;
+import com.nutrisense.nutritionengine.supabase.StorePriceRow;
+import com.nutrisense.nutritionengine.supabase.StoreRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies Supabase database-webhook events for the catalog tables to the in-memory snapshots,
+ * so a price or food edit is served within a request instead of after the next TTL reload.
+ * Accepts one event or an array of them; each carries {@code type} (INSERT/UPDATE/DELETE),
+ * {@code table}, {@code record} and {@code old_record}. All events of a call are applied as
+ * one patch per catalog. {@code profiles} events refresh the user's materialized snapshot
+ * ({@link UserSnapshotService}), and every applied catalog patch marks snapshots for a recompute.
+ * Events for other tables are counted and ignored.
+ *
+ * Disabled (404) until {@code nutrition.catalog.webhook.secret} is set; callers send it as
+ * {@code Authorization: Bearer <secret>}.
+ */
+@Slf4j
+@Service
+public class CatalogChangeFeed {
+
+    private final FoodCatalogService foodCatalog;
+    private final StoreCatalogService storeCatalog;
+    private final StoreTileCatalog tileCatalog;
+    private final ObjectMapper objectMapper;
+    private final EngineMetrics metrics;
+    private final UserSnapshotService snapshots;   // null when snapshots are disabled
+
+    @Value("${nutrition.catalog.webhook.secret:}")
+    private String secret;
+
+    @Value("${supabase.foodTable:foods}")
+    private String foodTable;
+
+    @Value("${supabase.suggestionsTable:food_suggestions}")
+    private String suggestionsTable;
+
+    public CatalogChangeFeed(FoodCatalogService foodCatalog,
+                             StoreCatalogService storeCatalog,
+                             StoreTileCatalog tileCatalog,
+                             ObjectMapper objectMapper,
+                             EngineMetrics metrics,
+                             ObjectProvider<UserSnapshotService> snapshots) {
+        this.foodCatalog = foodCatalog;
+        this.storeCatalog = storeCatalog;
+        this.tileCatalog = tileCatalog;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.snapshots = snapshots.getIfAvailable();
+    }
+
+    /** Throws 404 when the feed is off, 401 on a wrong secret and 400 on a malformed event. */
+    public CatalogChangeResult accept(String authorization, JsonNode body) {
+        if (secret == null || secret.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        if (!authorized(authorization)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Bad webhook secret");
+        }
+        if (body == null || !(body.isObject() || body.isArray())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a change event or an array of them");
+        }
+
+        CatalogChanges changes = new CatalogChanges();
+        List<ProfileRow> profiles = new ArrayList<>();
+        int ignored = 0;
+        for (JsonNode event : body.isArray() ? body : List.of(body)) {
+            if (!decode(event, changes, profiles)) ignored++;
+        }
+
+        long foodVersion = foodCatalog.apply(changes);
+        long storeVersion = storeCatalog.apply(changes);
+        tileCatalog.apply(changes);
+        if (snapshots != null) {
+            profiles.forEach(snapshots::profileChanged);
+            if (changes.size() > 0) snapshots.catalogChanged();
+        }
+        int applied = changes.size() + profiles.size();
+        log.info("catalog.changes applied={} ignored={} foodVersion={} storeVersion={}",
+                applied, ignored, foodVersion, storeVersion);
+        return new CatalogChangeResult(applied, ignored, foodVersion, storeVersion);
+    }
+
+    private boolean authorized(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) return false;
+        byte[] presented = authorization.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        // constant time: the endpoint is reachable from outside
+        return MessageDigest.isEqual(presented, secret.trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @return false when the event is for a table no catalog holds */
+    private boolean decode(JsonNode event, CatalogChanges changes, List<ProfileRow> profiles) {
+        String type = text(event, "type");
+        String table = text(event, "table");
+        if (type == null || table == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Change event without type or table");
+        }
+        type = type.toUpperCase();
+        if (!type.equals("INSERT") && !type.equals("UPDATE") && !type.equals("DELETE")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown change type: " + type);
+        }
+
+        boolean known = true;
+        if (table.equals(foodTable)) {
+            changes.getFoods().add(change(event, type, FoodItemRow.class));
+        } else if (table.equals(suggestionsTable)) {
+            changes.getSuggestions().add(change(event, type, FoodSuggestionRow.class));
+        } else if (table.equals("stores")) {
+            changes.getStores().add(change(event, type, StoreRow.class));
+        } else if (table.equals("store_prices")) {
+            changes.getPrices().add(change(event, type, StorePriceRow.class));
+        } else if (table.equals("profiles") && snapshots != null) {
+            // a delete's old_record holds only the primary key, not user_id: the snapshot
+            // stays until the backend deletes it or it goes idle
+            if (!type.equals("DELETE")) profiles.add(change(event, type, ProfileRow.class).getRow());
+        } else {
+            known = false;
+        }
+        metrics.catalogChange(known ? table : "other", type.toLowerCase());
+        return known;
+    }
+
+    private <T> RowChange<T> change(JsonNode event, String type, Class<T> rowType) {
+        T row = type.equals("DELETE") ? null : row(event.get("record"), rowType);
+        T oldRow = type.equals("INSERT") ? null : row(event.get("old_record"), rowType);
+        if (row == null && oldRow == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Change event without record or old_record");
+        }
+        return new RowChange<>(row, oldRow);
+    }
+
+    private <T> T row(JsonNode node, Class<T> rowType) {
+        if (node == null || !node.isObject()) return null;
+        try {
+            return objectMapper.treeToValue(node, rowType);
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed record: " + e.getOriginalMessage());
+        }
+    }
+
+    private static String text(JsonNode event, String field) {
+        JsonNode v = event.get(field);
+        return v == null || !v.isTextual() ? null : v.asText();
+    }
+}
@@ -0,0 +1,14 @@
+package com.nutrisense.nutritionengine.changefeed;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** Reply to a change-feed call: what was applied and the catalog versions now being served. */
+@Data
+@AllArgsConstructor
+public class CatalogChangeResult {
+    private int applied;
+    private int ignored;
+    private long foodCatalogVersion;
+    private long storeCatalogVersion;
+}
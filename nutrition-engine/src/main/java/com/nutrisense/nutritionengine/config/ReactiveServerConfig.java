@@ -0,0 +1,56 @@
+package com.nutrisense.nutritionengine.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+
+/**
+ * In reactive mode serve on Netty (the WebClient already runs on it) rather than on the
+ * Tomcat that spring-boot-starter-web puts on the classpath for servlet mode.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveServerConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * WebFlux registers Smile both ways but only a CBOR decoder; Spring MVC writes CBOR, so match it.
+     * Custom writers are consulted before the default ones, so JSON goes in first to stay the answer
+     * to {@code Accept: *}{@code /*}. The stock CBOR encoder only encodes single values and rejects
+     * the writer's publisher, so each element goes through {@code encodeValue} (controllers return
+     * one object, never a stream).
+     */
+    @Bean
+    public CodecCustomizer cborEncoderCustomizer(ObjectMapper objectMapper) {
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        return configurer -> {
+            configurer.customCodecs().registerWithDefaultConfig(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().registerWithDefaultConfig(new Jackson2CborEncoder(cborMapper, MediaType.APPLICATION_CBOR) {
+                @Override
+                public Flux<DataBuffer> encode(Publisher<?> input, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                               MimeType mimeType, Map<String, Object> hints) {
+                    return Flux.from(input).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+                }
+            });
+        };
+    }
+}
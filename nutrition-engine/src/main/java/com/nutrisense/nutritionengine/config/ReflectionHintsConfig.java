@@ -0,0 +1,28 @@
+package com.nutrisense.nutritionengine.config;
+
+import com.nutrisense.nutritionengine.batch.BatchAnalyzeResult;
+import com.nutrisense.nutritionengine.capture.CapturedRequest;
+import com.nutrisense.nutritionengine.model.*;
+import com.nutrisense.nutritionengine.store.StoreRecommendationResponse;
+import com.nutrisense.nutritionengine.store.StoreRequest;
+import com.nutrisense.nutritionengine.supabase.*;
+import com.nutrisense.nutritionengine.trace.TraceRecord;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson binding hints for the AOT (fast-start / native) build. Controller request and
+ * response bodies are inferred by Spring AOT; these are the types bound by hand: rows
+ * decoded by WebClient or ObjectMapper, batch and capture lines, actuator payloads.
+ */
+@Configuration(proxyBeanMethods = false)
+@RegisterReflectionForBinding({
+        FoodItemRow.class, FoodIdRow.class, FoodSuggestionRow.class, GapRuleRow.class,
+        ProfileRow.class, StoreRow.class, StorePriceRow.class,
+        NutritionRequest.class, NutritionResponse.class, UserProfile.class, Ingredient.class,
+        FoodGap.class, FoodGroupTargets.class, NutritionTarget.class, ShoppingItem.class,
+        StoreRequest.class, StoreRecommendationResponse.class,
+        BatchAnalyzeResult.class, CapturedRequest.class, TraceRecord.class
+})
+public class ReflectionHintsConfig {
+}
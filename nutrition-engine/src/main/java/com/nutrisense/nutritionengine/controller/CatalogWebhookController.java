@@ -0,0 +1,27 @@
+package com.nutrisense.nutritionengine.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nutrisense.nutritionengine.changefeed.CatalogChangeFeed;
+import com.nutrisense.nutritionengine.changefeed.CatalogChangeResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+/** Database webhook target for catalog table changes; see {@link CatalogChangeFeed}. */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/catalog")
+public class CatalogWebhookController {
+
+    private final CatalogChangeFeed changeFeed;
+
+    public CatalogWebhookController(CatalogChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @PostMapping("/webhook")
+    public CatalogChangeResult webhook(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                       @RequestBody JsonNode body) {
+        return changeFeed.accept(authorization, body);
+    }
+}
@@ -0,0 +1,18 @@
+package com.nutrisense.nutritionengine.controller;
+
+final class ETags {
+
+    private ETags() {
+    }
+
+    /** Weak comparison of an If-None-Match header against our (unquoted) tag. */
+    static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.length() >= 2 && c.startsWith("\"") && c.endsWith("\"")) c = c.substring(1, c.length() - 1);
+            if (c.equals(etag)) return true;
+        }
+        return false;
+    }
+}
@@ -1,30 +1,46 @@
 package com.nutrisense.nutritionengine.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.batch.BatchAnalysisService;
+import com.nutrisense.nutritionengine.mealplan.MealPlanRequest;
+import com.nutrisense.nutritionengine.mealplan.MealPlanService;
 import com.nutrisense.nutritionengine.model.*;
-import com.nutrisense.nutritionengine.service.NutritionService;
+import com.nutrisense.nutritionengine.service.NutritionAnalysisService;
 import com.nutrisense.nutritionengine.service.ProfileService;
-import com.nutrisense.nutritionengine.service.RecommendationService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/nutrition")
 @CrossOrigin(origins = "*")
 public class NutritionController {
 
-    private final NutritionService nutritionService;
-    private final RecommendationService recommendationService;
+    private final NutritionAnalysisService analysisService;
     private final ProfileService profileService;
+    private final MealPlanService mealPlanService;
+    private final BatchAnalysisService batchAnalysisService;
+    private final ObjectMapper objectMapper;
 
-    public NutritionController(NutritionService nutritionService,
-                               RecommendationService recommendationService,
-                               ProfileService profileService) {
-        this.nutritionService = nutritionService;
-        this.recommendationService = recommendationService;
+    public NutritionController(NutritionAnalysisService analysisService,
+                               ProfileService profileService,
+                               MealPlanService mealPlanService,
+                               BatchAnalysisService batchAnalysisService,
+                               ObjectMapper objectMapper) {
+        this.analysisService = analysisService;
         this.profileService = profileService;
+        this.mealPlanService = mealPlanService;
+        this.batchAnalysisService = batchAnalysisService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/ping")
@@ -32,13 +48,60 @@ public class NutritionController {
         return "ok";
     }
 
+    /** {@code fields} narrows the response, see {@link SparseFields}. */
     @PostMapping("/analyze")
-    public NutritionResponse analyze(@RequestBody NutritionRequest request) {
+    public ResponseEntity<Object> analyze(
+            @RequestBody NutritionRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = SparseFields.PARAM, required = false) String fields) {
+        SparseFields fieldset = SparseFields.parse(fields);
+
         // 1) Resolve user profile
-        UserProfile user = request.getUserProfile();
+        UserProfile user = resolveUser(request.getUserProfile(), request.getUserId());
+
+        // 2) Ingredients
+        List<Ingredient> ingredients = request.getIngredients();
+        if (ingredients == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing ingredients");
+        }
 
+        // 3) Same content as what the client already holds => 304, nothing computed
+        if (ifNoneMatch != null) {
+            String etag = fieldset.etag(analysisService.etagFor(user, ingredients, request.getShoppingMode(), request.getBudgetUsd()));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        // 4) Compute targets + recs (or serve the cached response for this content)
+        NutritionAnalysisService.AnalysisResult result = analysisService.analyze(
+                user, ingredients, request.getShoppingMode(), request.getBudgetUsd());
+        return ResponseEntity.ok()
+                .eTag(fieldset.etag(result.getEtag()))
+                .body(fieldset.apply(objectMapper, result.getResponse()));
+    }
+
+    /**
+     * NDJSON in (one NutritionRequest per line), NDJSON out (one BatchAnalyzeResult per line,
+     * in completion order). Per-line failures are reported inline; the stream itself is 200.
+     */
+    @PostMapping(value = "/analyze/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> analyzeBatch(InputStream body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> batchAnalysisService.run(body, out));
+    }
+
+    @PostMapping("/meal-plan")
+    public Object mealPlan(@RequestBody MealPlanRequest request,
+                           @RequestParam(value = SparseFields.PARAM, required = false) String fields) {
+        SparseFields fieldset = SparseFields.parse(fields);
+        UserProfile user = resolveUser(request.getUserProfile(), request.getUserId());
+        return fieldset.apply(objectMapper, mealPlanService.plan(user, request));
+    }
+
+    private UserProfile resolveUser(UserProfile user, String userId) {
         if (user == null) {
-            String userId = request.getUserId();
             if (userId != null && !userId.isBlank()) {
                 try {
                     user = profileService.loadOrThrow(userId);
@@ -54,21 +117,6 @@ public class NutritionController {
                     "Missing userProfile or userId"
             );
         }
-
-        // 2) Ingredients
-        List<Ingredient> ingredients = request.getIngredients();
-        if (ingredients == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing ingredients");
-        }
-
-        // 3) Compute targets + recs
-        NutritionTarget target = nutritionService.calculateTarget(user);
-        FoodGroupTargets groupTargets = nutritionService.calculateFoodGroupTargets(user);
-
-        List<FoodGap> gaps = recommendationService.detectGaps(user, ingredients);
-        List<String> recs = recommendationService.generateRecommendations(user, ingredients, gaps);
-        List<ShoppingItem> shopping = recommendationService.generateShoppingList(user, gaps);
-
-        return new NutritionResponse(target, groupTargets, gaps, recs, shopping);
+        return user;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.nutrisense.nutritionengine.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nutrisense.nutritionengine.changefeed.CatalogChangeFeed;
+import com.nutrisense.nutritionengine.changefeed.CatalogChangeResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+/** WebFlux twin of {@link CatalogWebhookController}; patching is in-memory only, so it runs inline. */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/catalog")
+public class ReactiveCatalogWebhookController {
+
+    private final CatalogChangeFeed changeFeed;
+
+    public ReactiveCatalogWebhookController(CatalogChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @PostMapping("/webhook")
+    public CatalogChangeResult webhook(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                       @RequestBody JsonNode body) {
+        return changeFeed.accept(authorization, body);
+    }
+}
@@ -0,0 +1,114 @@
+package com.nutrisense.nutritionengine.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.batch.BatchAnalysisService;
+import com.nutrisense.nutritionengine.batch.BatchAnalyzeResult;
+import com.nutrisense.nutritionengine.mealplan.MealPlanRequest;
+import com.nutrisense.nutritionengine.mealplan.MealPlanService;
+import com.nutrisense.nutritionengine.model.*;
+import com.nutrisense.nutritionengine.service.NutritionAnalysisService;
+import com.nutrisense.nutritionengine.service.ProfileService;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * WebFlux twin of {@link NutritionController} (active with
+ * {@code spring.main.web-application-type=reactive}). Profiles and catalogs are loaded
+ * without blocking; analyses run on the parallel scheduler so the event loop only does I/O.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/nutrition")
+@CrossOrigin(origins = "*")
+public class ReactiveNutritionController {
+
+    private final NutritionAnalysisService analysisService;
+    private final ProfileService profileService;
+    private final MealPlanService mealPlanService;
+    private final BatchAnalysisService batchAnalysisService;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveNutritionController(NutritionAnalysisService analysisService,
+                                       ProfileService profileService,
+                                       MealPlanService mealPlanService,
+                                       BatchAnalysisService batchAnalysisService,
+                                       ObjectMapper objectMapper) {
+        this.analysisService = analysisService;
+        this.profileService = profileService;
+        this.mealPlanService = mealPlanService;
+        this.batchAnalysisService = batchAnalysisService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping("/ping")
+    public String ping() {
+        return "ok";
+    }
+
+    @PostMapping("/analyze")
+    public Mono<ResponseEntity<Object>> analyze(
+            @RequestBody NutritionRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = SparseFields.PARAM, required = false) String fields) {
+        ShoppingMode mode = request.getShoppingMode();
+        SparseFields fieldset = SparseFields.parse(fields);
+
+        return resolveUser(request.getUserProfile(), request.getUserId()).flatMap(user -> {
+            List<Ingredient> ingredients = request.getIngredients();
+            if (ingredients == null) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing ingredients"));
+            }
+
+            return analysisService.newContextAsync(mode == ShoppingMode.OPTIMIZED)
+                    .publishOn(Schedulers.parallel())
+                    .flatMap(ctx -> RequestTrace.inScope(() -> {
+                        if (ifNoneMatch != null) {
+                            String etag = fieldset.etag(analysisService.etagFor(ctx, user, ingredients, mode, request.getBudgetUsd()));
+                            if (ETags.matches(ifNoneMatch, etag)) {
+                                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                            }
+                        }
+                        NutritionAnalysisService.AnalysisResult result = analysisService.analyze(
+                                ctx, user, ingredients, mode, request.getBudgetUsd());
+                        return ResponseEntity.ok()
+                                .eTag(fieldset.etag(result.getEtag()))
+                                .body(fieldset.apply(objectMapper, result.getResponse()));
+                    }));
+        });
+    }
+
+    @PostMapping(value = "/analyze/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchAnalyzeResult> analyzeBatch(@RequestBody Flux<String> lines) {
+        return batchAnalysisService.run(lines);
+    }
+
+    @PostMapping("/meal-plan")
+    public Mono<Object> mealPlan(@RequestBody MealPlanRequest request,
+                                 @RequestParam(value = SparseFields.PARAM, required = false) String fields) {
+        SparseFields fieldset = SparseFields.parse(fields);
+        return resolveUser(request.getUserProfile(), request.getUserId())
+                .flatMap(user -> mealPlanService.planAsync(user, request))
+                .map(plan -> fieldset.apply(objectMapper, plan));
+    }
+
+    private Mono<UserProfile> resolveUser(UserProfile user, String userId) {
+        if (user != null) return Mono.just(user);
+        if (userId == null || userId.isBlank()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing userProfile or userId"));
+        }
+        return profileService.load(userId)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()));
+    }
+}
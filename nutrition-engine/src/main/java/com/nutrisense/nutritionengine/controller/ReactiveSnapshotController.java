@@ -0,0 +1,59 @@
+package com.nutrisense.nutritionengine.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.model.NutritionRequest;
+import com.nutrisense.nutritionengine.snapshot.UserSnapshotService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/** WebFlux twin of {@link SnapshotController}; a stale snapshot is recomputed off the event loop. */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "nutrition.snapshots", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequestMapping("/api/nutrition/snapshots")
+@CrossOrigin(origins = "*")
+public class ReactiveSnapshotController {
+
+    private final UserSnapshotService snapshots;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveSnapshotController(UserSnapshotService snapshots, ObjectMapper objectMapper) {
+        this.snapshots = snapshots;
+        this.objectMapper = objectMapper;
+    }
+
+    @PutMapping("/{userId}")
+    public ResponseEntity<Void> put(@PathVariable String userId, @RequestBody NutritionRequest request) {
+        if (request.getIngredients() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing ingredients");
+        }
+        snapshots.update(userId, request);
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/{userId}")
+    public Mono<ResponseEntity<Object>> get(
+            @PathVariable String userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = SparseFields.PARAM, required = false) String fields) {
+        SparseFields fieldset = SparseFields.parse(fields);
+        return snapshots.readAsync(userId)
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage()))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No snapshot inputs for userId=" + userId)))
+                .map(snapshot -> SnapshotResponses.of(snapshot, ifNoneMatch, fieldset, objectMapper));
+    }
+
+    @DeleteMapping("/{userId}")
+    public ResponseEntity<Void> delete(@PathVariable String userId) {
+        snapshots.remove(userId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.nutrisense.nutritionengine.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.distance.CallerPriority;
+import com.nutrisense.nutritionengine.resilience.ConcurrencyLimits;
+import com.nutrisense.nutritionengine.service.StoreRecommendationService;
+import com.nutrisense.nutritionengine.store.StoreRecommendationResponse;
+import com.nutrisense.nutritionengine.store.StoreRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/** WebFlux twin of {@link StoreController}. */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/stores")
+@CrossOrigin(origins = "*")
+public class ReactiveStoreController {
+
+    private final StoreRecommendationService storeService;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveStoreController(StoreRecommendationService storeService, ObjectMapper objectMapper) {
+        this.storeService = storeService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping("/recommend")
+    public Mono<Object> recommend(
+            @RequestBody StoreRequest req,
+            @RequestHeader(value = CallerPriority.HEADER, required = false) String priority,
+            @RequestAttribute(value = ConcurrencyLimits.DEGRADED_ATTRIBUTE, required = false) Boolean degraded,
+            @RequestParam(value = SparseFields.PARAM, required = false) String fields) {
+        SparseFields fieldset = SparseFields.parse(fields);
+        Mono<StoreRecommendationResponse> response = Boolean.TRUE.equals(degraded)
+                ? storeService.recommendWithHaversineAsync(req)
+                : storeService.recommendAsync(req, CallerPriority.fromHeader(priority));
+        return response.map(r -> fieldset.apply(objectMapper, r));
+    }
+
+    @GetMapping("/ping")
+    public String ping() {
+        return "ok";
+    }
+}
@@ -0,0 +1,73 @@
+package com.nutrisense.nutritionengine.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.model.NutritionRequest;
+import com.nutrisense.nutritionengine.service.NutritionAnalysisService;
+import com.nutrisense.nutritionengine.snapshot.UserSnapshotService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Materialized per-user analyses, see {@link UserSnapshotService}. The backend PUTs a user's
+ * inputs (an /analyze body; {@code userProfile} may be left out) whenever they change, the app
+ * GETs the answer. GET carries the same ETag as the equivalent /analyze call.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "nutrition.snapshots", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequestMapping("/api/nutrition/snapshots")
+@CrossOrigin(origins = "*")
+public class SnapshotController {
+
+    private final UserSnapshotService snapshots;
+    private final NutritionAnalysisService analysisService;
+    private final ObjectMapper objectMapper;
+
+    public SnapshotController(UserSnapshotService snapshots,
+                              NutritionAnalysisService analysisService,
+                              ObjectMapper objectMapper) {
+        this.snapshots = snapshots;
+        this.analysisService = analysisService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PutMapping("/{userId}")
+    public ResponseEntity<Void> put(@PathVariable String userId, @RequestBody NutritionRequest request) {
+        if (request.getIngredients() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing ingredients");
+        }
+        snapshots.update(userId, request);
+        return ResponseEntity.accepted().build();
+    }
+
+    /** Computed on the spot when the background one is missing or stale; {@code Age} tells which. */
+    @GetMapping("/{userId}")
+    public ResponseEntity<Object> get(
+            @PathVariable String userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = SparseFields.PARAM, required = false) String fields) {
+        SparseFields fieldset = SparseFields.parse(fields);
+
+        UserSnapshotService.Snapshot snapshot;
+        try {
+            snapshot = snapshots.read(userId, analysisService.newContext());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+        if (snapshot == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No snapshot inputs for userId=" + userId);
+        }
+        return SnapshotResponses.of(snapshot, ifNoneMatch, fieldset, objectMapper);
+    }
+
+    @DeleteMapping("/{userId}")
+    public ResponseEntity<Void> delete(@PathVariable String userId) {
+        snapshots.remove(userId);
+        return ResponseEntity.noContent().build();
+    }
+}
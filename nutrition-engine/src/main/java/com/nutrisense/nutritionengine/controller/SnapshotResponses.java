@@ -0,0 +1,27 @@
+package com.nutrisense.nutritionengine.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.snapshot.UserSnapshotService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+final class SnapshotResponses {
+
+    private SnapshotResponses() {
+    }
+
+    /** 304 when the client holds it, else the (narrowed) response with its age in seconds. */
+    static ResponseEntity<Object> of(UserSnapshotService.Snapshot snapshot, String ifNoneMatch,
+                                     SparseFields fieldset, ObjectMapper objectMapper) {
+        String etag = fieldset.etag(snapshot.getEtag());
+        if (ifNoneMatch != null && ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        long age = Math.max(0, (System.currentTimeMillis() - snapshot.getComputedAtMs()) / 1000);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .header(HttpHeaders.AGE, Long.toString(age))
+                .body(fieldset.apply(objectMapper, snapshot.getResponse()));
+    }
+}
@@ -0,0 +1,122 @@
+package com.nutrisense.nutritionengine.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A {@code fields=} sparse fieldset: comma-separated property paths to keep, dotted for nested
+ * properties (applied to every element of an array), or prefixed with {@code -} to drop.
+ * {@code fields=bestOverall,cheapest}, {@code fields=-allStores},
+ * {@code fields=allStores.storeId,allStores.totalPrice}. Unknown names select nothing.
+ *
+ * Applied to the response tree after the full response is built, so cached responses stay
+ * whole; the win is in bytes written and encoded, not in computing less.
+ */
+final class SparseFields {
+
+    static final String PARAM = "fields";
+
+    private static final SparseFields ALL = new SparseFields(new Selector(), new Selector(), "");
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_]+");
+    private static final int MAX_PATHS = 64;
+
+    private final Selector keep;
+    private final Selector drop;
+    private final String canonical;
+
+    private SparseFields(Selector keep, Selector drop, String canonical) {
+        this.keep = keep;
+        this.drop = drop;
+        this.canonical = canonical;
+    }
+
+    /** @throws ResponseStatusException 400 on a malformed parameter */
+    static SparseFields parse(String fields) {
+        if (fields == null || fields.isBlank()) return ALL;
+
+        Selector keep = new Selector();
+        Selector drop = new Selector();
+        TreeSet<String> paths = new TreeSet<>();
+        for (String raw : fields.split(",")) {
+            String path = raw.trim();
+            if (path.isEmpty()) continue;
+            boolean negated = path.startsWith("-");
+            String[] names = (negated ? path.substring(1) : path).split("\\.", -1);
+            for (String name : names) {
+                if (!NAME.matcher(name).matches()) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad fields path: " + path);
+                }
+            }
+            if (paths.add(path) && paths.size() > MAX_PATHS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_PATHS + " fields paths");
+            }
+            (negated ? drop : keep).add(names);
+        }
+        return paths.isEmpty() ? ALL : new SparseFields(keep, drop, String.join(",", paths));
+    }
+
+    boolean isAll() {
+        return canonical.isEmpty();
+    }
+
+    /** {@code body} itself when no fieldset was asked for, else its pruned JSON tree. */
+    Object apply(ObjectMapper mapper, Object body) {
+        if (isAll() || body == null) return body;
+        JsonNode tree = mapper.valueToTree(body);
+        if (!keep.children.isEmpty()) retain(tree, keep);
+        remove(tree, drop);
+        return tree;
+    }
+
+    /** A different selection is a different representation, so it gets its own tag. */
+    String etag(String etag) {
+        if (isAll() || etag == null) return etag;
+        return etag + "-f" + Integer.toHexString(canonical.hashCode());
+    }
+
+    private static void retain(JsonNode node, Selector selector) {
+        if (selector.children.isEmpty()) return;     // whole subtree selected
+        if (node.isArray()) {
+            for (JsonNode element : node) retain(element, selector);
+        } else if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            object.retain(selector.children.keySet());
+            object.fields().forEachRemaining(e -> retain(e.getValue(), selector.children.get(e.getKey())));
+        }
+    }
+
+    private static void remove(JsonNode node, Selector selector) {
+        if (node.isArray()) {
+            for (JsonNode element : node) remove(element, selector);
+        } else if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            selector.children.forEach((name, child) -> {
+                if (child.children.isEmpty()) object.remove(name);
+                else if (object.has(name)) remove(object.get(name), child);
+            });
+        }
+    }
+
+    /** Path trie; a node without children selects its whole subtree. */
+    private static final class Selector {
+        final Map<String, Selector> children = new LinkedHashMap<>();
+        boolean whole;
+
+        void add(String[] names) {
+            Selector s = this;
+            for (String name : names) {
+                if (s.whole) return;
+                s = s.children.computeIfAbsent(name, k -> new Selector());
+            }
+            // "a" after "a.b": all of a
+            s.whole = true;
+            s.children.clear();
+        }
+    }
+}
@@ -1,24 +1,50 @@
 package com.nutrisense.nutritionengine.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.distance.CallerPriority;
+import com.nutrisense.nutritionengine.resilience.Bulkheads;
+import com.nutrisense.nutritionengine.resilience.ConcurrencyLimits;
 import com.nutrisense.nutritionengine.service.StoreRecommendationService;
-import com.nutrisense.nutritionengine.store.StoreRecommendationResponse;
 import com.nutrisense.nutritionengine.store.StoreRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/stores")
 @CrossOrigin(origins = "*")
 public class StoreController {
 
     private final StoreRecommendationService storeService;
+    private final Bulkheads bulkheads;
+    private final ObjectMapper objectMapper;
 
-    public StoreController(StoreRecommendationService storeService) {
+    public StoreController(StoreRecommendationService storeService, Bulkheads bulkheads, ObjectMapper objectMapper) {
         this.storeService = storeService;
+        this.bulkheads = bulkheads;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Waits on Google, so it runs on the Google workers instead of a servlet thread. Under
+     * overload the limiter marks the request degraded: ranked by straight-line distance, right here.
+     * {@code fields=bestOverall,cheapest} or {@code fields=-allStores} narrows the response, see {@link SparseFields}.
+     */
     @PostMapping("/recommend")
-    public StoreRecommendationResponse recommend(@RequestBody StoreRequest req) {
-        return storeService.recommend(req.getLat(), req.getLng(), req.getNeededItems());
+    public CompletableFuture<Object> recommend(
+            @RequestBody StoreRequest req,
+            @RequestHeader(value = CallerPriority.HEADER, required = false) String priority,
+            @RequestAttribute(value = ConcurrencyLimits.DEGRADED_ATTRIBUTE, required = false) Boolean degraded,
+            @RequestParam(value = SparseFields.PARAM, required = false) String fields) {
+        SparseFields fieldset = SparseFields.parse(fields);
+        if (Boolean.TRUE.equals(degraded)) {
+            return CompletableFuture.completedFuture(fieldset.apply(objectMapper, storeService.recommendWithHaversine(req)));
+        }
+        CallerPriority callerPriority = CallerPriority.fromHeader(priority);
+        return bulkheads.onGoogleWorkers(() -> storeService.recommend(req, callerPriority))
+                .thenApply(response -> fieldset.apply(objectMapper, response));
     }
 
     @GetMapping("/ping")
@@ -0,0 +1,19 @@
+package com.nutrisense.nutritionengine.distance;
+
+/**
+ * Who is asking for distances. Interactive callers may spend the whole Google budget; batch
+ * callers (backfills, precomputation) only what is left above a reserve, and fall back to
+ * cached or straight-line distances first.
+ */
+public enum CallerPriority {
+    INTERACTIVE,
+    BATCH;
+
+    /** Request header a caller sets to {@code batch} to mark itself as background work. */
+    public static final String HEADER = "X-Request-Priority";
+
+    /** Interactive unless the header says {@code batch}. */
+    public static CallerPriority fromHeader(String value) {
+        return value != null && value.trim().equalsIgnoreCase("batch") ? BATCH : INTERACTIVE;
+    }
+}
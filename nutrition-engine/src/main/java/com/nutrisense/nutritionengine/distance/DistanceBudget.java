@@ -0,0 +1,121 @@
+package com.nutrisense.nutritionengine.distance;
+
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Google Distance Matrix spend governor, counted in elements (origins × destinations).
+ * A per-second token bucket caps the rate, a per-day allowance (reset at midnight in
+ * {@code nutrition.google.quotaZone}, Google's quota day) caps the cost. Batch callers may
+ * only use the per-second bucket down to half full and the daily allowance down to
+ * {@code batchReserve}, so interactive traffic always finds budget left.
+ *
+ * When Google itself answers OVER_QUERY_LIMIT all calls pause for {@code overLimitBackoffSeconds}
+ * (OVER_DAILY_LIMIT: until the quota day ends) instead of each request paying for a rejected
+ * round-trip. Denied callers never wait: they get a cached or straight-line distance.
+ */
+@Slf4j
+@Component
+public class DistanceBudget {
+
+    public static final String DENIED_SECOND = "second";
+    public static final String DENIED_DAY = "day";
+    public static final String DENIED_SUSPENDED = "suspended";
+
+    private static final double BATCH_SECOND_HEADROOM = 0.5;
+
+    private final TokenBucket perSecond;
+    private final long perDay;
+    private final double batchReserve;
+    private final long backoffMillis;
+    private final ZoneId quotaZone;
+    private final Clock clock;
+    private final EngineMetrics metrics;
+
+    private LocalDate day;
+    private long usedToday;
+    private volatile long suspendedUntilMs;
+
+    public DistanceBudget(@Value("${nutrition.google.elementsPerSecond:50}") double elementsPerSecond,
+                          @Value("${nutrition.google.elementsPerDay:20000}") long elementsPerDay,
+                          @Value("${nutrition.google.batchReserve:0.2}") double batchReserve,
+                          @Value("${nutrition.google.overLimitBackoffSeconds:60}") long backoffSeconds,
+                          @Value("${nutrition.google.quotaZone:America/Los_Angeles}") String quotaZone,
+                          EngineMetrics metrics) {
+        this.perSecond = new TokenBucket(Math.max(1, elementsPerSecond), Math.max(1, elementsPerSecond));
+        this.perDay = elementsPerDay;
+        this.batchReserve = batchReserve;
+        this.backoffMillis = backoffSeconds * 1000;
+        this.quotaZone = ZoneId.of(quotaZone);
+        this.clock = Clock.system(this.quotaZone);
+        this.metrics = metrics;
+        this.day = LocalDate.now(clock);
+        metrics.googleBudgetGauges(perSecond::available, this::remainingToday);
+    }
+
+    /**
+     * Takes {@code elements} from both budgets, or nothing. Returns null when granted,
+     * otherwise why not ({@link #DENIED_SECOND}, {@link #DENIED_DAY}, {@link #DENIED_SUSPENDED}).
+     */
+    public String tryAcquire(int elements, CallerPriority priority) {
+        String denied = acquire(elements, priority);
+        if (denied != null) metrics.googleThrottled(priority.name().toLowerCase(), denied);
+        return denied;
+    }
+
+    /** Google said OVER_QUERY_LIMIT: stop calling for the backoff period. */
+    public void overRateLimit() {
+        suspend(System.currentTimeMillis() + backoffMillis, "OVER_QUERY_LIMIT");
+    }
+
+    /** Google said OVER_DAILY_LIMIT: stop calling until the quota day ends. */
+    public void overDailyLimit() {
+        Instant midnight = LocalDate.now(clock).plusDays(1).atStartOfDay(quotaZone).toInstant();
+        suspend(midnight.toEpochMilli(), "OVER_DAILY_LIMIT");
+    }
+
+    /** Elements left today; {@code Long.MAX_VALUE} when there is no daily cap. */
+    public synchronized long remainingToday() {
+        if (perDay <= 0) return Long.MAX_VALUE;
+        rollDay();
+        return Math.max(0, perDay - usedToday);
+    }
+
+    private String acquire(int elements, CallerPriority priority) {
+        if (System.currentTimeMillis() < suspendedUntilMs) return DENIED_SUSPENDED;
+
+        boolean batch = priority == CallerPriority.BATCH;
+        synchronized (this) {
+            if (perDay > 0) {
+                rollDay();
+                long floor = batch ? (long) Math.ceil(perDay * batchReserve) : 0;
+                if (perDay - usedToday - elements < floor) return DENIED_DAY;
+            }
+            double secondFloor = batch ? perSecond.capacity() * BATCH_SECOND_HEADROOM : 0;
+            if (!perSecond.tryTake(elements, secondFloor)) return DENIED_SECOND;
+            usedToday += elements;
+            return null;
+        }
+    }
+
+    private void suspend(long untilMs, String reason) {
+        if (untilMs <= suspendedUntilMs) return;
+        suspendedUntilMs = untilMs;
+        log.warn("google.budget suspended reason={} until={}", reason, Instant.ofEpochMilli(untilMs));
+    }
+
+    private void rollDay() {
+        LocalDate today = LocalDate.now(clock);
+        if (!today.equals(day)) {
+            day = today;
+            usedToday = 0;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.nutrisense.nutritionengine.distance;
+
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU of Google routes (distance and travel time) with a TTL. Origins are snapped to a ~110 m grid
+ * (3 decimals) so shoppers in the same neighbourhood share entries; destinations are store
+ * coordinates and match exactly. A hit costs no budget and no round-trip.
+ */
+@Component
+public class DistanceCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final EngineMetrics metrics;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public DistanceCache(@Value("${nutrition.google.cache.maxEntries:50000}") int maxEntries,
+                         @Value("${nutrition.google.cache.ttlMinutes:1440}") long ttlMinutes,
+                         EngineMetrics metrics) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.metrics = metrics;
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > DistanceCache.this.maxEntries;
+                if (evict) metrics.cacheEvictions(EngineMetrics.CACHE_DISTANCE, 1);
+                return evict;
+            }
+        };
+    }
+
+    public static String key(double fromLat, double fromLng, double toLat, double toLng, String mode) {
+        return Math.round(fromLat * 1000) + "," + Math.round(fromLng * 1000) + ">" + toLat + "," + toLng + "|" + mode;
+    }
+
+    /** Cached route, or null. */
+    public synchronized Route get(String key) {
+        Entry e = entries.get(key);
+        if (e != null && System.currentTimeMillis() - e.storedAtMs > ttlMillis) {
+            entries.remove(key);
+            metrics.cacheEvictions(EngineMetrics.CACHE_DISTANCE, 1);
+            e = null;
+        }
+        if (e != null) metrics.cacheHit(EngineMetrics.CACHE_DISTANCE);
+        else metrics.cacheMiss(EngineMetrics.CACHE_DISTANCE);
+        return e == null ? null : e.route;
+    }
+
+    public synchronized void put(String key, Route route) {
+        if (maxEntries == 0 || route.getKm() < 0) return;
+        entries.put(key, new Entry(route, System.currentTimeMillis()));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        final Route route;
+        final long storedAtMs;
+
+        Entry(Route route, long storedAtMs) {
+            this.route = route;
+            this.storedAtMs = storedAtMs;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.nutrisense.nutritionengine.distance;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** A driving route: length in km and travel time in minutes, each -1 when unknown. */
+@Data
+@AllArgsConstructor
+public class Route {
+
+    public static final Route NONE = new Route(-1, -1);
+
+    private final double km;
+    private final double minutes;
+}
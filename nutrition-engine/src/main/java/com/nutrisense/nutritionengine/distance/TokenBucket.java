@@ -0,0 +1,43 @@
+package com.nutrisense.nutritionengine.distance;
+
+/**
+ * Classic token bucket: up to {@code capacity} tokens, refilled continuously at
+ * {@code ratePerSecond}. Takes never wait; a caller that cannot take falls back instead.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double ratePerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double capacity, double ratePerSecond) {
+        this.capacity = capacity;
+        this.ratePerNano = ratePerSecond / 1e9;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /** Takes {@code n} tokens if at least {@code floor} would remain afterwards. */
+    synchronized boolean tryTake(double n, double floor) {
+        refill();
+        if (tokens - n < floor) return false;
+        tokens -= n;
+        return true;
+    }
+
+    synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    double capacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,38 @@
+package com.nutrisense.nutritionengine.jfr;
+
+import jdk.jfr.*;
+
+/** One traced request phase (the spans behind the Server-Timing header). */
+@Name("nutrisense.AnalysisPhase")
+@Label("Request Phase")
+@Category({"NutriSense", "Request"})
+@Enabled(false)
+@StackTrace(false)
+public class AnalysisPhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Trace Id")
+    public long traceId;
+
+    @Label("Path")
+    public String path;
+
+    /** A started event, or null when the event type is disabled. */
+    public static AnalysisPhaseEvent start(String phase) {
+        AnalysisPhaseEvent event = new AnalysisPhaseEvent();
+        if (!event.isEnabled()) return null;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    public void commit(long traceId, String path) {
+        end();
+        if (!shouldCommit()) return;
+        this.traceId = traceId;
+        this.path = path;
+        commit();
+    }
+}
@@ -0,0 +1,26 @@
+package com.nutrisense.nutritionengine.jfr;
+
+import jdk.jfr.*;
+
+/** Entries dropped from one of the engine's caches (see EngineMetrics cache names). */
+@Name("nutrisense.CacheEviction")
+@Label("Cache Eviction")
+@Category({"NutriSense", "Cache"})
+@Enabled(false)
+@StackTrace(false)
+public class CacheEvictionEvent extends Event {
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Entries")
+    public long count;
+
+    public static void emit(String cache, long count) {
+        CacheEvictionEvent event = new CacheEvictionEvent();
+        if (!event.shouldCommit()) return;
+        event.cache = cache;
+        event.count = count;
+        event.commit();
+    }
+}
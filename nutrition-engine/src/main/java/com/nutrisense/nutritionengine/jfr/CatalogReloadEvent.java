@@ -0,0 +1,39 @@
+package com.nutrisense.nutritionengine.jfr;
+
+import jdk.jfr.*;
+
+/** A food or store catalog reload: Supabase fetch plus snapshot build. */
+@Name("nutrisense.CatalogReload")
+@Label("Catalog Reload")
+@Category({"NutriSense", "Catalog"})
+@Enabled(false)
+@StackTrace(false)
+public class CatalogReloadEvent extends Event {
+
+    @Label("Catalog")
+    public String catalog;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Heap Estimate")
+    @DataAmount
+    public long heapBytes;
+
+    @Label("Version")
+    public long version;
+
+    @Label("Changed")
+    public boolean changed;
+
+    public void commit(String catalog, int rows, long heapBytes, long version, boolean changed) {
+        end();
+        if (!shouldCommit()) return;
+        this.catalog = catalog;
+        this.rows = rows;
+        this.heapBytes = heapBytes;
+        this.version = version;
+        this.changed = changed;
+        commit();
+    }
+}
@@ -0,0 +1,39 @@
+package com.nutrisense.nutritionengine.jfr;
+
+import jdk.jfr.*;
+
+/** One Distance Matrix request. */
+@Name("nutrisense.GoogleCall")
+@Label("Google Distance Matrix Call")
+@Category({"NutriSense", "Downstream"})
+@Enabled(false)
+@StackTrace(false)
+public class GoogleCallEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Mode")
+    public String mode;
+
+    @Label("HTTP Status")
+    public int status;
+
+    /** {@code ok}, {@code failed} (no usable distance) or {@code error}, as in the metrics. */
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Distance (km)")
+    public double distanceKm;
+
+    public void commit(String path, String mode, int status, String outcome, double distanceKm) {
+        end();
+        if (!shouldCommit()) return;
+        this.path = path;
+        this.mode = mode;
+        this.status = status;
+        this.outcome = outcome;
+        this.distanceKm = distanceKm;
+        commit();
+    }
+}
@@ -0,0 +1,49 @@
+package com.nutrisense.nutritionengine.jfr;
+
+import jdk.jfr.*;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/** One PostgREST request, from subscription until the body is read. */
+@Name("nutrisense.SupabaseCall")
+@Label("Supabase Call")
+@Category({"NutriSense", "Downstream"})
+@Enabled(false)
+@StackTrace(false)
+public class SupabaseCallEvent extends Event {
+
+    @Label("Table")
+    public String table;
+
+    @Label("Path")
+    public String path;
+
+    @Label("HTTP Status")
+    public int status;
+
+    /** Emits an event around {@code call}; costs one {@code isEnabled()} check when JFR is off. */
+    public static <T> Mono<T> time(String table, String path, Mono<T> call) {
+        return Mono.defer(() -> {
+            SupabaseCallEvent event = new SupabaseCallEvent();
+            if (!event.isEnabled()) return call;
+
+            event.begin();
+            return call
+                    .doOnSuccess(v -> event.commit(table, path, 200))
+                    .doOnError(e -> event.commit(table, path, statusOf(e)));
+        });
+    }
+
+    private static int statusOf(Throwable e) {
+        return (e instanceof WebClientResponseException w) ? w.getStatusCode().value() : 0;
+    }
+
+    private void commit(String table, String path, int status) {
+        end();
+        if (!shouldCommit()) return;
+        this.table = table;
+        this.path = path;
+        this.status = status;
+        commit();
+    }
+}
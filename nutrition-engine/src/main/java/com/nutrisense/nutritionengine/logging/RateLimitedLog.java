@@ -0,0 +1,45 @@
+package com.nutrisense.nutritionengine.logging;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets at most one line per interval through at a call site and counts the ones it held
+ * back, so per-request debug output (or a warning repeated for every store during an
+ * outage) costs an atomic read instead of a trip through the appender:
+ *
+ * <pre>
+ * if (log.isDebugEnabled() &amp;&amp; SAMPLE.tryAcquire()) {
+ *     log.debug("... suppressed={}", ..., SAMPLE.drainSuppressed());
+ * }
+ * </pre>
+ */
+public final class RateLimitedLog {
+
+    private final long intervalNanos;
+    private final AtomicLong nextAllowedNanos;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public RateLimitedLog(Duration interval) {
+        this.intervalNanos = interval.toNanos();
+        this.nextAllowedNanos = new AtomicLong(System.nanoTime());
+    }
+
+    public static RateLimitedLog everySecond() {
+        return new RateLimitedLog(Duration.ofSeconds(1));
+    }
+
+    /** True if the caller may log now; otherwise the line is counted as suppressed. */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        long next = nextAllowedNanos.get();
+        if (now - next >= 0 && nextAllowedNanos.compareAndSet(next, now + intervalNanos)) return true;
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    /** Lines held back since the last successful {@link #tryAcquire()}. */
+    public long drainSuppressed() {
+        return suppressed.getAndSet(0);
+    }
+}
@@ -0,0 +1,21 @@
+package com.nutrisense.nutritionengine.mealplan;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DayPlan {
+    private int day;                // 1-based
+    private List<PlannedFood> foods;
+
+    private double calories;
+    private double protein;
+    private double carbs;
+    private double fats;
+    private double fiber;
+    private int veggieServings;
+    private int fruitServings;
+}
@@ -0,0 +1,239 @@
+package com.nutrisense.nutritionengine.mealplan;
+
+import com.nutrisense.nutritionengine.rules.Nutrient;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compact, immutable search problem: candidate foods as flat nutrient arrays, a plan as
+ * {@code int[days * slots]} of food indices (-1 = empty slot, each filled slot = 100 g).
+ * Shared read-only by every search worker; each worker owns an {@link Annealer}.
+ *
+ * Cost per day is the squared relative error against each nutrient target plus
+ * veggie/fruit serving shortfalls; across the plan it penalizes eating the same food
+ * more than twice a day or {@link #MAX_WEEKLY_REPEATS} times a week, and rewards using
+ * what is already in the fridge (up to the amount available).
+ */
+final class MealPlanProblem {
+
+    static final int MAX_WEEKLY_REPEATS = 5;
+    private static final int MAX_DAILY_REPEATS = 2;
+
+    private static final double[] NUTRIENT_WEIGHT = {1.5, 1.0, 1.0, 0.8, 2.0}; // Nutrient order
+    private static final double SERVING_WEIGHT = 0.6;
+    private static final double DAILY_REPEAT_WEIGHT = 0.3;
+    private static final double WEEKLY_REPEAT_WEIGHT = 0.1;
+    private static final double FRIDGE_BONUS = 0.05;
+
+    final int foods;
+    final int days;
+    final int slots;
+
+    final String[] names;
+    final boolean[] fromFridge;
+    final double[] nutrients;       // foods * Nutrient.COUNT per 100 g
+    final boolean[] veggie;
+    final boolean[] fruit;
+    final int[] fridgePortions;     // 100 g portions available in the fridge
+
+    final double[] target;          // per Nutrient, per day
+    final double veggieTarget;
+    final double fruitTarget;
+
+    MealPlanProblem(String[] names,
+                    boolean[] fromFridge,
+                    double[] nutrients,
+                    boolean[] veggie,
+                    boolean[] fruit,
+                    int[] fridgePortions,
+                    double[] target,
+                    double veggieTarget,
+                    double fruitTarget,
+                    int days,
+                    int slots) {
+        this.foods = names.length;
+        this.names = names;
+        this.fromFridge = fromFridge;
+        this.nutrients = nutrients;
+        this.veggie = veggie;
+        this.fruit = fruit;
+        this.fridgePortions = fridgePortions;
+        this.target = target;
+        this.veggieTarget = Math.max(1, veggieTarget);
+        this.fruitTarget = Math.max(1, fruitTarget);
+        this.days = days;
+        this.slots = slots;
+    }
+
+    double nutrient(int food, int k) {
+        return nutrients[food * Nutrient.COUNT + k];
+    }
+
+    double dayCost(double[] sums, int dayOffset, int veg, int fru) {
+        double c = 0;
+        for (int k = 0; k < Nutrient.COUNT; k++) {
+            double t = target[k];
+            if (t <= 0) continue;
+            double rel = (sums[dayOffset + k] - t) / t;
+            c += NUTRIENT_WEIGHT[k] * rel * rel;
+        }
+        if (veg < veggieTarget) {
+            double rel = (veggieTarget - veg) / veggieTarget;
+            c += SERVING_WEIGHT * rel * rel;
+        }
+        if (fru < fruitTarget) {
+            double rel = (fruitTarget - fru) / fruitTarget;
+            c += SERVING_WEIGHT * rel * rel;
+        }
+        return c;
+    }
+
+    static double dailyRepeatPenalty(int count) {
+        int over = count - MAX_DAILY_REPEATS;
+        return over > 0 ? DAILY_REPEAT_WEIGHT * over * over : 0;
+    }
+
+    double weeklyTerm(int food, int count) {
+        int over = count - MAX_WEEKLY_REPEATS;
+        double c = over > 0 ? WEEKLY_REPEAT_WEIGHT * over * over : 0;
+        if (fromFridge[food]) c -= FRIDGE_BONUS * Math.min(count, fridgePortions[food]);
+        return c;
+    }
+
+    /** Full cost of a plan, from scratch. */
+    double cost(int[] plan) {
+        Annealer a = new Annealer(this, plan.clone());
+        return a.cost;
+    }
+
+    /**
+     * Simulated annealing over one plan, with O(1)-ish delta evaluation: changing one slot
+     * only touches that day's sums and two foods' counters.
+     */
+    static final class Annealer {
+        final MealPlanProblem p;
+        final int[] plan;
+        final double[] sums;        // days * Nutrient.COUNT
+        final int[] veg;
+        final int[] fru;
+        final int[] dayCounts;      // days * foods
+        final int[] weekCounts;     // foods
+        double cost;
+
+        final int[] best;
+        double bestCost;
+        long moves;
+
+        Annealer(MealPlanProblem p, int[] plan) {
+            this.p = p;
+            this.plan = plan;
+            this.sums = new double[p.days * Nutrient.COUNT];
+            this.veg = new int[p.days];
+            this.fru = new int[p.days];
+            this.dayCounts = new int[p.days * p.foods];
+            this.weekCounts = new int[p.foods];
+
+            for (int d = 0; d < p.days; d++) {
+                for (int s = 0; s < p.slots; s++) add(d, plan[d * p.slots + s], 1);
+            }
+            this.cost = fullCost();
+            this.best = plan.clone();
+            this.bestCost = cost;
+        }
+
+        static Annealer random(MealPlanProblem p, SplittableRandom rnd) {
+            int[] plan = new int[p.days * p.slots];
+            for (int i = 0; i < plan.length; i++) plan[i] = rnd.nextInt(p.foods);
+            return new Annealer(p, plan);
+        }
+
+        void run(long deadlineNanos, SplittableRandom rnd, double t0, double tEnd) {
+            long start = System.nanoTime();
+            double span = Math.max(1, deadlineNanos - start);
+            double ratio = tEnd / t0;
+            double temp = t0;
+
+            while (true) {
+                if ((moves & 255) == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadlineNanos) break;
+                    temp = t0 * Math.pow(ratio, (now - start) / span);
+                }
+                moves++;
+
+                int d = rnd.nextInt(p.days);
+                int s = rnd.nextInt(p.slots);
+                int idx = d * p.slots + s;
+                int oldFood = plan[idx];
+                // ~1 in 8 moves empties a slot so the plan can shed calories
+                int newFood = rnd.nextInt(8) == 0 ? -1 : rnd.nextInt(p.foods);
+                if (newFood == oldFood) continue;
+
+                double delta = delta(d, oldFood, newFood);
+                if (delta <= 0 || rnd.nextDouble() < Math.exp(-delta / temp)) {
+                    add(d, oldFood, -1);
+                    add(d, newFood, 1);
+                    plan[idx] = newFood;
+                    cost += delta;
+                    if (cost < bestCost - 1e-12) {
+                        bestCost = cost;
+                        System.arraycopy(plan, 0, best, 0, plan.length);
+                    }
+                }
+            }
+        }
+
+        private double delta(int d, int oldFood, int newFood) {
+            int o = d * Nutrient.COUNT;
+            double before = p.dayCost(sums, o, veg[d], fru[d]);
+
+            // apply tentatively to the day sums
+            adjustDay(d, oldFood, -1);
+            adjustDay(d, newFood, 1);
+            double after = p.dayCost(sums, o, veg[d], fru[d]);
+            adjustDay(d, newFood, -1);
+            adjustDay(d, oldFood, 1);
+
+            double delta = after - before;
+            int base = d * p.foods;
+            if (oldFood >= 0) {
+                int dc = dayCounts[base + oldFood], wc = weekCounts[oldFood];
+                delta += dailyRepeatPenalty(dc - 1) - dailyRepeatPenalty(dc);
+                delta += p.weeklyTerm(oldFood, wc - 1) - p.weeklyTerm(oldFood, wc);
+            }
+            if (newFood >= 0) {
+                int dc = dayCounts[base + newFood], wc = weekCounts[newFood];
+                delta += dailyRepeatPenalty(dc + 1) - dailyRepeatPenalty(dc);
+                delta += p.weeklyTerm(newFood, wc + 1) - p.weeklyTerm(newFood, wc);
+            }
+            return delta;
+        }
+
+        private void add(int d, int food, int sign) {
+            if (food < 0) return;
+            adjustDay(d, food, sign);
+            dayCounts[d * p.foods + food] += sign;
+            weekCounts[food] += sign;
+        }
+
+        private void adjustDay(int d, int food, int sign) {
+            if (food < 0) return;
+            int o = d * Nutrient.COUNT;
+            int f = food * Nutrient.COUNT;
+            for (int k = 0; k < Nutrient.COUNT; k++) sums[o + k] += sign * p.nutrients[f + k];
+            if (p.veggie[food]) veg[d] += sign;
+            if (p.fruit[food]) fru[d] += sign;
+        }
+
+        private double fullCost() {
+            double c = 0;
+            for (int d = 0; d < p.days; d++) {
+                c += p.dayCost(sums, d * Nutrient.COUNT, veg[d], fru[d]);
+                int base = d * p.foods;
+                for (int f = 0; f < p.foods; f++) c += dailyRepeatPenalty(dayCounts[base + f]);
+            }
+            for (int f = 0; f < p.foods; f++) c += p.weeklyTerm(f, weekCounts[f]);
+            return c;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.nutrisense.nutritionengine.mealplan;
+
+import com.nutrisense.nutritionengine.model.Ingredient;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MealPlanRequest {
+    private String userId;
+    private UserProfile userProfile;
+    private List<Ingredient> ingredients;   // fridge contents, used first
+    private Integer days;                   // default 7
+    private Integer portionsPerDay;         // 100 g portions per day, default 8
+    private Long timeBudgetMs;              // hard search budget, capped by config
+}
@@ -0,0 +1,21 @@
+package com.nutrisense.nutritionengine.mealplan;
+
+import com.nutrisense.nutritionengine.model.FoodGroupTargets;
+import com.nutrisense.nutritionengine.model.NutritionTarget;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class MealPlanResponse {
+    private NutritionTarget nutritionTarget;
+    private FoodGroupTargets foodGroupTargets;
+    private List<DayPlan> days;
+
+    private double score;           // lower is better (0 = every target hit exactly)
+    private long searchMillis;
+    private long movesEvaluated;    // across all workers
+    private int workers;
+}
@@ -0,0 +1,242 @@
+package com.nutrisense.nutritionengine.mealplan;
+
+import com.nutrisense.nutritionengine.model.*;
+import com.nutrisense.nutritionengine.rules.Nutrient;
+import com.nutrisense.nutritionengine.service.DietTags;
+import com.nutrisense.nutritionengine.service.FoodCatalogService;
+import com.nutrisense.nutritionengine.service.FoodCatalogSnapshot;
+import com.nutrisense.nutritionengine.service.NutritionService;
+import com.nutrisense.nutritionengine.service.RecommendationService;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Multi-day meal plans via parallel simulated annealing. Every worker anneals its own
+ * random start over the same read-only {@link MealPlanProblem} until the time budget
+ * runs out; the best plan over all workers wins. Workers run on a dedicated fork-join
+ * pool sized to the machine so planning never starves the request threads' common pool.
+ */
+@Service
+public class MealPlanService {
+
+    private static final int DEFAULT_DAYS = 7;
+    private static final int DEFAULT_PORTIONS_PER_DAY = 8;
+    private static final int GROUP_QUOTA = 60;      // catalog foods per food group in the candidate set
+
+    private final NutritionService nutritionService;
+    private final FoodCatalogService foodCatalogService;
+    private final ForkJoinPool pool;
+    private final int workers;
+
+    @Value("${nutrition.mealPlan.defaultBudgetMs:500}")
+    private long defaultBudgetMs;
+
+    @Value("${nutrition.mealPlan.maxBudgetMs:3000}")
+    private long maxBudgetMs;
+
+    public MealPlanService(NutritionService nutritionService,
+                           FoodCatalogService foodCatalogService,
+                           @Value("${nutrition.mealPlan.workers:0}") int workers) {
+        this.nutritionService = nutritionService;
+        this.foodCatalogService = foodCatalogService;
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.workers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public MealPlanResponse plan(UserProfile user, MealPlanRequest req) {
+        FoodCatalogSnapshot catalog = foodCatalogService.snapshot();
+        try (RequestTrace.Span ignored = RequestTrace.start("mealplan")) {
+            return plan(catalog, user, req);
+        }
+    }
+
+    /**
+     * Non-blocking {@link #plan}: the catalog is fetched without blocking, and the search
+     * (which waits on its workers) runs on the bounded-elastic scheduler, never on the caller.
+     */
+    public Mono<MealPlanResponse> planAsync(UserProfile user, MealPlanRequest req) {
+        return foodCatalogService.snapshotAsync()
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(catalog -> RequestTrace.span("mealplan", RequestTrace.inScope(() -> plan(catalog, user, req))));
+    }
+
+    private MealPlanResponse plan(FoodCatalogSnapshot catalog, UserProfile user, MealPlanRequest req) {
+        int days = clamp(req.getDays(), DEFAULT_DAYS, 1, 14);
+        int slots = clamp(req.getPortionsPerDay(), DEFAULT_PORTIONS_PER_DAY, 3, 16);
+        long budgetMs = req.getTimeBudgetMs() == null ? defaultBudgetMs : req.getTimeBudgetMs();
+        budgetMs = Math.max(10, Math.min(budgetMs, maxBudgetMs));
+
+        NutritionTarget target = nutritionService.calculateTarget(user);
+        FoodGroupTargets groupTargets = nutritionService.calculateFoodGroupTargets(user);
+
+        MealPlanProblem problem = buildProblem(catalog, user, req.getIngredients(),
+                target, groupTargets, days, slots);
+        if (problem.foods == 0) {
+            return new MealPlanResponse(target, groupTargets, Collections.emptyList(), 0, 0, 0, 0);
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + budgetMs * 1_000_000L;
+        SplittableRandom root = new SplittableRandom();
+
+        List<Callable<MealPlanProblem.Annealer>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            SplittableRandom rnd = root.split();
+            tasks.add(() -> {
+                MealPlanProblem.Annealer a = MealPlanProblem.Annealer.random(problem, rnd);
+                a.run(deadline, rnd, 1.0, 1e-3);
+                return a;
+            });
+        }
+
+        MealPlanProblem.Annealer best = null;
+        long moves = 0;
+        try {
+            for (Future<MealPlanProblem.Annealer> f : pool.invokeAll(tasks)) {
+                MealPlanProblem.Annealer a = f.get();
+                moves += a.moves;
+                if (best == null || a.bestCost < best.bestCost) best = a;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Meal plan search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Meal plan search failed", e.getCause());
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        double score = problem.cost(best.best);
+        return new MealPlanResponse(target, groupTargets, toDays(problem, best.best), round3(score),
+                elapsedMs, moves, workers);
+    }
+
+    private MealPlanProblem buildProblem(FoodCatalogSnapshot catalog,
+                                         UserProfile user,
+                                         List<Ingredient> ingredients,
+                                         NutritionTarget target,
+                                         FoodGroupTargets groupTargets,
+                                         int days,
+                                         int slots) {
+        // fridge first (non-expired, known foods), then a per-group slice of the catalog
+        LinkedHashMap<String, FoodItemRow> candidates = new LinkedHashMap<>();
+        Map<String, Double> fridgeGrams = new HashMap<>();
+        if (ingredients != null) {
+            for (Ingredient ing : ingredients) {
+                if (ing == null || ing.getName() == null) continue;
+                if ("EXPIRED".equalsIgnoreCase(ing.getFreshnessStatus())) continue;
+                FoodItemRow row = catalog.find(ing.getName());
+                if (row == null) continue;
+                String key = row.getName().trim().toLowerCase();
+                candidates.putIfAbsent(key, row);
+                fridgeGrams.merge(key, RecommendationService.estimateGrams(ing), Double::sum);
+            }
+        }
+
+        Map<Integer, Integer> perGroup = new HashMap<>();
+        for (FoodItemRow row : catalog.foods()) {
+            if (row.getName() == null || !DietTags.allows(row, user.getDietType())) continue;
+            int mask = catalog.groupMask(row.getName());
+            int taken = perGroup.getOrDefault(mask, 0);
+            if (taken >= GROUP_QUOTA) continue;
+            if (candidates.putIfAbsent(row.getName().trim().toLowerCase(), row) == null) {
+                perGroup.put(mask, taken + 1);
+            }
+        }
+
+        int n = candidates.size();
+        String[] names = new String[n];
+        boolean[] fridge = new boolean[n];
+        double[] nutrients = new double[n * Nutrient.COUNT];
+        boolean[] veggie = new boolean[n];
+        boolean[] fruit = new boolean[n];
+        int[] fridgePortions = new int[n];
+
+        int i = 0;
+        for (Map.Entry<String, FoodItemRow> e : candidates.entrySet()) {
+            FoodItemRow r = e.getValue();
+            names[i] = r.getName();
+            Double grams = fridgeGrams.get(e.getKey());
+            fridge[i] = grams != null;
+            fridgePortions[i] = grams == null ? 0 : (int) Math.max(1, Math.round(grams / 100.0));
+
+            int o = i * Nutrient.COUNT;
+            nutrients[o + Nutrient.PROTEIN.ordinal()] = r.getProteinPer100g();
+            nutrients[o + Nutrient.CARBS.ordinal()] = r.getCarbsPer100g();
+            nutrients[o + Nutrient.FATS.ordinal()] = r.getFatsPer100g();
+            nutrients[o + Nutrient.FIBER.ordinal()] = r.getFiberPer100g();
+            nutrients[o + Nutrient.CALORIES.ordinal()] = r.getCaloriesPer100g();
+
+            int mask = catalog.groupMask(r.getName());
+            veggie[i] = (mask & FoodGroup.VEGGIES.bit()) != 0;
+            fruit[i] = (mask & FoodGroup.FRUITS.bit()) != 0;
+            i++;
+        }
+
+        double[] t = new double[Nutrient.COUNT];
+        t[Nutrient.PROTEIN.ordinal()] = target.getProtein();
+        t[Nutrient.CARBS.ordinal()] = target.getCarbs();
+        t[Nutrient.FATS.ordinal()] = target.getFats();
+        t[Nutrient.FIBER.ordinal()] = groupTargets.getFiberGrams();
+        t[Nutrient.CALORIES.ordinal()] = target.getCalories();
+
+        return new MealPlanProblem(names, fridge, nutrients, veggie, fruit, fridgePortions, t,
+                groupTargets.getVeggieServings(), groupTargets.getFruitServings(), days, slots);
+    }
+
+    private List<DayPlan> toDays(MealPlanProblem p, int[] plan) {
+        List<DayPlan> out = new ArrayList<>(p.days);
+        for (int d = 0; d < p.days; d++) {
+            Map<Integer, Integer> portions = new LinkedHashMap<>();
+            double[] sums = new double[Nutrient.COUNT];
+            int veg = 0, fru = 0;
+
+            for (int s = 0; s < p.slots; s++) {
+                int f = plan[d * p.slots + s];
+                if (f < 0) continue;
+                portions.merge(f, 1, Integer::sum);
+                for (int k = 0; k < Nutrient.COUNT; k++) sums[k] += p.nutrient(f, k);
+                if (p.veggie[f]) veg++;
+                if (p.fruit[f]) fru++;
+            }
+
+            List<PlannedFood> foods = new ArrayList<>(portions.size());
+            for (Map.Entry<Integer, Integer> e : portions.entrySet()) {
+                foods.add(new PlannedFood(p.names[e.getKey()], e.getValue() * 100.0, p.fromFridge[e.getKey()]));
+            }
+
+            out.add(new DayPlan(
+                    d + 1,
+                    foods,
+                    round1(sums[Nutrient.CALORIES.ordinal()]),
+                    round1(sums[Nutrient.PROTEIN.ordinal()]),
+                    round1(sums[Nutrient.CARBS.ordinal()]),
+                    round1(sums[Nutrient.FATS.ordinal()]),
+                    round1(sums[Nutrient.FIBER.ordinal()]),
+                    veg,
+                    fru
+            ));
+        }
+        return out;
+    }
+
+    private static int clamp(Integer v, int def, int min, int max) {
+        int x = v == null ? def : v;
+        return Math.max(min, Math.min(max, x));
+    }
+
+    private double round1(double x) { return Math.round(x * 10.0) / 10.0; }
+    private double round3(double x) { return Math.round(x * 1000.0) / 1000.0; }
+}
@@ -0,0 +1,12 @@
+package com.nutrisense.nutritionengine.mealplan;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PlannedFood {
+    private String name;
+    private double grams;
+    private boolean fromFridge;
+}
@@ -0,0 +1,214 @@
+package com.nutrisense.nutritionengine.metrics;
+
+import com.nutrisense.nutritionengine.jfr.CacheEvictionEvent;
+import io.micrometer.core.instrument.*;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Engine-specific meters, next to the http.server.requests timers Spring records per endpoint.
+ * All names start with {@code nutrition.}; histograms for them are switched on in
+ * application.properties so the percentiles stay aggregatable in Prometheus.
+ */
+@Component
+public class EngineMetrics {
+
+    public static final String CACHE_ANALYZE = "analyze";
+    public static final String CACHE_FOOD_CATALOG = "food_catalog";
+    public static final String CACHE_STORE_CATALOG = "store_catalog";
+    public static final String CACHE_COST_INDEX = "cost_index";
+    public static final String CACHE_PROFILE = "profile";
+    public static final String CACHE_DISTANCE = "distance";
+    public static final String CACHE_SNAPSHOT = "user_snapshot";
+    public static final String CACHE_STORE_TILE = "store_tile";
+
+    private final MeterRegistry registry;
+    private final Counter unknownIngredients;
+    private final Counter haversineFallbacks;
+    private final Map<String, AtomicLong> rowCounts = new ConcurrentHashMap<>();
+    private final Map<String, Counter> cacheCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> supabaseTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> throttleCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> limiterCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> changeCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> snapshotCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> pricingCounters = new ConcurrentHashMap<>();
+
+    public EngineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.unknownIngredients = Counter.builder("nutrition.ingredients.unknown")
+                .description("Analyses rejected with UNKNOWN_INGREDIENT")
+                .register(registry);
+        this.haversineFallbacks = Counter.builder("nutrition.distance.haversine.fallbacks")
+                .description("Store distances computed as the crow flies because Google had no answer")
+                .register(registry);
+    }
+
+    /** Times a Supabase call from subscription to completion, tagged with its table. */
+    public <T> Mono<T> timeSupabase(String table, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return call.doFinally(signal -> sample.stop(supabaseTimer(table, outcome(signal))));
+        });
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    /** @param outcome {@code ok}, {@code failed} (no usable distance), {@code error} or {@code deadline} */
+    public void stopGoogle(Timer.Sample sample, String outcome) {
+        sample.stop(Timer.builder("nutrition.google.requests")
+                .tag("api", "distancematrix")
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    /** Google budget left, polled on scrape: elements in the per-second bucket and for today. */
+    public void googleBudgetGauges(Supplier<Number> second, Supplier<Number> day) {
+        Gauge.builder("nutrition.google.budget.remaining", second).tag("window", "second").register(registry);
+        Gauge.builder("nutrition.google.budget.remaining", day).tag("window", "day").register(registry);
+    }
+
+    /** Current adaptive concurrency limit and requests in flight per endpoint, polled on scrape. */
+    public void limiterGauges(String endpoint, Supplier<Number> limit, Supplier<Number> inFlight) {
+        Gauge.builder("nutrition.limiter.limit", limit).tag("endpoint", endpoint).register(registry);
+        Gauge.builder("nutrition.limiter.inflight", inFlight).tag("endpoint", endpoint).register(registry);
+    }
+
+    /** @param outcome {@code shed} (503) or {@code degraded} (cheaper answer) */
+    public void limiterRejected(String endpoint, String outcome) {
+        limiterCounters.computeIfAbsent(endpoint + '|' + outcome, k -> Counter.builder("nutrition.limiter.rejected")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(registry)).increment();
+    }
+
+    /** A change-feed event received; {@code table} is {@code other} for tables no catalog holds. */
+    public void catalogChange(String table, String type) {
+        changeCounters.computeIfAbsent(table + '|' + type, k -> Counter.builder("nutrition.catalog.changes")
+                .tag("table", table)
+                .tag("type", type)
+                .register(registry)).increment();
+    }
+
+    /** Users with a materialized snapshot, and snapshots waiting for a worker, polled on scrape. */
+    public void snapshotGauges(Supplier<Number> users, Supplier<Number> queued) {
+        Gauge.builder("nutrition.snapshots.users", users).register(registry);
+        Gauge.builder("nutrition.snapshots.queued", queued).register(registry);
+    }
+
+    /** @param reason {@code background} (worker) or {@code read} (computed for a reader) */
+    public void snapshotComputed(String reason) {
+        snapshotCounters.computeIfAbsent(reason, k -> Counter.builder("nutrition.snapshots.computed")
+                .tag("reason", reason)
+                .register(registry)).increment();
+    }
+
+    /** A request turned away because its bulkhead was full. */
+    public void bulkheadRejected(String bulkhead) {
+        registry.counter("nutrition.bulkhead.rejected", "bulkhead", bulkhead).increment();
+    }
+
+    /** A distance served without calling Google because the budget said no. */
+    public void googleThrottled(String priority, String reason) {
+        throttleCounters.computeIfAbsent(priority + '|' + reason, k -> Counter.builder("nutrition.google.throttled")
+                .tag("priority", priority)
+                .tag("reason", reason)
+                .register(registry)).increment();
+    }
+
+    public void cacheHit(String cache) {
+        cacheRequest(cache, "hit");
+    }
+
+    public void cacheMiss(String cache) {
+        cacheRequest(cache, "miss");
+    }
+
+    public void cacheEvictions(String cache, long count) {
+        if (count <= 0) return;
+        CacheEvictionEvent.emit(cache, count);
+        Counter.builder("nutrition.cache.evictions").tag("cache", cache).register(registry).increment(count);
+    }
+
+    public void catalogReloaded(String catalog, long nanos) {
+        Timer.builder("nutrition.catalog.reload")
+                .tag("catalog", catalog)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Rows the last reload of {@code catalog} read from {@code table}. */
+    public void catalogRows(String catalog, String table, long rows) {
+        rowCounts.computeIfAbsent(catalog + '/' + table, k -> {
+            AtomicLong holder = new AtomicLong();
+            Gauge.builder("nutrition.catalog.rows", holder, AtomicLong::get)
+                    .tag("catalog", catalog)
+                    .tag("table", table)
+                    .register(registry);
+            return holder;
+        }).set(rows);
+    }
+
+    /**
+     * Size and approximate heap footprint of a catalog; the suppliers are polled on scrape
+     * and must not block (read the published snapshot, never trigger a reload).
+     */
+    public void catalogGauges(String catalog, Supplier<Number> size, Supplier<Number> heapBytes) {
+        Gauge.builder("nutrition.catalog.size", size).tag("catalog", catalog).register(registry);
+        Gauge.builder("nutrition.catalog.heap", heapBytes)
+                .tag("catalog", catalog)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public void unknownIngredient() {
+        unknownIngredients.increment();
+    }
+
+    /**
+     * A store recommendation's baskets priced by {@code backend} ({@code memory} / {@code rpc});
+     * outcome {@code fallback} when the RPC failed and the in-memory catalog priced them instead.
+     */
+    public void basketsPriced(String backend, String outcome) {
+        pricingCounters.computeIfAbsent(backend + '|' + outcome, k -> Counter.builder("nutrition.pricing.baskets")
+                .tag("backend", backend)
+                .tag("outcome", outcome)
+                .register(registry)).increment();
+    }
+
+    public void haversineFallback() {
+        haversineFallbacks.increment();
+    }
+
+    // hot paths (every snapshot() call counts), so meters are looked up once per tag set
+    private void cacheRequest(String cache, String result) {
+        cacheCounters.computeIfAbsent(cache + '|' + result, k -> Counter.builder("nutrition.cache.requests")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry)).increment();
+    }
+
+    private Timer supabaseTimer(String table, String outcome) {
+        return supabaseTimers.computeIfAbsent(table + '|' + outcome, k -> Timer.builder("nutrition.supabase.requests")
+                .tag("table", table)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "success";
+            case ON_ERROR -> "error";
+            default -> "cancelled";
+        };
+    }
+}
@@ -6,5 +6,10 @@ public enum FoodGroup {
     FRUITS,
     FIBER,
     CARBS,
-    FATS
-}
\ No newline at end of file
+    FATS;
+
+    /** Single-bit mask for presence sets (see FoodCatalogSnapshot#groupMask). */
+    public int bit() {
+        return 1 << ordinal();
+    }
+}
@@ -8,4 +8,6 @@ public class NutritionRequest {
     private String userId;
     private UserProfile userProfile;
     private List<Ingredient> ingredients;
-}
\ No newline at end of file
+    private ShoppingMode shoppingMode;  // optional, SUGGESTIONS when absent
+    private Double budgetUsd;           // optional, only used by OPTIMIZED
+}
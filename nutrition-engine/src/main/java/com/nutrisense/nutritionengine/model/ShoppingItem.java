@@ -1,5 +1,6 @@
 package com.nutrisense.nutritionengine.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -8,4 +9,12 @@ import lombok.Data;
 public class ShoppingItem {
     private String item;
     private String reason;
-}
\ No newline at end of file
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double grams;               // OPTIMIZED mode only
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double estimatedPriceUsd;   // OPTIMIZED mode only
+
+    public ShoppingItem(String item, String reason) {
+        this(item, reason, null, null);
+    }
+}
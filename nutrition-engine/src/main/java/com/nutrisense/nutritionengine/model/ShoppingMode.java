@@ -0,0 +1,6 @@
+package com.nutrisense.nutritionengine.model;
+
+public enum ShoppingMode {
+    SUGGESTIONS,    // top food_suggestions rows per gap (default)
+    OPTIMIZED       // priced items + grams that close the gaps at minimum cost
+}
@@ -0,0 +1,112 @@
+package com.nutrisense.nutritionengine.optimizer;
+
+import com.nutrisense.nutritionengine.model.FoodGroup;
+import com.nutrisense.nutritionengine.rules.Nutrient;
+import com.nutrisense.nutritionengine.service.FoodCatalogSnapshot;
+import com.nutrisense.nutritionengine.service.StoreCatalogSnapshot;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Per-nutrient cost-efficiency rankings over every priced food, built once per
+ * (food catalog, store catalog) version pair. Foods are held in flat arrays;
+ * {@link #byNutrient} lists food indices from cheapest to most expensive per gram
+ * of that nutrient, {@link #byGroup} from cheapest per 100 g within a food group.
+ */
+final class CostIndex {
+
+    // below this a food is not considered a source of the nutrient (per 100 g)
+    private static final double MIN_NUTRIENT_PER_100G = 0.5;
+
+    final long foodVersion;
+    final long storeVersion;
+
+    final int size;
+    final FoodItemRow[] foods;
+    final double[] pricePer100g;
+    final double[] nutrients;       // size * Nutrient.COUNT, per 100 g
+    final int[] groupMask;
+
+    final int[][] byNutrient;       // [Nutrient.ordinal()] -> food indices
+    final int[][] byGroup;          // [FoodGroup.ordinal()] -> food indices
+
+    private CostIndex(long foodVersion, long storeVersion, List<FoodItemRow> priced, double[] prices, int[] masks) {
+        this.foodVersion = foodVersion;
+        this.storeVersion = storeVersion;
+        this.size = priced.size();
+        this.foods = priced.toArray(new FoodItemRow[0]);
+        this.pricePer100g = prices;
+        this.groupMask = masks;
+        this.nutrients = new double[size * Nutrient.COUNT];
+
+        for (int i = 0; i < size; i++) {
+            FoodItemRow f = foods[i];
+            int o = i * Nutrient.COUNT;
+            nutrients[o + Nutrient.PROTEIN.ordinal()] = f.getProteinPer100g();
+            nutrients[o + Nutrient.CARBS.ordinal()] = f.getCarbsPer100g();
+            nutrients[o + Nutrient.FATS.ordinal()] = f.getFatsPer100g();
+            nutrients[o + Nutrient.FIBER.ordinal()] = f.getFiberPer100g();
+            nutrients[o + Nutrient.CALORIES.ordinal()] = f.getCaloriesPer100g();
+        }
+
+        this.byNutrient = new int[Nutrient.COUNT][];
+        for (Nutrient n : Nutrient.values()) {
+            int k = n.ordinal();
+            double min = (n == Nutrient.CALORIES) ? 10.0 : MIN_NUTRIENT_PER_100G;
+            byNutrient[k] = sortedIndices(i -> nutrient(i, k) >= min, i -> pricePer100g[i] / nutrient(i, k));
+        }
+
+        this.byGroup = new int[FoodGroup.values().length][];
+        for (FoodGroup g : FoodGroup.values()) {
+            int bit = g.bit();
+            byGroup[g.ordinal()] = sortedIndices(i -> (groupMask[i] & bit) != 0, i -> pricePer100g[i]);
+        }
+    }
+
+    static CostIndex build(FoodCatalogSnapshot foodCatalog, StoreCatalogSnapshot storeCatalog) {
+        List<FoodItemRow> priced = new ArrayList<>();
+        List<Double> prices = new ArrayList<>();
+        List<Integer> masks = new ArrayList<>();
+
+        for (FoodItemRow f : foodCatalog.foods()) {
+            if (f.getName() == null) continue;
+            double p = storeCatalog.getBestPricePer100g(f.getName().trim().toLowerCase());
+            if (p <= 0) continue;
+            priced.add(f);
+            prices.add(p);
+            masks.add(foodCatalog.groupMask(f.getName()));
+        }
+
+        double[] priceArr = new double[prices.size()];
+        int[] maskArr = new int[masks.size()];
+        for (int i = 0; i < priceArr.length; i++) {
+            priceArr[i] = prices.get(i);
+            maskArr[i] = masks.get(i);
+        }
+        return new CostIndex(foodCatalog.getVersion(), storeCatalog.getVersion(), priced, priceArr, maskArr);
+    }
+
+    double nutrient(int food, int nutrientOrdinal) {
+        return nutrients[food * Nutrient.COUNT + nutrientOrdinal];
+    }
+
+    boolean matches(long foodVersion, long storeVersion) {
+        return this.foodVersion == foodVersion && this.storeVersion == storeVersion;
+    }
+
+    private int[] sortedIndices(IntPredicate include, IntToDoubleFunction key) {
+        Integer[] idx = new Integer[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (include.test(i)) idx[n++] = i;
+        }
+        Arrays.sort(idx, 0, n, Comparator.comparingDouble(key::applyAsDouble));
+
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) out[i] = idx[i];
+        return out;
+    }
+}
@@ -0,0 +1,250 @@
+package com.nutrisense.nutritionengine.optimizer;
+
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.model.FoodGap;
+import com.nutrisense.nutritionengine.model.FoodGroup;
+import com.nutrisense.nutritionengine.model.ShoppingItem;
+import com.nutrisense.nutritionengine.rules.Nutrient;
+import com.nutrisense.nutritionengine.service.DietTags;
+import com.nutrisense.nutritionengine.service.FoodCatalogService;
+import com.nutrisense.nutritionengine.service.FoodCatalogSnapshot;
+import com.nutrisense.nutritionengine.service.StoreCatalogService;
+import com.nutrisense.nutritionengine.service.StoreCatalogSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Picks priced foods and gram quantities that close the user's gaps at minimum cost.
+ *
+ * Greedy LP relaxation: group gaps (no veggies / fruits) are filled first with the cheapest
+ * allowed servings, then nutrient shortfalls are closed in 100 g steps, each step taking
+ * the candidate with the best "fraction of remaining shortfall closed per dollar".
+ * Candidates are the head of each nutrient's precomputed cost ranking in {@link CostIndex},
+ * so a request only ever looks at a few dozen foods. Stops on budget, on a closed gap,
+ * or when the latency cap is hit (returning what it has so far).
+ *
+ * The index is built when a food or store catalog snapshot is published (reload, change-feed
+ * patch, warm-up), before requests can see it; requests only look it up. The index before it is
+ * kept for requests that pinned their snapshots just ahead of a publish.
+ */
+@Service
+public class ShoppingListOptimizer {
+
+    private static final double STEP_GRAMS = 100.0;
+    private static final double SERVING_GRAMS = 80.0;
+    private static final double MAX_GRAMS_PER_ITEM = 600.0;
+    private static final int CANDIDATES_PER_NUTRIENT = 32;
+    private static final int MAX_STEPS = 200;
+
+    @Value("${nutrition.optimizer.maxMillis:50}")
+    private long maxMillis;
+
+    // written by publishing threads under buildLock, read lock-free by requests
+    private volatile CostIndex index;
+    private volatile CostIndex previousIndex;
+    private final Object buildLock = new Object();
+
+    private final EngineMetrics metrics;
+
+    public ShoppingListOptimizer(EngineMetrics metrics,
+                                 FoodCatalogService foodCatalogService,
+                                 StoreCatalogService storeCatalogService) {
+        this.metrics = metrics;
+        foodCatalogService.onPublish(foods -> prepare(foods, storeCatalogService.current()));
+        storeCatalogService.onPublish(stores -> prepare(foodCatalogService.current(), stores));
+    }
+
+    /**
+     * Prices against the caller-pinned store snapshot, so a request sees one set of prices.
+     *
+     * @param shortfall       target minus fridge amount per {@link Nutrient} (negative = covered)
+     * @param veggieServings  servings to buy when NO_VEGGIES is a gap
+     * @param fruitServings   servings to buy when NO_FRUITS is a gap
+     * @param budgetUsd       spend cap, or null for none
+     */
+    public List<ShoppingItem> optimize(FoodCatalogSnapshot catalog,
+                                       StoreCatalogSnapshot stores,
+                                       String dietType,
+                                       List<FoodGap> gaps,
+                                       double[] shortfall,
+                                       int veggieServings,
+                                       int fruitServings,
+                                       Double budgetUsd) {
+        if (gaps == null || gaps.isEmpty()) return Collections.emptyList();
+
+        CostIndex idx = indexFor(catalog, stores);
+        long deadline = System.nanoTime() + maxMillis * 1_000_000L;
+
+        double budget = (budgetUsd == null || budgetUsd <= 0) ? Double.POSITIVE_INFINITY : budgetUsd;
+        double[] grams = new double[idx.size];
+        String[] reason = new String[idx.size];
+        List<Integer> order = new ArrayList<>();
+
+        double[] remaining = new double[Nutrient.COUNT];
+        for (FoodGap g : gaps) {
+            Nutrient n = nutrientFor(g);
+            if (n != null) remaining[n.ordinal()] = Math.max(0, shortfall[n.ordinal()]);
+        }
+
+        // 1) group gaps: cheapest allowed servings, distinct foods where possible
+        for (FoodGap g : gaps) {
+            FoodGroup group = groupFor(g);
+            if (group == null) continue;
+            int servings = (group == FoodGroup.VEGGIES) ? veggieServings : fruitServings;
+            budget = fillGroup(idx, group, Math.max(1, servings), dietType, budget, grams, reason, order, remaining);
+        }
+
+        // 2) nutrient shortfalls: greedy over the cost-ranking heads
+        double[] scale = new double[Nutrient.COUNT];
+        for (int k = 0; k < Nutrient.COUNT; k++) scale[k] = remaining[k] > 0 ? 1.0 / remaining[k] : 0;
+
+        int[] pool = candidatePool(idx, remaining, dietType);
+        for (int step = 0; step < MAX_STEPS && pool.length > 0; step++) {
+            if (System.nanoTime() > deadline) break;
+
+            int best = -1;
+            double bestRatio = 0;
+            double bestCost = 0;
+            for (int i : pool) {
+                if (grams[i] >= MAX_GRAMS_PER_ITEM) continue;
+                double cost = idx.pricePer100g[i] * (STEP_GRAMS / 100.0);
+                if (cost > budget) continue;
+
+                double gain = 0;
+                for (int k = 0; k < Nutrient.COUNT; k++) {
+                    if (scale[k] == 0 || remaining[k] <= 0) continue;
+                    gain += Math.min(remaining[k], idx.nutrient(i, k)) * scale[k];
+                }
+                double ratio = gain / cost;
+                if (ratio > bestRatio) {
+                    bestRatio = ratio;
+                    best = i;
+                    bestCost = cost;
+                }
+            }
+            if (best < 0) break;
+
+            if (grams[best] == 0) order.add(best);
+            grams[best] += STEP_GRAMS;
+            budget -= bestCost;
+            if (reason[best] == null) reason[best] = "Closes " + coveredLabel(idx, best, remaining) + " gap at lowest cost";
+            for (int k = 0; k < Nutrient.COUNT; k++) remaining[k] -= idx.nutrient(best, k);
+        }
+
+        List<ShoppingItem> out = new ArrayList<>(order.size());
+        for (int i : order) {
+            out.add(new ShoppingItem(
+                    idx.foods[i].getName(),
+                    reason[i],
+                    grams[i],
+                    round2(idx.pricePer100g[i] * grams[i] / 100.0)
+            ));
+        }
+        return out;
+    }
+
+    private double fillGroup(CostIndex idx, FoodGroup group, int servings, String dietType, double budget,
+                             double[] grams, String[] reason, List<Integer> order, double[] remaining) {
+        int[] ranked = idx.byGroup[group.ordinal()];
+        List<Integer> allowed = new ArrayList<>(servings);
+        for (int i : ranked) {
+            if (allowed.size() >= servings) break;
+            if (DietTags.allows(idx.foods[i], dietType)) allowed.add(i);
+        }
+        if (allowed.isEmpty()) return budget;
+
+        String label = (group == FoodGroup.VEGGIES) ? "vegetable" : "fruit";
+        for (int s = 0; s < servings; s++) {
+            int i = allowed.get(s % allowed.size());
+            double cost = idx.pricePer100g[i] * SERVING_GRAMS / 100.0;
+            if (cost > budget) break;
+
+            if (grams[i] == 0) order.add(i);
+            grams[i] += SERVING_GRAMS;
+            budget -= cost;
+            if (reason[i] == null) reason[i] = "Cheapest " + label + " serving for your diet";
+            for (int k = 0; k < Nutrient.COUNT; k++) remaining[k] -= idx.nutrient(i, k) * SERVING_GRAMS / 100.0;
+        }
+        return budget;
+    }
+
+    private int[] candidatePool(CostIndex idx, double[] remaining, String dietType) {
+        LinkedHashSet<Integer> pool = new LinkedHashSet<>();
+        for (int k = 0; k < Nutrient.COUNT; k++) {
+            if (remaining[k] <= 0) continue;
+            int taken = 0;
+            for (int i : idx.byNutrient[k]) {
+                if (taken >= CANDIDATES_PER_NUTRIENT) break;
+                if (!DietTags.allows(idx.foods[i], dietType)) continue;
+                pool.add(i);
+                taken++;
+            }
+        }
+        int[] out = new int[pool.size()];
+        int j = 0;
+        for (int i : pool) out[j++] = i;
+        return out;
+    }
+
+    /** Builds the index for a catalog pair about to be published; one build at a time. */
+    private void prepare(FoodCatalogSnapshot foods, StoreCatalogSnapshot stores) {
+        // not loaded yet (sharded nodes load the national store catalog on the first OPTIMIZED list)
+        if (foods.isEmpty() || stores.isEmpty()) return;
+        synchronized (buildLock) {
+            CostIndex idx = index;
+            if (idx != null && idx.matches(foods.getVersion(), stores.getVersion())) return;
+            CostIndex next = CostIndex.build(foods, stores);
+            if (previousIndex != null) metrics.cacheEvictions(EngineMetrics.CACHE_COST_INDEX, 1);
+            previousIndex = idx;
+            index = next;
+        }
+    }
+
+    private CostIndex indexFor(FoodCatalogSnapshot foods, StoreCatalogSnapshot stores) {
+        CostIndex idx = index;
+        if (idx == null || !idx.matches(foods.getVersion(), stores.getVersion())) idx = previousIndex;
+        if (idx != null && idx.matches(foods.getVersion(), stores.getVersion())) {
+            metrics.cacheHit(EngineMetrics.CACHE_COST_INDEX);
+            return idx;
+        }
+        // a pair never published together (both catalogs moved at once): this request's own index
+        metrics.cacheMiss(EngineMetrics.CACHE_COST_INDEX);
+        return CostIndex.build(foods, stores);
+    }
+
+    private String coveredLabel(CostIndex idx, int food, double[] remaining) {
+        Nutrient best = null;
+        double bestAmt = 0;
+        for (Nutrient n : Nutrient.values()) {
+            if (n == Nutrient.CALORIES || remaining[n.ordinal()] <= 0) continue;
+            double amt = idx.nutrient(food, n.ordinal());
+            if (amt > bestAmt) {
+                bestAmt = amt;
+                best = n;
+            }
+        }
+        return best == null ? "nutrient" : best.name().toLowerCase();
+    }
+
+    private static Nutrient nutrientFor(FoodGap gap) {
+        switch (gap) {
+            case LOW_PROTEIN: return Nutrient.PROTEIN;
+            case LOW_FIBER: return Nutrient.FIBER;
+            case LOW_HEALTHY_FATS: return Nutrient.FATS;
+            case LOW_COMPLEX_CARBS: return Nutrient.CARBS;
+            default: return null;
+        }
+    }
+
+    private static FoodGroup groupFor(FoodGap gap) {
+        switch (gap) {
+            case NO_VEGGIES: return FoodGroup.VEGGIES;
+            case NO_FRUITS: return FoodGroup.FRUITS;
+            default: return null;
+        }
+    }
+
+    private double round2(double x) { return Math.round(x * 100.0) / 100.0; }
+}
@@ -0,0 +1,75 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows observed latency (gradient algorithm, after Netflix's
+ * Gradient2). A short and a long moving average of response times are compared: while they
+ * agree the limit grows by about its square root per sample; once queueing pushes the short
+ * average past {@code TOLERANCE} × the long one, the limit shrinks towards what the endpoint
+ * can serve without queueing. Dropped samples (timeouts) cut the limit by 10%.
+ */
+final class AdaptiveLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double SHORT_ALPHA = 0.1;        // ~10 samples
+    private static final double LONG_ALPHA = 1.0 / 600;   // ~600 samples
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int n = inFlight.get();
+            if (n >= (int) limit) return false;
+            if (inFlight.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    void release(long rttNanos, boolean dropped) {
+        int remaining = inFlight.decrementAndGet();
+        update(rttNanos, remaining + 1, dropped);
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtEnd, boolean dropped) {
+        if (dropped) {
+            limit = Math.max(minLimit, limit * DROP_BACKOFF);
+            return;
+        }
+        if (shortRttNanos == 0) {
+            shortRttNanos = longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += SHORT_ALPHA * (rttNanos - shortRttNanos);
+        longRttNanos += LONG_ALPHA * (rttNanos - longRttNanos);
+        // load went away: let the baseline follow instead of waiting ~600 samples
+        if (longRttNanos > 2 * shortRttNanos) longRttNanos *= 0.95;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+        double next = limit * gradient + Math.sqrt(limit);
+        // don't grow a limit the traffic isn't using
+        if (next > limit && inFlightAtEnd < limit / 2) return;
+
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + next * SMOOTHING));
+    }
+}
@@ -0,0 +1,124 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * One connection pool per downstream dependency instead of the shared global one, so a slow
+ * dependency can only exhaust its own pool. {@code maxConcurrent} calls run at once, up to
+ * {@code maxQueue} more wait at most {@code maxWaitMillis} for a slot, anything beyond fails
+ * immediately (and falls back where the caller has a fallback).
+ *
+ * In servlet mode a slow dependency would still hold the request threads blocked on it, so
+ * endpoints that wait on Google run on their own bounded worker pool ({@link #onGoogleWorkers})
+ * and the servlet thread goes back to serving /analyze. When the workers and their queue are
+ * full the request is answered 503 at once.
+ *
+ * Pools are configured under {@code nutrition.bulkhead.<name>.*} and exported as
+ * {@code reactor_netty_connection_provider_*{name="<name>"}}.
+ */
+@Slf4j
+@Component
+public class Bulkheads {
+
+    public static final String CATALOG = "catalog";
+    public static final String PROFILE = "profile";
+    public static final String GOOGLE = "google";
+
+    private final Environment env;
+    private final EngineMetrics metrics;
+    private final List<ConnectionProvider> providers = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor googleWorkers;
+
+    public Bulkheads(Environment env, EngineMetrics metrics) {
+        this.env = env;
+        this.metrics = metrics;
+
+        int workers = env.getProperty("nutrition.bulkhead.google.workers", Integer.class, 16);
+        int workQueue = env.getProperty("nutrition.bulkhead.google.workQueue", Integer.class, 64);
+        AtomicInteger seq = new AtomicInteger();
+        this.googleWorkers = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, workQueue)), r -> {
+                    Thread t = new Thread(r, "google-worker-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        googleWorkers.allowCoreThreadTimeOut(true);
+    }
+
+    /** {@code builder} with its own bounded pool named {@code name}. */
+    public WebClient.Builder isolate(String name, WebClient.Builder builder) {
+        String prefix = "nutrition.bulkhead." + name + ".";
+        int maxConcurrent = env.getProperty(prefix + "maxConcurrent", Integer.class, defaultConcurrency(name));
+        int maxQueue = env.getProperty(prefix + "maxQueue", Integer.class, maxConcurrent);
+        long maxWaitMillis = env.getProperty(prefix + "maxWaitMillis", Long.class, 1000L);
+
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(maxConcurrent)
+                .pendingAcquireMaxCount(maxQueue)
+                .pendingAcquireTimeout(Duration.ofMillis(maxWaitMillis))
+                .metrics(true)
+                .build();
+        providers.add(provider);
+        log.info("bulkhead name={} maxConcurrent={} maxQueue={} maxWaitMillis={}", name, maxConcurrent, maxQueue, maxWaitMillis);
+
+        return builder.clientConnector(new ReactorClientHttpConnector(HttpClient.create(provider)));
+    }
+
+    /**
+     * Runs blocking {@code work} on the Google worker pool with the caller's trace and deadline
+     * bound. Fails with 503 when the pool is full and with 504 when the deadline passed while
+     * the work was queued.
+     */
+    public <T> CompletableFuture<T> onGoogleWorkers(Supplier<T> work) {
+        RequestTrace trace = RequestTrace.current();
+        Deadline deadline = Deadline.current();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (deadline != null && deadline.isExpired()) throw new DeadlineExceededException("a worker");
+                RequestTrace.Scope traceScope = trace == null ? null : trace.bind();
+                Deadline.Scope deadlineScope = deadline == null ? null : deadline.bind();
+                try {
+                    return work.get();
+                } finally {
+                    if (deadlineScope != null) deadlineScope.close();
+                    if (traceScope != null) traceScope.close();
+                }
+            }, googleWorkers);
+        } catch (RejectedExecutionException e) {
+            metrics.bulkheadRejected(GOOGLE);
+            return CompletableFuture.failedFuture(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Store recommendations are at capacity"));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        googleWorkers.shutdownNow();
+        providers.forEach(ConnectionProvider::dispose);
+    }
+
+    private static int defaultConcurrency(String name) {
+        return switch (name) {
+            case CATALOG -> 6;     // two catalogs, three tables each
+            case PROFILE -> 64;
+            default -> 32;
+        };
+    }
+}
@@ -0,0 +1,122 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-endpoint {@link AdaptiveLimit}s in front of the controllers. A request over its
+ * endpoint's limit is shed at once with 503 and {@code Retry-After} instead of queueing behind
+ * everyone else, so admitted requests keep their latency and goodput holds under overload.
+ * Store recommendations first fall back to a degraded answer (straight-line distances, no
+ * Google), itself bounded by {@code nutrition.limiter.stores.degradedLimit}.
+ *
+ * Limits start at {@code nutrition.limiter.<endpoint>.initialLimit} and move between
+ * {@code minLimit} and {@code maxLimit} with observed latency.
+ */
+@Component
+public class ConcurrencyLimits {
+
+    public static final String ANALYZE = "analyze";
+    public static final String MEAL_PLAN = "mealPlan";
+    public static final String STORES = "stores";
+
+    /** Request attribute set when the request was admitted to the degraded path. */
+    public static final String DEGRADED_ATTRIBUTE = "nutrition.limiter.degraded";
+    /** Response header marking a degraded answer. */
+    public static final String DEGRADED_HEADER = "X-Degraded";
+
+    private final Map<String, AdaptiveLimit> limits;
+    private final Semaphore storesDegraded;
+    private final long retryAfterSeconds;
+    private final EngineMetrics metrics;
+
+    public ConcurrencyLimits(Environment env,
+                             EngineMetrics metrics,
+                             @Value("${nutrition.limiter.stores.degradedLimit:64}") int storesDegradedLimit,
+                             @Value("${nutrition.limiter.retryAfterSeconds:1}") long retryAfterSeconds) {
+        this.metrics = metrics;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.storesDegraded = new Semaphore(Math.max(0, storesDegradedLimit));
+        this.limits = Map.of(
+                ANALYZE, limit(env, ANALYZE, 64, 4, 512),
+                MEAL_PLAN, limit(env, MEAL_PLAN, 8, 1, 64),
+                STORES, limit(env, STORES, 16, 2, 128));
+        limits.forEach((endpoint, l) -> metrics.limiterGauges(endpoint, l::limit, l::inFlight));
+    }
+
+    /** The limited endpoint serving {@code method path}, or null if it is not limited. */
+    public static String endpointOf(String method, String path) {
+        if (!"POST".equals(method)) return null;
+        return switch (path) {
+            case "/api/nutrition/analyze" -> ANALYZE;
+            case "/api/nutrition/meal-plan" -> MEAL_PLAN;
+            case "/api/stores/recommend" -> STORES;
+            default -> null;
+        };
+    }
+
+    /** A permit for {@code endpoint}, possibly for its degraded path; null means shed the request. */
+    public Permit acquire(String endpoint) {
+        AdaptiveLimit limit = limits.get(endpoint);
+        if (limit.tryAcquire()) return new Permit(endpoint, limit, false);
+
+        if (STORES.equals(endpoint) && storesDegraded.tryAcquire()) {
+            metrics.limiterRejected(endpoint, "degraded");
+            return new Permit(endpoint, null, true);
+        }
+        metrics.limiterRejected(endpoint, "shed");
+        return null;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    private static AdaptiveLimit limit(Environment env, String endpoint, int initial, int min, int max) {
+        String prefix = "nutrition.limiter." + endpoint + ".";
+        return new AdaptiveLimit(
+                env.getProperty(prefix + "initialLimit", Integer.class, initial),
+                env.getProperty(prefix + "minLimit", Integer.class, min),
+                env.getProperty(prefix + "maxLimit", Integer.class, max));
+    }
+
+    /** Admission of one request; release exactly once with the response status. */
+    public final class Permit {
+        private final String endpoint;
+        private final AdaptiveLimit limit;
+        private final boolean degraded;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String endpoint, AdaptiveLimit limit, boolean degraded) {
+            this.endpoint = endpoint;
+            this.limit = limit;
+            this.degraded = degraded;
+        }
+
+        public boolean isDegraded() {
+            return degraded;
+        }
+
+        public void release(int status) {
+            if (!released.compareAndSet(false, true)) return;
+            if (degraded) {
+                storesDegraded.release();
+                return;
+            }
+            // a deadline or bulkhead rejection downstream says "overloaded" louder than latency does
+            limit.release(System.nanoTime() - startNanos, status == 503 || status == 504);
+        }
+
+        @Override
+        public String toString() {
+            return endpoint + (degraded ? " (degraded)" : "");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+
+/**
+ * When the caller of an API request stops waiting. Travels like {@code RequestTrace}: bound
+ * to the request thread in servlet mode, in the Reactor context in reactive mode. Downstream
+ * calls wrapped in {@link #bound} fail with {@link DeadlineExceededException} once it passes,
+ * which cancels the HTTP exchange instead of letting it finish for nobody.
+ *
+ * Without a current deadline (startup, batch lines, shared catalog reloads) calls are unbounded.
+ */
+public final class Deadline {
+
+    /** Request header with the caller's remaining budget in milliseconds. */
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    /** Put into the context by shared work that must not inherit one subscriber's deadline. */
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline afterMillis(long millis) {
+        return new Deadline(System.nanoTime() + millis * 1_000_000L);
+    }
+
+    /** The deadline bound to this thread, or null. */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /** The subscriber's deadline, falling back to the subscribing thread's; null if none. */
+    public static Deadline current(ContextView context) {
+        Deadline d = context.getOrDefault(Deadline.class, CURRENT.get());
+        return d == NONE ? null : d;
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, (expiresAtNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * {@code call} limited to the subscriber's remaining time: errors right away if the deadline
+     * has already passed, otherwise cancels {@code call} when it does.
+     */
+    public static <T> Mono<T> bound(String what, Mono<T> call) {
+        return Mono.deferContextual(c -> {
+            Deadline d = current(c);
+            if (d == null) return call;
+            if (d.isExpired()) return Mono.error(new DeadlineExceededException(what));
+            return call.timeout(Duration.ofNanos(d.expiresAtNanos - System.nanoTime()),
+                    Mono.error(() -> new DeadlineExceededException(what)));
+        });
+    }
+
+    /** Runs {@code shared} without any caller's deadline; each caller bounds its own wait instead. */
+    public static <T> Mono<T> detached(Mono<T> shared) {
+        return shared.contextWrite(c -> c.put(Deadline.class, NONE));
+    }
+
+    /** Binds this deadline to the current thread until the scope is closed. */
+    public Scope bind() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        };
+    }
+
+    /** Restores the thread's previous deadline binding. */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
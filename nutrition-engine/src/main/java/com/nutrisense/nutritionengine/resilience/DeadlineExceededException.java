@@ -0,0 +1,12 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/** The request's {@link Deadline} passed while waiting on {@code what}; answered with 504. */
+public class DeadlineExceededException extends ResponseStatusException {
+
+    public DeadlineExceededException(String what) {
+        super(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded waiting for " + what);
+    }
+}
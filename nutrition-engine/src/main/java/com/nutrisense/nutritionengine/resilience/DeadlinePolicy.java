@@ -0,0 +1,39 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks each request's {@link Deadline}: the caller's {@value Deadline#HEADER} if sent, else
+ * {@code nutrition.deadline.defaultMillis}, never more than {@code maxMillis}. Streaming batch
+ * requests get none; their lines run as long as the stream stays open.
+ */
+@Component
+public class DeadlinePolicy {
+
+    private final long defaultMillis;
+    private final long maxMillis;
+
+    public DeadlinePolicy(@Value("${nutrition.deadline.defaultMillis:10000}") long defaultMillis,
+                          @Value("${nutrition.deadline.maxMillis:30000}") long maxMillis) {
+        this.defaultMillis = defaultMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    public boolean applies(String path) {
+        return path.startsWith("/api/") && !path.endsWith("/batch");
+    }
+
+    public Deadline forRequest(String header) {
+        long millis = defaultMillis;
+        if (header != null && !header.isBlank()) {
+            try {
+                long requested = Long.parseLong(header.trim());
+                if (requested > 0) millis = requested;
+            } catch (NumberFormatException ignored) {
+                // malformed header: the default applies
+            }
+        }
+        return Deadline.afterMillis(Math.min(millis, maxMillis));
+    }
+}
@@ -0,0 +1,30 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/** Reactive twin of {@link ServletDeadlineFilter}: the deadline travels in the Reactor context. */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "nutrition.deadline", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveDeadlineFilter implements WebFilter {
+
+    private final DeadlinePolicy policy;
+
+    public ReactiveDeadlineFilter(DeadlinePolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!policy.applies(exchange.getRequest().getPath().value())) return chain.filter(exchange);
+
+        Deadline deadline = policy.forRequest(exchange.getRequest().getHeaders().getFirst(Deadline.HEADER));
+        return chain.filter(exchange).contextWrite(c -> c.put(Deadline.class, deadline));
+    }
+}
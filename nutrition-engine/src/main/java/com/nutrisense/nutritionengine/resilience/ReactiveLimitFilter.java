@@ -0,0 +1,53 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/** Reactive twin of {@link ServletLimitFilter}. */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "nutrition.limiter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveLimitFilter implements WebFilter {
+
+    private final ConcurrencyLimits limits;
+
+    public ReactiveLimitFilter(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String endpoint = ConcurrencyLimits.endpointOf(exchange.getRequest().getMethod().name(),
+                exchange.getRequest().getPath().value());
+        if (endpoint == null) return chain.filter(exchange);
+
+        ServerHttpResponse response = exchange.getResponse();
+        ConcurrencyLimits.Permit permit = limits.acquire(endpoint);
+        if (permit == null) {
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(limits.retryAfterSeconds()));
+            return response.setComplete();
+        }
+        if (permit.isDegraded()) {
+            exchange.getAttributes().put(ConcurrencyLimits.DEGRADED_ATTRIBUTE, Boolean.TRUE);
+            response.getHeaders().set(ConcurrencyLimits.DEGRADED_HEADER, "distance=haversine");
+        }
+
+        return chain.filter(exchange).doFinally(signal -> {
+            HttpStatusCode status = response.getStatusCode();
+            permit.release(status == null ? 200 : status.value());
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/** Binds the request's {@link Deadline} to the request thread in servlet mode. */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "nutrition.deadline", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ServletDeadlineFilter extends OncePerRequestFilter {
+
+    private final DeadlinePolicy policy;
+
+    public ServletDeadlineFilter(DeadlinePolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !policy.applies(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        Deadline deadline = policy.forRequest(request.getHeader(Deadline.HEADER));
+        try (Deadline.Scope ignored = deadline.bind()) {
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.nutrisense.nutritionengine.resilience;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admits servlet requests through {@link ConcurrencyLimits}. Runs first, so a shed request
+ * costs no body parsing, tracing or capture. Requests finished on a worker pool release their
+ * permit when the response completes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "nutrition.limiter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ServletLimitFilter extends OncePerRequestFilter {
+
+    private final ConcurrencyLimits limits;
+
+    public ServletLimitFilter(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return ConcurrencyLimits.endpointOf(request.getMethod(), request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        ConcurrencyLimits.Permit permit = limits.acquire(
+                ConcurrencyLimits.endpointOf(request.getMethod(), request.getRequestURI()));
+        if (permit == null) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(limits.retryAfterSeconds()));
+            return;
+        }
+        if (permit.isDegraded()) {
+            request.setAttribute(ConcurrencyLimits.DEGRADED_ATTRIBUTE, Boolean.TRUE);
+            response.setHeader(ConcurrencyLimits.DEGRADED_HEADER, "distance=haversine");
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+            if (async) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override public void onComplete(AsyncEvent event) { permit.release(response.getStatus()); }
+                    @Override public void onTimeout(AsyncEvent event) { }
+                    @Override public void onError(AsyncEvent event) { }
+                    @Override public void onStartAsync(AsyncEvent event) { }
+                });
+            }
+        } finally {
+            if (!async) permit.release(response.getStatus());
+        }
+    }
+}
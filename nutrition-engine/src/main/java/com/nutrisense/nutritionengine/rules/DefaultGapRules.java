@@ -0,0 +1,46 @@
+package com.nutrisense.nutritionengine.rules;
+
+import com.nutrisense.nutritionengine.supabase.GapRuleRow;
+
+import java.util.List;
+
+/**
+ * Built-in rules, used when the gap_rules table is missing or empty.
+ * They reproduce the thresholds the engine shipped with.
+ */
+public final class DefaultGapRules {
+
+    private DefaultGapRules() {
+    }
+
+    public static List<GapRuleRow> rows() {
+        return List.of(
+                rule("LOW_PROTEIN", null, null, null, "protein", 0.6, true, 10,
+                        "Protein is low compared to your target — add a high-protein option today."),
+                rule("NO_VEGGIES", null, null, List.of("VEGGIES"), null, null, null, 20,
+                        "No vegetables detected — add low-calorie veggies for fiber and micronutrients."),
+                rule("NO_FRUITS", null, null, List.of("FRUITS"), null, null, null, 30,
+                        "No fruits detected — add 1–2 servings for vitamins and fiber."),
+                rule("LOW_FIBER", null, null, List.of("FIBER"), null, null, null, 40,
+                        "Fiber looks low — add higher-fiber foods (e.g., oats, lentils, veggies, fruits)."),
+                // diet-specific soft gaps
+                rule("LOW_HEALTHY_FATS", List.of("KETO"), null, List.of("FATS"), null, null, null, 50,
+                        "Healthy fats are missing — consider foods like avocado, olive oil, nuts, or salmon (diet permitting)."),
+                rule("LOW_COMPLEX_CARBS", null, List.of("KETO"), List.of("CARBS"), null, null, null, 60,
+                        "Complex carbs are missing — add whole grains or starchy carbs (diet permitting).")
+        );
+    }
+
+    private static GapRuleRow rule(String gap,
+                                   List<String> diets,
+                                   List<String> excludeDiets,
+                                   List<String> absentGroups,
+                                   String nutrient,
+                                   Double threshold,
+                                   Boolean relative,
+                                   int priority,
+                                   String message) {
+        return new GapRuleRow(gap, diets, excludeDiets, null, absentGroups, null,
+                nutrient, "LT", threshold, relative, message, priority, true);
+    }
+}
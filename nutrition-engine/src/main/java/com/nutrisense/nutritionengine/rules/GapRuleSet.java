@@ -0,0 +1,246 @@
+package com.nutrisense.nutritionengine.rules;
+
+import com.nutrisense.nutritionengine.model.FoodGap;
+import com.nutrisense.nutritionengine.model.FoodGroup;
+import com.nutrisense.nutritionengine.service.FoodGroupService;
+import com.nutrisense.nutritionengine.supabase.GapRuleRow;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gap rules compiled into parallel arrays. Evaluation is a loop of bitmask tests over
+ * the fridge's group-presence mask plus one numeric comparison per nutrient rule;
+ * no strings, maps or allocation besides the result list.
+ *
+ * Diet/goal filtering is resolved once per (diet, goal) pair and memoized, so the
+ * request path only walks the rules that can apply to that user.
+ */
+@Slf4j
+public final class GapRuleSet {
+
+    private static final byte OP_LT = 0;
+    private static final byte OP_GT = 1;
+
+    private final int size;
+    private final FoodGap[] gaps;
+    private final int[] absentMask;
+    private final int[] presentMask;
+    private final int[] nutrient;       // Nutrient ordinal or -1
+    private final byte[] op;
+    private final double[] threshold;
+    private final boolean[] relative;
+    private final String[] message;
+
+    // diet/goal filters, only consulted when building a selection
+    private final Set<String>[] diets;
+    private final Set<String>[] excludeDiets;
+    private final Set<String>[] goals;
+
+    private final Map<String, int[]> selections = new ConcurrentHashMap<>();
+    private final int fingerprint;
+
+    @SuppressWarnings("unchecked")
+    private GapRuleSet(List<Compiled> rules, int fingerprint) {
+        this.size = rules.size();
+        this.gaps = new FoodGap[size];
+        this.absentMask = new int[size];
+        this.presentMask = new int[size];
+        this.nutrient = new int[size];
+        this.op = new byte[size];
+        this.threshold = new double[size];
+        this.relative = new boolean[size];
+        this.message = new String[size];
+        this.diets = new Set[size];
+        this.excludeDiets = new Set[size];
+        this.goals = new Set[size];
+        this.fingerprint = fingerprint;
+
+        for (int i = 0; i < size; i++) {
+            Compiled c = rules.get(i);
+            gaps[i] = c.gap;
+            absentMask[i] = c.absentMask;
+            presentMask[i] = c.presentMask;
+            nutrient[i] = c.nutrient == null ? -1 : c.nutrient.ordinal();
+            op[i] = c.op;
+            threshold[i] = c.threshold;
+            relative[i] = c.relative;
+            message[i] = c.message;
+            diets[i] = c.diets;
+            excludeDiets[i] = c.excludeDiets;
+            goals[i] = c.goals;
+        }
+    }
+
+    public static GapRuleSet defaults() {
+        return compile(DefaultGapRules.rows());
+    }
+
+    /**
+     * Compiles table rows; rows that cannot be compiled (unknown gap, group or nutrient)
+     * are skipped so one bad row does not take the whole rule table down.
+     */
+    public static GapRuleSet compile(List<GapRuleRow> rows) {
+        List<Compiled> compiled = new ArrayList<>();
+        int seq = 0;
+        for (GapRuleRow r : rows == null ? Collections.<GapRuleRow>emptyList() : rows) {
+            if (r == null || Boolean.FALSE.equals(r.getEnabled())) continue;
+            try {
+                compiled.add(compileRow(r, seq++));
+            } catch (IllegalArgumentException e) {
+                log.warn("gap_rules skipping rule gap={} reason={}", r.getGap(), e.getMessage());
+            }
+        }
+        compiled.sort(Comparator.comparingInt((Compiled c) -> c.priority).thenComparingInt(c -> c.seq));
+        return new GapRuleSet(compiled, rows == null ? 0 : rows.hashCode());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @param presentGroups OR of {@link FoodGroup#bit()} for every group found in the fridge
+     * @param amounts       fridge totals indexed by {@link Nutrient#ordinal()}
+     * @param targets       daily targets indexed by {@link Nutrient#ordinal()}
+     */
+    public List<FoodGap> evaluate(String dietType, String goal, int presentGroups, double[] amounts, double[] targets) {
+        int[] selected = selectionFor(dietType, goal);
+        List<FoodGap> out = new ArrayList<>(4);
+        int seen = 0; // FoodGap has < 32 constants
+
+        for (int i : selected) {
+            if ((presentGroups & absentMask[i]) != 0) continue;
+            if ((presentGroups & presentMask[i]) != presentMask[i]) continue;
+
+            int n = nutrient[i];
+            if (n >= 0) {
+                double limit = relative[i] ? threshold[i] * targets[n] : threshold[i];
+                double v = amounts[n];
+                boolean hit = (op[i] == OP_LT) ? v < limit : v > limit;
+                if (!hit) continue;
+            }
+
+            int bit = 1 << gaps[i].ordinal();
+            if ((seen & bit) != 0) continue;
+            seen |= bit;
+            out.add(gaps[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Text of the highest-priority rule for this gap that applies to the diet/goal.
+     */
+    public String messageFor(FoodGap gap, String dietType, String goal) {
+        for (int i : selectionFor(dietType, goal)) {
+            if (gaps[i] == gap && message[i] != null && !message[i].isBlank()) return message[i];
+        }
+        return null;
+    }
+
+    private int[] selectionFor(String dietType, String goal) {
+        String diet = norm(dietType);
+        String g = norm(goal);
+        return selections.computeIfAbsent(diet + '|' + g, k -> select(diet, g));
+    }
+
+    private int[] select(String diet, String goal) {
+        int[] tmp = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!diets[i].isEmpty() && !diets[i].contains(diet)) continue;
+            if (excludeDiets[i].contains(diet)) continue;
+            if (!goals[i].isEmpty() && !goals[i].contains(goal)) continue;
+            tmp[n++] = i;
+        }
+        return Arrays.copyOf(tmp, n);
+    }
+
+    private static Compiled compileRow(GapRuleRow r, int seq) {
+        Compiled c = new Compiled();
+        c.seq = seq;
+        c.priority = r.getPriority() == null ? Integer.MAX_VALUE : r.getPriority();
+
+        if (r.getGap() == null) throw new IllegalArgumentException("missing gap");
+        try {
+            c.gap = FoodGap.valueOf(r.getGap().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown gap " + r.getGap());
+        }
+
+        c.absentMask = maskOf(r.getAbsentGroups());
+        c.presentMask = maskOf(r.getPresentGroups());
+
+        if (r.getNutrient() != null && !r.getNutrient().isBlank()) {
+            c.nutrient = Nutrient.parse(r.getNutrient());
+            if (c.nutrient == null) throw new IllegalArgumentException("unknown nutrient " + r.getNutrient());
+            if (r.getThreshold() == null) throw new IllegalArgumentException("nutrient rule without threshold");
+            c.threshold = r.getThreshold();
+            c.relative = Boolean.TRUE.equals(r.getRelativeToTarget());
+            c.op = "GT".equalsIgnoreCase(r.getComparison()) ? OP_GT : OP_LT;
+        } else if (c.absentMask == 0 && c.presentMask == 0) {
+            throw new IllegalArgumentException("rule has no condition");
+        }
+
+        c.message = r.getMessage();
+        c.diets = normSet(r.getDietTypes());
+        c.excludeDiets = normSet(r.getExcludeDietTypes());
+        c.goals = normSet(r.getGoals());
+        return c;
+    }
+
+    private static int maskOf(List<String> groups) {
+        if (groups == null) return 0;
+        int mask = 0;
+        for (String s : groups) {
+            if (s == null || s.isBlank()) continue;
+            FoodGroup g = parseGroup(s);
+            if (g == null) throw new IllegalArgumentException("unknown food group " + s);
+            mask |= g.bit();
+        }
+        return mask;
+    }
+
+    private static FoodGroup parseGroup(String s) {
+        try {
+            return FoodGroup.valueOf(s.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return FoodGroupService.mapFoodGroup(s);
+        }
+    }
+
+    private static Set<String> normSet(List<String> values) {
+        if (values == null || values.isEmpty()) return Collections.emptySet();
+        Set<String> out = new HashSet<>();
+        for (String v : values) {
+            if (v != null && !v.isBlank()) out.add(norm(v));
+        }
+        return out;
+    }
+
+    private static String norm(String s) {
+        return s == null ? "" : s.trim().toUpperCase();
+    }
+
+    private static final class Compiled {
+        int seq;
+        int priority;
+        FoodGap gap;
+        int absentMask;
+        int presentMask;
+        Nutrient nutrient;
+        byte op;
+        double threshold;
+        boolean relative;
+        String message;
+        Set<String> diets;
+        Set<String> excludeDiets;
+        Set<String> goals;
+    }
+}
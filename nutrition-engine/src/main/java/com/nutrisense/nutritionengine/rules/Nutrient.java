@@ -0,0 +1,31 @@
+package com.nutrisense.nutritionengine.rules;
+
+/**
+ * Index positions of the per-request nutrient accumulators (grams, calories in kcal).
+ */
+public enum Nutrient {
+    PROTEIN,
+    CARBS,
+    FATS,
+    FIBER,
+    CALORIES;
+
+    public static final int COUNT = values().length;
+
+    public static Nutrient parse(String raw) {
+        if (raw == null || raw.isBlank()) return null;
+        switch (raw.trim().toLowerCase()) {
+            case "protein": return PROTEIN;
+            case "carb":
+            case "carbs": return CARBS;
+            case "fat":
+            case "fats": return FATS;
+            case "fiber":
+            case "fibre": return FIBER;
+            case "calorie":
+            case "calories":
+            case "kcal": return CALORIES;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.model.FoodGroupTargets;
+import com.nutrisense.nutritionengine.model.NutritionTarget;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * What an analysis runs against: one pinned food catalog snapshot, the store snapshot
+ * (taken on first use, only OPTIMIZED lists need it) and nutrition targets memoized by
+ * canonical profile. A single /analyze call gets a throwaway context; a batch shares one
+ * across all of its lines, so every line sees the same catalog and equal profiles are
+ * computed once.
+ */
+public final class AnalysisContext {
+
+    private final FoodCatalogSnapshot catalog;
+    private final Supplier<StoreCatalogSnapshot> storeSource;
+    private final Map<String, Targets> targets = new ConcurrentHashMap<>();
+    private volatile StoreCatalogSnapshot stores;
+
+    public AnalysisContext(FoodCatalogSnapshot catalog, Supplier<StoreCatalogSnapshot> storeSource) {
+        this.catalog = catalog;
+        this.storeSource = storeSource;
+    }
+
+    public FoodCatalogSnapshot getCatalog() {
+        return catalog;
+    }
+
+    public StoreCatalogSnapshot getStores() {
+        StoreCatalogSnapshot s = stores;
+        if (s == null) {
+            synchronized (this) {
+                s = stores;
+                if (s == null) {
+                    s = storeSource.get();
+                    stores = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Pins {@code loaded} unless a store snapshot is pinned already, so a reactive caller can
+     * load it without blocking before the first OPTIMIZED analysis.
+     */
+    public void pinStores(StoreCatalogSnapshot loaded) {
+        synchronized (this) {
+            if (stores == null) stores = loaded;
+        }
+    }
+
+    public boolean hasStores() {
+        return stores != null;
+    }
+
+    public Targets targets(UserProfile user, NutritionService nutritionService) {
+        return targets.computeIfAbsent(canonicalProfile(user), k -> new Targets(
+                nutritionService.calculateTarget(user),
+                nutritionService.calculateFoodGroupTargets(user)
+        ));
+    }
+
+    /** Every profile field the targets and gap rules depend on, normalized. */
+    public static String canonicalProfile(UserProfile u) {
+        if (u == null) return "";
+        return u.getAge()
+                + "|" + u.getWeightKg()
+                + "|" + u.getHeightCm()
+                + "|" + lower(u.getGender())
+                + "|" + upper(u.getHealthGoal())
+                + "|" + upper(u.getDietType())
+                + "|" + upper(u.getActivityLevel());
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.trim().toLowerCase();
+    }
+
+    private static String upper(String s) {
+        return s == null ? "" : s.trim().toUpperCase();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Targets {
+        private NutritionTarget target;
+        private FoodGroupTargets groupTargets;
+    }
+}
@@ -0,0 +1,84 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.model.NutritionResponse;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of /analyze responses keyed by their content hash (which is also the ETag).
+ * Entries live in partitions (one per shopping mode) and every partition belongs to a
+ * single catalog version; the first access with a newer version drops that partition,
+ * so stale responses never outlive a catalog change. {@code maxEntries} bounds all
+ * partitions together, least recently used first.
+ */
+@Component
+public class AnalyzeResponseCache {
+
+    private final int maxEntries;
+    private final EngineMetrics metrics;
+    // "partition:key", access-ordered across partitions
+    private final LinkedHashMap<String, NutritionResponse> entries;
+    private final Map<String, Long> versions = new HashMap<>();
+
+    public AnalyzeResponseCache(@Value("${nutrition.analyzeCache.maxEntries:2048}") int maxEntries,
+                                EngineMetrics metrics) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.metrics = metrics;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, NutritionResponse> eldest) {
+                boolean evict = size() > AnalyzeResponseCache.this.maxEntries;
+                if (evict) metrics.cacheEvictions(EngineMetrics.CACHE_ANALYZE, 1);
+                return evict;
+            }
+        };
+    }
+
+    public synchronized NutritionResponse get(String partition, String key, long version) {
+        NutritionResponse hit = sameVersion(partition, version) ? entries.get(partition + ':' + key) : null;
+        if (hit != null) metrics.cacheHit(EngineMetrics.CACHE_ANALYZE);
+        else metrics.cacheMiss(EngineMetrics.CACHE_ANALYZE);
+        return hit;
+    }
+
+    public synchronized void put(String partition, String key, long version, NutritionResponse response) {
+        if (maxEntries == 0 || response == null) return;
+        // a response computed against an older catalog must not land in the new generation
+        if (version < versions.getOrDefault(partition, -1L)) return;
+        sameVersion(partition, version);
+        entries.put(partition + ':' + key, response);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        versions.clear();
+    }
+
+    /** Whether the partition holds {@code version}; a newer one drops the partition's entries first. */
+    private boolean sameVersion(String partition, long version) {
+        long current = versions.getOrDefault(partition, -1L);
+        if (version == current) return true;
+        if (version < current) return false;
+        String prefix = partition + ':';
+        int dropped = 0;
+        for (Iterator<String> it = entries.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+                dropped++;
+            }
+        }
+        if (dropped > 0) metrics.cacheEvictions(EngineMetrics.CACHE_ANALYZE, dropped);
+        versions.put(partition, version);
+        return false;
+    }
+}
@@ -0,0 +1,18 @@
+package com.nutrisense.nutritionengine.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Basket total at one store plus how it was reached.
+ */
+@Data
+@AllArgsConstructor
+public class BasketPrice {
+    private double total;
+    private int pricedItems;                    // carried by the store (or substituted)
+    private int missingItems;                   // charged the missing-item penalty
+    private Map<String, String> substitutions;  // null unless substitution mode
+}
@@ -0,0 +1,35 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import com.nutrisense.nutritionengine.supabase.FoodSuggestionRow;
+import com.nutrisense.nutritionengine.supabase.StorePriceRow;
+import com.nutrisense.nutritionengine.supabase.StoreRow;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoded row changes to apply to the catalog snapshots in one step. Changes to foods concern
+ * both catalogs: nutrients for the food catalog, the id → name mapping prices hang off for the
+ * store catalog.
+ */
+@Data
+public class CatalogChanges {
+    private final List<RowChange<FoodItemRow>> foods = new ArrayList<>();
+    private final List<RowChange<FoodSuggestionRow>> suggestions = new ArrayList<>();
+    private final List<RowChange<StoreRow>> stores = new ArrayList<>();
+    private final List<RowChange<StorePriceRow>> prices = new ArrayList<>();
+
+    public boolean touchesFoodCatalog() {
+        return !foods.isEmpty() || !suggestions.isEmpty();
+    }
+
+    public boolean touchesStoreCatalog() {
+        return !foods.isEmpty() || !stores.isEmpty() || !prices.isEmpty();
+    }
+
+    public int size() {
+        return foods.size() + suggestions.size() + stores.size() + prices.size();
+    }
+}
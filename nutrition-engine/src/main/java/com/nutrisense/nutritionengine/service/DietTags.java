@@ -0,0 +1,30 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+
+import java.util.List;
+
+/**
+ * Diet filter over foods.diet_tags. BALANCED (or no diet) accepts every food; any other
+ * diet requires the food to be tagged with it, so untagged foods are never offered to
+ * e.g. a VEGAN user.
+ */
+public final class DietTags {
+
+    private DietTags() {
+    }
+
+    public static boolean allows(FoodItemRow food, String dietType) {
+        if (food == null) return false;
+
+        String diet = dietType == null ? "" : dietType.trim().toUpperCase();
+        if (diet.isEmpty() || diet.equals("BALANCED")) return true;
+
+        List<String> tags = food.getDietTags();
+        if (tags == null) return false;
+        for (String t : tags) {
+            if (t != null && t.trim().equalsIgnoreCase(diet)) return true;
+        }
+        return false;
+    }
+}
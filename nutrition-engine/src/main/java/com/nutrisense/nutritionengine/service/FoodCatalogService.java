@@ -1,59 +1,303 @@
 package com.nutrisense.nutritionengine.service;
 
+import com.nutrisense.nutritionengine.rules.GapRuleSet;
 import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import com.nutrisense.nutritionengine.supabase.FoodSuggestionRow;
+import com.nutrisense.nutritionengine.supabase.GapRuleRow;
 import com.nutrisense.nutritionengine.supabase.SupabaseRestClient;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import com.nutrisense.nutritionengine.logging.RateLimitedLog;
+import com.nutrisense.nutritionengine.jfr.CatalogReloadEvent;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.resilience.Deadline;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 public class FoodCatalogService {
 
+    private static final RateLimitedLog ERROR_LOG = RateLimitedLog.everySecond();
+
     private final SupabaseRestClient supabase;
+    private final EngineMetrics metrics;
 
     @Value("${supabase.foodTable:foods}")
     private String foodTable;
 
+    @Value("${supabase.suggestionsTable:food_suggestions}")
+    private String suggestionsTable;
+
+    @Value("${supabase.gapRulesTable:gap_rules}")
+    private String gapRulesTable;
+
+    @Value("${nutrition.catalog.ttlSeconds:60}")
+    private long ttlSeconds;
 
-    private Map<String, FoodItemRow> cache = new HashMap<>();
-    private long cacheLoadedAtMs = 0;
+    private volatile FoodCatalogSnapshot snapshot = FoodCatalogSnapshot.EMPTY;
+    private final AtomicReference<Mono<FoodCatalogSnapshot>> reloading = new AtomicReference<>();
 
-    public FoodCatalogService(SupabaseRestClient supabase) {
+    // publishing a reload and applying a change-feed patch never interleave
+    private final Object publishLock = new Object();
+    // changes patched in while a reload is in flight, replayed on top of its result; guarded by publishLock
+    private List<CatalogChanges> patchedDuringReload;
+    // told about every snapshot before it is published
+    private final List<Consumer<FoodCatalogSnapshot>> publishListeners = new CopyOnWriteArrayList<>();
+
+    public FoodCatalogService(SupabaseRestClient supabase, EngineMetrics metrics) {
         this.supabase = supabase;
+        this.metrics = metrics;
+        metrics.catalogGauges("food", () -> snapshot.size(), () -> snapshot.approxHeapBytes());
     }
 
     public FoodItemRow find(String ingredientName) {
         if (ingredientName == null) return null;
-        ensureLoaded();
-        return cache.get(ingredientName.trim().toLowerCase());
+        return snapshot().find(ingredientName);
     }
 
-    private void ensureLoaded() {
-        long now = System.currentTimeMillis();
-        if (!cache.isEmpty() && (now - cacheLoadedAtMs) < 60_000) return;
+    /**
+     * Current catalog snapshot, reloading it first if it is empty or older than the TTL.
+     * Callers that need a consistent view across several lookups should hold on to the
+     * returned instance instead of calling {@link #find(String)} repeatedly.
+     * Blocks during a reload; reactive callers use {@link #snapshotAsync()}.
+     */
+    public FoodCatalogSnapshot snapshot() {
+        try (RequestTrace.Span ignored = RequestTrace.start("catalog")) {
+            FoodCatalogSnapshot s = snapshot;
+            if (isFresh(s, System.currentTimeMillis())) {
+                metrics.cacheHit(EngineMetrics.CACHE_FOOD_CATALOG);
+                return s;
+            }
+            return Deadline.bound("catalog", Mono.defer(this::acquire)).block();
+        }
+    }
+
+    /**
+     * Non-blocking {@link #snapshot()}. Concurrent callers that find the snapshot stale
+     * share one in-flight reload, so versions stay unique and Supabase sees one load.
+     */
+    public Mono<FoodCatalogSnapshot> snapshotAsync() {
+        return RequestTrace.span("catalog", Deadline.bound("catalog", Mono.defer(this::acquire)));
+    }
+
+    private Mono<FoodCatalogSnapshot> acquire() {
+        FoodCatalogSnapshot s = snapshot;
+        if (isFresh(s, System.currentTimeMillis())) {
+            metrics.cacheHit(EngineMetrics.CACHE_FOOD_CATALOG);
+            return Mono.just(s);
+        }
+
+        metrics.cacheMiss(EngineMetrics.CACHE_FOOD_CATALOG);
+        while (true) {
+            Mono<FoodCatalogSnapshot> pending = reloading.get();
+            if (pending != null) return pending;
+
+            Mono<FoodCatalogSnapshot> load = Mono.defer(() -> {
+                        FoodCatalogSnapshot current = snapshot;
+                        if (isFresh(current, System.currentTimeMillis())) return Mono.just(current);
+                        long start = System.nanoTime();
+                        CatalogReloadEvent event = new CatalogReloadEvent();
+                        event.begin();
+                        synchronized (publishLock) {
+                            patchedDuringReload = new ArrayList<>();
+                        }
+                        return reload(current).map(this::publishReload).doOnNext(next -> {
+                            metrics.catalogReloaded("food", System.nanoTime() - start);
+                            event.commit("food", next.size(), next.approxHeapBytes(), next.getVersion(),
+                                    next.getVersion() != current.getVersion());
+                        });
+                    })
+                    // shared by every waiting request: callers bound their own wait, not the load
+                    .transform(Deadline::detached)
+                    .doFinally(signal -> {
+                        synchronized (publishLock) {
+                            patchedDuringReload = null;
+                        }
+                        reloading.set(null);
+                    })
+                    .cache();
+            if (reloading.compareAndSet(null, load)) return load;
+        }
+    }
+
+    public long getVersion() {
+        return snapshot().getVersion();
+    }
+
+    private boolean isFresh(FoodCatalogSnapshot s, long now) {
+        return !s.isEmpty() && (now - s.getLoadedAtMs()) < ttlSeconds * 1000;
+    }
+
+    /**
+     * Change-feed rows patched in while the reload was reading the tables may or may not be in
+     * its result; they are replayed on top (patching is idempotent) under a version above both.
+     */
+    private FoodCatalogSnapshot publishReload(FoodCatalogSnapshot next) {
+        synchronized (publishLock) {
+            List<CatalogChanges> pending = patchedDuringReload;
+            patchedDuringReload = null;
+            if (pending != null && !pending.isEmpty()) {
+                long version = Math.max(next.getVersion(), snapshot.getVersion()) + 1;
+                for (CatalogChanges c : pending) {
+                    next = next.patched(version, c.getFoods(), c.getSuggestions());
+                }
+                log.info("catalog.reload catalog=food replayed={} version={}", pending.size(), version);
+            }
+            publish(next);
+            return next;
+        }
+    }
 
+    /**
+     * Patches the current snapshot with change-feed rows and publishes it under the next version,
+     * without a round-trip to Supabase. A no-op until the first load, which reads the tables anyway.
+     *
+     * @return the version now published
+     */
+    public long apply(CatalogChanges changes) {
+        if (!changes.touchesFoodCatalog()) return snapshot.getVersion();
+        synchronized (publishLock) {
+            if (patchedDuringReload != null) patchedDuringReload.add(changes);
+            FoodCatalogSnapshot current = snapshot;
+            if (current.isEmpty()) return current.getVersion();
+            FoodCatalogSnapshot next = current.patched(current.getVersion() + 1, changes.getFoods(), changes.getSuggestions());
+            publish(next);
+            log.debug("catalog.patch catalog=food version={} changes={}", next.getVersion(), changes.size());
+            return next.getVersion();
+        }
+    }
+
+    /**
+     * Runs {@code listener} on the publishing thread with every new snapshot (reload or change-feed
+     * patch) before readers can see it, so work derived from a snapshot is ready when it is.
+     */
+    public void onPublish(Consumer<FoodCatalogSnapshot> listener) {
+        publishListeners.add(listener);
+    }
+
+    /** The published snapshot as it is: never reloads, may be stale or empty. */
+    public FoodCatalogSnapshot current() {
+        return snapshot;
+    }
+
+    /** Holds publishLock. */
+    private void publish(FoodCatalogSnapshot next) {
+        if (next.getVersion() != snapshot.getVersion()) {
+            for (Consumer<FoodCatalogSnapshot> listener : publishListeners) {
+                try {
+                    listener.accept(next);
+                } catch (RuntimeException e) {
+                    log.warn("catalog.publish catalog=food listener failed version={} error={}", next.getVersion(), e.toString());
+                }
+            }
+        }
+        snapshot = next;
+    }
+
+    private Mono<FoodCatalogSnapshot> reload(FoodCatalogSnapshot previous) {
         // foodTable = "food_catalog" (vd) => query: food_catalog?select=...
-        String q = foodTable + "?select=name,protein_per_100g,carbs_per_100g,fats_per_100g,fiber_per_100g,calories_per_100g,food_group,diet_tags";
-        System.out.println("FoodCatalog query table=" + foodTable);
-        System.out.println("FoodCatalog query path=" + q);
+        String q = foodTable + "?select=id,name,protein_per_100g,carbs_per_100g,fats_per_100g,fiber_per_100g,calories_per_100g,food_group,diet_tags";
+        // join foods(name); one round-trip for all gaps instead of one per gap per request
+        String sq = suggestionsTable
+                + "?select=id,food_id,gap,reason,priority,diet_types,foods(name)"
+                + "&order=priority.asc";
 
-        List<FoodItemRow> rows;
-        try {
-            rows = supabase.getList(q, FoodItemRow.class);
-            if (rows == null) rows = Collections.emptyList();
-        } catch (Exception e) {
-            rows = Collections.emptyList();
+        // gap_rules is optional; the built-in rules apply until the nutrition team adds rows
+        return Mono.zip(
+                        orEmpty(supabase.getListAsync(q, FoodItemRow.class)),
+                        orEmpty(supabase.getListAsync(sq, FoodSuggestionRow.class)),
+                        gapRules(supabase.getListAsync(gapRulesTable + "?select=*", GapRuleRow.class)))
+                .map(t -> build(previous, System.currentTimeMillis(), t.getT1(), t.getT2(), t.getT3()));
+    }
+
+    /** Empty on a failed fetch, which is not the same as a table without rows. */
+    private static Mono<Optional<List<GapRuleRow>>> gapRules(Mono<List<GapRuleRow>> rows) {
+        return rows.defaultIfEmpty(Collections.emptyList())
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    if (ERROR_LOG.tryAcquire()) {
+                        log.warn("catalog.reload catalog=gap_rules failed error={} suppressed={}", e.toString(), ERROR_LOG.drainSuppressed());
+                    }
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    private static <T> Mono<List<T>> orEmpty(Mono<List<T>> list) {
+        return list.defaultIfEmpty(Collections.emptyList())
+                .onErrorResume(e -> {
+                    // an empty catalog retries on every request, so keep this to one line a second
+                    if (ERROR_LOG.tryAcquire()) {
+                        log.warn("catalog.reload catalog=food failed error={} suppressed={}", e.toString(), ERROR_LOG.drainSuppressed());
+                    }
+                    return Mono.just(Collections.emptyList());
+                });
+    }
+
+    private FoodCatalogSnapshot build(FoodCatalogSnapshot previous,
+                                      long now,
+                                      List<FoodItemRow> rows,
+                                      List<FoodSuggestionRow> suggestions,
+                                      Optional<List<GapRuleRow>> fetchedRules) {
+        List<GapRuleRow> ruleRows = fetchedRules.orElse(Collections.emptyList());
+        metrics.catalogRows("food", foodTable, rows.size());
+        metrics.catalogRows("food", suggestionsTable, suggestions.size());
+        fetchedRules.ifPresent(r -> metrics.catalogRows("food", gapRulesTable, r.size()));
+
+        // a failed gap_rules fetch only matches a snapshot built after the same failure
+        long fingerprint = 31L * (31L * rows.hashCode() + suggestions.hashCode())
+                + (fetchedRules.isPresent() ? ruleRows.hashCode() : Long.MIN_VALUE);
+        if (!previous.isEmpty() && !rows.isEmpty() && previous.getFingerprint() == fingerprint) {
+            log.debug("catalog.reload catalog=food changed=false version={}", previous.getVersion());
+            return previous.touch(now);
         }
+        log.info("catalog.reload catalog=food changed=true version={} foods={} suggestions={} gapRules={}",
+                previous.getVersion() + 1, rows.size(), suggestions.size(), ruleRows.size());
 
-        System.out.println("FoodCatalog loaded rows=" + rows.size());
+        GapRuleSet gapRules;
+        if (fetchedRules.isPresent()) {
+            gapRules = ruleRows.isEmpty() ? GapRuleSet.defaults() : GapRuleSet.compile(ruleRows);
+        } else if (!previous.isEmpty()) {
+            gapRules = previous.getGapRules();
+            log.warn("catalog.reload catalog=gap_rules fallback=previous version={}", previous.getVersion());
+        } else {
+            gapRules = GapRuleSet.defaults();
+            log.warn("catalog.reload catalog=gap_rules fallback=defaults");
+        }
 
         Map<String, FoodItemRow> map = new HashMap<>();
+        Map<String, Integer> masks = new HashMap<>();
+        Map<UUID, String> names = new HashMap<>();
         for (FoodItemRow r : rows) {
-            if (r.getName() != null) map.put(r.getName().toLowerCase(), r);
+            if (r.getName() == null) continue;
+            String key = r.getName().toLowerCase();
+            map.put(key, r);
+            masks.put(key, FoodGroupService.groupMask(r));
+            if (r.getId() != null) names.put(r.getId(), r.getName());
+        }
+
+        Map<String, List<FoodSuggestionRow>> byGap = new HashMap<>();
+        for (FoodSuggestionRow r : suggestions) {
+            if (r.getGap() == null) continue;
+            byGap.computeIfAbsent(r.getGap().trim().toUpperCase(), k -> new ArrayList<>()).add(r);
         }
+        byGap.replaceAll((gap, list) -> Collections.unmodifiableList(list));
 
-        cache = map;
-        cacheLoadedAtMs = now;
+        return new FoodCatalogSnapshot(
+                previous.getVersion() + 1,
+                fingerprint,
+                now,
+                Collections.unmodifiableMap(map),
+                Collections.unmodifiableMap(byGap),
+                Collections.unmodifiableMap(masks),
+                Collections.unmodifiableMap(names),
+                gapRules
+        );
     }
-}
\ No newline at end of file
+}
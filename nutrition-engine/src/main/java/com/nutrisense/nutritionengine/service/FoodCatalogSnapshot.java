@@ -0,0 +1,281 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.rules.GapRuleSet;
+import com.nutrisense.nutritionengine.substitution.NutrientKdTree;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import com.nutrisense.nutritionengine.supabase.FoodSuggestionRow;
+
+import java.util.*;
+
+/**
+ * Immutable view of the foods, food_suggestions and gap_rules tables at one point in time.
+ * A new instance is published on every reload and every change-feed patch; the version only
+ * moves when the content actually changed, so it can be used as a cache key.
+ */
+public final class FoodCatalogSnapshot {
+
+    public static final FoodCatalogSnapshot EMPTY =
+            new FoodCatalogSnapshot(0, 0, 0, Collections.emptyMap(), Collections.emptyMap(),
+                    Collections.emptyMap(), Collections.emptyMap(), GapRuleSet.defaults());
+
+    private final long version;
+    private final long fingerprint;
+    private final long loadedAtMs;
+
+    // lower-cased food name -> row
+    private final Map<String, FoodItemRow> foodsByName;
+
+    // upper-cased gap code -> suggestions ordered by priority
+    private final Map<String, List<FoodSuggestionRow>> suggestionsByGap;
+
+    // lower-cased food name -> FoodGroup bits
+    private final Map<String, Integer> groupMaskByName;
+
+    // foods.id -> food name, to join change-feed suggestion rows the way the select does
+    private final Map<UUID, String> foodNameById;
+
+    private final GapRuleSet gapRules;
+
+    // built on first use, then shared by every request on this snapshot
+    private volatile NutrientKdTree nutrientIndex;
+
+    private long heapBytes = -1;    // benign race: every thread computes the same value
+
+    FoodCatalogSnapshot(long version,
+                        long fingerprint,
+                        long loadedAtMs,
+                        Map<String, FoodItemRow> foodsByName,
+                        Map<String, List<FoodSuggestionRow>> suggestionsByGap,
+                        Map<String, Integer> groupMaskByName,
+                        Map<UUID, String> foodNameById,
+                        GapRuleSet gapRules) {
+        this.version = version;
+        this.fingerprint = fingerprint;
+        this.loadedAtMs = loadedAtMs;
+        this.foodsByName = foodsByName;
+        this.suggestionsByGap = suggestionsByGap;
+        this.groupMaskByName = groupMaskByName;
+        this.foodNameById = foodNameById;
+        this.gapRules = gapRules;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getLoadedAtMs() {
+        return loadedAtMs;
+    }
+
+    public boolean isEmpty() {
+        return foodsByName.isEmpty();
+    }
+
+    public int size() {
+        return foodsByName.size();
+    }
+
+    public FoodItemRow find(String ingredientName) {
+        if (ingredientName == null) return null;
+        return foodsByName.get(ingredientName.trim().toLowerCase());
+    }
+
+    /** FoodGroup presence bits for an ingredient, 0 when unknown. */
+    public int groupMask(String ingredientName) {
+        if (ingredientName == null) return 0;
+        Integer mask = groupMaskByName.get(ingredientName.trim().toLowerCase());
+        return mask == null ? 0 : mask;
+    }
+
+    public GapRuleSet getGapRules() {
+        return gapRules;
+    }
+
+    /** foods.id -> food name as stored (not lower-cased). */
+    Map<UUID, String> foodNameById() {
+        return foodNameById;
+    }
+
+    public NutrientKdTree nutrientIndex() {
+        NutrientKdTree idx = nutrientIndex;
+        if (idx != null) return idx;
+        synchronized (this) {
+            if (nutrientIndex == null) nutrientIndex = NutrientKdTree.build(foodsByName.values());
+            return nutrientIndex;
+        }
+    }
+
+    public Collection<FoodItemRow> foods() {
+        return foodsByName.values();
+    }
+
+    public List<FoodSuggestionRow> suggestionsFor(String gap) {
+        if (gap == null) return Collections.emptyList();
+        return suggestionsByGap.getOrDefault(gap.trim().toUpperCase(), Collections.emptyList());
+    }
+
+    /**
+     * Rough retained size (rows, strings, map entries; 64-bit JVM with compressed oops),
+     * for the catalog heap gauge. Not a measurement: it ignores the k-d tree and rule set.
+     */
+    public long approxHeapBytes() {
+        long b = heapBytes;
+        if (b >= 0) return b;
+
+        b = 0;
+        for (Map.Entry<String, FoodItemRow> e : foodsByName.entrySet()) {
+            FoodItemRow r = e.getValue();
+            b += MAP_ENTRY_BYTES + stringBytes(e.getKey()) + 72;                 // entry, key, row
+            b += stringBytes(r.getName()) + stringBytes(r.getFoodGroup());
+            if (r.getDietTags() != null) {
+                b += 24 + 4L * r.getDietTags().size();
+                for (String tag : r.getDietTags()) b += stringBytes(tag);
+            }
+            b += MAP_ENTRY_BYTES + 16;                                           // group mask entry
+            b += MAP_ENTRY_BYTES + 32;                                           // id -> name entry
+        }
+        for (List<FoodSuggestionRow> rows : suggestionsByGap.values()) {
+            for (FoodSuggestionRow r : rows) b += 56 + stringBytes(r.getReason()) + stringBytes(r.getFoodName());
+        }
+        heapBytes = b;
+        return b;
+    }
+
+    static final long MAP_ENTRY_BYTES = 40;     // HashMap.Node + its table slot
+
+    static long stringBytes(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    /** Same content, newer load time (used when a reload found nothing new). */
+    FoodCatalogSnapshot touch(long now) {
+        FoodCatalogSnapshot s = new FoodCatalogSnapshot(version, fingerprint, now, foodsByName, suggestionsByGap,
+                groupMaskByName, foodNameById, gapRules);
+        s.nutrientIndex = nutrientIndex;
+        return s;
+    }
+
+    /**
+     * Copy with {@code foods} and {@code suggestions} changes applied; untouched maps are shared.
+     * Applying a change twice gives the same result, so replays and redelivered events are harmless.
+     * The fingerprint is cleared: the next reload always publishes what the tables hold.
+     */
+    FoodCatalogSnapshot patched(long newVersion,
+                                List<RowChange<FoodItemRow>> foods,
+                                List<RowChange<FoodSuggestionRow>> suggestions) {
+        Map<String, FoodItemRow> byName = foodsByName;
+        Map<String, Integer> masks = groupMaskByName;
+        Map<UUID, String> names = foodNameById;
+        Set<UUID> renamed = new HashSet<>();
+
+        if (!foods.isEmpty()) {
+            byName = new HashMap<>(foodsByName);
+            masks = new HashMap<>(groupMaskByName);
+            names = new HashMap<>(foodNameById);
+            for (RowChange<FoodItemRow> c : foods) {
+                FoodItemRow old = c.getOldRow();
+                FoodItemRow row = c.getRow() != null && c.getRow().getName() != null ? c.getRow() : null;
+                UUID id = row != null && row.getId() != null ? row.getId() : old != null ? old.getId() : null;
+                // old_record usually carries only the primary key: the name it had comes from here
+                String previous = id != null ? names.get(id) : old != null ? old.getName() : null;
+                if (previous != null) {
+                    byName.remove(key(previous));
+                    masks.remove(key(previous));
+                }
+                if (row == null) {
+                    if (id != null) names.remove(id);
+                    continue;
+                }
+
+                byName.put(key(row.getName()), row);
+                masks.put(key(row.getName()), FoodGroupService.groupMask(row));
+                if (id != null) {
+                    names.put(id, row.getName());
+                    if (previous != null && !previous.equals(row.getName())) renamed.add(id);
+                }
+            }
+        }
+
+        Map<String, List<FoodSuggestionRow>> byGap = suggestionsByGap;
+        if (!suggestions.isEmpty() || !renamed.isEmpty()) {
+            byGap = new HashMap<>(suggestionsByGap);
+            if (!renamed.isEmpty()) rejoin(byGap, names, renamed);
+            for (RowChange<FoodSuggestionRow> c : suggestions) {
+                if (c.getOldRow() != null) removeSuggestion(byGap, c.getOldRow());
+                FoodSuggestionRow row = c.getRow();
+                if (row == null || row.getGap() == null) continue;
+                if (row.getFoods() == null && row.getFoodId() != null) row.setFoods(join(names.get(row.getFoodId())));
+                removeSuggestion(byGap, row);
+
+                String gap = row.getGap().trim().toUpperCase();
+                List<FoodSuggestionRow> list = new ArrayList<>(byGap.getOrDefault(gap, Collections.emptyList()));
+                list.add(row);
+                list.sort(Comparator.comparing(FoodSuggestionRow::getPriority, Comparator.nullsLast(Comparator.naturalOrder())));
+                byGap.put(gap, Collections.unmodifiableList(list));
+            }
+        }
+
+        FoodCatalogSnapshot s = new FoodCatalogSnapshot(newVersion, 0, loadedAtMs,
+                Collections.unmodifiableMap(byName), Collections.unmodifiableMap(byGap),
+                Collections.unmodifiableMap(masks), Collections.unmodifiableMap(names), gapRules);
+        if (foods.isEmpty()) s.nutrientIndex = nutrientIndex;
+        return s;
+    }
+
+    private static void removeSuggestion(Map<String, List<FoodSuggestionRow>> byGap, FoodSuggestionRow row) {
+        if (row.getGap() == null) return;
+        String gap = row.getGap().trim().toUpperCase();
+        List<FoodSuggestionRow> list = byGap.get(gap);
+        if (list == null) return;
+
+        List<FoodSuggestionRow> kept = new ArrayList<>(list);
+        if (!kept.removeIf(r -> sameSuggestion(r, row))) return;
+        if (kept.isEmpty()) byGap.remove(gap);
+        else byGap.put(gap, Collections.unmodifiableList(kept));
+    }
+
+    /** Same row: by primary key when both have one, else by gap and food. */
+    private static boolean sameSuggestion(FoodSuggestionRow a, FoodSuggestionRow b) {
+        if (a.getId() != null && b.getId() != null) return a.getId().equals(b.getId());
+        return Objects.equals(a.getFoodId(), b.getFoodId())
+                && Objects.equals(a.getFoodName(), b.getFoodName());
+    }
+
+    /** Suggestion rows carry the joined food name: follow renames. */
+    private static void rejoin(Map<String, List<FoodSuggestionRow>> byGap, Map<UUID, String> names, Set<UUID> renamed) {
+        byGap.replaceAll((gap, list) -> {
+            if (list.stream().noneMatch(r -> renamed.contains(r.getFoodId()))) return list;
+            List<FoodSuggestionRow> copy = new ArrayList<>(list.size());
+            for (FoodSuggestionRow r : list) {
+                if (renamed.contains(r.getFoodId())) {
+                    FoodSuggestionRow moved = new FoodSuggestionRow();
+                    moved.setId(r.getId());
+                    moved.setFoodId(r.getFoodId());
+                    moved.setGap(r.getGap());
+                    moved.setReason(r.getReason());
+                    moved.setPriority(r.getPriority());
+                    moved.setDietTypes(r.getDietTypes());
+                    moved.setFoods(join(names.get(r.getFoodId())));
+                    r = moved;
+                }
+                copy.add(r);
+            }
+            return Collections.unmodifiableList(copy);
+        });
+    }
+
+    private static FoodSuggestionRow.FoodJoin join(String name) {
+        if (name == null) return null;
+        FoodSuggestionRow.FoodJoin join = new FoodSuggestionRow.FoodJoin();
+        join.setName(name);
+        return join;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase();
+    }
+}
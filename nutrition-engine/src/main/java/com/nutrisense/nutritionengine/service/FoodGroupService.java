@@ -51,21 +51,39 @@ public class FoodGroupService {
     public Set<FoodGroup> groupsFor(String ingredientName) {
         if (ingredientName == null) return Collections.emptySet();
 
-        FoodItemRow row = foodCatalogService.find(ingredientName);
-        if (row == null) return Collections.emptySet();
+        FoodCatalogSnapshot catalog = foodCatalogService.snapshot();
+        if (catalog.find(ingredientName) == null) return Collections.emptySet();
 
-        EnumSet<FoodGroup> groups = EnumSet.noneOf(FoodGroup.class);
+        return toSet(catalog.groupMask(ingredientName));
+    }
+
+    /**
+     * Presence bits ({@link FoodGroup#bit()}) for a catalog row; computed once per row
+     * when the catalog snapshot is built.
+     */
+    public static int groupMask(FoodItemRow row) {
+        if (row == null) return 0;
+
+        int mask = 0;
 
         FoodGroup primary = mapFoodGroup(row.getFoodGroup());
-        if (primary != null) groups.add(primary);
+        if (primary != null) mask |= primary.bit();
 
         Double fiber = row.getFiberPer100g();
-        if (fiber != null && fiber > 0) groups.add(FoodGroup.FIBER);
+        if (fiber != null && fiber > 0) mask |= FoodGroup.FIBER.bit();
+
+        return mask;
+    }
 
+    public static Set<FoodGroup> toSet(int mask) {
+        EnumSet<FoodGroup> groups = EnumSet.noneOf(FoodGroup.class);
+        for (FoodGroup g : FoodGroup.values()) {
+            if ((mask & g.bit()) != 0) groups.add(g);
+        }
         return groups;
     }
 
-    private FoodGroup mapFoodGroup(String foodGroup) {
+    public static FoodGroup mapFoodGroup(String foodGroup) {
         if (foodGroup == null) return null;
         switch (foodGroup.trim().toLowerCase()) {
             case "protein": return FoodGroup.PROTEIN;
@@ -83,17 +101,24 @@ public class FoodGroupService {
     }
 
     public Map<FoodGroup, Integer> countGroups(List<Ingredient> ingredients) {
+        return countGroups(foodCatalogService.snapshot(), ingredients);
+    }
+
+    public Map<FoodGroup, Integer> countGroups(FoodCatalogSnapshot catalog, List<Ingredient> ingredients) {
         Map<FoodGroup, Integer> counts = new EnumMap<>(FoodGroup.class);
         for (FoodGroup g : FoodGroup.values()) counts.put(g, 0);
 
         if (ingredients == null) return counts;
 
+        FoodGroup[] all = FoodGroup.values();
         for (Ingredient ing : ingredients) {
             if (ing == null || ing.getName() == null) continue;
             if ("EXPIRED".equalsIgnoreCase(ing.getFreshnessStatus())) continue;
 
-            Set<FoodGroup> groups = groupsFor(ing.getName());
-            for (FoodGroup g : groups) counts.put(g, counts.get(g) + 1);
+            int mask = catalog.groupMask(ing.getName());
+            for (FoodGroup g : all) {
+                if ((mask & g.bit()) != 0) counts.put(g, counts.get(g) + 1);
+            }
         }
         return counts;
     }
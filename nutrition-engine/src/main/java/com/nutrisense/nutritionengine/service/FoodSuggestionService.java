@@ -2,37 +2,28 @@ package com.nutrisense.nutritionengine.service;
 
 import com.nutrisense.nutritionengine.model.FoodGap;
 import com.nutrisense.nutritionengine.supabase.FoodSuggestionRow;
-import com.nutrisense.nutritionengine.supabase.SupabaseRestClient;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Service
 public class FoodSuggestionService {
 
-    private final SupabaseRestClient supabase;
+    private final FoodCatalogService foodCatalogService;
 
-    @Value("${supabase.suggestionsTable:food_suggestions}")
-    private String suggestionsTable;
-
-    public FoodSuggestionService(SupabaseRestClient supabase) {
-        this.supabase = supabase;
+    public FoodSuggestionService(FoodCatalogService foodCatalogService) {
+        this.foodCatalogService = foodCatalogService;
     }
 
     public List<FoodSuggestionRow> findSuggestions(FoodGap gap, String dietType) {
-        if (gap == null) return Collections.emptyList();
+        return findSuggestions(foodCatalogService.snapshot(), gap, dietType);
+    }
 
-        // join foods(name)
-        String q = suggestionsTable
-                + "?gap=eq." + enc(gap.name())
-                + "&select=gap,reason,priority,diet_types,foods(name)"
-                + "&order=priority.asc";
+    public List<FoodSuggestionRow> findSuggestions(FoodCatalogSnapshot catalog, FoodGap gap, String dietType) {
+        if (gap == null) return Collections.emptyList();
 
-        List<FoodSuggestionRow> rows = supabase.getList(q, FoodSuggestionRow.class);
-        if (rows == null) rows = Collections.emptyList();
+        // loaded with the catalog, already ordered by priority
+        List<FoodSuggestionRow> rows = catalog.suggestionsFor(gap.name());
 
         String diet = (dietType == null) ? "" : dietType.trim().toUpperCase();
 
@@ -54,8 +45,4 @@ public class FoodSuggestionService {
         }
         return out;
     }
-
-    private String enc(String s) {
-        return URLEncoder.encode(s, StandardCharsets.UTF_8);
-    }
 }
\ No newline at end of file
@@ -1,27 +1,60 @@
 package com.nutrisense.nutritionengine.service;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.nutrisense.nutritionengine.distance.CallerPriority;
+import com.nutrisense.nutritionengine.distance.DistanceBudget;
+import com.nutrisense.nutritionengine.distance.DistanceCache;
+import com.nutrisense.nutritionengine.distance.Route;
+import com.nutrisense.nutritionengine.jfr.GoogleCallEvent;
+import com.nutrisense.nutritionengine.logging.RateLimitedLog;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.resilience.Bulkheads;
+import com.nutrisense.nutritionengine.resilience.Deadline;
+import com.nutrisense.nutritionengine.resilience.DeadlineExceededException;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-
+@Slf4j
 @Service
+@RegisterReflectionForBinding(GoogleDistanceMatrixService.GoogleDMResponse.class)
 public class GoogleDistanceMatrixService {
 
+    private static final String PATH = "/maps/api/distancematrix/json";
+
+    private static final RateLimitedLog ERROR_LOG = RateLimitedLog.everySecond();
+    private static final RateLimitedLog DEBUG_LOG = RateLimitedLog.everySecond();
+
     private final WebClient webClient;
 
     @Value("${google.maps.apiKey:}")
     private String apiKey;
 
+    @Value("${google.maps.baseUrl:https://maps.googleapis.com}")
+    private String baseUrl;   // a local stub for load tests
+
     @Value("${google.maps.mode:driving}")
     private String mode; // driving, walking, bicycling, transit
 
-    public GoogleDistanceMatrixService(WebClient.Builder builder) {
-        this.webClient = builder.build();
+    private final EngineMetrics metrics;
+    private final DistanceBudget budget;
+    private final DistanceCache cache;
+
+    public GoogleDistanceMatrixService(WebClient.Builder builder,
+                                       Bulkheads bulkheads,
+                                       EngineMetrics metrics,
+                                       DistanceBudget budget,
+                                       DistanceCache cache) {
+        this.webClient = bulkheads.isolate(Bulkheads.GOOGLE, builder).build();
+        this.metrics = metrics;
+        this.budget = budget;
+        this.cache = cache;
     }
 
     public boolean isConfigured() {
@@ -32,84 +65,121 @@ public class GoogleDistanceMatrixService {
      * @return distance in km, or -1 if failed
      */
     public double drivingDistanceKm(double fromLat, double fromLng, double toLat, double toLng) {
-        String safeMode = (mode == null ? "driving" : mode.trim());
-        String safeKey = apiKey.trim();
+        return drivingDistanceKm(fromLat, fromLng, toLat, toLng, CallerPriority.INTERACTIVE);
+    }
 
-        System.out.println("ENTER drivingDistanceKm, apiKeyPresent=" + (apiKey != null && !apiKey.isBlank()) + ", mode=" + mode);
+    public double drivingDistanceKm(double fromLat, double fromLng, double toLat, double toLng, CallerPriority priority) {
+        Double km = drivingDistanceKmAsync(fromLat, fromLng, toLat, toLng, priority).block();
+        return km == null ? -1 : km;
+    }
 
-        if (!isConfigured()) return -1;
+    public Mono<Double> drivingDistanceKmAsync(double fromLat, double fromLng, double toLat, double toLng) {
+        return drivingDistanceKmAsync(fromLat, fromLng, toLat, toLng, CallerPriority.INTERACTIVE);
+    }
 
-        String origins = fromLat + "," + fromLng;
-        String dests = toLat + "," + toLng;
+    /**
+     * Non-blocking {@link #drivingDistanceKm}: emits the distance in km, or -1 if the call
+     * failed, Google has no route, the {@link DistanceBudget} refused the call or the caller's
+     * {@link Deadline} passed (never errors). Cached distances are served without touching the budget.
+     */
+    public Mono<Double> drivingDistanceKmAsync(double fromLat, double fromLng, double toLat, double toLng,
+                                               CallerPriority priority) {
+        return drivingRouteAsync(fromLat, fromLng, toLat, toLng, priority).map(Route::getKm);
+    }
 
-        String url = "https://maps.googleapis.com/maps/api/distancematrix/json"
-                + "?origins=" + origins
-                + "&destinations=" + dests
-                + "&mode=" + safeMode
-                + "&key=" + safeKey;
-
-        System.out.println("Google DM URL = " + url);
-
-
-        try {
-            GoogleDMResponse res = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .scheme("https")
-                            .host("maps.googleapis.com")
-                            .path("/maps/api/distancematrix/json")
-                            .queryParam("origins", origins)
-                            .queryParam("destinations", dests)
-                            .queryParam("mode", safeMode)
-                            .queryParam("key", safeKey)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(GoogleDMResponse.class)
-                    .block();
+    /** Distance and travel time; {@link Route#NONE} whenever {@link #drivingDistanceKm} would be -1. */
+    public Route drivingRoute(double fromLat, double fromLng, double toLat, double toLng, CallerPriority priority) {
+        Route route = drivingRouteAsync(fromLat, fromLng, toLat, toLng, priority).block();
+        return route == null ? Route.NONE : route;
+    }
 
-            String raw = webClient.get()
-                    .uri(url)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+    /** Non-blocking {@link #drivingRoute}; never errors. */
+    public Mono<Route> drivingRouteAsync(double fromLat, double fromLng, double toLat, double toLng,
+                                         CallerPriority priority) {
+        if (!isConfigured()) return Mono.just(Route.NONE);
 
-            System.out.println("RAW GOOGLE RESPONSE: " + raw);
+        String safeMode = (mode == null ? "driving" : mode.trim());
+        String origins = fromLat + "," + fromLng;
+        String dests = toLat + "," + toLng;
+        String cacheKey = DistanceCache.key(fromLat, fromLng, toLat, toLng, safeMode);
+
+        return Mono.deferContextual(ctx -> {
+            Route cached = cache.get(cacheKey);
+            if (cached != null) return Mono.just(cached);
+            // nobody is waiting for the answer any more: don't spend budget on it
+            Deadline deadline = Deadline.current(ctx);
+            if (deadline != null && deadline.isExpired()) return Mono.just(Route.NONE);
+            // one origin × one destination = one billed element
+            if (budget.tryAcquire(1, priority) != null) return Mono.just(Route.NONE);
+
+            Timer.Sample sample = metrics.startTimer();
+            GoogleCallEvent event = new GoogleCallEvent();
+            event.begin();
+            return Deadline.bound("google", webClient.get()
+                    .uri(baseUrl + PATH + "?origins={origins}&destinations={dests}&mode={mode}&key={key}",
+                            origins, dests, safeMode, apiKey.trim())
+                    .retrieve()
+                    .bodyToMono(GoogleDMResponse.class))
+                    .doOnNext(this::checkQuota)
+                    .map(this::toRoute)
+                    .defaultIfEmpty(Route.NONE)
+                    .doOnNext(route -> {
+                        cache.put(cacheKey, route);
+                        String outcome = route.getKm() >= 0 ? "ok" : "failed";
+                        metrics.stopGoogle(sample, outcome);
+                        event.commit(PATH, safeMode, 200, outcome, route.getKm());
+                    })
+                    .onErrorResume(e -> {
+                        if (e instanceof DeadlineExceededException) {
+                            metrics.stopGoogle(sample, "deadline");
+                            event.commit(PATH, safeMode, 0, "deadline", -1);
+                            return Mono.just(Route.NONE);
+                        }
+                        if (statusOf(e) == 429) budget.overRateLimit();
+                        metrics.stopGoogle(sample, "error");
+                        event.commit(PATH, safeMode, statusOf(e), "error", -1);
+                        // one line per second at most: during an outage this fires for every store
+                        if (ERROR_LOG.tryAcquire()) {
+                            log.warn("google.distance failed error={} suppressed={}", e.toString(), ERROR_LOG.drainSuppressed());
+                        }
+                        return Mono.just(Route.NONE);
+                    });
+        });
+    }
 
-            System.out.println("Google response status=" + res.status);
+    private static int statusOf(Throwable e) {
+        return (e instanceof WebClientResponseException w) ? w.getStatusCode().value() : 0;
+    }
 
-            if (res == null || res.rows == null || res.rows.length == 0) return -1;
-            if (res.rows[0].elements == null || res.rows[0].elements.length == 0) return -1;
+    /** Google reports quota exhaustion in the body with HTTP 200. */
+    private void checkQuota(GoogleDMResponse res) {
+        if (res == null || res.status == null) return;
+        if ("OVER_QUERY_LIMIT".equals(res.status)) budget.overRateLimit();
+        else if ("OVER_DAILY_LIMIT".equals(res.status)) budget.overDailyLimit();
+    }
 
-            Element el = res.rows[0].elements[0];
-            System.out.println("Google element status=" + el.status
-                    + ", hasDistance=" + (el.distance != null)
-                    + ", hasDuration=" + (el.duration != null));
+    private Route toRoute(GoogleDMResponse res) {
+        if (res == null || res.rows == null || res.rows.length == 0) return Route.NONE;
+        if (res.rows[0].elements == null || res.rows[0].elements.length == 0) return Route.NONE;
 
-            if (el == null || el.distance == null) return -1;
-            if (el.status != null && !"OK".equalsIgnoreCase(el.status)) {
-                System.out.println("Google element not OK: " + el.status);
-                return -1;
+        Element el = res.rows[0].elements[0];
+        if (el == null || el.distance == null) return Route.NONE;
+        if (el.status != null && !"OK".equalsIgnoreCase(el.status)) {
+            if (log.isDebugEnabled() && DEBUG_LOG.tryAcquire()) {
+                log.debug("google.distance no route status={} elementStatus={} suppressed={}",
+                        res.status, el.status, DEBUG_LOG.drainSuppressed());
             }
-            double km = el.distance.value / 1000.0;
-            double minutes = el.duration != null ? el.duration.value / 60.0 : -1;
-
-            System.out.println("Google mode=" + mode +
-                    " distanceKm=" + km +
-                    " durationMin=" + minutes);
-
-
-            // meters -> km
-            return el.distance.value / 1000.0;
-
-        } catch (Exception e) {
-            System.out.println("Google DM exception: " + e.getMessage());
-            e.printStackTrace();
-            return -1;
+            return Route.NONE;
         }
 
-    }
-
-    private String enc(String s) {
-        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+        // meters -> km, seconds -> minutes
+        double km = el.distance.value / 1000.0;
+        double minutes = el.duration != null ? el.duration.value / 60.0 : -1;
+        if (log.isDebugEnabled() && DEBUG_LOG.tryAcquire()) {
+            log.debug("google.distance mode={} distanceKm={} durationMin={} suppressed={}",
+                    mode, km, minutes, DEBUG_LOG.drainSuppressed());
+        }
+        return new Route(km, minutes);
     }
 
     // ---- DTOs for JSON ----
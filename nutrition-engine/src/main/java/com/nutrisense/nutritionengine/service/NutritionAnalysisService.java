@@ -0,0 +1,236 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.model.*;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Service
+public class NutritionAnalysisService {
+
+    private final NutritionService nutritionService;
+    private final RecommendationService recommendationService;
+    private final FoodCatalogService foodCatalogService;
+    private final StoreCatalogService storeCatalogService;
+    private final StoreTileCatalog tileCatalog;
+    private final AnalyzeResponseCache cache;
+    private final AtomicBoolean nationalStoresNoted = new AtomicBoolean();
+
+    public NutritionAnalysisService(NutritionService nutritionService,
+                                    RecommendationService recommendationService,
+                                    FoodCatalogService foodCatalogService,
+                                    StoreCatalogService storeCatalogService,
+                                    StoreTileCatalog tileCatalog,
+                                    AnalyzeResponseCache cache) {
+        this.nutritionService = nutritionService;
+        this.recommendationService = recommendationService;
+        this.foodCatalogService = foodCatalogService;
+        this.storeCatalogService = storeCatalogService;
+        this.tileCatalog = tileCatalog;
+        this.cache = cache;
+    }
+
+    /**
+     * Content address of an analysis: profile + ingredient multiset + shopping options +
+     * today's date (freshness depends on it) + catalog version(s). Used both as cache key and ETag.
+     */
+    public String etagFor(UserProfile user, List<Ingredient> ingredients) {
+        return etagFor(user, ingredients, null, null);
+    }
+
+    public String etagFor(UserProfile user, List<Ingredient> ingredients, ShoppingMode mode, Double budgetUsd) {
+        return cacheKey(user, ingredients, mode, budgetUsd, catalogVersion(mode), LocalDate.now());
+    }
+
+    /** ETag against the context's pinned catalogs (no catalog lookup, so safe on event-loop threads). */
+    public String etagFor(AnalysisContext ctx, UserProfile user, List<Ingredient> ingredients, ShoppingMode mode, Double budgetUsd) {
+        return cacheKey(user, ingredients, mode, budgetUsd, catalogVersion(ctx, mode), LocalDate.now());
+    }
+
+    public AnalysisResult analyze(UserProfile user, List<Ingredient> ingredients) {
+        return analyze(user, ingredients, null, null);
+    }
+
+    public AnalysisResult analyze(UserProfile user, List<Ingredient> ingredients, ShoppingMode mode, Double budgetUsd) {
+        return analyze(newContext(), user, ingredients, mode, budgetUsd);
+    }
+
+    public AnalysisResult analyze(AnalysisContext ctx,
+                                  UserProfile user,
+                                  List<Ingredient> ingredients,
+                                  ShoppingMode mode,
+                                  Double budgetUsd) {
+        long version = catalogVersion(ctx, mode);
+        String key = cacheKey(user, ingredients, mode, budgetUsd, version, LocalDate.now());
+
+        String partition = (mode == null ? ShoppingMode.SUGGESTIONS : mode).name();
+
+        NutritionResponse cached;
+        try (RequestTrace.Span ignored = RequestTrace.start("cache")) {
+            cached = cache.get(partition, key, version);
+        }
+        if (cached != null) return new AnalysisResult(key, cached);
+
+        NutritionResponse fresh = compute(ctx, user, ingredients, mode, budgetUsd);
+        cache.put(partition, key, version, fresh);
+        return new AnalysisResult(key, fresh);
+    }
+
+    /** A context pinned to the current food catalog; store prices are pinned on first use. */
+    public AnalysisContext newContext() {
+        return new AnalysisContext(foodCatalogService.snapshot(), this::nationalStores);
+    }
+
+    /**
+     * Non-blocking {@link #newContext()}. With {@code pinStores} the store snapshot is loaded
+     * up front too; without it, only SUGGESTIONS-mode analyses may run against the context.
+     */
+    public Mono<AnalysisContext> newContextAsync(boolean pinStores) {
+        if (!pinStores) {
+            return foodCatalogService.snapshotAsync()
+                    .map(foods -> new AnalysisContext(foods, this::nationalStores));
+        }
+        return Mono.zip(foodCatalogService.snapshotAsync(), nationalStoresAsync())
+                .map(t -> new AnalysisContext(t.getT1(), t::getT2));
+    }
+
+    /** Pins the store snapshot into {@code ctx} without blocking, before an OPTIMIZED analysis runs on it. */
+    public Mono<AnalysisContext> pinStoresAsync(AnalysisContext ctx) {
+        if (ctx.hasStores()) return Mono.just(ctx);
+        return nationalStoresAsync().map(stores -> {
+            ctx.pinStores(stores);
+            return ctx;
+        });
+    }
+
+    /** OPTIMIZED lists have no location, so they price against the national catalog, tiles or not. */
+    private StoreCatalogSnapshot nationalStores() {
+        noteNationalStores();
+        return storeCatalogService.snapshot();
+    }
+
+    private Mono<StoreCatalogSnapshot> nationalStoresAsync() {
+        return Mono.defer(() -> {
+            noteNationalStores();
+            return storeCatalogService.snapshotAsync();
+        });
+    }
+
+    private void noteNationalStores() {
+        if (tileCatalog.isEnabled() && nationalStoresNoted.compareAndSet(false, true)) {
+            log.info("catalog.tiles national store catalog loaded for OPTIMIZED analyses; it stays resident next to the tiles");
+        }
+    }
+
+    public NutritionResponse compute(UserProfile user, List<Ingredient> ingredients) {
+        return compute(newContext(), user, ingredients, null, null);
+    }
+
+    public NutritionResponse compute(AnalysisContext ctx,
+                                     UserProfile user,
+                                     List<Ingredient> ingredients,
+                                     ShoppingMode mode,
+                                     Double budgetUsd) {
+        AnalysisContext.Targets targets;
+        try (RequestTrace.Span ignored = RequestTrace.start("targets")) {
+            targets = ctx.targets(user, nutritionService);
+        }
+
+        List<FoodGap> gaps;
+        List<String> recs;
+        try (RequestTrace.Span ignored = RequestTrace.start("gaps")) {
+            gaps = recommendationService.detectGaps(ctx, user, ingredients);
+            recs = recommendationService.generateRecommendations(ctx, user, ingredients, gaps);
+        }
+
+        List<ShoppingItem> shopping;
+        if (mode == ShoppingMode.OPTIMIZED) {
+            try (RequestTrace.Span ignored = RequestTrace.start("pricing")) {
+                shopping = recommendationService.generateOptimizedShoppingList(ctx, user, ingredients, gaps, budgetUsd);
+            }
+        } else {
+            try (RequestTrace.Span ignored = RequestTrace.start("suggestions")) {
+                shopping = recommendationService.generateShoppingList(ctx, user, gaps);
+            }
+        }
+
+        return new NutritionResponse(targets.getTarget(), targets.getGroupTargets(), gaps, recs, shopping);
+    }
+
+    /**
+     * Optimized lists depend on prices too, so both catalog versions go into one number
+     * (compared only within the OPTIMIZED cache partition).
+     */
+    private long catalogVersion(ShoppingMode mode) {
+        long foods = foodCatalogService.getVersion();
+        if (mode != ShoppingMode.OPTIMIZED) return foods;
+        return (foods << 32) + nationalStores().getVersion();
+    }
+
+    /** The catalog version an analysis in {@code mode} against {@code ctx} is keyed by. */
+    public long catalogVersion(AnalysisContext ctx, ShoppingMode mode) {
+        long foods = ctx.getCatalog().getVersion();
+        if (mode != ShoppingMode.OPTIMIZED) return foods;
+        return (foods << 32) + ctx.getStores().getVersion();
+    }
+
+    static String cacheKey(UserProfile user,
+                           List<Ingredient> ingredients,
+                           ShoppingMode mode,
+                           Double budgetUsd,
+                           long catalogVersion,
+                           LocalDate today) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(AnalysisContext.canonicalProfile(user)).append('\n');
+        sb.append(mode == null ? ShoppingMode.SUGGESTIONS : mode).append('|').append(budgetUsd).append('\n');
+
+        // multiset: order of the fridge scan must not matter, duplicates must
+        List<String> items = new ArrayList<>();
+        if (ingredients != null) {
+            for (Ingredient ing : ingredients) {
+                if (ing == null || ing.getName() == null || ing.getName().isBlank()) continue;
+                items.add(ing.getName().trim().toLowerCase()
+                        + '|' + ing.getQuantity()
+                        + '|' + lower(ing.getUnit())
+                        + '|' + ing.getPurchaseDate()
+                        + '|' + ing.getShelfLifeDays());
+            }
+        }
+        Collections.sort(items);
+        for (String item : items) sb.append(item).append('\n');
+
+        sb.append(today).append('\n').append(catalogVersion);
+        return sha256Hex(sb.toString());
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.trim().toLowerCase();
+    }
+
+    private static String sha256Hex(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class AnalysisResult {
+        private String etag;
+        private NutritionResponse response;
+    }
+}
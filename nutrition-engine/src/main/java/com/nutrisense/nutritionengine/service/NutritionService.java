@@ -1,13 +1,18 @@
 package com.nutrisense.nutritionengine.service;
 
+import com.nutrisense.nutritionengine.logging.RateLimitedLog;
 import com.nutrisense.nutritionengine.model.FoodGroupTargets;
 import com.nutrisense.nutritionengine.model.NutritionTarget;
 import com.nutrisense.nutritionengine.model.UserProfile;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class NutritionService {
 
+    private static final RateLimitedLog DEBUG_LOG = RateLimitedLog.everySecond();
+
     public NutritionTarget calculateTarget(UserProfile user) {
         double bmr;
 
@@ -35,14 +40,11 @@ public class NutritionService {
         double heightMeters = user.getHeightCm() / 100.0;
         double bmi = user.getWeightKg() / (heightMeters * heightMeters);
 
-        System.out.println("DEBUG age=" + user.getAge()
-                + " gender=" + user.getGender()
-                + " w=" + user.getWeightKg()
-                + " h=" + user.getHeightCm()
-                + " goal=" + user.getHealthGoal()
-                + " activity=" + user.getActivityLevel());
-
-        System.out.println("DEBUG bmr=" + bmr + " activityFactor=" + activityFactor + " tdee=" + tdee);
+        if (log.isDebugEnabled() && DEBUG_LOG.tryAcquire()) {
+            log.debug("targets age={} gender={} weightKg={} heightCm={} goal={} activity={} bmr={} activityFactor={} tdee={} suppressed={}",
+                    user.getAge(), user.getGender(), user.getWeightKg(), user.getHeightCm(), user.getHealthGoal(),
+                    user.getActivityLevel(), bmr, activityFactor, tdee, DEBUG_LOG.drainSuppressed());
+        }
 
         return new NutritionTarget(
                 round1(tdee),
@@ -0,0 +1,53 @@
+package com.nutrisense.nutritionengine.service;
+
+/**
+ * Rough gram weight of the unit a store_prices row is priced in.
+ * Heuristic, like RecommendationService#estimateGrams (a "piece" is 50 g there too).
+ */
+public final class PackageSizes {
+
+    private PackageSizes() {
+    }
+
+    public static double gramsPerUnit(String unit) {
+        if (unit == null) return 100.0;
+
+        switch (unit.trim().toLowerCase()) {
+            case "g":
+            case "gram":
+            case "grams":
+            case "ml":
+                return 1.0;
+            case "100g":
+            case "100 g":
+                return 100.0;
+            case "kg":
+            case "l":
+            case "liter":
+            case "litre":
+                return 1000.0;
+            case "lb":
+            case "lbs":
+            case "pound":
+                return 453.6;
+            case "oz":
+                return 28.35;
+            case "dozen":
+                return 600.0;
+            case "gallon":
+                return 3785.0;
+            case "loaf":
+            case "bag":
+            case "pack":
+                return 450.0;
+            case "each":
+            case "ea":
+            case "piece":
+            case "pieces":
+            case "unit":
+                return 50.0;
+            default:
+                return 100.0;
+        }
+    }
+}
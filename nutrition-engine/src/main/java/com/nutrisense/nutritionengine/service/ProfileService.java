@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.nutrisense.nutritionengine.model.UserProfile;
 import com.nutrisense.nutritionengine.supabase.ProfileRow;
 import com.nutrisense.nutritionengine.supabase.SupabaseRestClient;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 @Service
 public class ProfileService {
@@ -16,11 +18,25 @@ public class ProfileService {
     }
 
     public UserProfile loadOrThrow(String userId) {
-        ProfileRow row = supabase.getProfileByUserId(userId);
+        ProfileRow row;
+        try (RequestTrace.Span ignored = RequestTrace.start("profile")) {
+            row = supabase.getProfileByUserId(userId);
+        }
         if (row == null) {
             throw new IllegalArgumentException("Profile not found for userId=" + userId);
         }
+        return toProfile(row);
+    }
+
+    /** Non-blocking {@link #loadOrThrow}; errors with IllegalArgumentException when there is no profile. */
+    public Mono<UserProfile> load(String userId) {
+        return RequestTrace.span("profile", supabase.getProfileByUserIdAsync(userId))
+                .map(this::toProfile)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Profile not found for userId=" + userId)));
+    }
 
+    /** Defaults applied to missing columns, as for a loaded profile. */
+    public UserProfile toProfile(ProfileRow row) {
         UserProfile p = new UserProfile();
 
         // numbers
@@ -1,6 +1,10 @@
 package com.nutrisense.nutritionengine.service;
 
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
 import com.nutrisense.nutritionengine.model.*;
+import com.nutrisense.nutritionengine.optimizer.ShoppingListOptimizer;
+import com.nutrisense.nutritionengine.rules.GapRuleSet;
+import com.nutrisense.nutritionengine.rules.Nutrient;
 import com.nutrisense.nutritionengine.supabase.FoodItemRow;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -11,53 +15,44 @@ import java.util.*;
 @Service
 public class RecommendationService {
 
+    // fallback text when a table-defined rule fires without a message
+    private static final GapRuleSet DEFAULT_RULES = GapRuleSet.defaults();
+
     private final NutritionService nutritionService;
-    private final FoodGroupService foodGroupService;
-    private final FoodCatalogService foodCatalogService;
     private final FoodSuggestionService foodSuggestionService;
+    private final ShoppingListOptimizer shoppingListOptimizer;
+    private final EngineMetrics metrics;
 
     public RecommendationService(NutritionService nutritionService,
-                                 FoodGroupService foodGroupService,
-                                 FoodCatalogService foodCatalogService,
-                                 FoodSuggestionService foodSuggestionService) {
+                                 FoodSuggestionService foodSuggestionService,
+                                 ShoppingListOptimizer shoppingListOptimizer,
+                                 EngineMetrics metrics) {
         this.nutritionService = nutritionService;
-        this.foodGroupService = foodGroupService;
-        this.foodCatalogService = foodCatalogService;
         this.foodSuggestionService = foodSuggestionService;
+        this.shoppingListOptimizer = shoppingListOptimizer;
+        this.metrics = metrics;
     }
 
-    public List<FoodGap> detectGaps(UserProfile user, List<Ingredient> ingredients) {
+    public List<FoodGap> detectGaps(AnalysisContext ctx, UserProfile user, List<Ingredient> ingredients) {
+        FoodCatalogSnapshot catalog = ctx.getCatalog();
+
         // DB-only + unknown ingredient should fail fast
-        validateIngredientsOrThrow(ingredients);
+        validateIngredientsOrThrow(catalog, ingredients);
 
-        NutritionTarget target = nutritionService.calculateTarget(user);
-        Map<FoodGroup, Integer> counts = foodGroupService.countGroups(ingredients);
+        double[] targets = nutrientTargets(ctx, user);
 
         // DB-based estimates
-        double estimatedProtein = estimateProteinFromFridge(ingredients);
-
-        List<FoodGap> gaps = new ArrayList<>();
-
-        // thresholds
-        if (estimatedProtein < target.getProtein() * 0.6) gaps.add(FoodGap.LOW_PROTEIN);
-
-        if (counts.get(FoodGroup.VEGGIES) == 0) gaps.add(FoodGap.NO_VEGGIES);
-        if (counts.get(FoodGroup.FRUITS) == 0) gaps.add(FoodGap.NO_FRUITS);
-
-        if (counts.get(FoodGroup.FIBER) == 0) gaps.add(FoodGap.LOW_FIBER);
-
-        // diet-specific soft gaps
-        if ("KETO".equalsIgnoreCase(user.getDietType()) && counts.get(FoodGroup.FATS) == 0) {
-            gaps.add(FoodGap.LOW_HEALTHY_FATS);
-        }
-        if (!"KETO".equalsIgnoreCase(user.getDietType()) && counts.get(FoodGroup.CARBS) == 0) {
-            gaps.add(FoodGap.LOW_COMPLEX_CARBS);
-        }
+        double[] amounts = new double[Nutrient.COUNT];
+        int presentGroups = accumulateFridge(catalog, ingredients, amounts);
 
-        return gaps;
+        // thresholds + diet-specific soft gaps live in gap_rules (or the built-in defaults)
+        return catalog.getGapRules().evaluate(user.getDietType(), user.getHealthGoal(), presentGroups, amounts, targets);
     }
 
-    public List<String> generateRecommendations(UserProfile user, List<Ingredient> ingredients, List<FoodGap> gaps) {
+    public List<String> generateRecommendations(AnalysisContext ctx,
+                                                UserProfile user,
+                                                List<Ingredient> ingredients,
+                                                List<FoodGap> gaps) {
         List<String> recs = new ArrayList<>();
         if (gaps == null) gaps = Collections.emptyList();
 
@@ -72,32 +67,16 @@ public class RecommendationService {
         if (expired > 0) recs.add("Some ingredients may be expired — please check and discard them for safety.");
         if (useSoon > 0) recs.add("You have ingredients to use soon — prioritize meals that use them to reduce waste.");
 
+        GapRuleSet rules = ctx.getCatalog().getGapRules();
         for (FoodGap g : gaps) {
-            switch (g) {
-                case LOW_PROTEIN:
-                    recs.add("Protein is low compared to your target — add a high-protein option today.");
-                    break;
-                case NO_VEGGIES:
-                    recs.add("No vegetables detected — add low-calorie veggies for fiber and micronutrients.");
-                    break;
-                case NO_FRUITS:
-                    recs.add("No fruits detected — add 1–2 servings for vitamins and fiber.");
-                    break;
-                case LOW_FIBER:
-                    recs.add("Fiber looks low — add higher-fiber foods (e.g., oats, lentils, veggies, fruits).");
-                    break;
-                case LOW_HEALTHY_FATS:
-                    recs.add("Healthy fats are missing — consider foods like avocado, olive oil, nuts, or salmon (diet permitting).");
-                    break;
-                case LOW_COMPLEX_CARBS:
-                    recs.add("Complex carbs are missing — add whole grains or starchy carbs (diet permitting).");
-                    break;
-            }
+            String msg = rules.messageFor(g, user.getDietType(), user.getHealthGoal());
+            if (msg == null) msg = DEFAULT_RULES.messageFor(g, user.getDietType(), user.getHealthGoal());
+            if (msg != null) recs.add(msg);
         }
         return recs;
     }
 
-    public List<ShoppingItem> generateShoppingList(UserProfile user, List<FoodGap> gaps) {
+    public List<ShoppingItem> generateShoppingList(AnalysisContext ctx, UserProfile user, List<FoodGap> gaps) {
         if (gaps == null || gaps.isEmpty()) return Collections.emptyList();
 
         String diet = user.getDietType() == null ? "" : user.getDietType().trim().toUpperCase();
@@ -106,7 +85,7 @@ public class RecommendationService {
 
         for (FoodGap g : gaps) {
             // fetch suggestions from DB
-            var rows = foodSuggestionService.findSuggestions(g, diet);
+            var rows = foodSuggestionService.findSuggestions(ctx.getCatalog(), g, diet);
 
             // pick top 2 per gap (tune as you want)
             int added = 0;
@@ -115,7 +94,7 @@ public class RecommendationService {
                 if (foodName == null || foodName.isBlank()) continue;
 
                 // ensure exists in foods (should always be true due to FK+join)
-                if (foodCatalogService.find(foodName) == null) continue;
+                if (ctx.getCatalog().find(foodName) == null) continue;
 
                 list.add(new ShoppingItem(foodName, r.getReason()));
                 added++;
@@ -133,32 +112,85 @@ public class RecommendationService {
         return new ArrayList<>(uniq.values());
     }
 
-    private double estimateProteinFromFridge(List<Ingredient> ingredients) {
+    /**
+     * OPTIMIZED shopping mode: priced items with gram quantities that close the nutrient
+     * shortfalls (target minus fridge) at minimum cost, within the optional budget.
+     */
+    public List<ShoppingItem> generateOptimizedShoppingList(AnalysisContext ctx,
+                                                            UserProfile user,
+                                                            List<Ingredient> ingredients,
+                                                            List<FoodGap> gaps,
+                                                            Double budgetUsd) {
+        if (gaps == null || gaps.isEmpty()) return Collections.emptyList();
+
+        FoodCatalogSnapshot catalog = ctx.getCatalog();
+        FoodGroupTargets groupTargets = ctx.targets(user, nutritionService).getGroupTargets();
+
+        double[] shortfall = nutrientTargets(ctx, user);
+        double[] amounts = new double[Nutrient.COUNT];
+        accumulateFridge(catalog, ingredients, amounts);
+        for (int k = 0; k < Nutrient.COUNT; k++) shortfall[k] -= amounts[k];
+
+        return shoppingListOptimizer.optimize(
+                catalog,
+                ctx.getStores(),
+                user.getDietType(),
+                gaps,
+                shortfall,
+                groupTargets.getVeggieServings(),
+                groupTargets.getFruitServings(),
+                budgetUsd
+        );
+    }
+
+    private double[] nutrientTargets(AnalysisContext ctx, UserProfile user) {
+        AnalysisContext.Targets t = ctx.targets(user, nutritionService);
+        NutritionTarget target = t.getTarget();
+        FoodGroupTargets groupTargets = t.getGroupTargets();
+
+        double[] targets = new double[Nutrient.COUNT];
+        targets[Nutrient.PROTEIN.ordinal()] = target.getProtein();
+        targets[Nutrient.CARBS.ordinal()] = target.getCarbs();
+        targets[Nutrient.FATS.ordinal()] = target.getFats();
+        targets[Nutrient.FIBER.ordinal()] = groupTargets.getFiberGrams();
+        targets[Nutrient.CALORIES.ordinal()] = target.getCalories();
+        return targets;
+    }
+
+    /**
+     * Sums nutrients of the non-expired fridge items into {@code amounts} (indexed by
+     * {@link Nutrient}) and returns the OR of their food-group bits.
+     */
+    private int accumulateFridge(FoodCatalogSnapshot catalog, List<Ingredient> ingredients, double[] amounts) {
         if (ingredients == null) return 0;
 
-        double totalProtein = 0;
+        int present = 0;
 
         for (Ingredient ing : ingredients) {
             if (ing == null || ing.getName() == null) continue;
             if ("EXPIRED".equalsIgnoreCase(ing.getFreshnessStatus())) continue;
 
-            FoodItemRow row = foodCatalogService.find(ing.getName());
+            FoodItemRow row = catalog.find(ing.getName());
             if (row == null) {
                 // validateIngredientsOrThrow should prevent this
                 continue;
             }
 
-            Double proteinPer100g = row.getProteinPer100g();
-            if (proteinPer100g == null) proteinPer100g = 0.0;
+            present |= catalog.groupMask(ing.getName());
 
-            double grams = estimateGrams(ing); // you already have this helper
-            totalProtein += proteinPer100g * (grams / 100.0);
+            double factor = estimateGrams(ing) / 100.0;
+            amounts[Nutrient.PROTEIN.ordinal()] += row.getProteinPer100g() * factor;
+            amounts[Nutrient.CARBS.ordinal()] += row.getCarbsPer100g() * factor;
+            amounts[Nutrient.FATS.ordinal()] += row.getFatsPer100g() * factor;
+            amounts[Nutrient.FIBER.ordinal()] += row.getFiberPer100g() * factor;
+            amounts[Nutrient.CALORIES.ordinal()] += row.getCaloriesPer100g() * factor;
         }
 
-        return totalProtein;
+        return present;
     }
 
-    private double estimateGrams(Ingredient ing) {
+    /** Rough grams for a fridge item from its quantity + unit (100 g when unknown). */
+    public static double estimateGrams(Ingredient ing) {
         if (ing.getUnit() == null || ing.getQuantity() <= 0) return 100.0;
 
         String unit = ing.getUnit().trim().toLowerCase();
@@ -190,7 +222,7 @@ public class RecommendationService {
         }
     }
 
-    private void validateIngredientsOrThrow(List<Ingredient> ingredients) {
+    private void validateIngredientsOrThrow(FoodCatalogSnapshot catalog, List<Ingredient> ingredients) {
         if (ingredients == null) return;
 
         for (Ingredient ing : ingredients) {
@@ -200,8 +232,9 @@ public class RecommendationService {
             if (name.isBlank()) continue;
 
             // DB-only unknown -> 400
-            FoodItemRow row = foodCatalogService.find(name);
+            FoodItemRow row = catalog.find(name);
             if (row == null) {
+                metrics.unknownIngredient();
                 throw new ResponseStatusException(
                         HttpStatus.BAD_REQUEST,
                         "UNKNOWN_INGREDIENT: '" + name + "' not found in foods table"
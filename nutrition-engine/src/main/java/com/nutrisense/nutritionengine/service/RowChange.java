@@ -0,0 +1,15 @@
+package com.nutrisense.nutritionengine.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One row change from the database change feed: {@code oldRow} is null for inserts,
+ * {@code row} is null for deletes.
+ */
+@Data
+@AllArgsConstructor
+public class RowChange<T> {
+    private T row;
+    private T oldRow;
+}
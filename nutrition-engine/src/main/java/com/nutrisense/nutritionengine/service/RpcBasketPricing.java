@@ -0,0 +1,116 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.logging.RateLimitedLog;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.supabase.BasketTotalRow;
+import com.nutrisense.nutritionengine.supabase.SupabaseRestClient;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Basket totals computed inside the database: one call to the {@code basket_prices} function
+ * (nutrition-engine/sql/basket_prices.sql) for all candidate stores instead of a lookup per
+ * store and item in the in-memory price catalog. Worth it when that catalog is huge or not
+ * loaded at all ({@code nutrition.catalog.loadPrices=false}).
+ *
+ * {@code nutrition.pricing.backend}: {@code memory} (default) never calls it, {@code rpc} always
+ * does, {@code auto} only for requests with at least {@code rpc.minLookups} store × item lookups
+ * or when no prices are held in memory. Substitute pricing needs the in-memory catalog and never
+ * goes to the database. A failed or slow call (over {@code rpc.timeoutMs}) falls back to the
+ * in-memory catalog. When that catalog holds no prices there is nothing to fall back to: the call
+ * is retried once and then the request fails with 503 rather than ranking every store as if it
+ * carried nothing.
+ */
+@Slf4j
+@Service
+public class RpcBasketPricing {
+
+    public static final String FUNCTION = "basket_prices";
+
+    private static final RateLimitedLog ERROR_LOG = RateLimitedLog.everySecond();
+
+    private final SupabaseRestClient supabase;
+    private final EngineMetrics metrics;
+
+    @Value("${nutrition.pricing.backend:memory}")
+    private String backend;
+
+    @Value("${nutrition.pricing.rpc.minLookups:20000}")
+    private long minLookups;
+
+    @Value("${nutrition.pricing.rpc.timeoutMs:300}")
+    private long timeoutMs;
+
+    public RpcBasketPricing(SupabaseRestClient supabase, EngineMetrics metrics) {
+        this.supabase = supabase;
+        this.metrics = metrics;
+    }
+
+    /** Whether pricing {@code items} at {@code stores} stores goes to the database. */
+    public boolean handles(int stores, int items, boolean substitute, StoreCatalogSnapshot catalog) {
+        if (substitute || stores == 0 || items == 0) return false;
+        return switch (backend.trim().toLowerCase()) {
+            case "rpc" -> true;
+            case "auto" -> !catalog.holdsPrices() || (long) stores * items >= minLookups;
+            default -> false;
+        };
+    }
+
+    /**
+     * Totals per store id for {@code items} (trimmed, lower-cased; repeats count again, as in
+     * memory). Stores carrying none of the items are absent. Empty on failure when
+     * {@code memoryFallback}; otherwise a failure is retried once and then errors with 503.
+     */
+    public Mono<Map<UUID, BasketPrice>> priceAsync(Collection<UUID> storeIds, List<String> items, double missingItemPenalty,
+                                                   boolean memoryFallback) {
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("store_ids", storeIds);
+        args.put("items", items);
+
+        Mono<Map<UUID, BasketPrice>> call = Mono.defer(() -> supabase.rpcAsync(FUNCTION, args, BasketTotalRow.class))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .map(rows -> {
+                    Map<UUID, BasketPrice> baskets = new HashMap<>(rows.size() * 2);
+                    for (BasketTotalRow row : rows) {
+                        if (row.getStore_id() == null || row.getTotal_usd() == null || row.getPriced_items() == null) continue;
+                        int priced = row.getPriced_items();
+                        // one price per store and item: more means an outdated function, price from memory instead
+                        if (priced > items.size()) {
+                            throw new IllegalStateException("basket_prices returned " + priced + " prices for " + items.size() + " items");
+                        }
+                        int missing = items.size() - priced;
+                        baskets.put(row.getStore_id(),
+                                new BasketPrice(row.getTotal_usd() + missing * missingItemPenalty, priced, missing, null));
+                    }
+                    metrics.basketsPriced("rpc", "ok");
+                    return baskets;
+                });
+
+        if (!memoryFallback) {
+            return RequestTrace.span("pricing-rpc", call.retry(1))
+                    .onErrorMap(e -> !(e instanceof ResponseStatusException), e -> {
+                        metrics.basketsPriced("rpc", "failed");
+                        if (ERROR_LOG.tryAcquire()) {
+                            log.warn("pricing.rpc failed fallback=none error={} suppressed={}", e.toString(), ERROR_LOG.drainSuppressed());
+                        }
+                        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Store prices are unavailable", e);
+                    });
+        }
+        return RequestTrace.span("pricing-rpc", call)
+                .onErrorResume(e -> {
+                    metrics.basketsPriced("rpc", "fallback");
+                    if (ERROR_LOG.tryAcquire()) {
+                        log.warn("pricing.rpc failed fallback=memory error={} suppressed={}", e.toString(), ERROR_LOG.drainSuppressed());
+                    }
+                    return Mono.empty();
+                });
+    }
+}
@@ -2,76 +2,239 @@ package com.nutrisense.nutritionengine.service;
 
 import com.nutrisense.nutritionengine.supabase.*;
 import com.nutrisense.nutritionengine.supabase.SupabaseRestClient;
+import com.nutrisense.nutritionengine.jfr.CatalogReloadEvent;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.resilience.Deadline;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 public class StoreCatalogService {
 
     private final SupabaseRestClient supabase;
+    private final EngineMetrics metrics;
 
-    private List<StoreRow> storesCache = new ArrayList<>();
-    private Map<UUID, Map<String, Double>> storePriceByFoodNameCache = new HashMap<>();
-    private long cacheLoadedAtMs = 0;
-    private final Object cacheLock = new Object();
+    @Value("${nutrition.catalog.ttlSeconds:60}")
+    private long ttlSeconds;
 
-    public StoreCatalogService(SupabaseRestClient supabase) {
+    // false: store_prices stays in the database, baskets are priced there (RpcBasketPricing)
+    @Value("${nutrition.catalog.loadPrices:true}")
+    private boolean loadPrices;
+
+    private volatile StoreCatalogSnapshot snapshot = StoreCatalogSnapshot.EMPTY;
+    private final AtomicReference<Mono<StoreCatalogSnapshot>> reloading = new AtomicReference<>();
+
+    // publishing a reload and applying a change-feed patch never interleave
+    private final Object publishLock = new Object();
+    // changes patched in while a reload is in flight, replayed on top of its result; guarded by publishLock
+    private List<CatalogChanges> patchedDuringReload;
+    // told about every snapshot before it is published
+    private final List<Consumer<StoreCatalogSnapshot>> publishListeners = new CopyOnWriteArrayList<>();
+
+    public StoreCatalogService(SupabaseRestClient supabase, EngineMetrics metrics) {
         this.supabase = supabase;
+        this.metrics = metrics;
+        metrics.catalogGauges("store", () -> snapshot.getStores().size(), () -> snapshot.approxHeapBytes());
     }
 
     public List<StoreRow> getStores() {
-        ensureLoaded();
-        return storesCache;
+        return snapshot().getStores();
     }
 
     public double getPrice(UUID storeId, String foodNameLower) {
-        ensureLoaded();
-        Map<String, Double> m = storePriceByFoodNameCache.getOrDefault(storeId, Collections.emptyMap());
-        Double p = m.get(foodNameLower);
-        return p == null ? -1 : p;
+        return snapshot().getPrice(storeId, foodNameLower);
+    }
+
+    public long getVersion() {
+        return snapshot().getVersion();
+    }
+
+    /** Blocks during a reload; reactive callers use {@link #snapshotAsync()}. */
+    public StoreCatalogSnapshot snapshot() {
+        try (RequestTrace.Span ignored = RequestTrace.start("stores")) {
+            StoreCatalogSnapshot s = snapshot;
+            if (isFresh(s, System.currentTimeMillis())) {
+                metrics.cacheHit(EngineMetrics.CACHE_STORE_CATALOG);
+                return s;
+            }
+            return Deadline.bound("stores", Mono.defer(this::acquire)).block();
+        }
+    }
+
+    /** Non-blocking {@link #snapshot()}; concurrent callers share one in-flight reload. */
+    public Mono<StoreCatalogSnapshot> snapshotAsync() {
+        return RequestTrace.span("stores", Deadline.bound("stores", Mono.defer(this::acquire)));
+    }
+
+    private Mono<StoreCatalogSnapshot> acquire() {
+        StoreCatalogSnapshot s = snapshot;
+        if (isFresh(s, System.currentTimeMillis())) {
+            metrics.cacheHit(EngineMetrics.CACHE_STORE_CATALOG);
+            return Mono.just(s);
+        }
+
+        metrics.cacheMiss(EngineMetrics.CACHE_STORE_CATALOG);
+        while (true) {
+            Mono<StoreCatalogSnapshot> pending = reloading.get();
+            if (pending != null) return pending;
+
+            Mono<StoreCatalogSnapshot> load = Mono.defer(() -> {
+                        StoreCatalogSnapshot current = snapshot;
+                        if (isFresh(current, System.currentTimeMillis())) return Mono.just(current);
+                        long start = System.nanoTime();
+                        CatalogReloadEvent event = new CatalogReloadEvent();
+                        event.begin();
+                        synchronized (publishLock) {
+                            patchedDuringReload = new ArrayList<>();
+                        }
+                        return reload(current).map(this::publishReload).doOnNext(next -> {
+                            metrics.catalogReloaded("store", System.nanoTime() - start);
+                            event.commit("store", next.getStores().size(), next.approxHeapBytes(), next.getVersion(),
+                                    next.getVersion() != current.getVersion());
+                        });
+                    })
+                    // shared by every waiting request: callers bound their own wait, not the load
+                    .transform(Deadline::detached)
+                    .doFinally(signal -> {
+                        synchronized (publishLock) {
+                            patchedDuringReload = null;
+                        }
+                        reloading.set(null);
+                    })
+                    .cache();
+            if (reloading.compareAndSet(null, load)) return load;
+        }
+    }
+
+    private boolean isFresh(StoreCatalogSnapshot s, long now) {
+        return !s.isEmpty() && (now - s.getLoadedAtMs()) < ttlSeconds * 1000;
     }
 
-    private void ensureLoaded() {
-        synchronized(cacheLock) {
-            long now = System.currentTimeMillis();
-            if (!storesCache.isEmpty() && (now - cacheLoadedAtMs) < 60_000) return;
+    /**
+     * Change-feed rows patched in while the reload was reading the tables may or may not be in
+     * its result; they are replayed on top (patching is idempotent) under a version above both.
+     */
+    private StoreCatalogSnapshot publishReload(StoreCatalogSnapshot next) {
+        synchronized (publishLock) {
+            List<CatalogChanges> pending = patchedDuringReload;
+            patchedDuringReload = null;
+            if (pending != null && !pending.isEmpty()) {
+                long version = Math.max(next.getVersion(), snapshot.getVersion()) + 1;
+                for (CatalogChanges c : pending) {
+                    next = next.patched(version, c.getStores(), c.getFoods(), prices(c));
+                }
+                log.info("catalog.reload catalog=store replayed={} version={}", pending.size(), version);
+            }
+            publish(next);
+            return next;
+        }
+    }
 
-            // 1) load stores
-            List<StoreRow> stores = supabase.getList("stores?select=id,name,chain,address,lat,lng", StoreRow.class);
-            if (stores == null) stores = Collections.emptyList();
+    /**
+     * Patches the current snapshot with change-feed rows and publishes it under the next version,
+     * without a round-trip to Supabase. A no-op until the first load, which reads the tables anyway.
+     *
+     * @return the version now published
+     */
+    public long apply(CatalogChanges changes) {
+        if (!changes.touchesStoreCatalog()) return snapshot.getVersion();
+        // price rows are not held: a price-only change has nothing to patch
+        if (!loadPrices && changes.getFoods().isEmpty() && changes.getStores().isEmpty()) return snapshot.getVersion();
+        synchronized (publishLock) {
+            if (patchedDuringReload != null) patchedDuringReload.add(changes);
+            StoreCatalogSnapshot current = snapshot;
+            if (current.isEmpty()) return current.getVersion();
+            StoreCatalogSnapshot next = current.patched(current.getVersion() + 1, changes.getStores(), changes.getFoods(), prices(changes));
+            publish(next);
+            log.debug("catalog.patch catalog=store version={} changes={}", next.getVersion(), changes.size());
+            if (next.getLoadedAtMs() == 0 && current.getLoadedAtMs() != 0) {
+                log.info("catalog.patch catalog=store unresolved=true reload=next-read version={}", next.getVersion());
+            }
+            return next.getVersion();
+        }
+    }
+
+    /**
+     * Runs {@code listener} on the publishing thread with every new snapshot (reload or change-feed
+     * patch) before readers can see it, so work derived from a snapshot is ready when it is.
+     */
+    public void onPublish(Consumer<StoreCatalogSnapshot> listener) {
+        publishListeners.add(listener);
+    }
 
-            // 2) load foods id map (name -> id)
-            List<FoodIdRow> foods = supabase.getList("foods?select=id,name", FoodIdRow.class);
-            if (foods == null) foods = Collections.emptyList();
+    /** The published snapshot as it is: never reloads, may be stale or empty. */
+    public StoreCatalogSnapshot current() {
+        return snapshot;
+    }
 
-            Map<UUID, String> foodIdToName = new HashMap<>();
-            for (FoodIdRow f : foods) {
-                if (f.getId() != null && f.getName() != null) {
-                    foodIdToName.put(f.getId(), f.getName().trim().toLowerCase());
+    /** Holds publishLock. */
+    private void publish(StoreCatalogSnapshot next) {
+        if (next.getVersion() != snapshot.getVersion()) {
+            for (Consumer<StoreCatalogSnapshot> listener : publishListeners) {
+                try {
+                    listener.accept(next);
+                } catch (RuntimeException e) {
+                    log.warn("catalog.publish catalog=store listener failed version={} error={}", next.getVersion(), e.toString());
                 }
             }
+        }
+        snapshot = next;
+    }
 
-            // 3) load store_prices
-            List<StorePriceRow> prices = supabase.getList("store_prices?select=store_id,food_id,price_usd,unit", StorePriceRow.class);
-            if (prices == null) prices = Collections.emptyList();
+    private Mono<StoreCatalogSnapshot> reload(StoreCatalogSnapshot previous) {
+        // stores, foods id map (name -> id) and store_prices, fetched concurrently
+        return Mono.zip(
+                        list(supabase.getListAsync("stores?select=id,name,chain,address,lat,lng", StoreRow.class)),
+                        list(supabase.getListAsync("foods?select=id,name", FoodIdRow.class)),
+                        loadPrices
+                                ? list(supabase.getListAsync("store_prices?select=store_id,food_id,price_usd,unit", StorePriceRow.class))
+                                : Mono.just(Collections.<StorePriceRow>emptyList()))
+                .map(t -> build(previous, System.currentTimeMillis(), t.getT1(), t.getT2(), t.getT3()));
+    }
 
-            Map<UUID, Map<String, Double>> priceMap = new HashMap<>();
-            for (StorePriceRow sp : prices) {
-                if (sp.getStore_id() == null || sp.getFood_id() == null || sp.getPrice_usd() == null) continue;
-                String foodName = foodIdToName.get(sp.getFood_id());
-                if (foodName == null) continue;
+    /** Price rows are only patched in when the table is held in memory. */
+    private List<RowChange<StorePriceRow>> prices(CatalogChanges changes) {
+        return loadPrices ? changes.getPrices() : Collections.emptyList();
+    }
 
-                priceMap.computeIfAbsent(sp.getStore_id(), k -> new HashMap<>())
-                        .put(foodName, sp.getPrice_usd());
+    private static <T> Mono<List<T>> list(Mono<List<T>> rows) {
+        return rows.defaultIfEmpty(Collections.emptyList());
+    }
+
+    private StoreCatalogSnapshot build(StoreCatalogSnapshot previous,
+                                       long now,
+                                       List<StoreRow> stores,
+                                       List<FoodIdRow> foods,
+                                       List<StorePriceRow> prices) {
+        Map<UUID, String> foodIdToName = new HashMap<>();
+        for (FoodIdRow f : foods) {
+            if (f.getId() != null && f.getName() != null) {
+                foodIdToName.put(f.getId(), f.getName().trim().toLowerCase());
             }
+        }
 
-            storesCache = stores;
-            storePriceByFoodNameCache = priceMap;
-            cacheLoadedAtMs = now;
+        metrics.catalogRows("store", "stores", stores.size());
+        metrics.catalogRows("store", "foods", foods.size());
+        metrics.catalogRows("store", "store_prices", prices.size());
 
-            System.out.println("StoreCatalog loaded stores=" + storesCache.size() + ", store_prices rows=" + prices.size());
+        long fingerprint = 31L * (31L * stores.hashCode() + foods.hashCode()) + prices.hashCode();
+        if (!previous.isEmpty() && !stores.isEmpty() && previous.getFingerprint() == fingerprint) {
+            log.debug("catalog.reload catalog=store changed=false version={}", previous.getVersion());
+            return previous.touch(now);
         }
+        log.info("catalog.reload catalog=store changed=true version={} stores={} prices={}",
+                previous.getVersion() + 1, stores.size(), prices.size());
+
+        return StoreCatalogSnapshot.build(previous.getVersion() + 1, fingerprint, now, stores,
+                Collections.unmodifiableMap(foodIdToName), prices);
     }
-}
\ No newline at end of file
+}
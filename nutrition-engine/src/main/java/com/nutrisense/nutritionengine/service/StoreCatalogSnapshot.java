@@ -0,0 +1,441 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.substitution.NutrientKdTree;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import com.nutrisense.nutritionengine.supabase.StorePriceRow;
+import com.nutrisense.nutritionengine.supabase.StoreRow;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Immutable view of the stores + store_prices tables. Like {@link FoodCatalogSnapshot},
+ * the version only moves when the content differs, after a reload or a change-feed patch.
+ */
+public final class StoreCatalogSnapshot {
+
+    private static final int MAX_CANDIDATE_SETS_PER_STORE = 8;
+
+    public static final StoreCatalogSnapshot EMPTY =
+            new StoreCatalogSnapshot(0, 0, 0, Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(),
+                    Collections.emptyMap());
+
+    private final long version;
+    private final long fingerprint;
+    private final long loadedAtMs;
+
+    private final List<StoreRow> stores;
+
+    // storeId -> (lower-cased food name -> price)
+    private final Map<UUID, Map<String, Price>> priceByStore;
+
+    // lower-cased food name -> cheapest price per 100 g over all stores
+    private final Map<String, Double> bestPricePer100g;
+
+    // foods.id -> lower-cased food name, to key change-feed price rows
+    private final Map<UUID, String> foodNameById;
+
+    // storeId -> (diet and food catalog version -> substitute candidates), built on first use
+    private final Map<UUID, Map<String, NutrientKdTree>> substituteCandidates = new ConcurrentHashMap<>();
+
+    // a merged view keeps candidates in the part holding the store, so they outlive the request
+    private final List<StoreCatalogSnapshot> parts;
+
+    private long heapBytes = -1;
+
+    StoreCatalogSnapshot(long version,
+                         long fingerprint,
+                         long loadedAtMs,
+                         List<StoreRow> stores,
+                         Map<UUID, Map<String, Price>> priceByStore,
+                         Map<String, Double> bestPricePer100g,
+                         Map<UUID, String> foodNameById) {
+        this(version, fingerprint, loadedAtMs, stores, priceByStore, bestPricePer100g, foodNameById, null);
+    }
+
+    private StoreCatalogSnapshot(long version,
+                                 long fingerprint,
+                                 long loadedAtMs,
+                                 List<StoreRow> stores,
+                                 Map<UUID, Map<String, Price>> priceByStore,
+                                 Map<String, Double> bestPricePer100g,
+                                 Map<UUID, String> foodNameById,
+                                 List<StoreCatalogSnapshot> parts) {
+        this.parts = parts;
+        this.version = version;
+        this.fingerprint = fingerprint;
+        this.loadedAtMs = loadedAtMs;
+        this.stores = stores;
+        this.priceByStore = priceByStore;
+        this.bestPricePer100g = bestPricePer100g;
+        this.foodNameById = foodNameById;
+    }
+
+    /** Indexes {@code prices} by store and food name; rows for foods missing from {@code foodNameById} are dropped. */
+    static StoreCatalogSnapshot build(long version,
+                                      long fingerprint,
+                                      long loadedAtMs,
+                                      List<StoreRow> stores,
+                                      Map<UUID, String> foodNameById,
+                                      List<StorePriceRow> prices) {
+        Map<UUID, Map<String, Price>> priceMap = new HashMap<>();
+        Map<String, Double> bestPer100g = new HashMap<>();
+        for (StorePriceRow sp : prices) {
+            if (sp.getStore_id() == null || sp.getFood_id() == null || sp.getPrice_usd() == null) continue;
+            String foodName = foodNameById.get(sp.getFood_id());
+            if (foodName == null) continue;
+
+            // cost-per-gram ranking input for the shopping optimizer, done once here
+            Price price = Price.of(sp);
+            // several rows for one store and name (duplicate foods or listings): the lowest shelf
+            // price wins, as in sql/basket_prices.sql, instead of whichever row came last
+            priceMap.computeIfAbsent(sp.getStore_id(), k -> new HashMap<>())
+                    .merge(foodName, price, Price::plus);
+            bestPer100g.merge(foodName, price.per100g, Math::min);
+        }
+
+        return new StoreCatalogSnapshot(version, fingerprint, loadedAtMs,
+                Collections.unmodifiableList(stores),
+                Collections.unmodifiableMap(priceMap),
+                Collections.unmodifiableMap(bestPer100g),
+                foodNameById);
+    }
+
+    /**
+     * One read-only view over several snapshots holding disjoint stores (the tiles of
+     * {@link StoreTileCatalog}); store price maps are shared, not copied. The version is the
+     * sum of theirs, so it moves whenever one of them does.
+     */
+    static StoreCatalogSnapshot merge(List<StoreCatalogSnapshot> parts) {
+        if (parts.isEmpty()) return EMPTY;
+        if (parts.size() == 1) return parts.get(0);
+
+        long version = 0;
+        long loadedAtMs = Long.MAX_VALUE;
+        List<StoreRow> stores = new ArrayList<>();
+        Map<UUID, Map<String, Price>> prices = new HashMap<>();
+        Map<String, Double> best = new HashMap<>();
+        for (StoreCatalogSnapshot part : parts) {
+            version += part.version;
+            loadedAtMs = Math.min(loadedAtMs, part.loadedAtMs);
+            stores.addAll(part.stores);
+            prices.putAll(part.priceByStore);
+            part.bestPricePer100g.forEach((food, p) -> best.merge(food, p, Math::min));
+        }
+        return new StoreCatalogSnapshot(version, 0, loadedAtMs,
+                Collections.unmodifiableList(stores),
+                Collections.unmodifiableMap(prices),
+                Collections.unmodifiableMap(best),
+                parts.get(parts.size() - 1).foodNameById,
+                List.copyOf(parts));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getLoadedAtMs() {
+        return loadedAtMs;
+    }
+
+    public boolean isEmpty() {
+        return stores.isEmpty();
+    }
+
+    public List<StoreRow> getStores() {
+        return stores;
+    }
+
+    /** False when no price rows are held, e.g. with {@code nutrition.catalog.loadPrices=false}. */
+    public boolean holdsPrices() {
+        return !priceByStore.isEmpty();
+    }
+
+    /**
+     * @return price in USD, or -1 if the store does not carry the food
+     */
+    public double getPrice(UUID storeId, String foodNameLower) {
+        Map<String, Price> m = priceByStore.getOrDefault(storeId, Collections.emptyMap());
+        Price p = m.get(foodNameLower);
+        return p == null ? -1 : p.usd;
+    }
+
+    /**
+     * @return cheapest known price per 100 g, or -1 if no store prices the food
+     */
+    public double getBestPricePer100g(String foodNameLower) {
+        Double p = bestPricePer100g.get(foodNameLower);
+        return p == null ? -1 : p;
+    }
+
+    public Map<String, Double> bestPricesPer100g() {
+        return bestPricePer100g;
+    }
+
+    StoreCatalogSnapshot touch(long now) {
+        StoreCatalogSnapshot touched = new StoreCatalogSnapshot(version, fingerprint, now, stores, priceByStore,
+                bestPricePer100g, foodNameById, parts);
+        touched.substituteCandidates.putAll(substituteCandidates);
+        return touched;
+    }
+
+    /** Lower-cased names of the foods {@code storeId} has a price for. */
+    public Set<String> foodsCarried(UUID storeId) {
+        Map<String, Price> m = priceByStore.get(storeId);
+        return m == null ? Collections.emptySet() : Collections.unmodifiableSet(m.keySet());
+    }
+
+    /**
+     * Substitute candidates at one store under {@code key} (diet and food catalog version),
+     * built by {@code build} on first use and kept while the store's prices stay unchanged,
+     * including across patches of other stores.
+     */
+    public NutrientKdTree substituteCandidates(UUID storeId, String key, Supplier<NutrientKdTree> build) {
+        // nothing priced: nothing worth keeping
+        if (!priceByStore.containsKey(storeId)) return build.get();
+        if (parts != null) {
+            for (StoreCatalogSnapshot part : parts) {
+                if (part.priceByStore.containsKey(storeId)) return part.substituteCandidates(storeId, key, build);
+            }
+        }
+        Map<String, NutrientKdTree> byKey = substituteCandidates.computeIfAbsent(storeId, k -> new ConcurrentHashMap<>());
+        NutrientKdTree candidates = byKey.get(key);
+        if (candidates != null) return candidates;
+        // keys of earlier food catalog versions are dead weight
+        if (byKey.size() >= MAX_CANDIDATE_SETS_PER_STORE) byKey.clear();
+        candidates = build.get();
+        byKey.put(key, candidates);
+        return candidates;
+    }
+
+    /** Rough retained size of stores and prices, see {@link FoodCatalogSnapshot#approxHeapBytes()}. */
+    public long approxHeapBytes() {
+        long b = heapBytes;
+        if (b >= 0) return b;
+
+        b = 0;
+        for (StoreRow r : stores) {
+            b += 120 + FoodCatalogSnapshot.stringBytes(r.getName()) + FoodCatalogSnapshot.stringBytes(r.getChain())
+                    + FoodCatalogSnapshot.stringBytes(r.getAddress());
+        }
+        for (Map<String, Price> prices : priceByStore.values()) {
+            b += FoodCatalogSnapshot.MAP_ENTRY_BYTES + 32 + 64;                  // entry, UUID, inner map
+            b += prices.size() * (FoodCatalogSnapshot.MAP_ENTRY_BYTES + 32);     // food keys are shared
+        }
+        b += bestPricePer100g.size() * (FoodCatalogSnapshot.MAP_ENTRY_BYTES + 16);
+        b += foodNameById.size() * (FoodCatalogSnapshot.MAP_ENTRY_BYTES + 32);
+        heapBytes = b;
+        return b;
+    }
+
+    /**
+     * Copy with change-feed rows applied; only the maps a change touches are copied, the rest
+     * (and every untouched store's price map) is shared. Idempotent like
+     * {@link FoodCatalogSnapshot#patched}; the fingerprint is cleared.
+     *
+     * Prices follow {@link #build}: the lowest listing per store and name, the others kept so a
+     * deleted or repriced cheapest listing falls back to the next one. A change the held listings
+     * cannot resolve (a delete carrying only the key, a rename of a name two foods share) returns
+     * a snapshot that is already stale, so the next read reloads it.
+     */
+    StoreCatalogSnapshot patched(long newVersion,
+                                 List<RowChange<StoreRow>> storeChanges,
+                                 List<RowChange<FoodItemRow>> foodChanges,
+                                 List<RowChange<StorePriceRow>> priceChanges) {
+        List<StoreRow> storeList = storeChanges.isEmpty() ? stores : new ArrayList<>(stores);
+        Map<UUID, Map<String, Price>> prices = new HashMap<>(priceByStore);
+        Map<UUID, String> names = foodChanges.isEmpty() ? foodNameById : new HashMap<>(foodNameById);
+        Set<UUID> copied = new HashSet<>();          // store price maps already copied by this patch
+        Set<String> repriced = new HashSet<>();      // foods whose best price must be recomputed
+        boolean stale = false;
+
+        for (RowChange<StoreRow> c : storeChanges) {
+            UUID oldId = c.getOldRow() != null ? c.getOldRow().getId() : null;
+            UUID id = c.getRow() != null ? c.getRow().getId() : null;
+            if (oldId != null) storeList.removeIf(r -> oldId.equals(r.getId()));
+            if (id != null) {
+                storeList.removeIf(r -> id.equals(r.getId()));
+                storeList.add(c.getRow());
+            }
+            if (oldId != null && !oldId.equals(id)) {
+                Map<String, Price> gone = prices.remove(oldId);
+                if (gone != null) repriced.addAll(gone.keySet());
+            }
+        }
+
+        for (RowChange<FoodItemRow> c : foodChanges) {
+            FoodItemRow row = c.getRow();
+            UUID id = row != null ? row.getId() : c.getOldRow() != null ? c.getOldRow().getId() : null;
+            if (id == null) continue;
+            String before = names.get(id);
+            String after = row != null && row.getName() != null ? row.getName().trim().toLowerCase() : null;
+            if (after != null) names.put(id, after);
+            else names.remove(id);
+            if (before == null || before.equals(after)) continue;
+
+            // another food still goes by the old name: whose listings are whose is unknown
+            if (names.containsValue(before)) {
+                stale = true;
+                continue;
+            }
+            // renamed or deleted: prices are keyed by name
+            for (UUID storeId : new ArrayList<>(prices.keySet())) {
+                if (!prices.get(storeId).containsKey(before)) continue;
+                Map<String, Price> m = writable(prices, copied, storeId);
+                Price p = m.remove(before);
+                if (after != null) m.merge(after, p, Price::plus);
+            }
+            repriced.add(before);
+            if (after != null) repriced.add(after);
+        }
+
+        for (RowChange<StorePriceRow> c : priceChanges) {
+            StorePriceRow old = c.getOldRow();
+            if (old != null && old.getStore_id() != null && names.get(old.getFood_id()) != null
+                    && prices.containsKey(old.getStore_id())) {
+                String food = names.get(old.getFood_id());
+                Price held = prices.get(old.getStore_id()).get(food);
+                Price left = held;
+                if (held == null) {
+                    // nothing held: already gone
+                } else if (old.getPrice_usd() != null) {
+                    left = held.minus(Price.of(old));
+                } else if (held.isSingle()) {
+                    left = null;                    // key-only old_record: the one listing there is
+                } else {
+                    stale = true;                   // key-only old_record: which of the listings is unknown
+                }
+                if (left != held) {
+                    Map<String, Price> m = writable(prices, copied, old.getStore_id());
+                    if (left == null) m.remove(food);
+                    else m.put(food, left);
+                    repriced.add(food);
+                }
+            }
+            StorePriceRow row = c.getRow();
+            if (row == null || row.getStore_id() == null || row.getPrice_usd() == null) continue;
+            String food = names.get(row.getFood_id());
+            if (food == null) continue;     // unknown food: the next reload sorts it out
+            Price listing = Price.of(row);
+            Price held = prices.getOrDefault(row.getStore_id(), Collections.emptyMap()).get(food);
+            // a listing already held is this event replayed onto a reload that saw it
+            if (held != null && held.holds(listing)) continue;
+            writable(prices, copied, row.getStore_id()).put(food, held == null ? listing : held.plus(listing));
+            repriced.add(food);
+        }
+
+        Map<String, Double> best = bestPricePer100g;
+        if (!repriced.isEmpty()) {
+            best = new HashMap<>(bestPricePer100g);
+            for (String food : repriced) {
+                double min = Double.MAX_VALUE;
+                for (Map<String, Price> m : prices.values()) {
+                    Price p = m.get(food);
+                    if (p != null) min = Math.min(min, p.cheapestPer100g());
+                }
+                if (min == Double.MAX_VALUE) best.remove(food);
+                else best.put(food, min);
+            }
+            best = Collections.unmodifiableMap(best);
+        }
+
+        StoreCatalogSnapshot next = new StoreCatalogSnapshot(newVersion, 0, stale ? 0 : loadedAtMs,
+                storeChanges.isEmpty() ? stores : Collections.unmodifiableList(storeList),
+                Collections.unmodifiableMap(prices), best,
+                foodChanges.isEmpty() ? foodNameById : Collections.unmodifiableMap(names));
+        // candidates of stores whose price map is still the same object are still right
+        substituteCandidates.forEach((storeId, byKey) -> {
+            if (prices.get(storeId) == priceByStore.get(storeId)) {
+                next.substituteCandidates.put(storeId, byKey);
+            }
+        });
+        return next;
+    }
+
+    private static Map<String, Price> writable(Map<UUID, Map<String, Price>> prices, Set<UUID> copied, UUID storeId) {
+        if (copied.add(storeId)) {
+            prices.put(storeId, new HashMap<>(prices.getOrDefault(storeId, Collections.emptyMap())));
+        }
+        return prices.get(storeId);
+    }
+
+    /**
+     * The store_prices rows for one store and food name: the lowest shelf price and, for cost
+     * ranking, what 100 g of it costs. With several rows (duplicate foods or listings) all are
+     * kept, cheapest first, so removing one leaves the next.
+     */
+    static final class Price {
+        final double usd;
+        final double per100g;
+        // every listing when there are several, else null
+        private final Price[] listings;
+
+        private Price(double usd, double per100g, Price[] listings) {
+            this.usd = usd;
+            this.per100g = per100g;
+            this.listings = listings;
+        }
+
+        static Price of(StorePriceRow row) {
+            return new Price(row.getPrice_usd(), row.getPrice_usd() / PackageSizes.gramsPerUnit(row.getUnit()) * 100.0, null);
+        }
+
+        boolean isSingle() {
+            return listings == null;
+        }
+
+        /** Both sets of listings; the lower shelf price leads. */
+        Price plus(Price other) {
+            List<Price> all = new ArrayList<>(listings().length + other.listings().length);
+            Collections.addAll(all, listings());
+            Collections.addAll(all, other.listings());
+            return listed(all);
+        }
+
+        /** Without one listing equal to {@code listing}: this when none is, null when none is left. */
+        Price minus(Price listing) {
+            List<Price> all = new ArrayList<>(Arrays.asList(listings()));
+            for (int i = 0; i < all.size(); i++) {
+                if (all.get(i).sameAs(listing)) {
+                    all.remove(i);
+                    return all.isEmpty() ? null : listed(all);
+                }
+            }
+            return this;
+        }
+
+        boolean holds(Price listing) {
+            for (Price p : listings()) {
+                if (p.sameAs(listing)) return true;
+            }
+            return false;
+        }
+
+        /** Lowest cost per 100 g over the listings, which need not be the lowest shelf price. */
+        double cheapestPer100g() {
+            double min = per100g;
+            for (Price p : listings()) min = Math.min(min, p.per100g);
+            return min;
+        }
+
+        private Price[] listings() {
+            return listings == null ? new Price[]{this} : listings;
+        }
+
+        private boolean sameAs(Price other) {
+            return Double.compare(usd, other.usd) == 0 && Double.compare(per100g, other.per100g) == 0;
+        }
+
+        private static Price listed(List<Price> listings) {
+            if (listings.size() == 1) return listings.get(0);
+            listings.sort(Comparator.comparingDouble(p -> p.usd));
+            Price cheapest = listings.get(0);
+            return new Price(cheapest.usd, cheapest.per100g, listings.toArray(new Price[0]));
+        }
+    }
+}
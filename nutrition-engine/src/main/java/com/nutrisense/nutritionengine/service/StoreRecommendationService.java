@@ -1,34 +1,184 @@
 package com.nutrisense.nutritionengine.service;
 
+import com.nutrisense.nutritionengine.distance.CallerPriority;
+import com.nutrisense.nutritionengine.distance.Route;
+import com.nutrisense.nutritionengine.logging.RateLimitedLog;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.store.ParetoSkyline;
 import com.nutrisense.nutritionengine.store.Store;
 import com.nutrisense.nutritionengine.store.StoreRecommendationResponse;
+import com.nutrisense.nutritionengine.store.StoreRequest;
 import com.nutrisense.nutritionengine.store.StoreScore;
+import com.nutrisense.nutritionengine.substitution.FoodSubstitutionService;
 import com.nutrisense.nutritionengine.supabase.StoreRow;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+@Slf4j
 @Service
 public class StoreRecommendationService {
 
+    private static final RateLimitedLog DEBUG_LOG = RateLimitedLog.everySecond();
+
     private static final double WEIGHT_PRICE = 0.5;
     private static final double WEIGHT_DISTANCE = 0.5;
     private static final double MISSING_ITEM_PENALTY_PRICE = 6.00;
+    // travel time for a distance without a Google duration (straight-line fallback): city driving
+    private static final double ESTIMATED_SPEED_KMH = 40.0;
+    private static final int DISTANCE_CONCURRENCY = 8;
 
     private final GoogleDistanceMatrixService googleDistance;
     private final StoreCatalogService storeCatalogService;
+    private final StoreTileCatalog tileCatalog;
+    private final FoodCatalogService foodCatalogService;
+    private final FoodSubstitutionService substitutionService;
+    private final RpcBasketPricing rpcPricing;
+    private final EngineMetrics metrics;
 
     public StoreRecommendationService(GoogleDistanceMatrixService googleDistance,
-                                      StoreCatalogService storeCatalogService) {
+                                      StoreCatalogService storeCatalogService,
+                                      StoreTileCatalog tileCatalog,
+                                      FoodCatalogService foodCatalogService,
+                                      FoodSubstitutionService substitutionService,
+                                      RpcBasketPricing rpcPricing,
+                                      EngineMetrics metrics) {
         this.googleDistance = googleDistance;
         this.storeCatalogService = storeCatalogService;
+        this.tileCatalog = tileCatalog;
+        this.foodCatalogService = foodCatalogService;
+        this.substitutionService = substitutionService;
+        this.rpcPricing = rpcPricing;
+        this.metrics = metrics;
     }
 
     public StoreRecommendationResponse recommend(double userLat, double userLng, List<String> neededItems) {
-        List<String> items = (neededItems == null) ? Collections.emptyList() : neededItems;
+        StoreRequest req = new StoreRequest();
+        req.setLat(userLat);
+        req.setLng(userLng);
+        req.setNeededItems(neededItems);
+        return recommend(req);
+    }
+
+    public StoreRecommendationResponse recommend(StoreRequest req) {
+        return recommend(req, CallerPriority.INTERACTIVE);
+    }
+
+    /** Batch callers are the first to fall back to straight-line distances when Google budget runs low. */
+    public StoreRecommendationResponse recommend(StoreRequest req, CallerPriority priority) {
+        double userLat = req.getLat();
+        double userLng = req.getLng();
+
+        // Load stores from DB (one snapshot for the whole request)
+        StoreCatalogSnapshot catalog = catalogFor(req);
+        List<Store> stores = toStores(catalog);
+        // a database-priced basket is computed while the distances are looked up
+        CompletableFuture<Optional<Map<UUID, BasketPrice>>> dbBaskets = dbBasketsAsync(catalog, req, stores).toFuture();
+
+        Map<String, Route> storeRoute = new HashMap<>();
+        try (RequestTrace.Span ignored = RequestTrace.start("distance")) {
+            for (Store s : stores) {
+                Route route = googleDistance.drivingRoute(userLat, userLng, s.getLatitude(), s.getLongitude(), priority);
+                if (route.getKm() < 0) route = fallbackRoute(userLat, userLng, s.getLatitude(), s.getLongitude());
+                storeRoute.put(s.getId(), route);
+            }
+        }
+
+        return score(catalog, foodsFor(req), req, stores, storeRoute, join(dbBaskets).orElse(null));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /**
+     * {@link #recommend(StoreRequest)} with straight-line distances only, no Google calls. The
+     * startup warm-up uses it to run pricing and scoring without spending quota, the limiter
+     * as the cheap answer when store recommendations are saturated.
+     */
+    public StoreRecommendationResponse recommendWithHaversine(StoreRequest req) {
+        StoreCatalogSnapshot catalog = catalogFor(req);
+        return rankByHaversine(catalog, foodsFor(req), req, dbBasketsAsync(catalog, req, toStores(catalog)).block().orElse(null));
+    }
+
+    /** Non-blocking {@link #recommendWithHaversine}. */
+    public Mono<StoreRecommendationResponse> recommendWithHaversineAsync(StoreRequest req) {
+        return Mono.zip(catalogForAsync(req), foodsForAsync(req))
+                .flatMap(t -> dbBasketsAsync(t.getT1(), req, toStores(t.getT1()))
+                        .flatMap(dbBaskets -> RequestTrace.inScope(
+                                () -> rankByHaversine(t.getT1(), t.getT2(), req, dbBaskets.orElse(null)))));
+    }
+
+    private StoreRecommendationResponse rankByHaversine(StoreCatalogSnapshot catalog, FoodCatalogSnapshot foods,
+                                                        StoreRequest req, Map<UUID, BasketPrice> dbBaskets) {
+        List<Store> stores = toStores(catalog);
+
+        Map<String, Route> storeRoute = new HashMap<>();
+        for (Store s : stores) {
+            storeRoute.put(s.getId(), straightLine(req.getLat(), req.getLng(), s.getLatitude(), s.getLongitude()));
+        }
+        return score(catalog, foods, req, stores, storeRoute, dbBaskets);
+    }
+
+    /**
+     * Non-blocking {@link #recommend(StoreRequest)}: the Google lookups for all stores run
+     * concurrently (at most {@link #DISTANCE_CONCURRENCY} at once) instead of one after another.
+     */
+    public Mono<StoreRecommendationResponse> recommendAsync(StoreRequest req) {
+        return recommendAsync(req, CallerPriority.INTERACTIVE);
+    }
+
+    public Mono<StoreRecommendationResponse> recommendAsync(StoreRequest req, CallerPriority priority) {
+        double userLat = req.getLat();
+        double userLng = req.getLng();
+
+        return Mono.zip(catalogForAsync(req), foodsForAsync(req)).flatMap(pinned -> {
+            StoreCatalogSnapshot catalog = pinned.getT1();
+            List<Store> stores = toStores(catalog);
+            Mono<Map<String, Route>> routes = Flux.fromIterable(stores)
+                    .flatMap(s -> googleDistance.drivingRouteAsync(userLat, userLng, s.getLatitude(), s.getLongitude(), priority)
+                            .map(route -> route.getKm() >= 0 ? route : fallbackRoute(userLat, userLng, s.getLatitude(), s.getLongitude()))
+                            .map(route -> Map.entry(s.getId(), route)), DISTANCE_CONCURRENCY)
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+            return Mono.zip(RequestTrace.span("distance", routes), dbBasketsAsync(catalog, req, stores))
+                    .flatMap(t -> RequestTrace.inScope(
+                            () -> score(catalog, pinned.getT2(), req, stores, t.getT1(), t.getT2().orElse(null))));
+        });
+    }
+
+    /** The tiles around the shopper when the catalog is sharded, else the national catalog. */
+    private StoreCatalogSnapshot catalogFor(StoreRequest req) {
+        return tileCatalog.isEnabled() ? tileCatalog.near(req.getLat(), req.getLng()) : storeCatalogService.snapshot();
+    }
+
+    private Mono<StoreCatalogSnapshot> catalogForAsync(StoreRequest req) {
+        return tileCatalog.isEnabled() ? tileCatalog.nearAsync(req.getLat(), req.getLng()) : storeCatalogService.snapshotAsync();
+    }
+
+    /** Substitutes are the only food lookups; without them the request never touches the food catalog. */
+    private FoodCatalogSnapshot foodsFor(StoreRequest req) {
+        return Boolean.TRUE.equals(req.getSubstituteMissing()) ? foodCatalogService.snapshot() : FoodCatalogSnapshot.EMPTY;
+    }
+
+    private Mono<FoodCatalogSnapshot> foodsForAsync(StoreRequest req) {
+        return Boolean.TRUE.equals(req.getSubstituteMissing())
+                ? foodCatalogService.snapshotAsync()
+                : Mono.just(FoodCatalogSnapshot.EMPTY);
+    }
 
-        // Load stores from DB
-        List<StoreRow> storeRows = storeCatalogService.getStores();
+    private List<Store> toStores(StoreCatalogSnapshot catalog) {
+        List<StoreRow> storeRows = catalog.getStores();
         List<Store> stores = new ArrayList<>();
         for (StoreRow r : storeRows) {
             if (r.getId() == null || r.getName() == null|| r.getChain() == null || r.getLat() == null || r.getLng() == null) continue;
@@ -43,88 +193,180 @@ public class StoreRecommendationService {
                     Collections.emptyMap() // no more mock itemPrices
             ));
         }
-        System.out.println("stores from db: " + storeRows.size());
-        for (int i = 0; i < Math.min(3, storeRows.size()); i++) {
-            StoreRow r = storeRows.get(i);
-            System.out.println("id=" + r.getId() + " name=" + r.getName() + " address=" + r.getAddress());
+        if (log.isDebugEnabled() && DEBUG_LOG.tryAcquire()) {
+            log.debug("stores.load rows={} usable={} suppressed={}", storeRows.size(), stores.size(), DEBUG_LOG.drainSuppressed());
         }
+        return stores;
+    }
+
+    /**
+     * Basket totals from the database when {@link RpcBasketPricing} takes this request; empty
+     * when it does not or the call failed, and the in-memory catalog prices the baskets. Errors
+     * with 503 when the call failed and no prices are held in memory.
+     */
+    private Mono<Optional<Map<UUID, BasketPrice>>> dbBasketsAsync(StoreCatalogSnapshot catalog, StoreRequest req, List<Store> stores) {
+        List<String> items = itemKeys(req.getNeededItems());
+        boolean substitute = Boolean.TRUE.equals(req.getSubstituteMissing());
+        if (!rpcPricing.handles(stores.size(), items.size(), substitute, catalog)) return Mono.just(Optional.empty());
+
+        List<UUID> storeIds = new ArrayList<>(stores.size());
+        for (Store s : stores) storeIds.add(UUID.fromString(s.getId()));
+        return rpcPricing.priceAsync(storeIds, items, MISSING_ITEM_PENALTY_PRICE, catalog.holdsPrices())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    /** Needed items as the price catalog keys them: trimmed, lower-cased, blanks dropped. */
+    private static List<String> itemKeys(List<String> items) {
+        if (items == null) return Collections.emptyList();
+        List<String> keys = new ArrayList<>(items.size());
+        for (String item : items) {
+            if (item == null || item.isBlank()) continue;
+            keys.add(item.trim().toLowerCase());
+        }
+        return keys;
+    }
 
+    /**
+     * @param foods     the request's food catalog snapshot, for substitutes
+     * @param dbBaskets totals priced by the database, or null to price in memory
+     */
+    private StoreRecommendationResponse score(StoreCatalogSnapshot catalog,
+                                              FoodCatalogSnapshot foods,
+                                              StoreRequest req,
+                                              List<Store> stores,
+                                              Map<String, Route> storeRoute,
+                                              Map<UUID, BasketPrice> dbBaskets) {
+        List<String> items = (req.getNeededItems() == null) ? Collections.emptyList() : req.getNeededItems();
+        boolean substitute = Boolean.TRUE.equals(req.getSubstituteMissing());
 
         List<Double> totals = new ArrayList<>();
         List<Double> dists = new ArrayList<>();
         Map<String, Double> storeTotalPrice = new HashMap<>();
-        Map<String, Double> storeDistance = new HashMap<>();
+        Map<String, Double> storeCoverage = new HashMap<>();
+        Map<String, Map<String, String>> storeSubstitutions = new HashMap<>();
 
-        for (Store s : stores) {
-            double total = computeTotalPriceFromDb(s.getId(), items);
+        try (RequestTrace.Span ignored = RequestTrace.start("pricing")) {
+            // a store the database returned no row for carries none of the items
+            int itemCount = dbBaskets == null ? 0 : itemKeys(items).size();
+            BasketPrice nothingCarried = new BasketPrice(itemCount * MISSING_ITEM_PENALTY_PRICE, 0, itemCount, null);
+            if (dbBaskets == null) metrics.basketsPriced("memory", "ok");
 
-            double dist = googleDistance.drivingDistanceKm(userLat, userLng, s.getLatitude(), s.getLongitude());
-            if (dist < 0) dist = distanceKm(userLat, userLng, s.getLatitude(), s.getLongitude());
+            for (Store s : stores) {
+                BasketPrice basket = dbBaskets != null
+                        ? dbBaskets.getOrDefault(UUID.fromString(s.getId()), nothingCarried)
+                        : computeTotalPriceFromDb(catalog, foods, s.getId(), items, substitute, req.getDietType());
+                double total = basket.getTotal();
+                if (basket.getSubstitutions() != null) storeSubstitutions.put(s.getId(), basket.getSubstitutions());
 
-            storeTotalPrice.put(s.getId(), total);
-            storeDistance.put(s.getId(), dist);
+                int counted = basket.getPricedItems() + basket.getMissingItems();
+                storeCoverage.put(s.getId(), counted == 0 ? 1.0 : (double) basket.getPricedItems() / counted);
 
-            totals.add(total);
-            dists.add(dist);
+                storeTotalPrice.put(s.getId(), total);
+                totals.add(total);
+                dists.add(storeRoute.get(s.getId()).getKm());
+            }
         }
 
-        double minPrice = totals.isEmpty() ? 0 : Collections.min(totals);
-        double maxPrice = totals.isEmpty() ? 0 : Collections.max(totals);
-        double minDist = dists.isEmpty() ? 0 : Collections.min(dists);
-        double maxDist = dists.isEmpty() ? 0 : Collections.max(dists);
+        try (RequestTrace.Span ignored = RequestTrace.start("scoring")) {
+            double minPrice = totals.isEmpty() ? 0 : Collections.min(totals);
+            double maxPrice = totals.isEmpty() ? 0 : Collections.max(totals);
+            double minDist = dists.isEmpty() ? 0 : Collections.min(dists);
+            double maxDist = dists.isEmpty() ? 0 : Collections.max(dists);
 
-        List<StoreScore> scored = new ArrayList<>();
-        for (Store s : stores) {
-            double total = storeTotalPrice.get(s.getId());
-            double dist = storeDistance.get(s.getId());
-
-            double normPrice = normalize(total, minPrice, maxPrice);
-            double normDist = normalize(dist, minDist, maxDist);
-            double score = WEIGHT_PRICE * normPrice + WEIGHT_DISTANCE * normDist;
-
-            scored.add(new StoreScore(
-                    s.getId(),
-                    s.getName(),
-                    s.getChain(),
-                    s.getAddress(),
-                    round2(total),
-                    round2(dist),
-                    round3(normPrice),
-                    round3(normDist),
-                    round3(score)
-            ));
-        }
+            List<StoreScore> scored = new ArrayList<>();
+            for (Store s : stores) {
+                double total = storeTotalPrice.get(s.getId());
+                Route route = storeRoute.get(s.getId());
+                double dist = route.getKm();
+                double minutes = route.getMinutes() >= 0 ? route.getMinutes() : dist / ESTIMATED_SPEED_KMH * 60.0;
+
+                double normPrice = normalize(total, minPrice, maxPrice);
+                double normDist = normalize(dist, minDist, maxDist);
+                double score = WEIGHT_PRICE * normPrice + WEIGHT_DISTANCE * normDist;
+
+                scored.add(new StoreScore(
+                        s.getId(),
+                        s.getName(),
+                        s.getChain(),
+                        s.getAddress(),
+                        round2(total),
+                        round2(dist),
+                        round2(minutes),
+                        round3(storeCoverage.get(s.getId())),
+                        round3(normPrice),
+                        round3(normDist),
+                        round3(score),
+                        substitute ? storeSubstitutions.getOrDefault(s.getId(), Collections.emptyMap()) : null
+                ));
+            }
+
+            scored.sort(Comparator.comparingDouble(StoreScore::getScore));
 
-        scored.sort(Comparator.comparingDouble(StoreScore::getScore));
+            StoreScore bestOverall = scored.isEmpty() ? null : scored.get(0);
+            StoreScore cheapest = scored.stream().min(Comparator.comparingDouble(StoreScore::getTotalPrice)).orElse(bestOverall);
+            StoreScore closest = scored.stream().min(Comparator.comparingDouble(StoreScore::getDistanceKm)).orElse(bestOverall);
 
-        StoreScore bestOverall = scored.isEmpty() ? null : scored.get(0);
-        StoreScore cheapest = scored.stream().min(Comparator.comparingDouble(StoreScore::getTotalPrice)).orElse(bestOverall);
-        StoreScore closest = scored.stream().min(Comparator.comparingDouble(StoreScore::getDistanceKm)).orElse(bestOverall);
+            List<StoreScore> pareto = null;
+            if (Boolean.TRUE.equals(req.getPareto())) {
+                pareto = ParetoSkyline.of(scored,
+                        StoreScore::getTotalPrice,
+                        StoreScore::getDistanceKm,
+                        StoreScore::getTravelMinutes,
+                        sc -> -sc.getCoverage());
+            }
 
-        return new StoreRecommendationResponse(bestOverall, cheapest, closest, scored);
+            return new StoreRecommendationResponse(bestOverall, cheapest, closest, scored, pareto);
+        }
     }
 
-    private double computeTotalPriceFromDb(String storeIdStr, List<String> items) {
-        if (items == null || items.isEmpty()) return 0;
+    private BasketPrice computeTotalPriceFromDb(StoreCatalogSnapshot catalog,
+                                                FoodCatalogSnapshot foods,
+                                                String storeIdStr,
+                                                List<String> items,
+                                                boolean substitute,
+                                                String dietType) {
+        Map<String, String> substitutions = substitute ? new LinkedHashMap<>() : null;
+        if (items == null || items.isEmpty()) return new BasketPrice(0, 0, 0, substitutions);
 
         UUID storeId;
         try {
             storeId = UUID.fromString(storeIdStr);
         } catch (Exception e) {
             // Return a high penalty so this invalid store is never recommended
-            return 10000.0;
+            return new BasketPrice(10000.0, 0, items.size(), substitutions);
         }
 
         double total = 0;
+        int priced = 0;
+        int missing = 0;
         for (String item : items) {
             if (item == null) continue;
             String key = item.trim().toLowerCase();
             if (key.isBlank()) continue;
 
-            double p = storeCatalogService.getPrice(storeId, key);
-            total += (p >= 0) ? p : MISSING_ITEM_PENALTY_PRICE;
+            double p = catalog.getPrice(storeId, key);
+            if (p >= 0) {
+                total += p;
+                priced++;
+                continue;
+            }
+
+            if (substitute) {
+                FoodSubstitutionService.Substitute sub =
+                        substitutionService.findSubstitute(foods, catalog, storeId, key, dietType);
+                if (sub != null) {
+                    total += sub.getPriceUsd();
+                    priced++;
+                    substitutions.put(item.trim(), sub.getName());
+                    continue;
+                }
+            }
+
+            total += MISSING_ITEM_PENALTY_PRICE;
+            missing++;
         }
-        return total;
+        return new BasketPrice(total, priced, missing, substitutions);
     }
 
     private double normalize(double x, double min, double max) {
@@ -133,6 +375,16 @@ public class StoreRecommendationService {
         return (x - min) / denom;
     }
 
+    private Route fallbackRoute(double lat1, double lon1, double lat2, double lon2) {
+        metrics.haversineFallback();
+        return straightLine(lat1, lon1, lat2, lon2);
+    }
+
+    /** Haversine distance; travel time is left unknown and estimated at scoring. */
+    private Route straightLine(double lat1, double lon1, double lat2, double lon2) {
+        return new Route(distanceKm(lat1, lon1, lat2, lon2), -1);
+    }
+
     private double distanceKm(double lat1, double lon1, double lat2, double lon2) {
         final double R = 6371.0;
         double dLat = Math.toRadians(lat2 - lat1);
@@ -0,0 +1,392 @@
+package com.nutrisense.nutritionengine.service;
+
+import com.nutrisense.nutritionengine.jfr.CatalogReloadEvent;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.resilience.Deadline;
+import com.nutrisense.nutritionengine.supabase.StorePriceRow;
+import com.nutrisense.nutritionengine.supabase.StoreRow;
+import com.nutrisense.nutritionengine.supabase.SupabaseRestClient;
+import com.nutrisense.nutritionengine.trace.RequestTrace;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The store catalog cut into lat/lng tiles of {@code sizeDegrees}, each loaded on first use with
+ * bounding-box queries (stores by lat/lng, prices through an inner join on their store) and kept
+ * as its own {@link StoreCatalogSnapshot}. A store recommendation sees the tiles within
+ * {@code radiusKm} of the shopper, merged, so memory and reload traffic follow the regions a
+ * node serves instead of the whole country.
+ *
+ * Tiles are reloaded once older than {@code nutrition.catalog.ttlSeconds} and patched by the
+ * change feed like the national catalog. When the tiles together exceed {@code maxHeapMb}, the
+ * least recently used ones are dropped. {@code pinned} regions ({@code south,west,north,east},
+ * {@code ;}-separated) are loaded during warm-up and never dropped, which pins regions to nodes.
+ *
+ * Off by default; store recommendations then read {@link StoreCatalogService}. OPTIMIZED
+ * /analyze lists carry no location and always price against the national catalog.
+ */
+@Slf4j
+@Service
+public class StoreTileCatalog {
+
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final int LOAD_CONCURRENCY = 4;
+
+    private final SupabaseRestClient supabase;
+    private final FoodCatalogService foodCatalogService;
+    private final EngineMetrics metrics;
+    private final boolean enabled;
+    private final BigDecimal size;
+    private final double radiusKm;
+    private final long maxHeapBytes;
+    private final long ttlMillis;
+    private final Set<Long> pinned;
+
+    // access-ordered, eldest = least recently used; also the lock for everything below
+    private final LinkedHashMap<Long, StoreCatalogSnapshot> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Long, Mono<StoreCatalogSnapshot>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private volatile FoodNames foodNames = new FoodNames(-1, Collections.emptyMap());
+
+    // change-feed patches applied while a load was in flight, replayed onto what it publishes
+    private final List<SequencedChanges> recentChanges = new ArrayList<>();
+    private long changeSeq;
+    private int loadsInFlight;
+
+    public StoreTileCatalog(SupabaseRestClient supabase,
+                            FoodCatalogService foodCatalogService,
+                            EngineMetrics metrics,
+                            @Value("${nutrition.catalog.tiles.enabled:false}") boolean enabled,
+                            @Value("${nutrition.catalog.tiles.sizeDegrees:0.5}") double sizeDegrees,
+                            @Value("${nutrition.catalog.tiles.radiusKm:50}") double radiusKm,
+                            @Value("${nutrition.catalog.tiles.maxHeapMb:256}") long maxHeapMb,
+                            @Value("${nutrition.catalog.tiles.pinned:}") String pinned,
+                            @Value("${nutrition.catalog.ttlSeconds:60}") long ttlSeconds) {
+        if (sizeDegrees <= 0) throw new IllegalArgumentException("nutrition.catalog.tiles.sizeDegrees must be positive");
+        this.supabase = supabase;
+        this.foodCatalogService = foodCatalogService;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.size = BigDecimal.valueOf(sizeDegrees);
+        this.radiusKm = radiusKm;
+        this.maxHeapBytes = maxHeapMb * 1024 * 1024;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.pinned = parsePinned(pinned);
+        if (enabled) {
+            metrics.catalogGauges("store_tiles", this::storesHeld, this::heapBytesHeld);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Blocks while a tile loads; reactive callers use {@link #nearAsync}. */
+    public StoreCatalogSnapshot near(double lat, double lng) {
+        try (RequestTrace.Span ignored = RequestTrace.start("stores")) {
+            List<Long> keys = keysNear(lat, lng);
+            List<StoreCatalogSnapshot> fresh = new ArrayList<>(keys.size());
+            long now = System.currentTimeMillis();
+            for (long key : keys) {
+                StoreCatalogSnapshot t = cached(key);
+                if (t == null || !isFresh(t, now)) break;
+                fresh.add(t);
+            }
+            if (fresh.size() == keys.size()) {
+                fresh.forEach(t -> metrics.cacheHit(EngineMetrics.CACHE_STORE_TILE));
+                return StoreCatalogSnapshot.merge(fresh);
+            }
+            return Deadline.bound("stores", load(keys)).block();
+        }
+    }
+
+    /** The tiles within {@code radiusKm} of the point as one snapshot; concurrent callers share tile loads. */
+    public Mono<StoreCatalogSnapshot> nearAsync(double lat, double lng) {
+        return RequestTrace.span("stores", Deadline.bound("stores", Mono.defer(() -> load(keysNear(lat, lng)))));
+    }
+
+    /** Loads the pinned tiles (startup warm-up); the merged result, empty when nothing is pinned. */
+    public StoreCatalogSnapshot preload() {
+        if (!enabled || pinned.isEmpty()) return StoreCatalogSnapshot.EMPTY;
+        StoreCatalogSnapshot all = load(new ArrayList<>(pinned)).block();
+        log.debug("catalog.tiles pinned={} stores={}", pinned.size(), all == null ? 0 : all.getStores().size());
+        return all == null ? StoreCatalogSnapshot.EMPTY : all;
+    }
+
+    /** Patches the loaded tiles with change-feed rows; stores moving between tiles move along. */
+    public void apply(CatalogChanges changes) {
+        if (!enabled || !changes.touchesStoreCatalog()) return;
+        synchronized (tiles) {
+            changeSeq++;
+            if (loadsInFlight > 0) recentChanges.add(new SequencedChanges(changeSeq, changes));
+            for (Map.Entry<Long, StoreCatalogSnapshot> e : tiles.entrySet()) {
+                e.setValue(patchTile(e.getKey(), e.getValue(), changes));
+            }
+        }
+    }
+
+    private Mono<StoreCatalogSnapshot> load(List<Long> keys) {
+        return Flux.fromIterable(keys)
+                .flatMapSequential(this::tile, LOAD_CONCURRENCY)
+                .collectList()
+                .map(StoreCatalogSnapshot::merge);
+    }
+
+    private Mono<StoreCatalogSnapshot> tile(long key) {
+        StoreCatalogSnapshot t = cached(key);
+        if (t != null && isFresh(t, System.currentTimeMillis())) {
+            metrics.cacheHit(EngineMetrics.CACHE_STORE_TILE);
+            return Mono.just(t);
+        }
+        metrics.cacheMiss(EngineMetrics.CACHE_STORE_TILE);
+
+        while (true) {
+            Mono<StoreCatalogSnapshot> pending = loading.get(key);
+            if (pending != null) return pending;
+
+            AtomicReference<Mono<StoreCatalogSnapshot>> self = new AtomicReference<>();
+            Mono<StoreCatalogSnapshot> load = Mono.defer(() -> reload(key))
+                    // shared by every waiting request: callers bound their own wait, not the load
+                    .transform(Deadline::detached)
+                    .doFinally(signal -> loading.remove(key, self.get()))
+                    .cache();
+            self.set(load);
+            if (loading.putIfAbsent(key, load) == null) return load;
+        }
+    }
+
+    private Mono<StoreCatalogSnapshot> reload(long key) {
+        long startSeq;
+        synchronized (tiles) {
+            loadsInFlight++;
+            startSeq = changeSeq;
+        }
+        long start = System.nanoTime();
+        CatalogReloadEvent event = new CatalogReloadEvent();
+        event.begin();
+
+        String box = box(key, "");
+        String storeBox = box(key, "stores.");
+        return Mono.zip(
+                        list(supabase.getListAsync("stores?select=id,name,chain,address,lat,lng" + box, StoreRow.class)),
+                        list(supabase.getListAsync("store_prices?select=store_id,food_id,price_usd,unit,stores!inner(lat,lng)" + storeBox,
+                                StorePriceRow.class)),
+                        foodCatalogService.snapshotAsync())
+                .map(t -> publish(key, StoreCatalogSnapshot.build(versions.incrementAndGet(), 0, System.currentTimeMillis(),
+                        t.getT1(), names(t.getT3()), t.getT2()), startSeq))
+                .doOnNext(next -> {
+                    metrics.catalogReloaded("store_tile", System.nanoTime() - start);
+                    event.commit("store_tile", next.getStores().size(), next.approxHeapBytes(), next.getVersion(), true);
+                    log.debug("catalog.tile key={} box={} stores={} version={}", key, box, next.getStores().size(), next.getVersion());
+                })
+                .doFinally(signal -> {
+                    synchronized (tiles) {
+                        if (--loadsInFlight == 0) recentChanges.clear();
+                    }
+                });
+    }
+
+    /** Replays patches the load may have missed, publishes the tile and trims to the memory budget. */
+    private StoreCatalogSnapshot publish(long key, StoreCatalogSnapshot next, long startSeq) {
+        synchronized (tiles) {
+            for (SequencedChanges c : recentChanges) {
+                if (c.seq > startSeq) next = patchTile(key, next, c.changes);
+            }
+            tiles.put(key, next);
+            evictOver(key);
+            return next;
+        }
+    }
+
+    /** Drops least recently used unpinned tiles (never {@code keep}) until under the budget; holds the lock. */
+    private void evictOver(long keep) {
+        long held = 0;
+        for (StoreCatalogSnapshot t : tiles.values()) held += t.approxHeapBytes();
+        int evicted = 0;
+        Iterator<Map.Entry<Long, StoreCatalogSnapshot>> it = tiles.entrySet().iterator();
+        while (held > maxHeapBytes && it.hasNext()) {
+            Map.Entry<Long, StoreCatalogSnapshot> e = it.next();
+            if (e.getKey() == keep || pinned.contains(e.getKey())) continue;
+            held -= e.getValue().approxHeapBytes();
+            it.remove();
+            evicted++;
+        }
+        if (evicted > 0) {
+            metrics.cacheEvictions(EngineMetrics.CACHE_STORE_TILE, evicted);
+            log.debug("catalog.tiles evicted={} tiles={} heapBytes={}", evicted, tiles.size(), held);
+        }
+    }
+
+    /** {@code changes} as they concern tile {@code key}: its stores, prices of its stores, all food renames. */
+    private StoreCatalogSnapshot patchTile(long key, StoreCatalogSnapshot tile, CatalogChanges changes) {
+        Set<UUID> here = storeIds(tile);
+        List<RowChange<StoreRow>> storeChanges = new ArrayList<>();
+        for (RowChange<StoreRow> c : changes.getStores()) {
+            StoreRow row = c.getRow();
+            UUID id = row != null ? row.getId() : null;
+            UUID oldId = c.getOldRow() != null ? c.getOldRow().getId() : null;
+            boolean landsHere = row != null && row.getLat() != null && row.getLng() != null
+                    && keyOf(row.getLat(), row.getLng()) == key;
+            boolean wasHere = (oldId != null && here.contains(oldId)) || (id != null && here.contains(id));
+            if (landsHere) storeChanges.add(c);
+            // deleted, or moved to another tile
+            else if (wasHere) storeChanges.add(new RowChange<>(null, c.getOldRow() != null ? c.getOldRow() : row));
+        }
+        if (storeChanges.isEmpty() && changes.getFoods().isEmpty() && changes.getPrices().isEmpty()) return tile;
+
+        long version = versions.incrementAndGet();
+        StoreCatalogSnapshot next = storeChanges.isEmpty() && changes.getFoods().isEmpty()
+                ? tile
+                : tile.patched(version, storeChanges, changes.getFoods(), Collections.emptyList());
+
+        Set<UUID> stores = storeChanges.isEmpty() ? here : storeIds(next);
+        List<RowChange<StorePriceRow>> prices = new ArrayList<>();
+        for (RowChange<StorePriceRow> c : changes.getPrices()) {
+            StorePriceRow r = c.getRow() != null ? c.getRow() : c.getOldRow();
+            if (r != null && stores.contains(r.getStore_id())) prices.add(c);
+        }
+        if (!prices.isEmpty()) next = next.patched(version, Collections.emptyList(), Collections.emptyList(), prices);
+        return next;
+    }
+
+    private StoreCatalogSnapshot cached(long key) {
+        synchronized (tiles) {
+            return tiles.get(key);
+        }
+    }
+
+    private boolean isFresh(StoreCatalogSnapshot t, long now) {
+        return now - t.getLoadedAtMs() < ttlMillis;
+    }
+
+    /** Keys of the tiles overlapping the box of {@code radiusKm} around the point. */
+    private List<Long> keysNear(double lat, double lng) {
+        double dLat = radiusKm / KM_PER_DEGREE;
+        double dLng = Math.min(180, radiusKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(lat)))));
+        int south = index(Math.max(-90, lat - dLat));
+        int north = index(Math.min(90, lat + dLat));
+        int west = index(Math.max(-180, lng - dLng));
+        int east = index(Math.min(180, lng + dLng));
+        List<Long> keys = new ArrayList<>();
+        for (int i = south; i <= north; i++) {
+            for (int j = west; j <= east; j++) keys.add(key(i, j));
+        }
+        return keys;
+    }
+
+    /** Decimal arithmetic, so a store on a tile edge lands where the database's {@code gte}/{@code lt} puts it. */
+    private int index(double degrees) {
+        return BigDecimal.valueOf(degrees).divide(size, 0, RoundingMode.FLOOR).intValueExact();
+    }
+
+    /** Index of the last tile below {@code degrees}. */
+    private int lastIndex(double degrees) {
+        return BigDecimal.valueOf(degrees).divide(size, 0, RoundingMode.CEILING).intValueExact() - 1;
+    }
+
+    private long keyOf(double lat, double lng) {
+        return key(index(lat), index(lng));
+    }
+
+    private static long key(int latIndex, int lngIndex) {
+        return ((long) latIndex << 32) | (lngIndex & 0xffffffffL);
+    }
+
+    /** PostgREST filters for the tile's box; {@code prefix} targets an embedded resource. */
+    private String box(long key, String prefix) {
+        BigDecimal south = size.multiply(BigDecimal.valueOf((int) (key >> 32)));
+        BigDecimal west = size.multiply(BigDecimal.valueOf((int) key));
+        return "&" + prefix + "lat=gte." + south.toPlainString() + "&" + prefix + "lat=lt." + south.add(size).toPlainString()
+                + "&" + prefix + "lng=gte." + west.toPlainString() + "&" + prefix + "lng=lt." + west.add(size).toPlainString();
+    }
+
+    private Set<Long> parsePinned(String boxes) {
+        Set<Long> keys = new LinkedHashSet<>();
+        if (boxes == null || boxes.isBlank()) return keys;
+        for (String b : boxes.split(";")) {
+            if (b.isBlank()) continue;
+            String[] c = b.split(",");
+            if (c.length != 4) {
+                throw new IllegalArgumentException("nutrition.catalog.tiles.pinned: expected south,west,north,east, got " + b);
+            }
+            int south = index(Double.parseDouble(c[0].trim()));
+            int west = index(Double.parseDouble(c[1].trim()));
+            // north and east edges are exclusive, like a tile's own
+            int north = Math.max(south, lastIndex(Double.parseDouble(c[2].trim())));
+            int east = Math.max(west, lastIndex(Double.parseDouble(c[3].trim())));
+            for (int i = south; i <= north; i++) {
+                for (int j = west; j <= east; j++) keys.add(key(i, j));
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /** Lower-cased names keyed by food id, rebuilt when the food catalog moves. */
+    private Map<UUID, String> names(FoodCatalogSnapshot foods) {
+        FoodNames n = foodNames;
+        if (n.version == foods.getVersion()) return n.byId;
+        Map<UUID, String> byId = new HashMap<>();
+        foods.foodNameById().forEach((id, name) -> {
+            if (id != null && name != null) byId.put(id, name.trim().toLowerCase());
+        });
+        n = new FoodNames(foods.getVersion(), Collections.unmodifiableMap(byId));
+        foodNames = n;
+        return n.byId;
+    }
+
+    private static Set<UUID> storeIds(StoreCatalogSnapshot tile) {
+        Set<UUID> ids = new HashSet<>();
+        for (StoreRow r : tile.getStores()) ids.add(r.getId());
+        return ids;
+    }
+
+    private static <T> Mono<List<T>> list(Mono<List<T>> rows) {
+        return rows.defaultIfEmpty(Collections.emptyList());
+    }
+
+    private long storesHeld() {
+        synchronized (tiles) {
+            long n = 0;
+            for (StoreCatalogSnapshot t : tiles.values()) n += t.getStores().size();
+            return n;
+        }
+    }
+
+    private long heapBytesHeld() {
+        synchronized (tiles) {
+            long b = 0;
+            for (StoreCatalogSnapshot t : tiles.values()) b += t.approxHeapBytes();
+            return b;
+        }
+    }
+
+    private static final class FoodNames {
+        final long version;
+        final Map<UUID, String> byId;
+
+        FoodNames(long version, Map<UUID, String> byId) {
+            this.version = version;
+            this.byId = byId;
+        }
+    }
+
+    private static final class SequencedChanges {
+        final long seq;
+        final CatalogChanges changes;
+
+        SequencedChanges(long seq, CatalogChanges changes) {
+            this.seq = seq;
+            this.changes = changes;
+        }
+    }
+}
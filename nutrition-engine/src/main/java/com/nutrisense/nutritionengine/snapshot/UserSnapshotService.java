@@ -0,0 +1,346 @@
+package com.nutrisense.nutritionengine.snapshot;
+
+import com.nutrisense.nutritionengine.logging.RateLimitedLog;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.model.Ingredient;
+import com.nutrisense.nutritionengine.model.NutritionRequest;
+import com.nutrisense.nutritionengine.model.NutritionResponse;
+import com.nutrisense.nutritionengine.model.ShoppingMode;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import com.nutrisense.nutritionengine.service.AnalysisContext;
+import com.nutrisense.nutritionengine.service.NutritionAnalysisService;
+import com.nutrisense.nutritionengine.service.ProfileService;
+import com.nutrisense.nutritionengine.supabase.ProfileRow;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Materialized /analyze answers per active user, computed ahead of the app asking. The backend
+ * hands over a user's inputs (fridge contents, shopping options, optionally the profile; else
+ * the Supabase profile is used) whenever they change; background workers compute the response,
+ * most recently active users first, and recompute it when the inputs, the profile (change feed),
+ * a catalog version or the date change. Reading a current snapshot is a map lookup; a stale or
+ * not yet computed one is computed on the spot, so readers never see an outdated answer.
+ *
+ * At most {@code maxUsers} users are kept (least recently active dropped first), and users not
+ * seen for {@code idleHours} are dropped.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "nutrition.snapshots", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UserSnapshotService {
+
+    private static final RateLimitedLog ERROR_LOG = RateLimitedLog.everySecond();
+
+    private final NutritionAnalysisService analysisService;
+    private final ProfileService profileService;
+    private final EngineMetrics metrics;
+    private final int maxUsers;
+    private final long idleMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // most recently active first; an entry is queued at most once (Entry.queued)
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService sweeper;
+
+    public UserSnapshotService(NutritionAnalysisService analysisService,
+                               ProfileService profileService,
+                               EngineMetrics metrics,
+                               @Value("${nutrition.snapshots.workers:0}") int workers,
+                               @Value("${nutrition.snapshots.maxUsers:10000}") int maxUsers,
+                               @Value("${nutrition.snapshots.idleHours:72}") long idleHours,
+                               @Value("${nutrition.snapshots.sweepSeconds:5}") long sweepSeconds) {
+        this.analysisService = analysisService;
+        this.profileService = profileService;
+        this.metrics = metrics;
+        this.maxUsers = Math.max(1, maxUsers);
+        this.idleMillis = TimeUnit.HOURS.toMillis(idleHours);
+
+        // background work yields to requests: half the cores unless configured
+        int n = workers > 0 ? workers : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger seq = new AtomicInteger();
+        for (int i = 0; i < n; i++) {
+            Thread t = new Thread(this::work, "nutrition-snapshot-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            t.start();
+            this.workers.add(t);
+        }
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "nutrition-snapshot-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepSeconds, Math.max(1, sweepSeconds), TimeUnit.SECONDS);
+        metrics.snapshotGauges(entries::size, queue::size);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * New inputs for {@code userId}; the snapshot is recomputed in the background.
+     * {@code request.userProfile} may be null: the Supabase profile is used then.
+     */
+    public void update(String userId, NutritionRequest request) {
+        Inputs inputs = new Inputs(request.getUserProfile(), request.getUserProfile() == null,
+                Collections.unmodifiableList(new ArrayList<>(request.getIngredients())),
+                request.getShoppingMode(), request.getBudgetUsd());
+
+        Entry entry = entries.computeIfAbsent(userId, Entry::new);
+        entry.lastActiveMs = System.currentTimeMillis();
+        // under the entry lock, so a concurrent profileChanged cannot put back the inputs it read
+        synchronized (entry) {
+            entry.inputs = inputs;
+        }
+        if (entries.size() > maxUsers) evictLeastActive();
+        enqueue(entry);
+    }
+
+    public void remove(String userId) {
+        entries.remove(userId);
+    }
+
+    /** Profile row changed in Supabase: users whose snapshot uses it are recomputed. */
+    public void profileChanged(ProfileRow row) {
+        if (row == null || row.user_id == null) return;
+        Entry entry = entries.get(row.user_id);
+        if (entry == null) return;
+        synchronized (entry) {
+            Inputs in = entry.inputs;
+            if (!in.profileFromDb) return;
+            entry.inputs = in.withProfile(profileService.toProfile(row));
+        }
+        enqueue(entry);
+    }
+
+    /** Catalogs were patched: re-check every snapshot now rather than at the next sweep. */
+    public void catalogChanged() {
+        sweeper.execute(this::sweep);
+    }
+
+    /** Whether {@code userId} has inputs, and the shopping mode they ask for. */
+    public ShoppingMode modeOf(String userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null) return null;
+        ShoppingMode mode = entry.inputs.mode;
+        return mode == null ? ShoppingMode.SUGGESTIONS : mode;
+    }
+
+    /**
+     * The user's snapshot against {@code ctx}: served as is when current, else computed now
+     * (and kept). Null when the user has no inputs.
+     *
+     * @throws IllegalArgumentException when the snapshot needs the Supabase profile and there is none
+     */
+    public Snapshot read(String userId, AnalysisContext ctx) {
+        Entry entry = entries.get(userId);
+        if (entry == null) return null;
+        entry.lastActiveMs = System.currentTimeMillis();
+
+        Snapshot current = current(entry, ctx);
+        if (current != null) {
+            metrics.cacheHit(EngineMetrics.CACHE_SNAPSHOT);
+            return current;
+        }
+        metrics.cacheMiss(EngineMetrics.CACHE_SNAPSHOT);
+        return compute(entry, ctx, "read");
+    }
+
+    /**
+     * Non-blocking {@link #read}: a current snapshot is served on the caller's thread; computing
+     * one (which may load the profile) runs on the bounded-elastic scheduler. Empty when the user
+     * has no inputs.
+     */
+    public Mono<Snapshot> readAsync(String userId) {
+        ShoppingMode mode = modeOf(userId);
+        if (mode == null) return Mono.empty();
+        return analysisService.newContextAsync(mode == ShoppingMode.OPTIMIZED).flatMap(ctx -> {
+            Entry entry = entries.get(userId);
+            if (entry == null) return Mono.empty();
+            entry.lastActiveMs = System.currentTimeMillis();
+
+            Snapshot current = current(entry, ctx);
+            if (current != null) {
+                metrics.cacheHit(EngineMetrics.CACHE_SNAPSHOT);
+                return Mono.just(current);
+            }
+            metrics.cacheMiss(EngineMetrics.CACHE_SNAPSHOT);
+            return Mono.fromCallable(() -> compute(entry, ctx, "read")).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /** The entry's result if it was computed from its current inputs, today, on ctx's catalogs. */
+    private Snapshot current(Entry entry, AnalysisContext ctx) {
+        Snapshot s = entry.result;
+        if (s == null || s.inputs != entry.inputs || !s.day.equals(LocalDate.now())) return null;
+        return s.catalogVersion == analysisService.catalogVersion(ctx, s.inputs.mode) ? s : null;
+    }
+
+    private Snapshot compute(Entry entry, AnalysisContext ctx, String reason) {
+        Inputs in = entry.inputs;
+        if (in.profile == null) {
+            Inputs loaded = in.withProfile(profileService.loadOrThrow(entry.userId));
+            synchronized (entry) {
+                if (entry.inputs == in) entry.inputs = loaded;
+            }
+            in = loaded;
+        }
+
+        NutritionAnalysisService.AnalysisResult r = analysisService.analyze(ctx, in.profile, in.ingredients, in.mode, in.budgetUsd);
+        Snapshot s = new Snapshot(r.getEtag(), r.getResponse(), analysisService.catalogVersion(ctx, in.mode),
+                LocalDate.now(), System.currentTimeMillis(), in);
+        synchronized (entry) {
+            // newer inputs, or a result on newer catalogs, win
+            Snapshot prev = entry.result;
+            if (entry.inputs == in && (prev == null || prev.inputs != in || prev.catalogVersion <= s.catalogVersion)) {
+                entry.result = s;
+            }
+        }
+        metrics.snapshotComputed(reason);
+        return s;
+    }
+
+    private void enqueue(Entry entry) {
+        if (entry.queued.compareAndSet(false, true)) queue.add(new Task(entry, entry.lastActiveMs));
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Entry entry;
+            try {
+                entry = queue.take().entry;
+            } catch (InterruptedException e) {
+                return;
+            }
+            // cleared first: a change arriving during the computation queues it again
+            entry.queued.set(false);
+            if (entries.get(entry.userId) != entry) continue;
+            try {
+                AnalysisContext ctx = analysisService.newContext();
+                if (current(entry, ctx) == null) compute(entry, ctx, "background");
+            } catch (IllegalArgumentException e) {
+                log.debug("snapshot.compute userId={} skipped={}", entry.userId, e.getMessage());
+            } catch (RuntimeException e) {
+                if (ERROR_LOG.tryAcquire()) {
+                    log.warn("snapshot.compute failed error={} suppressed={}", e.toString(), ERROR_LOG.drainSuppressed());
+                }
+            }
+        }
+    }
+
+    /** Drops idle users and queues every snapshot that is no longer current. */
+    private void sweep() {
+        try {
+            if (entries.isEmpty()) return;
+            long idleBefore = System.currentTimeMillis() - idleMillis;
+            AnalysisContext ctx = analysisService.newContext();
+            for (Entry entry : entries.values()) {
+                if (entry.lastActiveMs < idleBefore) {
+                    entries.remove(entry.userId, entry);
+                } else if (!entry.queued.get() && current(entry, ctx) == null) {
+                    enqueue(entry);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (ERROR_LOG.tryAcquire()) {
+                log.warn("snapshot.sweep failed error={} suppressed={}", e.toString(), ERROR_LOG.drainSuppressed());
+            }
+        }
+    }
+
+    private void evictLeastActive() {
+        while (entries.size() > maxUsers) {
+            Entry oldest = null;
+            for (Entry e : entries.values()) {
+                if (oldest == null || e.lastActiveMs < oldest.lastActiveMs) oldest = e;
+            }
+            if (oldest == null) return;
+            entries.remove(oldest.userId, oldest);
+            metrics.cacheEvictions(EngineMetrics.CACHE_SNAPSHOT, 1);
+        }
+    }
+
+    /** A materialized response: what it was computed from, and against which catalogs and day. */
+    @Data
+    @AllArgsConstructor
+    public static class Snapshot {
+        private String etag;
+        private NutritionResponse response;
+        private long catalogVersion;
+        private LocalDate day;
+        private long computedAtMs;
+        @Getter(AccessLevel.NONE)
+        private Inputs inputs;
+    }
+
+    /** Immutable; replaced whole on every change, so identity tells whether a result is current. */
+    static final class Inputs {
+        final UserProfile profile;          // null until loaded when profileFromDb
+        final boolean profileFromDb;
+        final List<Ingredient> ingredients;
+        final ShoppingMode mode;
+        final Double budgetUsd;
+
+        Inputs(UserProfile profile, boolean profileFromDb, List<Ingredient> ingredients, ShoppingMode mode, Double budgetUsd) {
+            this.profile = profile;
+            this.profileFromDb = profileFromDb;
+            this.ingredients = ingredients;
+            this.mode = mode;
+            this.budgetUsd = budgetUsd;
+        }
+
+        Inputs withProfile(UserProfile p) {
+            return new Inputs(p, profileFromDb, ingredients, mode, budgetUsd);
+        }
+    }
+
+    private static final class Entry {
+        final String userId;
+        final AtomicBoolean queued = new AtomicBoolean();
+        volatile Inputs inputs;
+        volatile Snapshot result;
+        volatile long lastActiveMs;
+
+        Entry(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class Task implements Comparable<Task> {
+        final Entry entry;
+        final long activeMs;
+
+        Task(Entry entry, long activeMs) {
+            this.entry = entry;
+            this.activeMs = activeMs;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            return Long.compare(o.activeMs, activeMs);
+        }
+    }
+}
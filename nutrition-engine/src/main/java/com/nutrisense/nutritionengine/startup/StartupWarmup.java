@@ -0,0 +1,212 @@
+package com.nutrisense.nutritionengine.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nutrisense.nutritionengine.model.Ingredient;
+import com.nutrisense.nutritionengine.model.ShoppingMode;
+import com.nutrisense.nutritionengine.model.UserProfile;
+import com.nutrisense.nutritionengine.service.*;
+import com.nutrisense.nutritionengine.store.StoreRequest;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import com.nutrisense.nutritionengine.supabase.StoreRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup warm-up: loads the food and store catalogs (with suggestions and gap rules), then
+ * runs the analysis, optimizer, pricing/scoring and JSON paths until they are JIT-compiled.
+ * Runners finish before Spring Boot reports {@code ReadinessState.ACCEPTING_TRAFFIC}, so
+ * {@code /actuator/health/readiness} stays down until a new instance is actually fast.
+ *
+ * The exercise stops after {@code nutrition.warmup.iterations} rounds or
+ * {@code nutrition.warmup.maxMillis}, whichever comes first. Distances are straight-line only
+ * (no Google quota spent), the /analyze response cache is bypassed, and if Supabase is still unreachable after {@code nutrition.warmup.catalogTimeoutMs}
+ * the instance becomes ready anyway and loads lazily, as without warm-up.
+ *
+ * {@code nutrition.warmup.exitWhenDone=true} exits after the warm-up: a training run for
+ * the class-data-sharing archive of the fast-start build.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "nutrition.warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final String[][] PROFILES = {
+            {"BALANCED", "MAINTAIN", "female"},
+            {"VEGAN", "LOSE_WEIGHT", "male"},
+            {"KETO", "GAIN_MUSCLE", "male"},
+            {"VEGETARIAN", "MAINTAIN", "female"},
+    };
+
+    private final FoodCatalogService foodCatalogService;
+    private final StoreCatalogService storeCatalogService;
+    private final StoreTileCatalog tileCatalog;
+    private final NutritionAnalysisService analysisService;
+    private final StoreRecommendationService storeService;
+    private final ObjectMapper objectMapper;
+    private final ApplicationContext context;
+
+    @Value("${nutrition.warmup.iterations:300}")
+    private int iterations;
+
+    @Value("${nutrition.warmup.maxMillis:5000}")
+    private long maxMillis;
+
+    @Value("${nutrition.warmup.catalogTimeoutMs:30000}")
+    private long catalogTimeoutMs;
+
+    @Value("${nutrition.warmup.exitWhenDone:false}")
+    private boolean exitWhenDone;
+
+    public StartupWarmup(FoodCatalogService foodCatalogService,
+                         StoreCatalogService storeCatalogService,
+                         StoreTileCatalog tileCatalog,
+                         NutritionAnalysisService analysisService,
+                         StoreRecommendationService storeService,
+                         ObjectMapper objectMapper,
+                         ApplicationContext context) {
+        this.foodCatalogService = foodCatalogService;
+        this.storeCatalogService = storeCatalogService;
+        this.tileCatalog = tileCatalog;
+        this.analysisService = analysisService;
+        this.storeService = storeService;
+        this.objectMapper = objectMapper;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        boolean loaded = loadCatalogs();
+        long catalogMs = (System.nanoTime() - start) / 1_000_000;
+
+        int runs = 0;
+        if (loaded) {
+            long jitStart = System.nanoTime();
+            try {
+                runs = exercise();
+            } catch (RuntimeException e) {
+                log.warn("warmup.exercise failed error={}", e.toString());
+            }
+            log.info("warmup.done catalogMs={} exerciseMs={} runs={}", catalogMs, (System.nanoTime() - jitStart) / 1_000_000, runs);
+        }
+
+        if (exitWhenDone) {
+            log.info("warmup.exit nutrition.warmup.exitWhenDone=true");
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    /**
+     * Retries until {@code catalogTimeoutMs}: a failed food fetch surfaces as an empty snapshot
+     * (reloaded on the next read), not as an exception, so both count as Supabase being unreachable.
+     */
+    private boolean loadCatalogs() {
+        long deadline = System.currentTimeMillis() + catalogTimeoutMs;
+        long backoffMs = 250;
+        while (true) {
+            String error;
+            try {
+                FoodCatalogSnapshot foods = foodCatalogService.snapshot();
+                if (!foods.isEmpty()) {
+                    // sharded: only the pinned tiles, the national catalog waits for an OPTIMIZED analysis
+                    StoreCatalogSnapshot stores = tileCatalog.isEnabled() ? tileCatalog.preload() : storeCatalogService.snapshot();
+                    log.info("warmup.catalogs foods={} stores={} tiles={}", foods.size(), stores.getStores().size(), tileCatalog.isEnabled());
+                    return true;
+                }
+                error = "empty food catalog";
+            } catch (RuntimeException e) {
+                error = e.toString();
+            }
+            if (System.currentTimeMillis() + backoffMs > deadline) {
+                log.warn("warmup.catalogs failed, becoming ready without warm-up error={}", error);
+                return false;
+            }
+            log.info("warmup.catalogs retrying in {}ms error={}", backoffMs, error);
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoffMs = Math.min(backoffMs * 2, 4000);
+        }
+    }
+
+    /** Realistic requests built from the catalog itself, so every lookup hits. */
+    private int exercise() {
+        List<String> names = new ArrayList<>();
+        for (FoodItemRow f : foodCatalogService.snapshot().foods()) {
+            if (f.getName() != null) names.add(f.getName());
+        }
+        // sharded: recommend around the pinned regions only, rather than pulling in tiles this node does not serve
+        List<StoreRow> stores = tileCatalog.isEnabled()
+                ? tileCatalog.preload().getStores()
+                : storeCatalogService.snapshot().getStores();
+        if (names.isEmpty()) return 0;
+
+        long deadline = System.nanoTime() + maxMillis * 1_000_000;
+        int runs = 0;
+        for (int i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+            String[] p = PROFILES[i % PROFILES.length];
+            List<Ingredient> fridge = new ArrayList<>();
+            for (int k = 0; k < 3 + i % 6; k++) {
+                Ingredient ing = new Ingredient();
+                ing.setName(names.get((i * 31 + k * 7) % names.size()));
+                ing.setQuantity(100 + 50 * k);
+                ing.setUnit("g");
+                ing.setConfidenceScore(0.9);
+                fridge.add(ing);
+            }
+
+            AnalysisContext ctx = analysisService.newContext();
+            // OPTIMIZED prices against the national store catalog, which sharded nodes do not load up front
+            ShoppingMode mode = i % 2 == 0 || tileCatalog.isEnabled() ? ShoppingMode.SUGGESTIONS : ShoppingMode.OPTIMIZED;
+            serialize(analysisService.compute(ctx, profile(p), fridge, mode, mode == ShoppingMode.OPTIMIZED ? 25.0 : null));
+
+            if (!stores.isEmpty()) {
+                StoreRow at = stores.get(i % stores.size());
+                StoreRequest req = new StoreRequest();
+                req.setLat(at.getLat() == null ? 0 : at.getLat() + 0.01);
+                req.setLng(at.getLng() == null ? 0 : at.getLng() + 0.01);
+                req.setNeededItems(fridge.stream().map(Ingredient::getName).toList());
+                req.setSubstituteMissing(i % 4 == 1);
+                req.setDietType(p[0]);
+                serialize(storeService.recommendWithHaversine(req));
+            }
+            runs++;
+        }
+        return runs;
+    }
+
+    private void serialize(Object response) {
+        try {
+            objectMapper.writeValueAsBytes(response);
+        } catch (Exception e) {
+            throw new IllegalStateException("Warm-up response did not serialize", e);
+        }
+    }
+
+    private static UserProfile profile(String[] p) {
+        UserProfile u = new UserProfile();
+        u.setAge(34);
+        u.setWeightKg(74);
+        u.setHeightCm(172);
+        u.setGender(p[2]);
+        u.setHealthGoal(p[1]);
+        u.setDietType(p[0]);
+        u.setActivityLevel("MODERATE");
+        return u;
+    }
+}
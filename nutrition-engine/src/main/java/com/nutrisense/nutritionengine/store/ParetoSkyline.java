@@ -0,0 +1,87 @@
+package com.nutrisense.nutritionengine.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Pareto skyline (sort-filter-skyline): the items no other item beats on every criterion.
+ * Items are presorted by the sum of their min-max normalized criteria, which puts every item
+ * after all items dominating it, so one pass that compares each item with the skyline found so
+ * far is enough: O(n log n + n·s) for a skyline of s items, a few milliseconds for thousands
+ * of stores, where comparing all pairs would be quadratic.
+ */
+public final class ParetoSkyline {
+
+    private ParetoSkyline() {
+    }
+
+    /**
+     * @param minimized criteria, lower is better (negate one to maximize it)
+     * @return the non-dominated items, most balanced first (by the presort)
+     */
+    @SafeVarargs
+    public static <T> List<T> of(List<T> items, ToDoubleFunction<? super T>... minimized) {
+        int n = items.size();
+        int d = minimized.length;
+        if (n == 0 || d == 0) return new ArrayList<>(items);
+
+        double[][] points = new double[n][d];
+        double[] min = new double[d];
+        double[] max = new double[d];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < d; k++) {
+                double v = minimized[k].applyAsDouble(items.get(i));
+                points[i][k] = v;
+                min[k] = Math.min(min[k], v);
+                max[k] = Math.max(max[k], v);
+            }
+        }
+
+        double[] sum = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < d; k++) {
+                double range = max[k] - min[k];
+                if (range > 0) sum[i] += (points[i][k] - min[k]) / range;
+            }
+        }
+
+        // rounding can tie a dominating item with the one it dominates; lexicographic order breaks the tie right
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = Double.compare(sum[a], sum[b]);
+            return c != 0 ? c : Arrays.compare(points[a], points[b]);
+        });
+
+        List<double[]> window = new ArrayList<>();
+        List<T> skyline = new ArrayList<>();
+        for (int i : order) {
+            if (!dominated(points[i], window)) {
+                window.add(points[i]);
+                skyline.add(items.get(i));
+            }
+        }
+        return skyline;
+    }
+
+    private static boolean dominated(double[] p, List<double[]> window) {
+        for (double[] q : window) {
+            if (dominates(q, p)) return true;
+        }
+        return false;
+    }
+
+    /** {@code a} is no worse than {@code b} anywhere and better somewhere. */
+    static boolean dominates(double[] a, double[] b) {
+        boolean better = false;
+        for (int k = 0; k < a.length; k++) {
+            if (a[k] > b[k]) return false;
+            if (a[k] < b[k]) better = true;
+        }
+        return better;
+    }
+}
@@ -1,5 +1,6 @@
 package com.nutrisense.nutritionengine.store;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -12,4 +13,8 @@ public class StoreRecommendationResponse {
     private StoreScore cheapest;
     private StoreScore closest;
     private List<StoreScore> allStores;
+
+    // pareto mode only: stores no other store beats on price, distance, travel time and coverage at once
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<StoreScore> paretoStores;
 }
\ No newline at end of file
@@ -9,4 +9,7 @@ public class StoreRequest {
     private double lat;
     private double lng;
     private List<String> neededItems;
-}
\ No newline at end of file
+    private Boolean substituteMissing;  // optional: price nearest in-stock substitute instead of a flat penalty
+    private String dietType;            // optional: substitutes must fit this diet
+    private Boolean pareto;             // optional: also return the Pareto-optimal stores (paretoStores)
+}
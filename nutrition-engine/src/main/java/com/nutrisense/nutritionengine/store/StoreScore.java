@@ -1,8 +1,11 @@
 package com.nutrisense.nutritionengine.store;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 @AllArgsConstructor
 public class StoreScore {
@@ -13,10 +16,18 @@ public class StoreScore {
 
     private double totalPrice;
     private double distanceKm;
+    private double travelMinutes;   // estimated from distanceKm when Google has no duration
+
+    // share of the needed items the store carries (or substitutes), 0..1
+    private double coverage;
 
     private double normalizedPrice;
     private double normalizedDistance;
 
     // lower is better
     private double score;
-}
\ No newline at end of file
+
+    // missing item -> priced substitute (substitution mode only)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, String> substitutions;
+}
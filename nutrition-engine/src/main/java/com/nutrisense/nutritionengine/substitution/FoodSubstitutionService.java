@@ -0,0 +1,46 @@
+package com.nutrisense.nutritionengine.substitution;
+
+import com.nutrisense.nutritionengine.service.DietTags;
+import com.nutrisense.nutritionengine.service.FoodCatalogSnapshot;
+import com.nutrisense.nutritionengine.service.StoreCatalogSnapshot;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Finds the in-stock food closest in nutrient profile to one a store does not carry. Each
+ * store's in-stock foods for a diet get their own k-d tree, built on first use and kept with
+ * the store catalog snapshot, so a lookup is logarithmic in what the store carries.
+ */
+@Service
+public class FoodSubstitutionService {
+
+    /**
+     * @param foods the food catalog snapshot the caller pinned for the request; never loaded
+     *              here, so pricing on an event-loop thread does not block
+     * @return the substitute and its price at this store, or null if none qualifies
+     */
+    public Substitute findSubstitute(FoodCatalogSnapshot foods, StoreCatalogSnapshot stores, UUID storeId,
+                                     String missingFood, String dietType) {
+        NutrientKdTree catalog = foods.nutrientIndex();
+        String diet = dietType == null ? "" : dietType.trim().toUpperCase();
+        NutrientKdTree inStock = stores.substituteCandidates(storeId, diet + "@" + foods.getVersion(),
+                () -> catalog.subset(stores.foodsCarried(storeId), i -> DietTags.allows(catalog.food(i), dietType)));
+
+        FoodItemRow sub = inStock.nearest(missingFood);
+        if (sub == null) return null;
+
+        double price = stores.getPrice(storeId, sub.getName().trim().toLowerCase());
+        return new Substitute(sub.getName(), price);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Substitute {
+        private String name;
+        private double priceUsd;
+    }
+}
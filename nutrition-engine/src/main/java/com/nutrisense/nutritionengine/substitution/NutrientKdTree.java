@@ -0,0 +1,207 @@
+package com.nutrisense.nutritionengine.substitution;
+
+import com.nutrisense.nutritionengine.rules.Nutrient;
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Static k-d tree over foods' nutrient vectors (protein, carbs, fats, fiber, calories per
+ * 100 g), each dimension scaled by its standard deviation over the catalog so that grams of
+ * protein and kcal weigh comparably. Built once per catalog snapshot; the tree is an
+ * implicit balanced layout over one index array (median of each range at its midpoint),
+ * so a query only allocates its query vector and result holder.
+ *
+ * {@link #subset} trees (the foods one store carries, say) share the catalog's arrays and
+ * only hold their own index array; any catalog food can be the query of any of them.
+ */
+public final class NutrientKdTree {
+
+    private static final int DIMS = Nutrient.COUNT;
+
+    private final FoodItemRow[] foods;
+    private final String[] keys;
+    private final Map<String, Integer> indexByName;
+    private final double[] points;      // foods.length * DIMS, already scaled
+    private final int[] tree;           // food indices in k-d order (median at mid of each range)
+
+    private NutrientKdTree(FoodItemRow[] foods, double[] points) {
+        this.foods = foods;
+        this.points = points;
+        this.keys = new String[foods.length];
+        this.indexByName = new HashMap<>(foods.length * 2);
+        for (int i = 0; i < foods.length; i++) {
+            keys[i] = foods[i].getName().trim().toLowerCase();
+            indexByName.put(keys[i], i);
+        }
+
+        this.tree = new int[foods.length];
+        for (int i = 0; i < tree.length; i++) tree[i] = i;
+        build(0, tree.length, 0);
+    }
+
+    private NutrientKdTree(NutrientKdTree catalog, int[] members) {
+        this.foods = catalog.foods;
+        this.points = catalog.points;
+        this.keys = catalog.keys;
+        this.indexByName = catalog.indexByName;
+        this.tree = members;
+        build(0, tree.length, 0);
+    }
+
+    public static NutrientKdTree build(Collection<FoodItemRow> catalog) {
+        List<FoodItemRow> rows = new ArrayList<>(catalog.size());
+        for (FoodItemRow r : catalog) {
+            if (r != null && r.getName() != null && !r.getName().isBlank()) rows.add(r);
+        }
+
+        FoodItemRow[] foods = rows.toArray(new FoodItemRow[0]);
+        int n = foods.length;
+        double[] raw = new double[n * DIMS];
+        for (int i = 0; i < n; i++) vector(foods[i], raw, i * DIMS);
+
+        double[] scale = new double[DIMS];
+        for (int d = 0; d < DIMS; d++) {
+            double sum = 0, sumSq = 0;
+            for (int i = 0; i < n; i++) {
+                double v = raw[i * DIMS + d];
+                sum += v;
+                sumSq += v * v;
+            }
+            double mean = n == 0 ? 0 : sum / n;
+            double var = n == 0 ? 0 : sumSq / n - mean * mean;
+            scale[d] = var > 1e-12 ? 1.0 / Math.sqrt(var) : 1.0;
+        }
+        for (int i = 0; i < raw.length; i++) raw[i] *= scale[i % DIMS];
+
+        return new NutrientKdTree(foods, raw);
+    }
+
+    /** Foods this tree searches (for a subset, its members only). */
+    public int size() {
+        return tree.length;
+    }
+
+    /**
+     * A tree over the catalog foods named in {@code names} that pass {@code keep}, built once
+     * and then searched without a filter: a filter inside the search only prunes after a
+     * node passes it, so a sparse one turns each query into a scan of the whole catalog.
+     */
+    public NutrientKdTree subset(Collection<String> names, IntPredicate keep) {
+        int[] members = new int[names.size()];
+        int n = 0;
+        for (String name : names) {
+            Integer i = indexByName.get(name);
+            if (i != null && keep.test(i)) members[n++] = i;
+        }
+        return new NutrientKdTree(this, Arrays.copyOf(members, n));
+    }
+
+    /**
+     * Nearest food in this tree to the catalog food {@code foodName}, excluding that food.
+     *
+     * @return the food, or null if the name is unknown or the tree holds nothing else
+     */
+    public FoodItemRow nearest(String foodName) {
+        if (foodName == null) return null;
+        Integer self = indexByName.get(foodName.trim().toLowerCase());
+        if (self == null) return null;
+
+        double[] q = Arrays.copyOfRange(points, self * DIMS, self * DIMS + DIMS);
+        Best best = new Best();
+        search(0, tree.length, 0, q, self, best);
+        return best.index < 0 ? null : foods[best.index];
+    }
+
+    public FoodItemRow food(int index) {
+        return foods[index];
+    }
+
+    /** Trimmed, lower-cased name of the food at {@code index} (the price-lookup key). */
+    public String key(int index) {
+        return keys[index];
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) return;
+        int d = depth % DIMS;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, d);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    // quickselect so that tree[mid] holds the median along dimension d
+    private void select(int lo, int hi, int k, int d) {
+        while (hi > lo) {
+            double pivot = coord(tree[(lo + hi) >>> 1], d);
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (coord(tree[i], d) < pivot) i++;
+                while (coord(tree[j], d) > pivot) j--;
+                if (i <= j) {
+                    int t = tree[i];
+                    tree[i] = tree[j];
+                    tree[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private void search(int lo, int hi, int depth, double[] q, int exclude, Best best) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        int node = tree[mid];
+
+        if (node != exclude) {
+            double dist = dist2(node, q);
+            if (dist < best.dist2) {
+                best.dist2 = dist;
+                best.index = node;
+            }
+        }
+
+        int d = depth % DIMS;
+        double delta = q[d] - coord(node, d);
+        if (delta < 0) {
+            search(lo, mid, depth + 1, q, exclude, best);
+            if (delta * delta < best.dist2) search(mid + 1, hi, depth + 1, q, exclude, best);
+        } else {
+            search(mid + 1, hi, depth + 1, q, exclude, best);
+            if (delta * delta < best.dist2) search(lo, mid, depth + 1, q, exclude, best);
+        }
+    }
+
+    private double coord(int food, int d) {
+        return points[food * DIMS + d];
+    }
+
+    private double dist2(int food, double[] q) {
+        int o = food * DIMS;
+        double sum = 0;
+        for (int d = 0; d < DIMS; d++) {
+            double diff = points[o + d] - q[d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static void vector(FoodItemRow f, double[] out, int offset) {
+        out[offset + Nutrient.PROTEIN.ordinal()] = f.getProteinPer100g();
+        out[offset + Nutrient.CARBS.ordinal()] = f.getCarbsPer100g();
+        out[offset + Nutrient.FATS.ordinal()] = f.getFatsPer100g();
+        out[offset + Nutrient.FIBER.ordinal()] = f.getFiberPer100g();
+        out[offset + Nutrient.CALORIES.ordinal()] = f.getCaloriesPer100g();
+    }
+
+    private static final class Best {
+        int index = -1;
+        double dist2 = Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,15 @@
+package com.nutrisense.nutritionengine.supabase;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.UUID;
+
+/** One row of the {@code basket_prices} RPC: a store's total for the needed items it carries. */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BasketTotalRow {
+    private UUID store_id;
+    private Double total_usd;
+    private Integer priced_items;
+}
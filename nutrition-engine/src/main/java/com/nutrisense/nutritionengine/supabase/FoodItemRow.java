@@ -2,6 +2,7 @@ package com.nutrisense.nutritionengine.supabase;
 
 import lombok.Data;
 import java.util.List;
+import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
@@ -9,6 +10,8 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class FoodItemRow {
 
+    private UUID id;
+
     private String name;
 
     @JsonProperty("protein_per_100g")
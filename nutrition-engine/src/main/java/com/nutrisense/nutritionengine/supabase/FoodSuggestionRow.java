@@ -5,11 +5,17 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 import java.util.List;
+import java.util.UUID;
 
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class FoodSuggestionRow {
 
+    private String id;      // primary key, whatever its column type
+
+    @JsonProperty("food_id")
+    private UUID foodId;
+
     private String gap;
     private String reason;
     private Integer priority;
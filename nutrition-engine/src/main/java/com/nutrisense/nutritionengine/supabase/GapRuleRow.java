@@ -0,0 +1,48 @@
+package com.nutrisense.nutritionengine.supabase;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One row of the gap_rules table. A rule fires when every group in absentGroups is
+ * missing from the fridge, every group in presentGroups is there, and (if nutrient is
+ * set) the fridge amount compares against the threshold as described by comparison.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GapRuleRow {
+
+    private String gap;                 // FoodGap name, e.g. LOW_PROTEIN
+
+    @JsonProperty("diet_types")
+    private List<String> dietTypes;     // empty/null = any diet
+
+    @JsonProperty("exclude_diet_types")
+    private List<String> excludeDietTypes;
+
+    private List<String> goals;         // empty/null = any goal
+
+    @JsonProperty("absent_groups")
+    private List<String> absentGroups;  // FoodGroup names
+
+    @JsonProperty("present_groups")
+    private List<String> presentGroups;
+
+    private String nutrient;            // protein / carbs / fats / fiber / calories
+    private String comparison;          // LT / GT (default LT)
+    private Double threshold;
+
+    @JsonProperty("relative_to_target")
+    private Boolean relativeToTarget;   // threshold is a fraction of the daily target
+
+    private String message;             // recommendation text shown for this gap
+    private Integer priority;           // lower first
+    private Boolean enabled;
+}
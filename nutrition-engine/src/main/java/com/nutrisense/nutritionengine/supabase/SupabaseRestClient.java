@@ -1,15 +1,27 @@
 package com.nutrisense.nutritionengine.supabase;
 
+import com.nutrisense.nutritionengine.jfr.SupabaseCallEvent;
+import com.nutrisense.nutritionengine.logging.RateLimitedLog;
+import com.nutrisense.nutritionengine.metrics.EngineMetrics;
+import com.nutrisense.nutritionengine.resilience.Bulkheads;
+import com.nutrisense.nutritionengine.resilience.Deadline;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
+@Slf4j
 @Component
 public class SupabaseRestClient {
 
-    private final WebClient webClient;
+    private static final RateLimitedLog DEBUG_LOG = RateLimitedLog.everySecond();
+
+    private final WebClient webClient;        // catalog tables: few, large responses
+    private final WebClient profileClient;    // per-request reads: profiles, pricing RPC
 
     @Value("${supabase.url}")
     private String supabaseUrl;
@@ -17,24 +29,67 @@ public class SupabaseRestClient {
     @Value("${supabase.serviceRoleKey}")
     private String serviceRoleKey;
 
-    public SupabaseRestClient(WebClient.Builder builder) {
-        this.webClient = builder.build();
+    private final EngineMetrics metrics;
+
+    public SupabaseRestClient(WebClient.Builder builder, Bulkheads bulkheads, EngineMetrics metrics) {
+        this.webClient = bulkheads.isolate(Bulkheads.CATALOG, builder.clone()).build();
+        this.profileClient = bulkheads.isolate(Bulkheads.PROFILE, builder.clone()).build();
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void checkKey() {
+        if (serviceRoleKey == null || serviceRoleKey.isBlank()) {
+            log.warn("supabase.serviceRoleKey is empty; requests will be rejected by row-level security");
+        }
     }
 
     // NEW: generic list fetch from /rest/v1
     public <T> List<T> getList(String pathAndQuery, Class<T> clazz) {
+        return getListAsync(pathAndQuery, clazz).block();
+    }
+
+    /**
+     * Non-blocking {@link #getList}; subscribe on any thread, nothing here blocks. Bounded by the
+     * subscriber's {@link Deadline}; shared catalog reloads run {@link Deadline#detached}.
+     */
+    public <T> Mono<List<T>> getListAsync(String pathAndQuery, Class<T> clazz) {
         String url = supabaseUrl + "/rest/v1/" + stripLeadingSlash(pathAndQuery);
-        System.out.println("Supabase GET URL = " + url);
-        System.out.println("Using serviceRoleKey? " + (serviceRoleKey != null && !serviceRoleKey.isBlank()));
+        if (log.isDebugEnabled() && DEBUG_LOG.tryAcquire()) {
+            log.debug("supabase.get path={} suppressed={}", stripLeadingSlash(pathAndQuery), DEBUG_LOG.drainSuppressed());
+        }
 
-        return webClient.get()
+        String table = tableOf(pathAndQuery);
+        return Deadline.bound(table, metrics.timeSupabase(table, SupabaseCallEvent.time(table, stripLeadingSlash(pathAndQuery), webClient.get()
                 .uri(url)
                 .header("apikey", serviceRoleKey)
                 .header("Authorization", "Bearer " + serviceRoleKey)
                 .retrieve()
                 .bodyToFlux(clazz)
-                .collectList()
-                .block();
+                .collectList())));
+    }
+
+    /**
+     * Calls the database function {@code function} ({@code POST /rest/v1/rpc/<function>}) with
+     * {@code args} as its named arguments. A per-request call, so it shares the profile
+     * connections, not the catalog ones; bounded by the subscriber's {@link Deadline}.
+     */
+    public <T> Mono<List<T>> rpcAsync(String function, Object args, Class<T> clazz) {
+        String path = "rpc/" + function;
+        return Deadline.bound(path, metrics.timeSupabase(path, SupabaseCallEvent.time(path, path, profileClient.post()
+                .uri(supabaseUrl + "/rest/v1/" + path)
+                .header("apikey", serviceRoleKey)
+                .header("Authorization", "Bearer " + serviceRoleKey)
+                .bodyValue(args)
+                .retrieve()
+                .bodyToFlux(clazz)
+                .collectList())));
+    }
+
+    private String tableOf(String pathAndQuery) {
+        String p = stripLeadingSlash(pathAndQuery);
+        int q = p.indexOf('?');
+        return q < 0 ? p : p.substring(0, q);
     }
 
     private String stripLeadingSlash(String s) {
@@ -43,40 +98,44 @@ public class SupabaseRestClient {
     }
 
     public ProfileRow getProfileByUserId(String userId) {
-        String url = supabaseUrl + "/rest/v1/profiles"
-                + "?user_id=eq." + userId
-                + "&select=user_id,age,gender,weight_kg,height_cm,health_goal,diet_type,preferences";
-
-        System.out.println("Supabase profile URL = " + url);
-        System.out.println("Using serviceRoleKey? " + (serviceRoleKey != null && !serviceRoleKey.isBlank()));
+        return getProfileByUserIdAsync(userId)
+                .blockOptional()
+                .orElse(null);
+    }
 
-        return webClient.get()
-                .uri(url)
+    /** Empty when the user has no profile row. Bounded by the subscriber's {@link Deadline}. */
+    public Mono<ProfileRow> getProfileByUserIdAsync(String userId) {
+        // URI template so http.client.requests is tagged per endpoint, not per user
+        String path = "profiles?user_id=eq.{userId}"
+                + "&select=user_id,age,gender,weight_kg,height_cm,health_goal,diet_type,preferences";
+        return Deadline.bound("profiles", metrics.timeSupabase("profiles", SupabaseCallEvent.time("profiles", path, profileClient.get()
+                .uri(supabaseUrl + "/rest/v1/" + path, userId)
                 .header("apikey", serviceRoleKey)
                 .header("Authorization", "Bearer " + serviceRoleKey)
                 .exchangeToMono(resp ->
                         resp.bodyToMono(String.class)
                                 .flatMap(body -> {
-                                    System.out.println("Supabase status=" + resp.statusCode());
-                                    System.out.println("Supabase raw body=" + body);
+                                    // status only: profile bodies are personal data
+                                    if (log.isDebugEnabled() && DEBUG_LOG.tryAcquire()) {
+                                        log.debug("supabase.profile status={} found={} suppressed={}", resp.statusCode().value(),
+                                                !body.trim().equals("[]"), DEBUG_LOG.drainSuppressed());
+                                    }
 
                                     if (body == null || body.trim().equals("[]")) {
-                                        return reactor.core.publisher.Mono.empty();
+                                        return Mono.empty();
                                     }
 
                                     try {
                                         com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
                                         com.fasterxml.jackson.databind.JsonNode arr = om.readTree(body);
-                                        if (!arr.isArray() || arr.size() == 0) return reactor.core.publisher.Mono.empty();
+                                        if (!arr.isArray() || arr.size() == 0) return Mono.empty();
                                         ProfileRow row = om.treeToValue(arr.get(0), ProfileRow.class);
-                                        return reactor.core.publisher.Mono.just(row);
+                                        return Mono.just(row);
                                     } catch (Exception e) {
-                                        return reactor.core.publisher.Mono.empty();
+                                        return Mono.empty();
                                     }
                                 })
-                )
-                .blockOptional()
-                .orElse(null);
+                ))));
     }
 
 }
\ No newline at end of file
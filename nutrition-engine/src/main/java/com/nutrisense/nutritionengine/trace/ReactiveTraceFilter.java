@@ -0,0 +1,50 @@
+package com.nutrisense.nutritionengine.trace;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive twin of {@link ServletTraceFilter}: the trace travels in the Reactor context
+ * and the Server-Timing header is added just before the response is committed.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(prefix = "nutrition.trace", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveTraceFilter implements WebFilter {
+
+    private final TraceRecorder recorder;
+
+    public ReactiveTraceFilter(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!path.startsWith("/api/")) return chain.filter(exchange);
+
+        RequestTrace trace = new RequestTrace(exchange.getRequest().getMethod().name(), path);
+        exchange.getAttributes().put(RequestTrace.ATTRIBUTE, trace);
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            response.getHeaders().set(RequestTrace.HEADER, trace.serverTiming());
+            response.getHeaders().set("Timing-Allow-Origin", "*");
+            return Mono.empty();
+        });
+
+        return chain.filter(exchange)
+                .contextWrite(c -> c.put(RequestTrace.class, trace))
+                .doFinally(signal -> {
+                    HttpStatusCode status = response.getStatusCode();
+                    recorder.record(trace.finish(status == null ? 200 : status.value()));
+                });
+    }
+}
@@ -0,0 +1,183 @@
+package com.nutrisense.nutritionengine.trace;
+
+import com.nutrisense.nutritionengine.jfr.AnalysisPhaseEvent;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Phase timings of one API request. The servlet filter binds the trace to the request
+ * thread, the reactive filter puts it into the Reactor context; code being timed does not
+ * care which:
+ *
+ * <pre>
+ * try (RequestTrace.Span span = RequestTrace.start("gaps")) { ... }   // blocking code
+ * RequestTrace.span("profile", profileMono)                           // reactive code
+ * </pre>
+ *
+ * Without a current trace (batch workers, startup) spans are no-ops. Spans that finish
+ * before the response is committed go into the {@code Server-Timing} header, summed per
+ * name; all of them end up in the {@link TraceRecorder}.
+ */
+public final class RequestTrace {
+
+    public static final String HEADER = "Server-Timing";
+    public static final String ATTRIBUTE = RequestTrace.class.getName();
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final Span NOOP = new Span(null, null, 0, null);
+
+    private final long id = IDS.incrementAndGet();
+    private final String method;
+    private final String path;
+    private final long startedAtMs = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final Queue<SpanRecord> spans = new ConcurrentLinkedQueue<>();
+    private volatile long responseNanos;
+
+    public RequestTrace(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /** The trace bound to this thread, or null. */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /** Starts a span on the current thread's trace; close it to record it. */
+    public static Span start(String name) {
+        RequestTrace trace = CURRENT.get();
+        return trace == null ? NOOP : new Span(trace, name, System.nanoTime(), AnalysisPhaseEvent.start(name));
+    }
+
+    /** Times {@code source} from subscription to termination. */
+    public static <T> Mono<T> span(String name, Mono<T> source) {
+        return Mono.deferContextual(c -> {
+            RequestTrace trace = c.getOrDefault(RequestTrace.class, CURRENT.get());
+            if (trace == null) return source;
+            long start = System.nanoTime();
+            AnalysisPhaseEvent event = AnalysisPhaseEvent.start(name);
+            AtomicBoolean done = new AtomicBoolean();
+            Runnable end = () -> {
+                if (!done.compareAndSet(false, true)) return;
+                trace.record(name, start, System.nanoTime());
+                if (event != null) event.commit(trace.id, trace.path);
+            };
+            // on terminate, not doFinally: that runs after downstream (and the header) has seen the value
+            return source.doOnTerminate(end).doOnCancel(end);
+        });
+    }
+
+    /**
+     * Runs blocking {@code work} with the subscriber's trace bound to the current thread,
+     * so {@link #start} works inside it on scheduler and event-loop threads.
+     */
+    public static <T> Mono<T> inScope(Supplier<T> work) {
+        return Mono.deferContextual(c -> {
+            RequestTrace trace = c.getOrDefault(RequestTrace.class, null);
+            if (trace == null) return Mono.justOrEmpty(work.get());
+            try (Scope ignored = trace.bind()) {
+                return Mono.justOrEmpty(work.get());
+            }
+        });
+    }
+
+    /** Binds this trace to the current thread until the scope is closed. */
+    public Scope bind() {
+        RequestTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        };
+    }
+
+    public void record(String name, long fromNanos, long toNanos) {
+        spans.add(new SpanRecord(name, millis(fromNanos - startNanos), millis(toNanos - fromNanos),
+                Thread.currentThread().getName()));
+    }
+
+    /**
+     * Header value for the spans finished so far plus {@code total} (time to first byte).
+     * Marks the start of the response write.
+     */
+    public String serverTiming() {
+        long now = System.nanoTime();
+        if (responseNanos == 0) responseNanos = now;
+
+        Map<String, double[]> byName = new LinkedHashMap<>();
+        for (SpanRecord s : spans) {
+            double[] agg = byName.computeIfAbsent(s.getName(), k -> new double[2]);
+            agg[0] += s.getDurationMs();
+            agg[1]++;
+        }
+
+        StringBuilder sb = new StringBuilder(128);
+        byName.forEach((name, agg) -> {
+            sb.append(name).append(";dur=").append(format(agg[0]));
+            if (agg[1] > 1) sb.append(";desc=\"n=").append((int) agg[1]).append('"');
+            sb.append(", ");
+        });
+        sb.append("total;dur=").append(format(millis(now - startNanos)));
+        sb.append(", trace;desc=\"").append(id).append('"');
+        return sb.toString();
+    }
+
+    /** Closes the trace; time after the header was written is recorded as {@code write}. */
+    public TraceRecord finish(int status) {
+        long end = System.nanoTime();
+        if (responseNanos != 0) record("write", responseNanos, end);
+
+        List<SpanRecord> sorted = new ArrayList<>(spans);
+        sorted.sort(Comparator.comparingDouble(SpanRecord::getOffsetMs));
+        return new TraceRecord(id, method, path, status, Instant.ofEpochMilli(startedAtMs),
+                millis(end - startNanos), sorted);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static String format(double ms) {
+        return String.format(Locale.ROOT, "%.1f", ms);
+    }
+
+    /** A running span; {@link #close()} records it. */
+    public static final class Span implements AutoCloseable {
+        private final RequestTrace trace;
+        private final String name;
+        private final long startNanos;
+        private final AnalysisPhaseEvent event;
+
+        private Span(RequestTrace trace, String name, long startNanos, AnalysisPhaseEvent event) {
+            this.trace = trace;
+            this.name = name;
+            this.startNanos = startNanos;
+            this.event = event;
+        }
+
+        @Override
+        public void close() {
+            if (trace == null) return;
+            trace.record(name, startNanos, System.nanoTime());
+            if (event != null) event.commit(trace.id, trace.path);
+        }
+    }
+
+    /** Restores the thread's previous trace binding. */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,116 @@
+package com.nutrisense.nutritionengine.trace;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Traces /api requests in servlet mode. The Server-Timing header is added when the response
+ * is about to be committed (first body write or flush), so it covers everything up to
+ * serialization; the write itself only shows up in the recorded trace.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "nutrition.trace", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ServletTraceFilter extends OncePerRequestFilter {
+
+    private final TraceRecorder recorder;
+
+    public ServletTraceFilter(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        RequestTrace trace = new RequestTrace(request.getMethod(), request.getRequestURI());
+        request.setAttribute(RequestTrace.ATTRIBUTE, trace);
+        TimingResponse timed = new TimingResponse(response, trace);
+
+        try (RequestTrace.Scope ignored = trace.bind()) {
+            chain.doFilter(request, timed);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // streaming batch or worker pool: the header goes out with the first body write,
+                // the trace ends when the response does
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override public void onComplete(AsyncEvent event) { recorder.record(trace.finish(response.getStatus())); }
+                    @Override public void onTimeout(AsyncEvent event) { }
+                    @Override public void onError(AsyncEvent event) { }
+                    @Override public void onStartAsync(AsyncEvent event) { }
+                });
+            } else {
+                timed.writeTiming();
+                recorder.record(trace.finish(response.getStatus()));
+            }
+        }
+    }
+
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTrace trace;
+        private volatile boolean written;
+
+        TimingResponse(HttpServletResponse response, RequestTrace trace) {
+            super(response);
+            this.trace = trace;
+        }
+
+        void writeTiming() {
+            if (written) return;
+            written = true;
+            if (isCommitted()) return;
+            setHeader(RequestTrace.HEADER, trace.serverTiming());
+            // lets cross-origin frontends read the timings from the Performance API
+            setHeader("Timing-Allow-Origin", "*");
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeTiming();
+            super.sendError(sc);
+        }
+    }
+}
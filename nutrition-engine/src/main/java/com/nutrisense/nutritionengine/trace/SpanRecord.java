@@ -0,0 +1,14 @@
+package com.nutrisense.nutritionengine.trace;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** One timed phase of a request; times are relative to the start of the request. */
+@Data
+@AllArgsConstructor
+public class SpanRecord {
+    private String name;
+    private double offsetMs;
+    private double durationMs;
+    private String thread;
+}
@@ -0,0 +1,20 @@
+package com.nutrisense.nutritionengine.trace;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/** A finished {@link RequestTrace}, as kept in the {@link TraceRecorder} ring buffer. */
+@Data
+@AllArgsConstructor
+public class TraceRecord {
+    private long id;
+    private String method;
+    private String path;
+    private int status;
+    private Instant startedAt;
+    private double durationMs;
+    private List<SpanRecord> spans;
+}
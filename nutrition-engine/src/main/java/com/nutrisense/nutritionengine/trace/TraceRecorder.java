@@ -0,0 +1,64 @@
+package com.nutrisense.nutritionengine.trace;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Local trace exporter: keeps the last {@code nutrition.trace.bufferSize} finished traces
+ * in a ring buffer (served by {@link TracesEndpoint}) and logs the ones slower than
+ * {@code nutrition.trace.slowMillis} with their spans.
+ */
+@Slf4j
+@Component
+public class TraceRecorder {
+
+    private final AtomicReferenceArray<TraceRecord> slots;
+    private final AtomicLong next = new AtomicLong();
+    private final long slowMillis;
+
+    public TraceRecorder(@Value("${nutrition.trace.bufferSize:256}") int bufferSize,
+                         @Value("${nutrition.trace.slowMillis:1000}") long slowMillis) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, bufferSize));
+        this.slowMillis = slowMillis;
+    }
+
+    public void record(TraceRecord trace) {
+        slots.set((int) (next.getAndIncrement() % slots.length()), trace);
+
+        if (slowMillis > 0 && trace.getDurationMs() >= slowMillis && log.isInfoEnabled()) {
+            StringBuilder spans = new StringBuilder();
+            for (SpanRecord s : trace.getSpans()) {
+                spans.append(' ').append(s.getName()).append('=').append(s.getDurationMs());
+            }
+            log.info("trace.slow id={} method={} path={} status={} durationMs={}{}",
+                    trace.getId(), trace.getMethod(), trace.getPath(), trace.getStatus(), trace.getDurationMs(), spans);
+        }
+    }
+
+    /** Up to {@code limit} traces, newest first. */
+    public List<TraceRecord> recent(int limit) {
+        long end = next.get();
+        int n = (int) Math.min(Math.min(limit, slots.length()), end);
+
+        List<TraceRecord> out = new ArrayList<>(Math.max(n, 0));
+        for (long i = end - 1; i >= end - n; i--) {
+            TraceRecord t = slots.get((int) (i % slots.length()));
+            if (t != null) out.add(t);
+        }
+        return out;
+    }
+
+    public TraceRecord find(long id) {
+        for (int i = 0; i < slots.length(); i++) {
+            TraceRecord t = slots.get(i);
+            if (t != null && t.getId() == id) return t;
+        }
+        return null;
+    }
+}
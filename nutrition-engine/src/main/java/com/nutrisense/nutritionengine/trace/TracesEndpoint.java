@@ -0,0 +1,34 @@
+package com.nutrisense.nutritionengine.trace;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/traces?limit=20} lists recent request traces, newest first;
+ * {@code GET /actuator/traces/{id}} looks one up by the id in its Server-Timing header.
+ */
+@Component
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+
+    private final TraceRecorder recorder;
+
+    public TracesEndpoint(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public List<TraceRecord> traces(@Nullable Integer limit) {
+        return recorder.recent(limit == null ? 50 : limit);
+    }
+
+    @ReadOperation
+    public TraceRecord trace(@Selector long id) {
+        return recorder.find(id);
+    }
+}
@@ -0,0 +1,123 @@
+package com.nutrisense.nutritionengine.substitution;
+
+import com.nutrisense.nutritionengine.supabase.FoodItemRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NutrientKdTreeTest {
+
+    @Test
+    void nearestMatchesBruteForce() {
+        Random rnd = new Random(42);
+        List<FoodItemRow> foods = catalog(rnd, 3000);
+        NutrientKdTree tree = NutrientKdTree.build(foods);
+        double[] scale = scale(foods);
+
+        for (int q = 0; q < 300; q++) {
+            FoodItemRow query = foods.get(rnd.nextInt(foods.size()));
+            assertEquals(bruteForce(foods, query, scale), tree.nearest(query.getName()));
+        }
+    }
+
+    @Test
+    void subsetNearestMatchesBruteForceOverMembers() {
+        Random rnd = new Random(7);
+        List<FoodItemRow> foods = catalog(rnd, 3000);
+        NutrientKdTree tree = NutrientKdTree.build(foods);
+        double[] scale = scale(foods);
+
+        // small stores: a few percent of the catalog, further cut by a diet filter
+        for (int store = 0; store < 40; store++) {
+            double carried = 0.01 + rnd.nextDouble() * 0.2;
+            Set<String> names = new LinkedHashSet<>();
+            for (FoodItemRow f : foods) {
+                if (rnd.nextDouble() < carried) names.add(f.getName());
+            }
+            NutrientKdTree inStock = tree.subset(names, i -> tree.food(i).getFiberPer100g() > 2);
+
+            List<FoodItemRow> members = new ArrayList<>();
+            for (FoodItemRow f : foods) {
+                if (names.contains(f.getName()) && f.getFiberPer100g() > 2) members.add(f);
+            }
+            assertEquals(members.size(), inStock.size());
+
+            for (int q = 0; q < 50; q++) {
+                FoodItemRow query = foods.get(rnd.nextInt(foods.size()));
+                assertEquals(bruteForce(members, query, scale), inStock.nearest(query.getName()));
+            }
+        }
+    }
+
+    @Test
+    void unknownNameAndEmptySubset() {
+        List<FoodItemRow> foods = catalog(new Random(1), 50);
+        NutrientKdTree tree = NutrientKdTree.build(foods);
+
+        assertNull(tree.nearest("no such food"));
+        assertNull(tree.nearest(null));
+        assertNull(tree.subset(List.of(), i -> true).nearest(foods.get(0).getName()));
+        // a subset holding only the query food has nothing else to offer
+        assertNull(tree.subset(List.of("food 0"), i -> true).nearest("food 0"));
+    }
+
+    private static List<FoodItemRow> catalog(Random rnd, int n) {
+        List<FoodItemRow> foods = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            FoodItemRow f = new FoodItemRow();
+            f.setId(UUID.randomUUID());
+            f.setName("food " + i);
+            f.setProteinPer100g(rnd.nextDouble() * 40);
+            f.setCarbsPer100g(rnd.nextDouble() * 80);
+            f.setFatsPer100g(rnd.nextDouble() * 30);
+            f.setFiberPer100g(rnd.nextDouble() * 12);
+            f.setCaloriesPer100g(rnd.nextDouble() * 600);
+            foods.add(f);
+        }
+        return foods;
+    }
+
+    private static double[] vector(FoodItemRow f) {
+        return new double[]{f.getProteinPer100g(), f.getCarbsPer100g(), f.getFatsPer100g(), f.getFiberPer100g(), f.getCaloriesPer100g()};
+    }
+
+    /** 1 / standard deviation per dimension over the whole catalog, as the tree scales. */
+    private static double[] scale(List<FoodItemRow> foods) {
+        double[] sum = new double[5], sumSq = new double[5], scale = new double[5];
+        for (FoodItemRow f : foods) {
+            double[] v = vector(f);
+            for (int d = 0; d < 5; d++) {
+                sum[d] += v[d];
+                sumSq[d] += v[d] * v[d];
+            }
+        }
+        for (int d = 0; d < 5; d++) {
+            double mean = sum[d] / foods.size();
+            double var = sumSq[d] / foods.size() - mean * mean;
+            scale[d] = var > 1e-12 ? 1.0 / Math.sqrt(var) : 1.0;
+        }
+        return scale;
+    }
+
+    private static FoodItemRow bruteForce(List<FoodItemRow> candidates, FoodItemRow query, double[] scale) {
+        double[] q = vector(query);
+        FoodItemRow best = null;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (FoodItemRow f : candidates) {
+            if (f == query) continue;
+            double[] v = vector(f);
+            double dist = 0;
+            for (int d = 0; d < 5; d++) {
+                double diff = (v[d] - q[d]) * scale[d];
+                dist += diff * diff;
+            }
+            if (dist < bestDist) {
+                bestDist = dist;
+                best = f;
+            }
+        }
+        return best;
+    }
+}